@@ -48,9 +48,11 @@ import org.slf4j.Logger;
 import org.apache.qpid.bytebuffer.QpidByteBuffer;
 import org.apache.qpid.server.message.EnqueueableMessage;
 import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.stats.LatencyHistogram;
 import org.apache.qpid.server.store.Event;
 import org.apache.qpid.server.store.EventListener;
 import org.apache.qpid.server.store.EventManager;
+import org.apache.qpid.server.store.MessageContentCompressor;
 import org.apache.qpid.server.store.MessageEnqueueRecord;
 import org.apache.qpid.server.store.MessageHandle;
 import org.apache.qpid.server.store.MessageStore;
@@ -59,9 +61,10 @@ import org.apache.qpid.server.store.StoreException;
 import org.apache.qpid.server.store.StoredMessage;
 import org.apache.qpid.server.store.TransactionLogResource;
 import org.apache.qpid.server.store.Xid;
+import org.apache.qpid.server.store.berkeleydb.entry.MessageContentKey;
 import org.apache.qpid.server.store.berkeleydb.entry.PreparedTransaction;
 import org.apache.qpid.server.store.berkeleydb.entry.QueueEntryKey;
-import org.apache.qpid.server.store.berkeleydb.tuple.ByteBufferBinding;
+import org.apache.qpid.server.store.berkeleydb.tuple.MessageContentKeyBinding;
 import org.apache.qpid.server.store.berkeleydb.tuple.MessageMetaDataBinding;
 import org.apache.qpid.server.store.berkeleydb.tuple.PreparedTransactionBinding;
 import org.apache.qpid.server.store.berkeleydb.tuple.QueueEntryBinding;
@@ -78,7 +81,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
 
     private static final String MESSAGE_META_DATA_DB_NAME = "MESSAGE_METADATA";
     private static final String MESSAGE_META_DATA_SEQ_DB_NAME = "MESSAGE_METADATA.SEQ";
-    private static final String MESSAGE_CONTENT_DB_NAME = "MESSAGE_CONTENT";
+    private static final String MESSAGE_CONTENT_DB_NAME = "MESSAGE_CONTENT_CHUNKS";
     private static final String DELIVERY_DB_NAME = "QUEUE_ENTRIES";
 
     //TODO: Add upgrader to remove BRIDGES and LINKS
@@ -87,6 +90,9 @@ public abstract class AbstractBDBMessageStore implements MessageStore
     private static final String XID_DB_NAME = "XIDS";
     private static final ByteBuffer EMPTY_BYTE_BUFFER = ByteBuffer.allocateDirect(0);
 
+    /** Message content is stored in records of this size, keyed by message id and chunk number */
+    public static final int CONTENT_CHUNK_SIZE = 64 * 1024;
+
     private final EventManager _eventManager = new EventManager();
 
     private final DatabaseEntry MESSAGE_METADATA_SEQ_KEY = new DatabaseEntry("MESSAGE_METADATA_SEQ_KEY".getBytes(
@@ -100,6 +106,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
 
     private boolean _limitBusted;
     private long _totalStoreSize;
+    private volatile MessageContentCompressor _contentCompressor = new MessageContentCompressor();
     private final Random _lockConflictRandom = new Random();
 
     @Override
@@ -242,9 +249,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                     getLogger().debug("Deleted metadata for message {}", messageId);
 
                     //now remove the content data from the store if there is any.
-                    DatabaseEntry contentKeyEntry = new DatabaseEntry();
-                    LongBinding.longToEntry(messageId, contentKeyEntry);
-                    getMessageContentDb().delete(tx, contentKeyEntry);
+                    deleteContent(tx, messageId);
 
                     getLogger().debug("Deleted content for message {}", messageId);
 
@@ -325,43 +330,87 @@ public abstract class AbstractBDBMessageStore implements MessageStore
      */
     int getContent(long messageId, int offset, ByteBuffer dst) throws StoreException
     {
-        DatabaseEntry contentKeyEntry = new DatabaseEntry();
-        LongBinding.longToEntry(messageId, contentKeyEntry);
-        DatabaseEntry value = new DatabaseEntry();
-        ByteBufferBinding contentTupleBinding = ByteBufferBinding.getInstance();
-
+        int written = 0;
+        for (QpidByteBuffer buf : getContent(messageId, offset, dst.remaining(), isContentEncoded(messageId)))
+        {
+            written += buf.remaining();
+            buf.get(dst);
+            buf.dispose();
+        }
+        return written;
+    }
 
+    /**
+     * Reads a range of the content of the specified message, touching only the chunks which hold the range.
+     *
+     * @param messageId The message to get the data for.
+     * @param offset    The offset of the data within the message.
+     * @param length    The maximum number of bytes to read.
+     * @param contentEncoded Whether the chunks were written by the content compressor.
+     *
+     * @return buffers holding the content read, which the caller must dispose
+     *
+     * @throws org.apache.qpid.server.store.StoreException If the operation fails for any reason.
+     */
+    Collection<QpidByteBuffer> getContent(long messageId, int offset, int length, boolean contentEncoded)
+            throws StoreException
+    {
         getLogger().debug("Message Id: {} Getting content body from offset: {}", messageId, offset);
 
-
+        final List<QpidByteBuffer> content = new ArrayList<>();
         try
         {
-
-            int written = 0;
-            OperationStatus status = getMessageContentDb().get(null, contentKeyEntry, value, LockMode.READ_UNCOMMITTED);
-            if (status == OperationStatus.SUCCESS)
+            final long end = (long) offset + length;
+            int chunk = offset / CONTENT_CHUNK_SIZE;
+            long position = (long) chunk * CONTENT_CHUNK_SIZE;
+            DatabaseEntry key = new DatabaseEntry();
+            DatabaseEntry value = new DatabaseEntry();
+            while (position < end)
             {
-                QpidByteBuffer buffer = contentTupleBinding.entryToObject(value);
-                int size = buffer.remaining();
-                if (offset > size)
+                MessageContentKeyBinding.getInstance().objectToEntry(new MessageContentKey(messageId, chunk), key);
+                if (getMessageContentDb().get(null, key, value, LockMode.READ_UNCOMMITTED) != OperationStatus.SUCCESS)
                 {
-                    throw new RuntimeException("Offset " + offset + " is greater than message size " + size
-                                               + " for message id " + messageId + "!");
-
+                    break;
                 }
 
-                written = size - offset;
-                if(written > dst.remaining())
+                byte[] data = value.getData();
+                int dataOffset = value.getOffset();
+                int size = value.getSize();
+                if (contentEncoded)
+                {
+                    data = _contentCompressor.decode(data, dataOffset, size);
+                    dataOffset = 0;
+                    size = data.length;
+                }
+                final int from = (int) Math.max(0L, offset - position);
+                if (from > size)
+                {
+                    throw new RuntimeException("Offset " + offset + " is greater than message size " + (position + size)
+                                               + " for message id " + messageId + "!");
+                }
+                final int to = (int) Math.min(size, end - position);
+                if (to > from)
                 {
-                    written = dst.remaining();
+                    QpidByteBuffer buf = QpidByteBuffer.allocateDirect(to - from);
+                    buf.put(data, dataOffset + from, to - from);
+                    buf.flip();
+                    content.add(buf);
+                }
+                if (size < CONTENT_CHUNK_SIZE)
+                {
+                    break;
                 }
-                buffer = buffer.view(offset, written);
-                buffer.get(dst);
+                position += size;
+                chunk++;
             }
-            return written;
+            return content;
         }
         catch (RuntimeException e)
         {
+            for (QpidByteBuffer buf : content)
+            {
+                buf.dispose();
+            }
             throw getEnvironmentFacade().handleDatabaseException("Error getting AMQMessage with id "
                                                                  + messageId
                                                                  + " to database: "
@@ -371,42 +420,35 @@ public abstract class AbstractBDBMessageStore implements MessageStore
 
     Collection<QpidByteBuffer> getAllContent(long messageId) throws StoreException
     {
-        DatabaseEntry contentKeyEntry = new DatabaseEntry();
-        LongBinding.longToEntry(messageId, contentKeyEntry);
-        DatabaseEntry value = new DatabaseEntry();
+        return getAllContent(messageId, isContentEncoded(messageId));
+    }
 
+    Collection<QpidByteBuffer> getAllContent(long messageId, boolean contentEncoded) throws StoreException
+    {
         getLogger().debug("Message Id: {} Getting content body", messageId);
 
+        return getContent(messageId, 0, Integer.MAX_VALUE, contentEncoded);
+    }
+
+    /**
+     * Reads the flag in the stored meta-data of the message which says whether its content chunks were written by
+     * the content compressor.
+     */
+    private boolean isContentEncoded(long messageId) throws StoreException
+    {
+        DatabaseEntry key = new DatabaseEntry();
+        LongBinding.longToEntry(messageId, key);
+        DatabaseEntry value = new DatabaseEntry();
         try
         {
-            OperationStatus status = getMessageContentDb().get(null, contentKeyEntry, value, LockMode.READ_UNCOMMITTED);
-
-            if (status == OperationStatus.SUCCESS)
-            {
-                byte[] data = value.getData();
-                int offset = value.getOffset();
-                int length = value.getSize();
-                Collection<QpidByteBuffer> buffers = QpidByteBuffer.allocateDirectCollection(length);
-                for(QpidByteBuffer buf : buffers)
-                {
-                    int bufSize = buf.remaining();
-                    buf.put(data, offset, bufSize);
-                    buf.flip();
-                    offset+=bufSize;
-                }
-                return buffers;
-            }
-            else
-            {
-                throw new StoreException("Unable to find message with id " + messageId);
-            }
-
+            return getMessageMetaDataDb().get(null, key, value, LockMode.READ_UNCOMMITTED) == OperationStatus.SUCCESS
+                   && MessageMetaDataBinding.isContentEncoded(value);
         }
         catch (RuntimeException e)
         {
-            throw getEnvironmentFacade().handleDatabaseException("Error getting AMQMessage with id "
+            throw getEnvironmentFacade().handleDatabaseException("Error reading message metadata for message with id "
                                                                  + messageId
-                                                                 + " to database: "
+                                                                 + ": "
                                                                  + e.getMessage(), e);
         }
     }
@@ -431,7 +473,8 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                     {
                         long messageId = LongBinding.entryToLong(key);
                         StorableMessageMetaData metaData = valueBinding.entryToObject(value);
-                        StoredBDBMessage message = new StoredBDBMessage(messageId, metaData, true);
+                        StoredBDBMessage message = new StoredBDBMessage(messageId, metaData, true,
+                                                                        MessageMetaDataBinding.isContentEncoded(value));
                         if (!handler.handle(message))
                         {
                             break;
@@ -499,7 +542,8 @@ public abstract class AbstractBDBMessageStore implements MessageStore
             if(getMessageMetaDataDb().get(null, key, value, LockMode.READ_COMMITTED) == OperationStatus.SUCCESS)
             {
                 StorableMessageMetaData metaData = valueBinding.entryToObject(value);
-                StoredBDBMessage message = new StoredBDBMessage(messageId, metaData, true);
+                StoredBDBMessage message = new StoredBDBMessage(messageId, metaData, true,
+                                                                MessageMetaDataBinding.isContentEncoded(value));
                 return message;
             }
             else
@@ -515,34 +559,59 @@ public abstract class AbstractBDBMessageStore implements MessageStore
     }
 
     /**
-     * Stores a chunk of message data.
+     * Stores the message data in chunks of {@link #CONTENT_CHUNK_SIZE} bytes.
      *
      * @param tx         The transaction for the operation.
      * @param messageId       The message to store the data for.
-     * @param contentBody     The content of the data chunk.
+     * @param contentBody     The content of the message.
+     * @param contentEncoded  Whether each chunk is to be written through the content compressor.
      *
      * @throws org.apache.qpid.server.store.StoreException If the operation fails for any reason, or if the specified message does not exist.
      */
     private void addContent(final Transaction tx, long messageId,
-                            Collection<QpidByteBuffer> contentBody) throws StoreException
+                            Collection<QpidByteBuffer> contentBody, boolean contentEncoded) throws StoreException
     {
-        DatabaseEntry key = new DatabaseEntry();
-        LongBinding.longToEntry(messageId, key);
-        DatabaseEntry value = new DatabaseEntry();
-
-        int size = 0;
-
+        int remaining = 0;
         for(QpidByteBuffer buf : contentBody)
         {
-            size += buf.remaining();
+            remaining += buf.remaining();
         }
-        byte[] data = new byte[size];
-        ByteBuffer dst = ByteBuffer.wrap(data);
+
+        int chunk = 0;
+        int filled = 0;
+        byte[] data = new byte[Math.min(CONTENT_CHUNK_SIZE, remaining)];
         for(QpidByteBuffer buf : contentBody)
         {
-            buf.copyTo(dst);
+            QpidByteBuffer dup = buf.duplicate();
+            try
+            {
+                while (dup.hasRemaining())
+                {
+                    int length = Math.min(dup.remaining(), data.length - filled);
+                    dup.get(data, filled, length);
+                    filled += length;
+                    if (filled == data.length)
+                    {
+                        addContentChunk(tx, messageId, chunk++,
+                                        contentEncoded ? _contentCompressor.encode(data, 0, data.length) : data);
+                        remaining -= filled;
+                        filled = 0;
+                        data = new byte[Math.min(CONTENT_CHUNK_SIZE, remaining)];
+                    }
+                }
+            }
+            finally
+            {
+                dup.dispose();
+            }
         }
-        value.setData(data);
+    }
+
+    private void addContentChunk(final Transaction tx, long messageId, int chunk, byte[] data) throws StoreException
+    {
+        DatabaseEntry key = new DatabaseEntry();
+        MessageContentKeyBinding.getInstance().objectToEntry(new MessageContentKey(messageId, chunk), key);
+        DatabaseEntry value = new DatabaseEntry(data);
         try
         {
             OperationStatus status = getMessageContentDb().put(tx, key, value);
@@ -551,7 +620,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                 throw new StoreException("Error adding content for message id " + messageId + ": " + status);
             }
 
-            getLogger().debug("Storing content for message {} in transaction {}", messageId, tx);
+            getLogger().debug("Storing content chunk {} for message {} in transaction {}", chunk, messageId, tx);
 
         }
         catch (RuntimeException e)
@@ -563,6 +632,30 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         }
     }
 
+    private void deleteContent(final Transaction tx, long messageId)
+    {
+        Cursor cursor = getMessageContentDb().openCursor(tx, null);
+        try
+        {
+            MessageContentKeyBinding keyBinding = MessageContentKeyBinding.getInstance();
+            DatabaseEntry key = new DatabaseEntry();
+            keyBinding.objectToEntry(new MessageContentKey(messageId, 0), key);
+            DatabaseEntry value = new DatabaseEntry();
+            value.setPartial(0, 0, true);
+
+            OperationStatus status = cursor.getSearchKeyRange(key, value, LockMode.RMW);
+            while (status == OperationStatus.SUCCESS && keyBinding.entryToObject(key).getMessageId() == messageId)
+            {
+                cursor.delete();
+                status = cursor.getNext(key, value, LockMode.RMW);
+            }
+        }
+        finally
+        {
+            cursor.close();
+        }
+    }
+
     /**
      * Stores message meta-data.
      *
@@ -573,7 +666,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
      * @throws org.apache.qpid.server.store.StoreException If the operation fails for any reason, or if the specified message does not exist.
      */
     private void storeMetaData(final Transaction tx, long messageId,
-                               StorableMessageMetaData messageMetaData)
+                               StorableMessageMetaData messageMetaData, boolean contentEncoded)
             throws StoreException
     {
         getLogger().debug("storeMetaData called for transaction {}, messageId {}, messageMetaData {} ",
@@ -584,7 +677,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         DatabaseEntry value = new DatabaseEntry();
 
         MessageMetaDataBinding messageBinding = MessageMetaDataBinding.getInstance();
-        messageBinding.objectToEntry(messageMetaData, value);
+        messageBinding.objectToEntry(messageMetaData, contentEncoded, value);
         try
         {
             getMessageMetaDataDb().put(tx, key, value);
@@ -920,6 +1013,36 @@ public abstract class AbstractBDBMessageStore implements MessageStore
 
     protected abstract EnvironmentFacade getEnvironmentFacade();
 
+    @Override
+    public LatencyHistogram getCommitLatencyHistogram()
+    {
+        final EnvironmentFacade environmentFacade = getEnvironmentFacade();
+        return environmentFacade == null ? new LatencyHistogram() : environmentFacade.getCommitLatencyHistogram();
+    }
+
+    @Override
+    public MessageContentCompressor getContentCompressor()
+    {
+        return _contentCompressor;
+    }
+
+    /**
+     * Configures the compression of message content from the context of the parent of the store; called as the
+     * store is opened.
+     */
+    protected void initContentCompressor(final ConfiguredObject<?> parent)
+    {
+        _contentCompressor = MessageContentCompressor.create(parent);
+    }
+
+    /**
+     * Releases the native resources held for the compression of message content; called as the store is closed.
+     */
+    protected void closeContentCompressor()
+    {
+        _contentCompressor.close();
+    }
+
     protected abstract long getPersistentSizeLowThreshold();
 
     protected abstract long getPersistentSizeHighThreshold();
@@ -1029,15 +1152,18 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         private final long _messageId;
 
         private MessageDataRef<T> _messageDataRef;
+        /** whether the content chunks are (or are to be) written by the content compressor */
+        private boolean _contentEncoded;
 
         StoredBDBMessage(long messageId, T metaData)
         {
-            this(messageId, metaData, false);
+            this(messageId, metaData, false, false);
         }
 
-        StoredBDBMessage(long messageId, T metaData, boolean isRecovered)
+        StoredBDBMessage(long messageId, T metaData, boolean isRecovered, boolean contentEncoded)
         {
             _messageId = messageId;
+            _contentEncoded = contentEncoded;
 
             if(!isRecovered)
             {
@@ -1112,7 +1238,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                 if(stored())
                 {
                     checkMessageStoreOpen();
-                    data = AbstractBDBMessageStore.this.getAllContent(_messageId);
+                    data = AbstractBDBMessageStore.this.getAllContent(_messageId, _contentEncoded);
                     _messageDataRef.setData(data);
                 }
                 else
@@ -1127,6 +1253,12 @@ public abstract class AbstractBDBMessageStore implements MessageStore
         @Override
         public synchronized Collection<QpidByteBuffer> getContent(int offset, int length)
         {
+            if (isPartialReadFromStore(offset, length))
+            {
+                checkMessageStoreOpen();
+                return AbstractBDBMessageStore.this.getContent(_messageId, offset, length, _contentEncoded);
+            }
+
             Collection<QpidByteBuffer> bufs = getContentAsByteBuffer();
             Collection<QpidByteBuffer> content = new ArrayList<>(bufs.size());
             int pos = 0;
@@ -1170,16 +1302,32 @@ public abstract class AbstractBDBMessageStore implements MessageStore
             return content;
         }
 
+        /**
+         * A range which does not cover the whole content of a message whose content is not held in memory is read
+         * from the store without loading (and caching) the rest of the content.
+         */
+        private boolean isPartialReadFromStore(int offset, int length)
+        {
+            if (_messageDataRef == null || _messageDataRef.getData() != null || !stored())
+            {
+                return false;
+            }
+            final T metaData = getMetaData();
+            return offset > 0 || length < metaData.getContentSize();
+        }
+
         synchronized void store(Transaction txn)
         {
             if (!stored())
             {
-
-                AbstractBDBMessageStore.this.storeMetaData(txn, _messageId, _messageDataRef.getMetaData());
+                _contentEncoded = _contentCompressor.isEncodingRequired(_messageDataRef.getMetaData().getContentSize());
+                AbstractBDBMessageStore.this.storeMetaData(txn, _messageId, _messageDataRef.getMetaData(),
+                                                           _contentEncoded);
                 AbstractBDBMessageStore.this.addContent(txn, _messageId,
                                                         _messageDataRef.getData() == null
                                                                 ? Collections.<QpidByteBuffer>emptySet()
-                                                                : _messageDataRef.getData());
+                                                                : _messageDataRef.getData(),
+                                                        _contentEncoded);
 
 
                 MessageDataRef<T> hardRef = _messageDataRef;
@@ -1507,6 +1655,15 @@ public abstract class AbstractBDBMessageStore implements MessageStore
 
         @Override
         public void visitMessageInstances(final TransactionLogResource queue, final MessageInstanceHandler handler) throws StoreException
+        {
+            visitMessageInstances(queue, 0L, Long.MAX_VALUE, handler);
+        }
+
+        @Override
+        public void visitMessageInstances(final TransactionLogResource queue,
+                                          final long fromMessageId,
+                                          final long toMessageId,
+                                          final MessageInstanceHandler handler) throws StoreException
         {
             checkMessageStoreOpen();
 
@@ -1520,7 +1677,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                 value.setPartial(0, 0, true);
 
                 QueueEntryBinding keyBinding = QueueEntryBinding.getInstance();
-                keyBinding.objectToEntry(new QueueEntryKey(queue.getId(),0l), key);
+                keyBinding.objectToEntry(new QueueEntryKey(queue.getId(), fromMessageId), key);
 
                 boolean searchCompletedSuccessfully = false;
                 int attempts = 0;
@@ -1532,7 +1689,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                         if (!searchCompletedSuccessfully && (searchCompletedSuccessfully = cursor.getSearchKeyRange(key,value, LockMode.DEFAULT) == OperationStatus.SUCCESS))
                         {
                             QueueEntryKey entry = keyBinding.entryToObject(key);
-                            if(entry.getQueueId().equals(queue.getId()))
+                            if(entry.getQueueId().equals(queue.getId()) && entry.getMessageId() < toMessageId)
                             {
                                 entries.add(entry);
                             }
@@ -1543,7 +1700,7 @@ public abstract class AbstractBDBMessageStore implements MessageStore
                             while(cursor.getNext(key, value, LockMode.DEFAULT) == OperationStatus.SUCCESS)
                             {
                                 QueueEntryKey entry = keyBinding.entryToObject(key);
-                                if(entry.getQueueId().equals(queue.getId()))
+                                if(entry.getQueueId().equals(queue.getId()) && entry.getMessageId() < toMessageId)
                                 {
                                     entries.add(entry);
                                 }
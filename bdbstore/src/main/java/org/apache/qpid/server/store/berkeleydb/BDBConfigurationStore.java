@@ -71,7 +71,7 @@ public class BDBConfigurationStore implements MessageStoreProvider, DurableConfi
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(BDBConfigurationStore.class);
 
-    public static final int VERSION = 9;
+    public static final int VERSION = 10;
     private static final String CONFIGURED_OBJECTS_DB_NAME = "CONFIGURED_OBJECTS";
     private static final String CONFIGURED_OBJECT_HIERARCHY_DB_NAME = "CONFIGURED_OBJECT_HIERARCHY";
 
@@ -536,6 +536,13 @@ public class BDBConfigurationStore implements MessageStoreProvider, DurableConfi
     @Override
     public void onDelete(ConfiguredObject<?> parent)
     {
+        String sharedEnvironmentPath = SharedEnvironmentFacade.getSharedEnvironmentPath(parent);
+        if (sharedEnvironmentPath != null)
+        {
+            SharedEnvironmentFacade.removeDatabases(parent, sharedEnvironmentPath);
+            return;
+        }
+
         FileBasedSettings fileBasedSettings = (FileBasedSettings)parent;
         String storePath = fileBasedSettings.getStorePath();
 
@@ -588,6 +595,8 @@ public class BDBConfigurationStore implements MessageStoreProvider, DurableConfi
                 {
                     _persistentSizeLowThreshold = _persistentSizeHighThreshold;
                 }
+
+                initContentCompressor(parent);
             }
         }
 
@@ -599,7 +608,10 @@ public class BDBConfigurationStore implements MessageStoreProvider, DurableConfi
         @Override
         public void closeMessageStore()
         {
-            _messageStoreOpen.set(false);
+            if (_messageStoreOpen.compareAndSet(true, false))
+            {
+                closeContentCompressor();
+            }
         }
 
         @Override
@@ -617,7 +629,10 @@ public class BDBConfigurationStore implements MessageStoreProvider, DurableConfi
         @Override
         public String getStoreLocation()
         {
-            return ((FileBasedSettings)(BDBConfigurationStore.this._parent)).getStorePath();
+            String sharedEnvironmentPath = SharedEnvironmentFacade.getSharedEnvironmentPath(BDBConfigurationStore.this._parent);
+            return sharedEnvironmentPath == null
+                    ? ((FileBasedSettings)(BDBConfigurationStore.this._parent)).getStorePath()
+                    : sharedEnvironmentPath;
         }
 
         @Override
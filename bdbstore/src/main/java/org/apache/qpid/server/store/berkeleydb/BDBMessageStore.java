@@ -76,6 +76,7 @@ public class BDBMessageStore extends AbstractBDBMessageStore
                 _persistentSizeLowThreshold = _persistentSizeHighThreshold;
             }
 
+            initContentCompressor(parent);
             _environmentFacade = _environmentFacadeFactory.createEnvironmentFacade(parent);
         }
     }
@@ -85,6 +86,7 @@ public class BDBMessageStore extends AbstractBDBMessageStore
     {
         if (_messageStoreOpen.compareAndSet(true, false))
         {
+            closeContentCompressor();
             if (_environmentFacade != null)
             {
                 try
@@ -103,6 +105,13 @@ public class BDBMessageStore extends AbstractBDBMessageStore
     @Override
     public void onDelete(ConfiguredObject<?> parent)
     {
+        String sharedEnvironmentPath = SharedEnvironmentFacade.getSharedEnvironmentPath(parent);
+        if (sharedEnvironmentPath != null)
+        {
+            SharedEnvironmentFacade.removeDatabases(parent, sharedEnvironmentPath);
+            return;
+        }
+
         FileBasedSettings fileBasedSettings = (FileBasedSettings)parent;
         String storePath = fileBasedSettings.getStorePath();
 
@@ -163,7 +172,10 @@ public class BDBMessageStore extends AbstractBDBMessageStore
     @Override
     public String getStoreLocation()
     {
-        return ((FileBasedSettings)_parent).getStorePath();
+        String sharedEnvironmentPath = SharedEnvironmentFacade.getSharedEnvironmentPath(_parent);
+        return sharedEnvironmentPath == null
+                ? ((FileBasedSettings)_parent).getStorePath()
+                : sharedEnvironmentPath;
     }
 
     @Override
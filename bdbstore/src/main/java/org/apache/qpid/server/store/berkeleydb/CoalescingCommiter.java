@@ -36,13 +36,17 @@ import com.sleepycat.je.Transaction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.apache.qpid.server.stats.LatencyHistogram;
+
 public class CoalescingCommiter implements Committer
 {
     private final CommitThread _commitThread;
+    private final LatencyHistogram _commitLatencyHistogram;
 
-    public CoalescingCommiter(String name, EnvironmentFacade environmentFacade)
+    public CoalescingCommiter(String name, EnvironmentFacade environmentFacade, LatencyHistogram commitLatencyHistogram)
     {
         _commitThread = new CommitThread("Commit-Thread-" + name, environmentFacade);
+        _commitLatencyHistogram = commitLatencyHistogram;
     }
 
     @Override
@@ -74,9 +78,11 @@ public class CoalescingCommiter implements Committer
     {
         if(syncCommit)
         {
+            final long startTime = System.nanoTime();
             SynchronousCommitThreadJob job = new SynchronousCommitThreadJob();
             _commitThread.addJob(job, true);
             job.awaitCompletion();
+            _commitLatencyHistogram.recordSince(startTime);
         }
 
     }
@@ -85,7 +91,7 @@ public class CoalescingCommiter implements Committer
     public <X> ListenableFuture<X> commitAsync(Transaction tx, X val)
     {
         ThreadNotifyingSettableFuture<X> future = new ThreadNotifyingSettableFuture<X>();
-        BDBCommitFutureResult<X> commitFuture = new BDBCommitFutureResult<X>(val, future);
+        BDBCommitFutureResult<X> commitFuture = new BDBCommitFutureResult<X>(val, future, _commitLatencyHistogram);
         _commitThread.addJob(commitFuture, false);
         return future;
     }
@@ -95,16 +101,21 @@ public class CoalescingCommiter implements Committer
     {
         private final X _value;
         private final ThreadNotifyingSettableFuture<X> _future;
+        private final LatencyHistogram _commitLatencyHistogram;
+        private final long _startTime = System.nanoTime();
 
         public BDBCommitFutureResult(X value,
-                                     final ThreadNotifyingSettableFuture<X> future)
+                                     final ThreadNotifyingSettableFuture<X> future,
+                                     final LatencyHistogram commitLatencyHistogram)
         {
             _value = value;
             _future = future;
+            _commitLatencyHistogram = commitLatencyHistogram;
         }
 
         public void complete()
         {
+            _commitLatencyHistogram.recordSince(_startTime);
             _future.set(_value);
         }
 
@@ -36,6 +36,7 @@ import com.sleepycat.je.Transaction;
 
 import com.sleepycat.je.TransactionConfig;
 import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.stats.LatencyHistogram;
 
 public interface EnvironmentFacade
 {
@@ -57,6 +58,12 @@ public interface EnvironmentFacade
     CacheMode CACHE_MODE_DEFAULT = CacheMode.EVICT_LN;
     String LOG_HANDLER_CLEANER_PROTECTED_FILES_LIMIT_PROPERTY_NAME = "qpid.bdb.je.cleaner_protected_files_limit";
     int DEFAULT_LOG_HANDLER_CLEANER_PROTECTED_FILES_LIMIT = 10;
+    /**
+     * When set, the store's databases are kept in the environment at this path, shared with every other store
+     * setting the same path, rather than in an environment of its own.
+     * @see SharedEnvironmentFacade
+     */
+    String SHARED_ENVIRONMENT_PATH_PROPERTY_NAME = "qpid.bdb.sharedEnvironmentPath";
 
 
     void upgradeIfNecessary(ConfiguredObject<?> parent);
@@ -97,4 +104,9 @@ public interface EnvironmentFacade
     Map<String, Object> getTransactionStatistics(boolean reset);
 
     Map<String,Object> getDatabaseStatistics(String database, boolean reset);
+
+    /**
+     * @return the time taken by the committer to make transactions durable
+     */
+    LatencyHistogram getCommitLatencyHistogram();
 }
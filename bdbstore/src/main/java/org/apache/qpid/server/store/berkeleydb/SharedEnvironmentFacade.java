@@ -0,0 +1,511 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.berkeleydb;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseConfig;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.Sequence;
+import com.sleepycat.je.SequenceConfig;
+import com.sleepycat.je.Transaction;
+import com.sleepycat.je.TransactionConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.stats.LatencyHistogram;
+import org.apache.qpid.server.store.StoreException;
+
+/**
+ * A view of a JE environment shared by the stores of several virtual hosts or virtual host nodes.
+ * <p>
+ * Stores opt in by setting the context variable {@link #SHARED_ENVIRONMENT_PATH_PROPERTY_NAME}.  All the stores
+ * setting the same path share one {@link StandardEnvironmentFacade}, and so one set of log files, one cache, one
+ * cleaner and checkpointer and one committer, which coalesces the commits of every store into the same fsyncs.
+ * Each store sees only its own databases: database names are prefixed with the category and name of the store's
+ * parent.  The environment is opened by the first store to use it and closed when the last store is closed.
+ * <p>
+ * Commit latency and database statistics are kept per store.  Log size, environment and transaction statistics,
+ * cleaning and checkpointing apply to the environment as a whole.  The cache of the environment is sized as the sum
+ * of the sizes assigned to the stores sharing it.
+ */
+public class SharedEnvironmentFacade implements EnvironmentFacade
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedEnvironmentFacade.class);
+
+    private static final Map<String, SharedEnvironment> SHARED_ENVIRONMENTS = new HashMap<>();
+
+    private final SharedEnvironment _sharedEnvironment;
+    private final String _databaseNamePrefix;
+    private final Set<String> _openDatabases = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final ConcurrentMap<DatabaseEntry, Sequence> _cachedSequences = new ConcurrentHashMap<>();
+    private final LatencyHistogram _commitLatencyHistogram = new LatencyHistogram();
+    private final AtomicBoolean _closed = new AtomicBoolean();
+
+    private SharedEnvironmentFacade(final SharedEnvironment sharedEnvironment, final String databaseNamePrefix)
+    {
+        _sharedEnvironment = sharedEnvironment;
+        _databaseNamePrefix = databaseNamePrefix;
+    }
+
+    /**
+     * @return the path of the shared environment the stores of the given object use, or null if they have
+     * environments of their own
+     */
+    public static String getSharedEnvironmentPath(final ConfiguredObject<?> parent)
+    {
+        final String path = BDBUtils.getContextValue(parent, String.class, SHARED_ENVIRONMENT_PATH_PROPERTY_NAME, null);
+        return path == null || "".equals(path.trim()) ? null : path;
+    }
+
+    static String getDatabaseNamePrefix(final ConfiguredObject<?> parent)
+    {
+        return parent.getCategoryClass().getSimpleName() + "/" + parent.getName() + "/";
+    }
+
+    static EnvironmentFacade open(final ConfiguredObject<?> parent, final String sharedEnvironmentPath)
+    {
+        final SharedEnvironment sharedEnvironment = acquire(parent, sharedEnvironmentPath);
+        final String databaseNamePrefix = getDatabaseNamePrefix(parent);
+        LOGGER.debug("Opened view of shared environment {} with database name prefix '{}'",
+                     sharedEnvironmentPath, databaseNamePrefix);
+        return new SharedEnvironmentFacade(sharedEnvironment, databaseNamePrefix);
+    }
+
+    /**
+     * Removes the databases of the given object from the shared environment at the given path, opening the
+     * environment for the duration if no other store has it open.
+     */
+    public static void removeDatabases(final ConfiguredObject<?> parent, final String sharedEnvironmentPath)
+    {
+        final SharedEnvironment sharedEnvironment = acquire(parent, sharedEnvironmentPath);
+        try
+        {
+            final String databaseNamePrefix = getDatabaseNamePrefix(parent);
+            for (String databaseName : sharedEnvironment.getFacade().getDatabaseNames())
+            {
+                if (databaseName.startsWith(databaseNamePrefix))
+                {
+                    LOGGER.debug("Removing database {} from shared environment {}", databaseName, sharedEnvironmentPath);
+                    sharedEnvironment.getFacade().removeDatabase(databaseName);
+                }
+            }
+        }
+        finally
+        {
+            release(sharedEnvironment, null);
+        }
+    }
+
+    private static SharedEnvironment acquire(final ConfiguredObject<?> parent, final String sharedEnvironmentPath)
+    {
+        final String key = getCanonicalPath(sharedEnvironmentPath);
+        synchronized (SHARED_ENVIRONMENTS)
+        {
+            SharedEnvironment sharedEnvironment = SHARED_ENVIRONMENTS.get(key);
+            if (sharedEnvironment == null)
+            {
+                final StandardEnvironmentFacade facade =
+                        new StandardEnvironmentFacade(StandardEnvironmentFacadeFactory.createConfiguration(parent,
+                                                                                                           new File(key).getName(),
+                                                                                                           sharedEnvironmentPath));
+                try
+                {
+                    // Upgrade before any store creates its prefixed databases, as the upgrader treats an environment
+                    // with databases but no version as a store of an old format
+                    facade.upgradeIfNecessary(parent);
+                }
+                catch (RuntimeException e)
+                {
+                    final RuntimeException failure = facade.handleDatabaseException("Cannot upgrade shared environment "
+                                                                                    + sharedEnvironmentPath, e);
+                    try
+                    {
+                        facade.close();
+                    }
+                    catch (RuntimeException closeException)
+                    {
+                        LOGGER.warn("Exception closing shared environment " + sharedEnvironmentPath, closeException);
+                    }
+                    throw failure;
+                }
+                sharedEnvironment = new SharedEnvironment(key, facade);
+                SHARED_ENVIRONMENTS.put(key, sharedEnvironment);
+            }
+            sharedEnvironment.incrementUsers();
+            return sharedEnvironment;
+        }
+    }
+
+    private static void release(final SharedEnvironment sharedEnvironment, final SharedEnvironmentFacade user)
+    {
+        synchronized (SHARED_ENVIRONMENTS)
+        {
+            sharedEnvironment.removeCacheSize(user);
+            if (sharedEnvironment.decrementUsers() == 0)
+            {
+                SHARED_ENVIRONMENTS.remove(sharedEnvironment.getPath());
+                sharedEnvironment.getFacade().close();
+            }
+        }
+    }
+
+    private static String getCanonicalPath(final String path)
+    {
+        try
+        {
+            return new File(path).getCanonicalPath();
+        }
+        catch (IOException e)
+        {
+            throw new StoreException("Failed to resolve " + path + " into canonical form", e);
+        }
+    }
+
+    String getDatabaseName(final String name)
+    {
+        return _databaseNamePrefix + name;
+    }
+
+    @Override
+    public void upgradeIfNecessary(final ConfiguredObject<?> parent)
+    {
+        // the shared environment is upgraded when it is opened
+    }
+
+    @Override
+    public Database openDatabase(final String databaseName, final DatabaseConfig databaseConfig)
+    {
+        final String name = getDatabaseName(databaseName);
+        final Database database = getFacade().openDatabase(name, databaseConfig);
+        _openDatabases.add(name);
+        return database;
+    }
+
+    @Override
+    public Database clearDatabase(final String databaseName, final DatabaseConfig databaseConfig)
+    {
+        final String name = getDatabaseName(databaseName);
+        final Database database = getFacade().clearDatabase(name, databaseConfig);
+        _openDatabases.add(name);
+        return database;
+    }
+
+    @Override
+    public Sequence openSequence(final Database database,
+                                 final DatabaseEntry sequenceKey,
+                                 final SequenceConfig sequenceConfig)
+    {
+        // the shared facade caches sequences by key alone, so each store keeps its own
+        Sequence cachedSequence = _cachedSequences.get(sequenceKey);
+        if (cachedSequence == null)
+        {
+            Sequence handle = database.openSequence(null, sequenceKey, sequenceConfig);
+            Sequence existingHandle = _cachedSequences.putIfAbsent(sequenceKey, handle);
+            if (existingHandle == null)
+            {
+                cachedSequence = handle;
+            }
+            else
+            {
+                cachedSequence = existingHandle;
+                handle.close();
+            }
+        }
+        return cachedSequence;
+    }
+
+    @Override
+    public Transaction beginTransaction(final TransactionConfig transactionConfig)
+    {
+        return getFacade().beginTransaction(transactionConfig);
+    }
+
+    @Override
+    public void commit(final Transaction tx, final boolean sync)
+    {
+        final long startTime = System.nanoTime();
+        getFacade().commit(tx, sync);
+        if (sync)
+        {
+            _commitLatencyHistogram.recordSince(startTime);
+        }
+    }
+
+    @Override
+    public <X> ListenableFuture<X> commitAsync(final Transaction tx, final X val)
+    {
+        final long startTime = System.nanoTime();
+        final ListenableFuture<X> future = getFacade().commitAsync(tx, val);
+        future.addListener(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                _commitLatencyHistogram.recordSince(startTime);
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+
+    @Override
+    public RuntimeException handleDatabaseException(final String contextMessage, final RuntimeException e)
+    {
+        return getFacade().handleDatabaseException(contextMessage, e);
+    }
+
+    @Override
+    public void closeDatabase(final String databaseName)
+    {
+        final String name = getDatabaseName(databaseName);
+        _openDatabases.remove(name);
+        getFacade().closeDatabase(name);
+    }
+
+    @Override
+    public void close()
+    {
+        if (_closed.compareAndSet(false, true))
+        {
+            try
+            {
+                closeSequences();
+                closeDatabases();
+            }
+            finally
+            {
+                release(_sharedEnvironment, this);
+            }
+        }
+    }
+
+    @Override
+    public long getTotalLogSize()
+    {
+        return getFacade().getTotalLogSize();
+    }
+
+    @Override
+    public void reduceSizeOnDisk()
+    {
+        getFacade().reduceSizeOnDisk();
+    }
+
+    @Override
+    public void flushLog()
+    {
+        getFacade().flushLog();
+    }
+
+    @Override
+    public void setCacheSize(final long cacheSize)
+    {
+        synchronized (SHARED_ENVIRONMENTS)
+        {
+            _sharedEnvironment.setCacheSize(this, cacheSize);
+        }
+    }
+
+    @Override
+    public void flushLogFailed(final RuntimeException failure)
+    {
+        getFacade().flushLogFailed(failure);
+    }
+
+    @Override
+    public void updateMutableConfig(final ConfiguredObject<?> object)
+    {
+        getFacade().updateMutableConfig(object);
+    }
+
+    @Override
+    public int cleanLog()
+    {
+        return getFacade().cleanLog();
+    }
+
+    @Override
+    public void checkpoint(final boolean force)
+    {
+        getFacade().checkpoint(force);
+    }
+
+    @Override
+    public Map<String, Map<String, Object>> getEnvironmentStatistics(final boolean reset)
+    {
+        return getFacade().getEnvironmentStatistics(reset);
+    }
+
+    @Override
+    public Map<String, Object> getTransactionStatistics(final boolean reset)
+    {
+        return getFacade().getTransactionStatistics(reset);
+    }
+
+    @Override
+    public Map<String, Object> getDatabaseStatistics(final String database, final boolean reset)
+    {
+        return getFacade().getDatabaseStatistics(getDatabaseName(database), reset);
+    }
+
+    @Override
+    public LatencyHistogram getCommitLatencyHistogram()
+    {
+        return _commitLatencyHistogram;
+    }
+
+    private StandardEnvironmentFacade getFacade()
+    {
+        if (_closed.get())
+        {
+            throw new IllegalStateException("Shared environment view is closed.");
+        }
+        return _sharedEnvironment.getFacade();
+    }
+
+    private void closeSequences()
+    {
+        RuntimeException firstThrownException = null;
+        for (DatabaseEntry sequenceKey : _cachedSequences.keySet())
+        {
+            try
+            {
+                Sequence cachedHandle = _cachedSequences.remove(sequenceKey);
+                if (cachedHandle != null)
+                {
+                    cachedHandle.close();
+                }
+            }
+            catch (RuntimeException e)
+            {
+                if (firstThrownException == null)
+                {
+                    firstThrownException = e;
+                }
+            }
+        }
+        if (firstThrownException != null)
+        {
+            throw firstThrownException;
+        }
+    }
+
+    private void closeDatabases()
+    {
+        RuntimeException firstThrownException = null;
+        for (String name : _openDatabases)
+        {
+            try
+            {
+                _openDatabases.remove(name);
+                _sharedEnvironment.getFacade().closeDatabase(name);
+            }
+            catch (RuntimeException e)
+            {
+                if (firstThrownException == null)
+                {
+                    firstThrownException = e;
+                }
+            }
+        }
+        if (firstThrownException != null)
+        {
+            throw firstThrownException;
+        }
+    }
+
+    /**
+     * A shared environment and its users.  Guarded by the lock on {@link #SHARED_ENVIRONMENTS}.
+     */
+    private static final class SharedEnvironment
+    {
+        private final String _path;
+        private final StandardEnvironmentFacade _facade;
+        private final Map<SharedEnvironmentFacade, Long> _cacheSizes = new HashMap<>();
+        private int _users;
+
+        private SharedEnvironment(final String path, final StandardEnvironmentFacade facade)
+        {
+            _path = path;
+            _facade = facade;
+        }
+
+        private String getPath()
+        {
+            return _path;
+        }
+
+        private StandardEnvironmentFacade getFacade()
+        {
+            return _facade;
+        }
+
+        private void incrementUsers()
+        {
+            _users++;
+        }
+
+        private int decrementUsers()
+        {
+            return --_users;
+        }
+
+        private void setCacheSize(final SharedEnvironmentFacade user, final long cacheSize)
+        {
+            _cacheSizes.put(user, cacheSize);
+            applyCacheSize();
+        }
+
+        private void removeCacheSize(final SharedEnvironmentFacade user)
+        {
+            if (user != null && _cacheSizes.remove(user) != null && _users > 1)
+            {
+                applyCacheSize();
+            }
+        }
+
+        private void applyCacheSize()
+        {
+            long cacheSize = 0L;
+            for (Long userCacheSize : _cacheSizes.values())
+            {
+                cacheSize += userCacheSize;
+            }
+            if (cacheSize > 0L)
+            {
+                LOGGER.debug("Setting JE cache size of shared environment {} to {}", _path, cacheSize);
+                _facade.setCacheSize(cacheSize);
+            }
+        }
+    }
+}
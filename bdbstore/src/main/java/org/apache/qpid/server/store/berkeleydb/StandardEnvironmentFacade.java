@@ -25,6 +25,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -46,6 +47,7 @@ import com.sleepycat.je.SequenceConfig;
 import com.sleepycat.je.Transaction;
 import com.sleepycat.je.TransactionConfig;
 import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.stats.LatencyHistogram;
 import org.apache.qpid.server.store.berkeleydb.upgrade.Upgrader;
 
 import org.slf4j.Logger;
@@ -64,6 +66,7 @@ public class StandardEnvironmentFacade implements EnvironmentFacade
     private final AtomicReference<Environment> _environment;
 
     private final Committer _committer;
+    private final LatencyHistogram _commitLatencyHistogram = new LatencyHistogram();
     private final File _environmentPath;
 
     private static final Set<String> PARAMS_SET_BY_DEFAULT;
@@ -157,7 +160,7 @@ public class StandardEnvironmentFacade implements EnvironmentFacade
             }
         }
 
-        _committer =  new CoalescingCommiter(name, this);
+        _committer =  new CoalescingCommiter(name, this, _commitLatencyHistogram);
         _committer.start();
     }
 
@@ -315,6 +318,12 @@ public class StandardEnvironmentFacade implements EnvironmentFacade
         return EnvironmentUtils.getTransactionStatistics(getEnvironment(), reset);
     }
 
+    @Override
+    public LatencyHistogram getCommitLatencyHistogram()
+    {
+        return _commitLatencyHistogram;
+    }
+
     private void closeSequences()
     {
         RuntimeException firstThrownException = null;
@@ -465,6 +474,17 @@ public class StandardEnvironmentFacade implements EnvironmentFacade
     }
 
 
+    List<String> getDatabaseNames()
+    {
+        return getEnvironment().getDatabaseNames();
+    }
+
+    void removeDatabase(String name)
+    {
+        closeDatabase(name);
+        getEnvironment().removeDatabase(null, name);
+    }
+
     @Override
     public Database clearDatabase(String name, DatabaseConfig databaseConfig)
     {
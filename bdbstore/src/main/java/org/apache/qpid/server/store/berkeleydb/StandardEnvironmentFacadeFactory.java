@@ -43,15 +43,26 @@ public class StandardEnvironmentFacadeFactory implements EnvironmentFacadeFactor
     @Override
     public EnvironmentFacade createEnvironmentFacade(final ConfiguredObject<?> parent)
     {
+        final String sharedEnvironmentPath = SharedEnvironmentFacade.getSharedEnvironmentPath(parent);
+        if (sharedEnvironmentPath != null)
+        {
+            return SharedEnvironmentFacade.open(parent, sharedEnvironmentPath);
+        }
+
         final FileBasedSettings settings = (FileBasedSettings)parent;
-        final String storeLocation = settings.getStorePath();
+        return new StandardEnvironmentFacade(createConfiguration(parent, parent.getName(), settings.getStorePath()));
+    }
 
-        StandardEnvironmentConfiguration sec = new StandardEnvironmentConfiguration()
+    static StandardEnvironmentConfiguration createConfiguration(final ConfiguredObject<?> parent,
+                                                                final String name,
+                                                                final String storeLocation)
+    {
+        return new StandardEnvironmentConfiguration()
         {
             @Override
             public String getName()
             {
-                return parent.getName();
+                return name;
             }
 
             @Override
@@ -78,7 +89,5 @@ public class StandardEnvironmentFacadeFactory implements EnvironmentFacadeFactor
                 return BDBUtils.getContextValue(parent, Integer.class, parameterName, defaultValue);
             }
         };
-
-        return new StandardEnvironmentFacade(sec);
     }
 }
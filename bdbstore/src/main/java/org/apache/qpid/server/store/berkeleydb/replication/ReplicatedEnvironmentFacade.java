@@ -63,6 +63,7 @@ import com.sleepycat.je.rep.vlsn.VLSNRange;
 import com.sleepycat.je.utilint.PropUtil;
 import com.sleepycat.je.utilint.VLSN;
 import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.stats.LatencyHistogram;
 import org.apache.qpid.server.store.berkeleydb.EnvironmentUtils;
 import org.apache.qpid.server.store.berkeleydb.upgrade.Upgrader;
 import org.slf4j.Logger;
@@ -225,6 +226,7 @@ public class ReplicatedEnvironmentFacade implements EnvironmentFacade, StateChan
     private volatile Durability _realMessageStoreDurability = null;
     private volatile Durability _messageStoreDurability;
     private volatile CoalescingCommiter _coalescingCommiter = null;
+    private final LatencyHistogram _commitLatencyHistogram = new LatencyHistogram();
     private volatile long _joinTime;
     private volatile ReplicatedEnvironment.State _lastKnownEnvironmentState;
     private volatile long _envSetupTimeoutMillis;
@@ -314,6 +316,7 @@ public class ReplicatedEnvironmentFacade implements EnvironmentFacade, StateChan
     @Override
     public void commit(final Transaction tx, boolean syncCommit)
     {
+        final long startTime = System.nanoTime();
         try
         {
             // Using commit() instead of commitNoSync() for the HA store to allow
@@ -330,12 +333,17 @@ public class ReplicatedEnvironmentFacade implements EnvironmentFacade, StateChan
         {
             _coalescingCommiter.commit(tx, syncCommit);
         }
+        else
+        {
+            _commitLatencyHistogram.recordSince(startTime);
+        }
 
     }
 
     @Override
     public <X> ListenableFuture<X> commitAsync(final Transaction tx, final X val)
     {
+        final long startTime = System.nanoTime();
         try
         {
             // Using commit() instead of commitNoSync() for the HA store to allow
@@ -352,6 +360,7 @@ public class ReplicatedEnvironmentFacade implements EnvironmentFacade, StateChan
         {
             return _coalescingCommiter.commitAsync(tx, val);
         }
+        _commitLatencyHistogram.recordSince(startTime);
         return Futures.immediateFuture(val);
     }
 
@@ -879,6 +888,12 @@ public class ReplicatedEnvironmentFacade implements EnvironmentFacade, StateChan
 
     }
 
+    @Override
+    public LatencyHistogram getCommitLatencyHistogram()
+    {
+        return _commitLatencyHistogram;
+    }
+
 
     private <T> T submitEnvironmentTask(final int timeout, final Callable<T> task, String action)
     {
@@ -1756,7 +1771,7 @@ public class ReplicatedEnvironmentFacade implements EnvironmentFacade, StateChan
             if (localTransactionSynchronizationPolicy == LOCAL_TRANSACTION_SYNCHRONIZATION_POLICY)
             {
                 localTransactionSynchronizationPolicy = SyncPolicy.NO_SYNC;
-                _coalescingCommiter = new CoalescingCommiter(_configuration.getGroupName(), this);
+                _coalescingCommiter = new CoalescingCommiter(_configuration.getGroupName(), this, _commitLatencyHistogram);
                 _coalescingCommiter.start();
             }
             _realMessageStoreDurability = new Durability(localTransactionSynchronizationPolicy, remoteTransactionSynchronizationPolicy, replicaAcknowledgmentPolicy);
@@ -28,6 +28,7 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.qpid.bytebuffer.QpidByteBuffer;
 import org.apache.qpid.server.plugin.MessageMetaDataType;
+import org.apache.qpid.server.store.MessageContentCompressor;
 import org.apache.qpid.server.store.MessageMetaDataTypeRegistry;
 import org.apache.qpid.server.store.StorableMessageMetaData;
 
@@ -53,7 +54,7 @@ public class MessageMetaDataBinding implements EntryBinding<StorableMessageMetaD
     {
         QpidByteBuffer buf = QpidByteBuffer.wrap(entry.getData(), entry.getOffset(), entry.getSize());
         final int bodySize = buf.getInt() ^ 0x80000000;
-        final int metaDataType = buf.get() & 0xff;
+        final int metaDataType = buf.get() & 0xff & ~MessageContentCompressor.ENCODED_CONTENT_FLAG;
         buf = buf.slice();
         buf.limit(bodySize-1);
         MessageMetaDataType type = MessageMetaDataTypeRegistry.fromOrdinal(metaDataType);
@@ -64,10 +65,20 @@ public class MessageMetaDataBinding implements EntryBinding<StorableMessageMetaD
 
     @Override
     public void objectToEntry(StorableMessageMetaData metaData, DatabaseEntry entry)
+    {
+        objectToEntry(metaData, false, entry);
+    }
+
+    /**
+     * @param contentEncoded whether the content records of the message are written by the store's
+     * {@link MessageContentCompressor}
+     */
+    public void objectToEntry(StorableMessageMetaData metaData, boolean contentEncoded, DatabaseEntry entry)
     {
         final int bodySize = 1 + metaData.getStorableSize();
         byte[] underlying = new byte[4+bodySize];
-        underlying[4] = (byte) metaData.getType().ordinal();
+        underlying[4] = (byte) (metaData.getType().ordinal()
+                                | (contentEncoded ? MessageContentCompressor.ENCODED_CONTENT_FLAG : 0));
         QpidByteBuffer buf = QpidByteBuffer.wrap(underlying);
         buf.putInt(bodySize ^ 0x80000000);
         buf.position(5);
@@ -76,4 +87,9 @@ public class MessageMetaDataBinding implements EntryBinding<StorableMessageMetaD
         metaData.writeToBuffer(buf);
         entry.setData(underlying);
     }
+
+    public static boolean isContentEncoded(DatabaseEntry entry)
+    {
+        return (entry.getData()[entry.getOffset() + 4] & MessageContentCompressor.ENCODED_CONTENT_FLAG) != 0;
+    }
 }
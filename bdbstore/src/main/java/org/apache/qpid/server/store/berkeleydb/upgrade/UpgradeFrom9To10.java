@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.qpid.server.store.berkeleydb.upgrade;
+package org.apache.qpid.server.store.berkeleydb.upgrade;
+
+import java.util.Arrays;
+
+import com.sleepycat.bind.tuple.LongBinding;
+import com.sleepycat.je.Cursor;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseConfig;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.LockMode;
+import com.sleepycat.je.OperationStatus;
+import com.sleepycat.je.Transaction;
+
+import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.store.StoreException;
+import org.apache.qpid.server.store.berkeleydb.AbstractBDBMessageStore;
+import org.apache.qpid.server.store.berkeleydb.entry.MessageContentKey;
+import org.apache.qpid.server.store.berkeleydb.tuple.MessageContentKeyBinding;
+
+/**
+ * Splits the content of each message, previously stored as a single record keyed by message id, into records of
+ * {@link AbstractBDBMessageStore#CONTENT_CHUNK_SIZE} bytes keyed by message id and chunk number.
+ * <p>
+ * Each message is converted in its own transaction, removing the old record, so that an interrupted upgrade can
+ * simply be repeated.
+ */
+@SuppressWarnings("unused")
+public class UpgradeFrom9To10 extends AbstractStoreUpgrade
+{
+    static final String OLD_CONTENT_DB_NAME = "MESSAGE_CONTENT";
+    static final String NEW_CONTENT_DB_NAME = "MESSAGE_CONTENT_CHUNKS";
+
+    @Override
+    public void performUpgrade(final Environment environment,
+                               final UpgradeInteractionHandler handler,
+                               final ConfiguredObject<?> parent)
+    {
+        reportStarting(environment, 9);
+
+        if (environment.getDatabaseNames().contains(OLD_CONTENT_DB_NAME))
+        {
+            DatabaseConfig dbConfig = new DatabaseConfig();
+            dbConfig.setTransactional(true);
+            dbConfig.setAllowCreate(true);
+
+            try (Database oldContentDb = environment.openDatabase(null, OLD_CONTENT_DB_NAME, dbConfig);
+                 Database newContentDb = environment.openDatabase(null, NEW_CONTENT_DB_NAME, dbConfig))
+            {
+                while (convertNextMessage(environment, oldContentDb, newContentDb))
+                {
+                    // continue until all messages are converted
+                }
+            }
+            environment.removeDatabase(null, OLD_CONTENT_DB_NAME);
+        }
+
+        reportFinished(environment, 10);
+    }
+
+    private boolean convertNextMessage(final Environment environment,
+                                       final Database oldContentDb,
+                                       final Database newContentDb)
+    {
+        final Transaction transaction = environment.beginTransaction(null, null);
+        try
+        {
+            boolean converted = false;
+            Cursor cursor = oldContentDb.openCursor(transaction, null);
+            try
+            {
+                DatabaseEntry key = new DatabaseEntry();
+                DatabaseEntry value = new DatabaseEntry();
+                if (cursor.getFirst(key, value, LockMode.RMW) == OperationStatus.SUCCESS)
+                {
+                    long messageId = LongBinding.entryToLong(key);
+                    byte[] data = value.getData();
+                    int offset = value.getOffset();
+                    int end = offset + value.getSize();
+                    int chunk = 0;
+                    while (offset < end)
+                    {
+                        int chunkEnd = Math.min(end, offset + AbstractBDBMessageStore.CONTENT_CHUNK_SIZE);
+                        putChunk(transaction, newContentDb, messageId, chunk++,
+                                 Arrays.copyOfRange(data, offset, chunkEnd));
+                        offset = chunkEnd;
+                    }
+                    cursor.delete();
+                    converted = true;
+                }
+            }
+            finally
+            {
+                cursor.close();
+            }
+            transaction.commit();
+            return converted;
+        }
+        catch (RuntimeException e)
+        {
+            try
+            {
+                if (transaction.isValid())
+                {
+                    transaction.abort();
+                }
+            }
+            finally
+            {
+                throw e;
+            }
+        }
+    }
+
+    private void putChunk(final Transaction transaction,
+                          final Database newContentDb,
+                          final long messageId,
+                          final int chunk,
+                          final byte[] data)
+    {
+        DatabaseEntry key = new DatabaseEntry();
+        MessageContentKeyBinding.getInstance().objectToEntry(new MessageContentKey(messageId, chunk), key);
+        OperationStatus status = newContentDb.put(transaction, key, new DatabaseEntry(data));
+        if (status != OperationStatus.SUCCESS)
+        {
+            throw new StoreException("Error converting content of message " + messageId + ": " + status);
+        }
+    }
+}
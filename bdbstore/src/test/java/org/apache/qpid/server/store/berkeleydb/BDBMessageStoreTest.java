@@ -38,6 +38,7 @@ import org.apache.qpid.server.protocol.v0_10.MessageMetaDataType_0_10;
 import org.apache.qpid.server.protocol.v0_10.MessageMetaData_0_10;
 import org.apache.qpid.server.protocol.v0_8.MessageMetaData;
 import org.apache.qpid.server.protocol.v0_8.MessageMetaDataType_0_8;
+import org.apache.qpid.server.store.MessageContentCompressor;
 import org.apache.qpid.server.store.MessageHandle;
 import org.apache.qpid.server.store.MessageStore;
 import org.apache.qpid.server.store.MessageStoreTestCase;
@@ -345,11 +346,88 @@ public class BDBMessageStoreTest extends MessageStoreTestCase
                         0, bdbStore.getContent(messageid_0_8, 0, dst));
     }
 
+    public void testMultiChunkContentRangeRead() throws Exception
+    {
+        BDBMessageStore bdbStore = (BDBMessageStore) getStore();
+        byte[] content = new byte[AbstractBDBMessageStore.CONTENT_CHUNK_SIZE * 2 + 100];
+        for (int i = 0; i < content.length; i++)
+        {
+            content[i] = (byte) i;
+        }
+
+        StoredMessage<MessageMetaData> storedMessage = createAndStoreMessage_0_8(bdbStore, content);
+        long messageId = storedMessage.getMessageNumber();
+
+        assertContentRange(bdbStore, messageId, content, 0, content.length);
+        assertContentRange(bdbStore, messageId, content, 10, 20);
+        assertContentRange(bdbStore, messageId, content, AbstractBDBMessageStore.CONTENT_CHUNK_SIZE - 10, 20);
+        assertContentRange(bdbStore, messageId, content, AbstractBDBMessageStore.CONTENT_CHUNK_SIZE * 2, 1000);
+
+        byte[] allContent = new byte[content.length];
+        ByteBuffer dst = ByteBuffer.wrap(allContent);
+        for (QpidByteBuffer buf : bdbStore.getAllContent(messageId))
+        {
+            buf.get(dst);
+            buf.dispose();
+        }
+        assertTrue("Unexpected content", Arrays.equals(content, allContent));
+
+        bdbStore.removeMessage(messageId, true);
+        assertTrue("Content should be removed", bdbStore.getAllContent(messageId).isEmpty());
+    }
+
+    public void testCompressedContentRangeRead() throws Exception
+    {
+        BDBMessageStore bdbStore = (BDBMessageStore) getStore();
+        byte[] content = new byte[AbstractBDBMessageStore.CONTENT_CHUNK_SIZE * 2 + 100];
+        for (int i = 0; i < content.length; i++)
+        {
+            content[i] = (byte) (i % 16);
+        }
+        long uncompressedMessageId = createAndStoreMessage_0_8(bdbStore, content).getMessageNumber();
+
+        VirtualHost<?> parent = mock(VirtualHost.class);
+        when(parent.getContextValue(Integer.class, MessageContentCompressor.CONTENT_COMPRESSION_THRESHOLD)).thenReturn(1024);
+        bdbStore.initContentCompressor(parent);
+
+        long messageId = createAndStoreMessage_0_8(bdbStore, content).getMessageNumber();
+        MessageContentCompressor compressor = bdbStore.getContentCompressor();
+        assertEquals("Unexpected bytes before compression", content.length, compressor.getBytesBeforeCompression());
+        assertTrue("Content should be compressed",
+                   compressor.getBytesAfterCompression() < compressor.getBytesBeforeCompression() / 10);
+
+        assertContentRange(bdbStore, messageId, content, 0, content.length);
+        assertContentRange(bdbStore, messageId, content, AbstractBDBMessageStore.CONTENT_CHUNK_SIZE - 10, 20);
+        assertContentRange(bdbStore, messageId, content, AbstractBDBMessageStore.CONTENT_CHUNK_SIZE * 2, 1000);
+        assertContentRange(bdbStore, uncompressedMessageId, content, 0, content.length);
+        assertContentRange(bdbStore, uncompressedMessageId, content, AbstractBDBMessageStore.CONTENT_CHUNK_SIZE - 10, 20);
+    }
+
+    private void assertContentRange(final BDBMessageStore bdbStore,
+                                    final long messageId,
+                                    final byte[] content,
+                                    final int offset,
+                                    final int length)
+    {
+        ByteBuffer dst = ByteBuffer.allocate(length + 10);
+        int expectedLength = Math.min(length, content.length - offset);
+        dst.limit(length);
+        assertEquals("Unexpected length", expectedLength, bdbStore.getContent(messageId, offset, dst));
+        byte[] expected = Arrays.copyOfRange(content, offset, offset + expectedLength);
+        assertTrue("Unexpected content at offset " + offset,
+                   Arrays.equals(expected, Arrays.copyOf(dst.array(), expectedLength)));
+    }
+
     private StoredMessage<MessageMetaData> createAndStoreSingleChunkMessage_0_8(MessageStore store)
     {
-        QpidByteBuffer chunk1 = QpidByteBuffer.wrap(CONTENT_BYTES);
+        return createAndStoreMessage_0_8(store, CONTENT_BYTES);
+    }
+
+    private StoredMessage<MessageMetaData> createAndStoreMessage_0_8(MessageStore store, byte[] content)
+    {
+        QpidByteBuffer chunk1 = QpidByteBuffer.wrap(content);
 
-        int bodySize = CONTENT_BYTES.length;
+        int bodySize = content.length;
 
         //create and store the message using the MessageStore interface
         MessagePublishInfo pubInfoBody_0_8 = createPublishInfoBody_0_8();
@@ -31,6 +31,7 @@ import java.util.concurrent.TimeUnit;
 
 import com.google.common.util.concurrent.ListenableFuture;
 
+import org.apache.qpid.server.stats.LatencyHistogram;
 import org.apache.qpid.test.utils.QpidTestCase;
 
 
@@ -38,13 +39,15 @@ public class CoalescingCommitterTest extends QpidTestCase
 {
     private EnvironmentFacade _environmentFacade;
     private CoalescingCommiter _coalescingCommitter;
+    private LatencyHistogram _commitLatencyHistogram;
 
     @Override
     public void setUp() throws Exception
     {
         super.setUp();
         _environmentFacade = mock(EnvironmentFacade.class);
-        _coalescingCommitter = new CoalescingCommiter("Test", _environmentFacade);
+        _commitLatencyHistogram = new LatencyHistogram();
+        _coalescingCommitter = new CoalescingCommiter("Test", _environmentFacade, _commitLatencyHistogram);
         _coalescingCommitter.start();
     }
 
@@ -83,6 +86,7 @@ public class CoalescingCommitterTest extends QpidTestCase
 
         verify(_environmentFacade, times(2)).flushLog();
         verify(_environmentFacade, times(1)).flushLogFailed(testFailure);
+        assertEquals("Only the successful commit should be recorded", 1L, _commitLatencyHistogram.getCount());
     }
 
     public void testCommitterEnvironmentFacadeInteractionsOnAsyncCommit() throws Exception
@@ -108,6 +112,7 @@ public class CoalescingCommitterTest extends QpidTestCase
         ListenableFuture<?> future =  _coalescingCommitter.commitAsync(null, expectedResult);
         Object result = future.get(1000, TimeUnit.MILLISECONDS);
         assertEquals("Unexpected result", expectedResult, result);
+        assertEquals("Only the successful commit should be recorded", 1L, _commitLatencyHistogram.getCount());
 
         verify(_environmentFacade, times(2)).flushLog();
         verify(_environmentFacade, times(1)).flushLogFailed(testFailure);
@@ -0,0 +1,167 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store.berkeleydb;
+
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.OperationStatus;
+import com.sleepycat.je.Transaction;
+
+import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.model.VirtualHost;
+import org.apache.qpid.test.utils.QpidTestCase;
+import org.apache.qpid.test.utils.TestFileUtils;
+import org.apache.qpid.util.FileUtils;
+
+public class SharedEnvironmentFacadeTest extends QpidTestCase
+{
+    private static final String DATABASE_NAME = "myDatabase";
+
+    private File _path;
+    private ConfiguredObject<?> _parent1;
+    private ConfiguredObject<?> _parent2;
+    private EnvironmentFacade _environmentFacade1;
+    private EnvironmentFacade _environmentFacade2;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        _path = TestFileUtils.createTestDirectory(".je.test", true);
+        _parent1 = createParent("vhost1");
+        _parent2 = createParent("vhost2");
+    }
+
+    @Override
+    public void tearDown() throws Exception
+    {
+        try
+        {
+            if (_environmentFacade1 != null)
+            {
+                _environmentFacade1.close();
+            }
+            if (_environmentFacade2 != null)
+            {
+                _environmentFacade2.close();
+            }
+            FileUtils.delete(_path, true);
+        }
+        finally
+        {
+            super.tearDown();
+        }
+    }
+
+    public void testFactoryCreatesSharedFacade()
+    {
+        _environmentFacade1 = new StandardEnvironmentFacadeFactory().createEnvironmentFacade(_parent1);
+        assertTrue("Unexpected facade " + _environmentFacade1, _environmentFacade1 instanceof SharedEnvironmentFacade);
+    }
+
+    public void testDatabasesSeparatedByPrefix()
+    {
+        _environmentFacade1 = SharedEnvironmentFacade.open(_parent1, _path.getAbsolutePath());
+        _environmentFacade2 = SharedEnvironmentFacade.open(_parent2, _path.getAbsolutePath());
+
+        Database database1 = _environmentFacade1.openDatabase(DATABASE_NAME, BDBUtils.DEFAULT_DATABASE_CONFIG);
+        Database database2 = _environmentFacade2.openDatabase(DATABASE_NAME, BDBUtils.DEFAULT_DATABASE_CONFIG);
+        assertNotSame("Stores should not share a database", database1, database2);
+
+        DatabaseEntry key = new DatabaseEntry(new byte[]{1});
+        Transaction tx = _environmentFacade1.beginTransaction(null);
+        database1.put(tx, key, new DatabaseEntry(new byte[]{2}));
+        _environmentFacade1.commit(tx, true);
+
+        assertEquals(OperationStatus.SUCCESS, database1.get(null, key, new DatabaseEntry(), null));
+        assertEquals(OperationStatus.NOTFOUND, database2.get(null, key, new DatabaseEntry(), null));
+        assertEquals("Unexpected number of commits recorded", 1, _environmentFacade1.getCommitLatencyHistogram().getCount());
+        assertEquals("Unexpected number of commits recorded", 0, _environmentFacade2.getCommitLatencyHistogram().getCount());
+    }
+
+    public void testEnvironmentClosedWithLastStore()
+    {
+        _environmentFacade1 = SharedEnvironmentFacade.open(_parent1, _path.getAbsolutePath());
+        _environmentFacade2 = SharedEnvironmentFacade.open(_parent2, _path.getAbsolutePath());
+        _environmentFacade1.openDatabase(DATABASE_NAME, BDBUtils.DEFAULT_DATABASE_CONFIG);
+
+        _environmentFacade1.close();
+        _environmentFacade1 = null;
+
+        Transaction tx = _environmentFacade2.beginTransaction(null);
+        _environmentFacade2.commit(tx, true);
+
+        _environmentFacade2.close();
+        _environmentFacade2 = null;
+
+        EnvHomeRegistry.getInstance().registerHome(_path);
+        EnvHomeRegistry.getInstance().deregisterHome(_path);
+    }
+
+    public void testRemoveDatabases()
+    {
+        _environmentFacade1 = SharedEnvironmentFacade.open(_parent1, _path.getAbsolutePath());
+        _environmentFacade1.openDatabase(DATABASE_NAME, BDBUtils.DEFAULT_DATABASE_CONFIG);
+        _environmentFacade2 = SharedEnvironmentFacade.open(_parent2, _path.getAbsolutePath());
+        _environmentFacade2.openDatabase(DATABASE_NAME, BDBUtils.DEFAULT_DATABASE_CONFIG);
+        _environmentFacade1.close();
+        _environmentFacade1 = null;
+        _environmentFacade2.close();
+        _environmentFacade2 = null;
+
+        SharedEnvironmentFacade.removeDatabases(_parent1, _path.getAbsolutePath());
+
+        StandardEnvironmentFacade facade =
+                new StandardEnvironmentFacade(StandardEnvironmentFacadeFactory.createConfiguration(_parent1,
+                                                                                                   getTestName(),
+                                                                                                   _path.getAbsolutePath()));
+        try
+        {
+            List<String> databaseNames = facade.getDatabaseNames();
+            assertFalse("Database of deleted store not removed",
+                        databaseNames.contains(SharedEnvironmentFacade.getDatabaseNamePrefix(_parent1) + DATABASE_NAME));
+            assertTrue("Database of other store removed",
+                       databaseNames.contains(SharedEnvironmentFacade.getDatabaseNamePrefix(_parent2) + DATABASE_NAME));
+        }
+        finally
+        {
+            facade.close();
+        }
+    }
+
+    private ConfiguredObject<?> createParent(final String name)
+    {
+        ConfiguredObject<?> parent = mock(ConfiguredObject.class);
+        when(parent.getName()).thenReturn(name);
+        doReturn(VirtualHost.class).when(parent).getCategoryClass();
+        when(parent.getContextKeys(false)).thenReturn(Collections.singleton(EnvironmentFacade.SHARED_ENVIRONMENT_PATH_PROPERTY_NAME));
+        when(parent.getContextValue(String.class, EnvironmentFacade.SHARED_ENVIRONMENT_PATH_PROPERTY_NAME)).thenReturn(_path.getAbsolutePath());
+        return parent;
+    }
+}
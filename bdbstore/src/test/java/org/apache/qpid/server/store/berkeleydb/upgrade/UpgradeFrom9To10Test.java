@@ -0,0 +1,147 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.qpid.server.store.berkeleydb.upgrade;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.sleepycat.bind.tuple.LongBinding;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseConfig;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.Transaction;
+
+import org.apache.qpid.server.store.berkeleydb.AbstractBDBMessageStore;
+import org.apache.qpid.server.store.berkeleydb.entry.MessageContentKey;
+import org.apache.qpid.server.store.berkeleydb.tuple.MessageContentKeyBinding;
+
+public class UpgradeFrom9To10Test extends AbstractUpgradeTestCase
+{
+    private static final long LARGE_MESSAGE_ID = Long.MAX_VALUE - 1;
+
+    @Override
+    protected String getStoreDirectoryName()
+    {
+        return "bdbstore-v8";
+    }
+
+    public void testPerformUpgrade() throws Exception
+    {
+        byte[] largeContent = new byte[AbstractBDBMessageStore.CONTENT_CHUNK_SIZE * 2 + 100];
+        for (int i = 0; i < largeContent.length; i++)
+        {
+            largeContent[i] = (byte) i;
+        }
+        addOldContent(LARGE_MESSAGE_ID, largeContent);
+        Map<Long, byte[]> expectedContent = loadOldContent();
+
+        UpgradeFrom9To10 upgrade = new UpgradeFrom9To10();
+        upgrade.performUpgrade(_environment, UpgradeInteractionHandler.DEFAULT_HANDLER, getVirtualHost());
+
+        assertFalse("Old content database should be removed",
+                    _environment.getDatabaseNames().contains(UpgradeFrom9To10.OLD_CONTENT_DB_NAME));
+        long expectedChunks = 0;
+        for (byte[] content : expectedContent.values())
+        {
+            expectedChunks += (content.length + AbstractBDBMessageStore.CONTENT_CHUNK_SIZE - 1)
+                              / AbstractBDBMessageStore.CONTENT_CHUNK_SIZE;
+        }
+        assertDatabaseRecordCount(UpgradeFrom9To10.NEW_CONTENT_DB_NAME, expectedChunks);
+
+        Map<Long, byte[]> upgradedContent = loadChunkedContent();
+        assertEquals("Unexpected messages", expectedContent.keySet(), upgradedContent.keySet());
+        for (Map.Entry<Long, byte[]> entry : expectedContent.entrySet())
+        {
+            assertTrue("Unexpected content for message " + entry.getKey(),
+                       Arrays.equals(entry.getValue(), upgradedContent.get(entry.getKey())));
+        }
+    }
+
+    private void addOldContent(final long messageId, final byte[] content)
+    {
+        DatabaseConfig dbConfig = new DatabaseConfig();
+        dbConfig.setTransactional(true);
+        dbConfig.setAllowCreate(true);
+        try (Database contentDb = _environment.openDatabase(null, UpgradeFrom9To10.OLD_CONTENT_DB_NAME, dbConfig))
+        {
+            DatabaseEntry key = new DatabaseEntry();
+            LongBinding.longToEntry(messageId, key);
+            contentDb.put(null, key, new DatabaseEntry(content));
+        }
+    }
+
+    private Map<Long, byte[]> loadOldContent()
+    {
+        final Map<Long, byte[]> content = new HashMap<>();
+        CursorOperation cursorOperation = new CursorOperation()
+        {
+            @Override
+            public void processEntry(Database sourceDatabase, Database targetDatabase, Transaction transaction,
+                                     DatabaseEntry key, DatabaseEntry value)
+            {
+                // messages without content have no chunks
+                if (value.getSize() > 0)
+                {
+                    content.put(LongBinding.entryToLong(key),
+                                Arrays.copyOfRange(value.getData(),
+                                                   value.getOffset(),
+                                                   value.getOffset() + value.getSize()));
+                }
+            }
+        };
+        new DatabaseTemplate(_environment, UpgradeFrom9To10.OLD_CONTENT_DB_NAME, null).run(cursorOperation);
+        return content;
+    }
+
+    private Map<Long, byte[]> loadChunkedContent()
+    {
+        final Map<Long, ByteArrayOutputStream> content = new HashMap<>();
+        CursorOperation cursorOperation = new CursorOperation()
+        {
+            @Override
+            public void processEntry(Database sourceDatabase, Database targetDatabase, Transaction transaction,
+                                     DatabaseEntry key, DatabaseEntry value)
+            {
+                MessageContentKey contentKey = MessageContentKeyBinding.getInstance().entryToObject(key);
+                ByteArrayOutputStream messageContent = content.get(contentKey.getMessageId());
+                if (messageContent == null)
+                {
+                    messageContent = new ByteArrayOutputStream();
+                    content.put(contentKey.getMessageId(), messageContent);
+                }
+                assertEquals("Unexpected chunk of message " + contentKey.getMessageId(),
+                             messageContent.size(), contentKey.getChunk() * AbstractBDBMessageStore.CONTENT_CHUNK_SIZE);
+                messageContent.write(value.getData(), value.getOffset(), value.getSize());
+            }
+        };
+        new DatabaseTemplate(_environment, UpgradeFrom9To10.NEW_CONTENT_DB_NAME, null).run(cursorOperation);
+
+        Map<Long, byte[]> result = new HashMap<>();
+        for (Map.Entry<Long, ByteArrayOutputStream> entry : content.entrySet())
+        {
+            result.put(entry.getKey(), entry.getValue().toByteArray());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.framing;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.bytebuffer.QpidByteBuffer;
+
+/**
+ * Encoding a populated {@link FieldTable}, and decoding an encoded one in order to read a single header.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldTableBenchmark
+{
+    @Param({"4", "32"})
+    private int _headerCount;
+
+    private FieldTable _table;
+    private QpidByteBuffer _encodeBuffer;
+    private QpidByteBuffer _encoded;
+    private String _lookupKey;
+
+    @Setup
+    public void setUp()
+    {
+        _table = new FieldTable();
+        for (int i = 0; i < _headerCount; i++)
+        {
+            if (i % 2 == 0)
+            {
+                _table.setString("stringHeader" + i, "value" + i);
+            }
+            else
+            {
+                _table.setInteger("intHeader" + i, i);
+            }
+        }
+        _lookupKey = "stringHeader" + (_headerCount / 2 - (_headerCount / 2) % 2);
+
+        int encodedSize = (int) _table.getEncodedSize();
+        _encodeBuffer = QpidByteBuffer.allocate(4 + encodedSize);
+        _encoded = QpidByteBuffer.wrap(_table.getDataAsBytes());
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        _encodeBuffer.dispose();
+        _encoded.dispose();
+    }
+
+    @Benchmark
+    public QpidByteBuffer encode()
+    {
+        _encodeBuffer.clear();
+        _table.writeToBuffer(_encodeBuffer);
+        return _encodeBuffer;
+    }
+
+    @Benchmark
+    public String decodeAndGet()
+    {
+        FieldTable table = new FieldTable(_encoded);
+        try
+        {
+            return table.getString(_lookupKey);
+        }
+        finally
+        {
+            table.dispose();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.qpid.server.message.internal.InternalMessage;
+import org.apache.qpid.server.message.internal.InternalMessageHeader;
+import org.apache.qpid.server.model.BrokerTestHelper;
+import org.apache.qpid.server.model.Exchange;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
+
+/**
+ * An in-memory virtual host (backed by a MemoryMessageStore) with no network, used by the benchmarks to create
+ * queues, exchanges and messages.
+ */
+public class VirtualHostFixture
+{
+    private final QueueManagingVirtualHost<?> _virtualHost;
+    private long _messageCounter;
+
+    public VirtualHostFixture(final String name) throws Exception
+    {
+        _virtualHost = BrokerTestHelper.createVirtualHost(name);
+    }
+
+    public QueueManagingVirtualHost<?> getVirtualHost()
+    {
+        return _virtualHost;
+    }
+
+    public Queue<?> createQueue(final String name) throws Exception
+    {
+        return BrokerTestHelper.createQueue(name, _virtualHost);
+    }
+
+    public Exchange<?> createExchange(final String name, final String type)
+    {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(Exchange.NAME, name);
+        attributes.put(Exchange.TYPE, type);
+        attributes.put(Exchange.DURABLE, false);
+        return _virtualHost.createChild(Exchange.class, attributes);
+    }
+
+    public InternalMessage createMessage(final Map<String, Object> headers, final int bodySize)
+    {
+        InternalMessageHeader header = new InternalMessageHeader(headers,
+                                                                 null,
+                                                                 0L,
+                                                                 null,
+                                                                 null,
+                                                                 "ID:" + (_messageCounter++),
+                                                                 "application/octet-stream",
+                                                                 null,
+                                                                 (byte) 4,
+                                                                 System.currentTimeMillis(),
+                                                                 0L,
+                                                                 null,
+                                                                 null);
+        return InternalMessage.createBytesMessage(_virtualHost.getMessageStore(), header, new byte[bodySize]);
+    }
+
+    public void close()
+    {
+        _virtualHost.close();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.exchange.ExchangeDefaults;
+import org.apache.qpid.server.benchmark.VirtualHostFixture;
+import org.apache.qpid.server.message.InstanceProperties;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.queue.BaseQueue;
+
+/**
+ * Routing through a {@link HeadersExchange} with a varying number of bindings.  Even numbered bindings match all
+ * of {@code region} and {@code id}, odd numbered ones match any of them; each published message carries
+ * a {@code region}, an {@code id} and a number of unrelated application headers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeadersExchangeRoutingBenchmark
+{
+    private static final int MESSAGES = 1024;
+    private static final int REGIONS = 50;
+    private static final int OTHER_HEADERS = 10;
+
+    @Param({"10", "1000", "10000"})
+    private int _bindingCount;
+
+    private VirtualHostFixture _fixture;
+    private HeadersExchange _exchange;
+    private ServerMessage<?>[] _messages;
+    private int _index;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        _fixture = new VirtualHostFixture("HeadersExchangeRoutingBenchmark");
+        _exchange = (HeadersExchange) _fixture.createExchange("headers", ExchangeDefaults.HEADERS_EXCHANGE_CLASS);
+
+        for (int i = 0; i < _bindingCount; i++)
+        {
+            Queue<?> queue = _fixture.createQueue("queue" + i);
+            Map<String, Object> arguments = new HashMap<>();
+            arguments.put("x-match", (i % 2 == 0) ? "all" : "any");
+            arguments.put("region", "region" + (i % REGIONS));
+            arguments.put("id", String.valueOf(i));
+            _exchange.addBinding("binding" + i, queue, arguments);
+        }
+
+        _messages = new ServerMessage<?>[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++)
+        {
+            Map<String, Object> headers = new HashMap<>();
+            headers.put("region", "region" + (i % REGIONS));
+            headers.put("id", String.valueOf(i % _bindingCount));
+            for (int j = 0; j < OTHER_HEADERS; j++)
+            {
+                headers.put("header" + j, "value" + j);
+            }
+            _messages[i] = _fixture.createMessage(headers, 0);
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        _fixture.close();
+    }
+
+    @Benchmark
+    public List<? extends BaseQueue> route()
+    {
+        ServerMessage<?> message = _messages[_index++ & (MESSAGES - 1)];
+        return _exchange.route(message, "", InstanceProperties.EMPTY);
+    }
+}
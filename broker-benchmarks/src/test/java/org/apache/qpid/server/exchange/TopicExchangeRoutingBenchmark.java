@@ -0,0 +1,103 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.exchange.ExchangeDefaults;
+import org.apache.qpid.server.benchmark.VirtualHostFixture;
+import org.apache.qpid.server.message.InstanceProperties;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.queue.BaseQueue;
+
+/**
+ * Routing through a {@link TopicExchangeImpl} with a varying number of bindings.  Binding keys are of the form
+ * {@code stock.<n>.*} and {@code stock.#.<n>}, published routing keys are {@code stock.<n>.<m>}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopicExchangeRoutingBenchmark
+{
+    private static final int ROUTING_KEYS = 1024;
+
+    @Param({"10", "1000", "10000"})
+    private int _bindingCount;
+
+    private VirtualHostFixture _fixture;
+    private TopicExchangeImpl _exchange;
+    private ServerMessage<?> _message;
+    private String[] _routingKeys;
+    private int _index;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        _fixture = new VirtualHostFixture("TopicExchangeRoutingBenchmark");
+        _exchange = (TopicExchangeImpl) _fixture.createExchange("topic", ExchangeDefaults.TOPIC_EXCHANGE_CLASS);
+
+        for (int i = 0; i < _bindingCount; i++)
+        {
+            Queue<?> queue = _fixture.createQueue("queue" + i);
+            String bindingKey = (i % 2 == 0) ? "stock." + i + ".*" : "stock.#." + i;
+            _exchange.addBinding(bindingKey, queue, Collections.<String, Object>emptyMap());
+        }
+
+        _routingKeys = new String[ROUTING_KEYS];
+        for (int i = 0; i < ROUTING_KEYS; i++)
+        {
+            _routingKeys[i] = "stock." + (i % _bindingCount) + "." + i;
+        }
+        _message = _fixture.createMessage(Collections.<String, Object>emptyMap(), 0);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        _fixture.close();
+    }
+
+    @Benchmark
+    public List<? extends BaseQueue> route()
+    {
+        String routingKey = _routingKeys[_index++ & (ROUTING_KEYS - 1)];
+        return _exchange.route(_message, routingKey, InstanceProperties.EMPTY);
+    }
+}
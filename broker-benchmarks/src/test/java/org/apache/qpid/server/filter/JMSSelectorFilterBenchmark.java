@@ -0,0 +1,100 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.filter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.server.benchmark.VirtualHostFixture;
+import org.apache.qpid.server.message.InstanceProperties;
+
+/**
+ * Evaluation of JMS selectors of varying complexity against a message with a handful of application properties,
+ * comparing compiled selectors with interpreting the parsed expression tree.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JMSSelectorFilterBenchmark
+{
+    @Param({"colour = 'red'",
+            "colour = 'red' AND size > 10",
+            "colour IN ('blue', 'green', 'red') AND (size BETWEEN 5 AND 50 OR weight < 2.5) AND region LIKE 'eu-%'",
+            "JMSPriority > 3 AND NOT (colour = 'blue')",
+            "(colour = 'red' OR colour = 'green') AND size * 2 > 10 + 4 AND (size < 100 OR weight > 1)"})
+    private String _selector;
+
+    private VirtualHostFixture _fixture;
+    private JMSSelectorFilter _filter;
+    private JMSSelectorFilter _interpretedFilter;
+    private Filterable _filterable;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        _fixture = new VirtualHostFixture("JMSSelectorFilterBenchmark");
+        _filter = new JMSSelectorFilter(_selector, true);
+        _interpretedFilter = new JMSSelectorFilter(_selector, false);
+
+        Map<String, Object> headers = new HashMap<>();
+        headers.put("colour", "red");
+        headers.put("size", 20);
+        headers.put("weight", 1.5d);
+        headers.put("region", "eu-west");
+        headers.put("customer", "acme");
+        _filterable = Filterable.Factory.newInstance(_fixture.createMessage(headers, 0), InstanceProperties.EMPTY);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        _fixture.close();
+    }
+
+    @Benchmark
+    public boolean matches()
+    {
+        return _filter.matches(_filterable);
+    }
+
+    @Benchmark
+    public boolean matchesInterpreted()
+    {
+        return _interpretedFilter.matches(_filterable);
+    }
+}
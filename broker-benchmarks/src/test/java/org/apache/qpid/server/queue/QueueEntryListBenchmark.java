@@ -0,0 +1,168 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.apache.qpid.server.benchmark.VirtualHostFixture;
+import org.apache.qpid.server.message.ServerMessage;
+
+/**
+ * Enqueue (add), iterate, acquire and dequeue of entries on a {@link StandardQueueEntryList}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueEntryListBenchmark
+{
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"1000", "100000"})
+    private int _queueDepth;
+
+    private VirtualHostFixture _fixture;
+    private StandardQueue<?> _queue;
+    private ServerMessage<?> _message;
+    private StandardQueueEntryList _populatedList;
+    private StandardQueueEntryList _list;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        _fixture = new VirtualHostFixture("QueueEntryListBenchmark");
+        _queue = (StandardQueue<?>) _fixture.createQueue("queue");
+        _message = _fixture.createMessage(Collections.<String, Object>emptyMap(), 256);
+
+        _populatedList = new StandardQueueEntryList(_queue, new QueueStatistics());
+        for (int i = 0; i < _queueDepth; i++)
+        {
+            _populatedList.add(_message, null);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createList()
+    {
+        _list = new StandardQueueEntryList(_queue, new QueueStatistics());
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        _fixture.close();
+    }
+
+    @Benchmark
+    public QueueEntry add()
+    {
+        QueueEntry entry = _list.add(_message, null);
+        // keep the list from growing without bound over the iteration
+        entry.acquire();
+        entry.delete();
+        return entry;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void acquire(final Batch batch, final Blackhole blackhole)
+    {
+        for (QueueEntry entry : batch._entries)
+        {
+            blackhole.consume(entry.acquire());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void acquireAndDelete(final Batch batch)
+    {
+        for (QueueEntry entry : batch._entries)
+        {
+            if (entry.acquire())
+            {
+                entry.delete();
+            }
+        }
+    }
+
+    @Benchmark
+    public int iterate()
+    {
+        int count = 0;
+        QueueEntryIterator iterator = _populatedList.iterator();
+        while (iterator.advance())
+        {
+            if (iterator.getNode().isAvailable())
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * A batch of freshly enqueued entries for each invocation of the acquire benchmarks.
+     */
+    @State(Scope.Thread)
+    public static class Batch
+    {
+        private final QueueEntry[] _entries = new QueueEntry[BATCH_SIZE];
+
+        @Setup(Level.Invocation)
+        public void enqueue(final QueueEntryListBenchmark benchmark)
+        {
+            for (int i = 0; i < BATCH_SIZE; i++)
+            {
+                _entries[i] = benchmark._list.add(benchmark._message, null);
+            }
+        }
+
+        @TearDown(Level.Invocation)
+        public void dequeue()
+        {
+            for (QueueEntry entry : _entries)
+            {
+                entry.acquire();
+                entry.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 8 threads recording the statistics of enqueues while 8 threads record the statistics of deliveries and dequeues
+ * on the same queue, comparing {@link QueueStatistics} with the single atomic counters it used previously.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueStatisticsBenchmark
+{
+    private static final long MESSAGE_SIZE = 256L;
+
+    private final QueueStatistics _statistics = new QueueStatistics();
+    private final AtomicCounters _atomicCounters = new AtomicCounters();
+
+    @Benchmark
+    @Group("queueStatistics")
+    @GroupThreads(8)
+    public void enqueue()
+    {
+        _statistics.addToQueue(MESSAGE_SIZE);
+        _statistics.addToAvailable(MESSAGE_SIZE);
+        _statistics.addToEnqueued(MESSAGE_SIZE);
+        _statistics.addToPersistentEnqueued(MESSAGE_SIZE);
+    }
+
+    @Benchmark
+    @Group("queueStatistics")
+    @GroupThreads(8)
+    public void dequeue()
+    {
+        _statistics.removeFromAvailable(MESSAGE_SIZE);
+        _statistics.addToUnacknowledged(MESSAGE_SIZE);
+        _statistics.removeFromUnacknowledged(MESSAGE_SIZE);
+        _statistics.addToDequeued(MESSAGE_SIZE);
+        _statistics.addToPersistentDequeued(MESSAGE_SIZE);
+        _statistics.removeFromQueue(MESSAGE_SIZE);
+    }
+
+    @Benchmark
+    @Group("atomicCounters")
+    @GroupThreads(8)
+    public void enqueueAtomic()
+    {
+        _atomicCounters.enqueue(MESSAGE_SIZE);
+    }
+
+    @Benchmark
+    @Group("atomicCounters")
+    @GroupThreads(8)
+    public void dequeueAtomic()
+    {
+        _atomicCounters.dequeue(MESSAGE_SIZE);
+    }
+
+    /**
+     * The updates made by {@link QueueStatistics} for an enqueue and a dequeue when every counter was an
+     * atomic value.
+     */
+    private static final class AtomicCounters
+    {
+        private final AtomicInteger _queueCount = new AtomicInteger();
+        private final AtomicLong _queueSize = new AtomicLong();
+        private final AtomicInteger _unackedCount = new AtomicInteger();
+        private final AtomicLong _unackedSize = new AtomicLong();
+        private final AtomicInteger _availableCount = new AtomicInteger();
+        private final AtomicLong _availableSize = new AtomicLong();
+        private final AtomicLong _dequeueCount = new AtomicLong();
+        private final AtomicLong _dequeueSize = new AtomicLong();
+        private final AtomicLong _enqueueCount = new AtomicLong();
+        private final AtomicLong _enqueueSize = new AtomicLong();
+        private final AtomicLong _persistentEnqueueCount = new AtomicLong();
+        private final AtomicLong _persistentEnqueueSize = new AtomicLong();
+        private final AtomicLong _persistentDequeueCount = new AtomicLong();
+        private final AtomicLong _persistentDequeueSize = new AtomicLong();
+        private final AtomicInteger _queueCountHwm = new AtomicInteger();
+        private final AtomicLong _queueSizeHwm = new AtomicLong();
+        private final AtomicInteger _availableCountHwm = new AtomicInteger();
+        private final AtomicLong _availableSizeHwm = new AtomicLong();
+
+        void enqueue(long size)
+        {
+            updateHwm(_queueCount.incrementAndGet(), _queueSize.addAndGet(size), _queueCountHwm, _queueSizeHwm);
+            updateHwm(_availableCount.incrementAndGet(),
+                      _availableSize.addAndGet(size),
+                      _availableCountHwm,
+                      _availableSizeHwm);
+            _enqueueCount.incrementAndGet();
+            _enqueueSize.addAndGet(size);
+            _persistentEnqueueCount.incrementAndGet();
+            _persistentEnqueueSize.addAndGet(size);
+        }
+
+        void dequeue(long size)
+        {
+            _availableCount.decrementAndGet();
+            _availableSize.addAndGet(-size);
+            _unackedCount.incrementAndGet();
+            _unackedSize.addAndGet(size);
+            _unackedCount.decrementAndGet();
+            _unackedSize.addAndGet(-size);
+            _dequeueCount.incrementAndGet();
+            _dequeueSize.addAndGet(size);
+            _persistentDequeueCount.incrementAndGet();
+            _persistentDequeueSize.addAndGet(size);
+            _queueCount.decrementAndGet();
+            _queueSize.addAndGet(-size);
+        }
+
+        private void updateHwm(int count, long size, AtomicInteger countHwm, AtomicLong sizeHwm)
+        {
+            int hwm;
+            while ((hwm = countHwm.get()) < count)
+            {
+                countHwm.compareAndSet(hwm, count);
+            }
+            long currentSizeHwm;
+            while ((currentSizeHwm = sizeHwm.get()) < size)
+            {
+                sizeHwm.compareAndSet(currentSizeHwm, size);
+            }
+        }
+    }
+}
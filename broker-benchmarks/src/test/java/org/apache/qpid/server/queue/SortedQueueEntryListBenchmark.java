@@ -0,0 +1,131 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.apache.qpid.server.benchmark.VirtualHostFixture;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.Queue;
+
+/**
+ * 16 producers adding entries with random sort keys to a {@link SortedQueueEntryList} while 16 consumers take the
+ * first available entry in sort order, acquire and delete it.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortedQueueEntryListBenchmark
+{
+    private static final int MESSAGES = 1024;
+    private static final String SORT_KEY = "sortKey";
+
+    private VirtualHostFixture _fixture;
+    private SortedQueueImpl _queue;
+    private ServerMessage<?>[] _messages;
+    private SortedQueueEntryList _list;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        _fixture = new VirtualHostFixture("SortedQueueEntryListBenchmark");
+
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(Queue.NAME, "sorted");
+        attributes.put(Queue.TYPE, SortedQueue.SORTED_QUEUE_TYPE);
+        attributes.put(SortedQueue.SORT_KEY, SORT_KEY);
+        _queue = (SortedQueueImpl) _fixture.getVirtualHost().createChild(Queue.class, attributes);
+
+        Random random = new Random(0);
+        _messages = new ServerMessage<?>[MESSAGES];
+        for (int i = 0; i < MESSAGES; i++)
+        {
+            _messages[i] = _fixture.createMessage(Collections.<String, Object>singletonMap(SORT_KEY,
+                                                                                           "key" + random.nextInt(100)),
+                                                  256);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createList()
+    {
+        _list = new SortedQueueEntryList(_queue, new QueueStatistics());
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        _fixture.close();
+    }
+
+    @Benchmark
+    @Group("producersAndConsumers")
+    @GroupThreads(16)
+    public QueueEntry produce(final Producer producer)
+    {
+        return _list.add(_messages[producer._index++ & (MESSAGES - 1)], null);
+    }
+
+    @Benchmark
+    @Group("producersAndConsumers")
+    @GroupThreads(16)
+    public QueueEntry consume()
+    {
+        SortedQueueEntry entry = _list.getHead();
+        while ((entry = _list.next(entry)) != null)
+        {
+            if (entry.acquire())
+            {
+                entry.delete();
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    @State(Scope.Thread)
+    public static class Producer
+    {
+        private int _index = new Random().nextInt(MESSAGES);
+    }
+}
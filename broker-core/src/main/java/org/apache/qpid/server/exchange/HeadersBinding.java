@@ -116,6 +116,40 @@ class HeadersBinding
         return _binding;
     }
 
+    /**
+     * @return the headers which must be present (with any value)
+     */
+    Set<String> getRequiredHeaders()
+    {
+        return Collections.unmodifiableSet(required);
+    }
+
+    /**
+     * @return the headers which must be present with the given value
+     */
+    Map<String, Object> getMatchingHeaderValues()
+    {
+        return Collections.unmodifiableMap(matches);
+    }
+
+    boolean isMatchAny()
+    {
+        return matchAny;
+    }
+
+    /**
+     * @return the number of header conditions; zero if the binding matches any set of headers
+     */
+    int getConditionCount()
+    {
+        return required.size() + matches.size();
+    }
+
+    boolean filterAllows(Filterable message)
+    {
+        return _filter == null || _filter.allAllow(message);
+    }
+
     /**
      * Checks whether the supplied headers match the requirements of this binding
      * @param headers the headers to check
@@ -136,7 +170,7 @@ class HeadersBinding
 
     public boolean matches(Filterable message)
     {
-        return matches(message.getMessageHeader()) && (_filter == null || _filter.allAllow(message));
+        return matches(message.getMessageHeader()) && filterAllows(message);
     }
 
     private boolean and(AMQMessageHeader headers)
@@ -0,0 +1,229 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.qpid.server.message.AMQMessageHeader;
+import org.apache.qpid.server.model.Binding;
+
+/**
+ * Indexes header bindings by the header names (and header values) they require, so that matching a message only
+ * visits the bindings which share at least one header with it.
+ * <p>
+ * Every header condition of a binding (a required header, or a required header value) is registered under the
+ * header name.  Each header of the message is looked up once and counts a hit against the bindings registered
+ * for it: an <code>x-match=any</code> binding matches on its first hit, an <code>x-match=all</code> binding once
+ * all of its conditions have been hit.  Bindings without any condition match every message.
+ * <p>
+ * Updates are serialised; matching is lock free and may run concurrently with updates.
+ */
+final class HeadersBindingIndex
+{
+    private final ConcurrentMap<Binding<?>, HeadersBinding> _bindings = new ConcurrentHashMap<>();
+    private final Set<HeadersBinding> _unconditional = newConcurrentSet();
+    private final ConcurrentMap<String, Set<HeadersBinding>> _byRequiredHeader = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<Object, Set<HeadersBinding>>> _byHeaderValue =
+            new ConcurrentHashMap<>();
+
+    synchronized void add(final HeadersBinding headersBinding)
+    {
+        remove(headersBinding.getBinding());
+        _bindings.put(headersBinding.getBinding(), headersBinding);
+
+        if (headersBinding.getConditionCount() == 0)
+        {
+            _unconditional.add(headersBinding);
+        }
+        else
+        {
+            for (String name : headersBinding.getRequiredHeaders())
+            {
+                getOrCreate(_byRequiredHeader, name).add(headersBinding);
+            }
+            for (Map.Entry<String, Object> entry : headersBinding.getMatchingHeaderValues().entrySet())
+            {
+                ConcurrentMap<Object, Set<HeadersBinding>> byValue = _byHeaderValue.get(entry.getKey());
+                if (byValue == null)
+                {
+                    byValue = new ConcurrentHashMap<>();
+                    _byHeaderValue.put(entry.getKey(), byValue);
+                }
+                getOrCreate(byValue, entry.getValue()).add(headersBinding);
+            }
+        }
+    }
+
+    synchronized boolean remove(final Binding<?> binding)
+    {
+        final HeadersBinding headersBinding = _bindings.remove(binding);
+        if (headersBinding == null)
+        {
+            return false;
+        }
+
+        if (headersBinding.getConditionCount() == 0)
+        {
+            _unconditional.remove(headersBinding);
+        }
+        else
+        {
+            for (String name : headersBinding.getRequiredHeaders())
+            {
+                removeFrom(_byRequiredHeader, name, headersBinding);
+            }
+            for (Map.Entry<String, Object> entry : headersBinding.getMatchingHeaderValues().entrySet())
+            {
+                final ConcurrentMap<Object, Set<HeadersBinding>> byValue = _byHeaderValue.get(entry.getKey());
+                if (byValue != null)
+                {
+                    removeFrom(byValue, entry.getValue(), headersBinding);
+                    if (byValue.isEmpty())
+                    {
+                        _byHeaderValue.remove(entry.getKey());
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    int size()
+    {
+        return _bindings.size();
+    }
+
+    Collection<HeadersBinding> getBindings()
+    {
+        return Collections.unmodifiableCollection(_bindings.values());
+    }
+
+    /**
+     * Finds the bindings whose header conditions are satisfied by the given headers.  Binding filters (such as
+     * selectors) are not evaluated.
+     */
+    List<HeadersBinding> match(final AMQMessageHeader headers)
+    {
+        final List<HeadersBinding> matched = new ArrayList<>(_unconditional);
+        if (headers == null || (_byRequiredHeader.isEmpty() && _byHeaderValue.isEmpty()))
+        {
+            return matched;
+        }
+
+        Map<HeadersBinding, int[]> hits = null;
+        for (String name : headers.getHeaderNames())
+        {
+            final Set<HeadersBinding> requiringHeader = _byRequiredHeader.get(name);
+            if (requiringHeader != null)
+            {
+                hits = hit(requiringHeader, hits, matched);
+            }
+
+            final ConcurrentMap<Object, Set<HeadersBinding>> byValue = _byHeaderValue.get(name);
+            if (byValue != null)
+            {
+                final Object value = headers.getHeader(name);
+                if (value != null)
+                {
+                    final Set<HeadersBinding> requiringValue = byValue.get(value);
+                    if (requiringValue != null)
+                    {
+                        hits = hit(requiringValue, hits, matched);
+                    }
+                }
+            }
+        }
+        return matched;
+    }
+
+    private Map<HeadersBinding, int[]> hit(final Set<HeadersBinding> bindings,
+                                           Map<HeadersBinding, int[]> hits,
+                                           final List<HeadersBinding> matched)
+    {
+        for (HeadersBinding binding : bindings)
+        {
+            final int conditionCount = binding.getConditionCount();
+            if (conditionCount == 1)
+            {
+                matched.add(binding);
+            }
+            else
+            {
+                if (hits == null)
+                {
+                    hits = new IdentityHashMap<>();
+                }
+                int[] count = hits.get(binding);
+                if (count == null)
+                {
+                    count = new int[1];
+                    hits.put(binding, count);
+                }
+                count[0]++;
+
+                if (binding.isMatchAny() ? count[0] == 1 : count[0] == conditionCount)
+                {
+                    matched.add(binding);
+                }
+            }
+        }
+        return hits;
+    }
+
+    private static <K> Set<HeadersBinding> getOrCreate(final ConcurrentMap<K, Set<HeadersBinding>> map, final K key)
+    {
+        Set<HeadersBinding> bindings = map.get(key);
+        if (bindings == null)
+        {
+            bindings = newConcurrentSet();
+            map.put(key, bindings);
+        }
+        return bindings;
+    }
+
+    private static <K> void removeFrom(final ConcurrentMap<K, Set<HeadersBinding>> map,
+                                       final K key,
+                                       final HeadersBinding binding)
+    {
+        final Set<HeadersBinding> bindings = map.get(key);
+        if (bindings != null)
+        {
+            bindings.remove(binding);
+            if (bindings.isEmpty())
+            {
+                map.remove(key);
+            }
+        }
+    }
+
+    private static Set<HeadersBinding> newConcurrentSet()
+    {
+        return Collections.newSetFromMap(new ConcurrentHashMap<HeadersBinding, Boolean>());
+    }
+}
@@ -22,11 +22,9 @@ package org.apache.qpid.server.exchange;
 
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
-import java.util.ListIterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.slf4j.Logger;
@@ -79,8 +77,7 @@ public class HeadersExchange extends AbstractExchange<HeadersExchange>
     private final ConcurrentMap<String, CopyOnWriteArraySet<Binding<?>>> _bindingsByKey =
                             new ConcurrentHashMap<>();
 
-    private final CopyOnWriteArrayList<HeadersBinding> _bindingHeaderMatchers =
-                            new CopyOnWriteArrayList<HeadersBinding>();
+    private final HeadersBindingIndex _bindingIndex = new HeadersBindingIndex();
 
     @ManagedObjectFactoryConstructor
     public HeadersExchange(final Map<String, Object> attributes, final QueueManagingVirtualHost<?> vhost)
@@ -97,9 +94,15 @@ public class HeadersExchange extends AbstractExchange<HeadersExchange>
 
         LinkedHashSet<BaseQueue> queues = new LinkedHashSet<BaseQueue>();
 
-        for (HeadersBinding hb : _bindingHeaderMatchers)
+        Filterable filterable = null;
+        for (HeadersBinding hb : _bindingIndex.match(payload.getMessageHeader()))
         {
-            if (hb.matches(Filterable.Factory.newInstance(payload,instanceProperties)))
+            if (filterable == null)
+            {
+                filterable = Filterable.Factory.newInstance(payload, instanceProperties);
+            }
+
+            if (hb.filterAllows(filterable))
             {
                 Binding<?> b = hb.getBinding();
 
@@ -144,7 +147,7 @@ public class HeadersExchange extends AbstractExchange<HeadersExchange>
                           " with binding key '" +bindingKey + "' and args: " + binding.getArguments());
         }
 
-        _bindingHeaderMatchers.add(new HeadersBinding(binding));
+        _bindingIndex.add(new HeadersBinding(binding));
         bindings.add(binding);
 
     }
@@ -152,16 +155,7 @@ public class HeadersExchange extends AbstractExchange<HeadersExchange>
     @Override
     protected void onBindingUpdated(final Binding<?> binding, final Map<String, Object> oldArguments)
     {
-        HeadersBinding headersBinding = new HeadersBinding(binding);
-        ListIterator<HeadersBinding> iter = _bindingHeaderMatchers.listIterator();
-        while(iter.hasNext())
-        {
-            if(iter.next().equals(headersBinding))
-            {
-                iter.set(headersBinding);
-            }
-        }
-
+        _bindingIndex.add(new HeadersBinding(binding));
     }
 
     protected void onUnbind(final Binding<?> binding)
@@ -174,7 +168,7 @@ public class HeadersExchange extends AbstractExchange<HeadersExchange>
             bindings.remove(binding);
         }
 
-        boolean removedBinding = _bindingHeaderMatchers.remove(new HeadersBinding(binding));
+        boolean removedBinding = _bindingIndex.remove(binding);
         _logger.debug("Removing Binding: {}", removedBinding);
 
     }
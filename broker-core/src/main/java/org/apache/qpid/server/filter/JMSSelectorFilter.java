@@ -25,6 +25,7 @@ import org.slf4j.LoggerFactory;
 
 import org.apache.qpid.common.AMQPFilterTypes;
 import org.apache.qpid.filter.BooleanExpression;
+import org.apache.qpid.filter.ExpressionCompiler;
 import org.apache.qpid.filter.FilterableMessage;
 import org.apache.qpid.filter.JMSMessagePropertyExpression;
 import org.apache.qpid.filter.SelectorParsingException;
@@ -39,15 +40,41 @@ public class JMSSelectorFilter implements MessageFilter
 {
     private final static Logger _logger = LoggerFactory.getLogger(JMSSelectorFilter.class);
 
+    /**
+     * System property which, if true, causes selectors to be interpreted rather than compiled
+     */
+    public static final String INTERPRET_SELECTORS = "qpid.selector.interpret";
+
+    private static final boolean COMPILE_SELECTORS = !Boolean.getBoolean(INTERPRET_SELECTORS);
+
     private String _selector;
     private BooleanExpression _matcher;
+    private boolean _compiled;
 
     public JMSSelectorFilter(String selector) throws ParseException, TokenMgrError, SelectorParsingException
+    {
+        this(selector, COMPILE_SELECTORS);
+    }
+
+    JMSSelectorFilter(String selector, boolean compile) throws ParseException, TokenMgrError, SelectorParsingException
     {
         _selector = selector;
         SelectorParser<FilterableMessage> selectorParser = new SelectorParser<>();
         selectorParser.setPropertyExpressionFactory(JMSMessagePropertyExpression.FACTORY);
-        _matcher = selectorParser.parse(selector);
+        BooleanExpression<FilterableMessage> expression = selectorParser.parse(selector);
+
+        BooleanExpression<FilterableMessage> compiled = compile ? ExpressionCompiler.compile(expression) : null;
+        if (compiled == null)
+        {
+            _logger.debug("Selector '{}' will be interpreted", selector);
+            _matcher = expression;
+            _compiled = false;
+        }
+        else
+        {
+            _matcher = compiled;
+            _compiled = true;
+        }
     }
 
     @Override
@@ -78,6 +105,11 @@ public class JMSSelectorFilter implements MessageFilter
         return _selector;
     }
 
+    boolean isCompiled()
+    {
+        return _compiled;
+    }
+
     @Override
     public boolean equals(final Object o)
     {
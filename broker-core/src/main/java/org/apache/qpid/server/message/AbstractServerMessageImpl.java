@@ -29,6 +29,8 @@ import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import org.apache.qpid.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.server.model.NamedAddressSpace;
+import org.apache.qpid.server.plugin.MessageConverter;
 import org.apache.qpid.server.store.StorableMessageMetaData;
 import org.apache.qpid.server.store.StoredMessage;
 import org.apache.qpid.server.store.TransactionLogResource;
@@ -48,6 +50,7 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
     private final StoredMessage<T> _handle;
     private final Object _connectionReference;
     private volatile Collection<UUID> _resources;
+    private MessageConversionCache.Entry _convertedMessages;
 
 
     public AbstractServerMessageImpl(StoredMessage<T> handle, Object connectionReference)
@@ -108,6 +111,7 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
                     {
                         _handle.remove();
                     }
+                    releaseConvertedMessages();
                 }
             }
             else
@@ -188,7 +192,62 @@ public abstract class AbstractServerMessageImpl<X extends AbstractServerMessageI
     final public Object getConnectionReference()
     {
         return _connectionReference;
-    }public String toString()
+    }
+
+    /**
+     * Returns this message converted by the given converter.  While this message is referenced, the converted message
+     * is kept (space permitting in the {@link MessageConversionCache} of the address space) and returned to later
+     * callers converting to the same type, so the converted message must not be modified by its users.
+     */
+    @SuppressWarnings("unchecked")
+    public final <N extends ServerMessage> N getConvertedMessage(final MessageConverter<? super X, N> converter,
+                                                                 final NamedAddressSpace addressSpace)
+    {
+        final MessageConversionCache cache = addressSpace == null ? null : addressSpace.getMessageConversionCache();
+        if (cache == null)
+        {
+            return converter.convert((X) this, addressSpace);
+        }
+
+        final Class<N> type = converter.getOutputClass();
+        synchronized (this)
+        {
+            if (_convertedMessages != null)
+            {
+                final ServerMessage<?> converted = _convertedMessages.find(type, addressSpace);
+                if (converted != null)
+                {
+                    cache.recordHit();
+                    return type.cast(converted);
+                }
+            }
+            cache.recordMiss();
+
+            final N converted = converter.convert((X) this, addressSpace);
+            if (getReferenceCount() > 0)
+            {
+                final long size = converter.getRetainedSize(converted);
+                if (cache.reserve(size))
+                {
+                    _convertedMessages = new MessageConversionCache.Entry(converter, cache, addressSpace, converted,
+                                                                          size, _convertedMessages);
+                }
+            }
+            return converted;
+        }
+    }
+
+    private synchronized void releaseConvertedMessages()
+    {
+        if (_convertedMessages != null)
+        {
+            _convertedMessages.release();
+            _convertedMessages = null;
+        }
+    }
+
+    @Override
+    public String toString()
     {
         return "Message[" + debugIdentity() + "]";
     }
@@ -0,0 +1,176 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.message;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.qpid.server.plugin.MessageConverter;
+import org.apache.qpid.server.stats.StripedCounter;
+
+/**
+ * Accounts for the converted forms of messages which are kept with the original message, so that a message
+ * delivered to many consumers of another protocol is converted only once.  Each address space that keeps converted
+ * messages has its own cache.
+ * <p>
+ * A converted form is kept only while the total size of the kept forms is within the maximum size, and is disposed
+ * of when the last reference to the original message is released.
+ */
+public final class MessageConversionCache
+{
+    private final long _maximumSize;
+
+    private final AtomicLong _size = new AtomicLong();
+    private final AtomicLong _entryCount = new AtomicLong();
+    private final StripedCounter _hits = new StripedCounter();
+    private final StripedCounter _misses = new StripedCounter();
+
+    /**
+     * @param maximumSize the maximum total size in bytes of the converted messages kept, or zero to keep none
+     */
+    public MessageConversionCache(final long maximumSize)
+    {
+        _maximumSize = Math.max(0L, maximumSize);
+    }
+
+    public long getMaximumSize()
+    {
+        return _maximumSize;
+    }
+
+    /**
+     * @return the total size in bytes of the converted messages kept
+     */
+    public long getSize()
+    {
+        return _size.get();
+    }
+
+    public long getEntryCount()
+    {
+        return _entryCount.get();
+    }
+
+    public long getHitCount()
+    {
+        return _hits.get();
+    }
+
+    public long getMissCount()
+    {
+        return _misses.get();
+    }
+
+    /**
+     * @return the percentage of conversions satisfied by a converted message already kept
+     */
+    public long getHitRate()
+    {
+        final long hits = getHitCount();
+        final long total = hits + getMissCount();
+        return total == 0L ? 0L : hits * 100L / total;
+    }
+
+    public void resetStatistics()
+    {
+        _hits.reset();
+        _misses.reset();
+    }
+
+    void recordHit()
+    {
+        _hits.increment();
+    }
+
+    void recordMiss()
+    {
+        _misses.increment();
+    }
+
+    boolean reserve(final long size)
+    {
+        long current;
+        do
+        {
+            current = _size.get();
+            if (current + size > _maximumSize)
+            {
+                return false;
+            }
+        }
+        while (!_size.compareAndSet(current, current + size));
+        _entryCount.incrementAndGet();
+        return true;
+    }
+
+    void release(final long size)
+    {
+        _size.addAndGet(-size);
+        _entryCount.decrementAndGet();
+    }
+
+    /** A converted message kept with its original, one of a list per original message */
+    static final class Entry
+    {
+        private final MessageConverter _converter;
+        private final MessageConversionCache _cache;
+        private final Object _addressSpace;
+        private final ServerMessage<?> _message;
+        private final long _size;
+        private final Entry _next;
+
+        Entry(final MessageConverter<?, ?> converter,
+              final MessageConversionCache cache,
+              final Object addressSpace,
+              final ServerMessage<?> message,
+              final long size,
+              final Entry next)
+        {
+            _converter = converter;
+            _cache = cache;
+            _addressSpace = addressSpace;
+            _message = message;
+            _size = size;
+            _next = next;
+        }
+
+        ServerMessage<?> find(final Class<?> type, final Object addressSpace)
+        {
+            for (Entry entry = this; entry != null; entry = entry._next)
+            {
+                if (entry._converter.getOutputClass() == type && entry._addressSpace == addressSpace)
+                {
+                    return entry._message;
+                }
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        void release()
+        {
+            for (Entry entry = this; entry != null; entry = entry._next)
+            {
+                entry._cache.release(entry._size);
+                entry._converter.dispose(entry._message);
+            }
+        }
+    }
+}
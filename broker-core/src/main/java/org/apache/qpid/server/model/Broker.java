@@ -81,6 +81,8 @@ public interface Broker<X extends Broker<X>> extends ConfiguredObject<X>, EventL
     @ManagedContextDefault(name = QPID_HTTP_PORT)
     String DEFAULT_HTTP_PORT_NUMBER = "8080";
 
+    // pooled buffers may hold up to QpidByteBuffer.MAXIMUM_POOLED_CAPACITY_FACTOR times the message sizes counted
+    // against this threshold, which must stay within the direct memory limit
     @ManagedContextDefault(name = BROKER_FLOW_TO_DISK_THRESHOLD)
     long DEFAULT_FLOW_TO_DISK_THRESHOLD = (long)(0.4 * (double) BrokerImpl.getMaxDirectMemorySize());
 
@@ -249,6 +251,36 @@ public interface Broker<X extends Broker<X>> extends ConfiguredObject<X>, EventL
                       description = "Number of objects pending finalization")
     int getNumberOfObjectsPendingFinalization();
 
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE,
+                      units = StatisticUnit.COUNT,
+                      label = "Buffer Pool Allocations",
+                      description = "Number of direct buffers taken from the network buffer pool")
+    long getBufferPoolAllocations();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE,
+                      units = StatisticUnit.COUNT,
+                      label = "Buffer Pool Hits",
+                      description = "Number of direct buffers taken from the network buffer pool which were reused")
+    long getBufferPoolHits();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE,
+                      units = StatisticUnit.COUNT,
+                      label = "Buffer Pool Misses",
+                      description = "Number of direct buffers the network buffer pool had to allocate")
+    long getBufferPoolMisses();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME,
+                      units = StatisticUnit.COUNT,
+                      label = "Buffer Pool Outstanding Buffers",
+                      description = "Number of direct buffers taken from the network buffer pool and not yet returned")
+    long getBufferPoolOutstandingBuffers();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME,
+                      units = StatisticUnit.BYTES,
+                      label = "Buffer Pool Direct Memory Size",
+                      description = "Size of the direct memory allocated by the network buffer pool")
+    long getBufferPoolDirectMemorySize();
+
     @ManagedOperation(nonModifying = true,
             description = "Initiates garbage collection",
             changesConfiguredObjectState = false)
@@ -647,6 +647,36 @@ public class BrokerImpl extends AbstractContainer<BrokerImpl> implements Broker<
         return getMessageDeliveryStatistics().getTotal();
     }
 
+    @Override
+    public long getBufferPoolAllocations()
+    {
+        return QpidByteBuffer.getPoolAllocationCount();
+    }
+
+    @Override
+    public long getBufferPoolHits()
+    {
+        return QpidByteBuffer.getPoolHitCount();
+    }
+
+    @Override
+    public long getBufferPoolMisses()
+    {
+        return QpidByteBuffer.getPoolMissCount();
+    }
+
+    @Override
+    public long getBufferPoolOutstandingBuffers()
+    {
+        return QpidByteBuffer.getPoolOutstandingBufferCount();
+    }
+
+    @Override
+    public long getBufferPoolDirectMemorySize()
+    {
+        return QpidByteBuffer.getPoolDirectMemorySize();
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public <C extends ConfiguredObject> ListenableFuture<C> addChildAsync(final Class<C> childClass, final Map<String, Object> attributes, final ConfiguredObject... otherParents)
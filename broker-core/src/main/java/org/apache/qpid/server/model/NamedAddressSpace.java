@@ -25,6 +25,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.qpid.server.message.MessageConversionCache;
 import org.apache.qpid.server.message.MessageDestination;
 import org.apache.qpid.server.message.MessageSource;
 import org.apache.qpid.server.model.port.AmqpPort;
@@ -60,6 +61,11 @@ public interface NamedAddressSpace extends Named
 
     MessageStore getMessageStore();
 
+    /**
+     * @return the cache of converted messages for this address space, or null if converted messages are not kept
+     */
+    MessageConversionCache getMessageConversionCache();
+
     <T extends MessageSource> T createMessageSource(Class<T> clazz, Map<String,Object> attributes);
     <T extends MessageDestination> T createMessageDestination(Class<T> clazz, Map<String,Object> attributes);
 
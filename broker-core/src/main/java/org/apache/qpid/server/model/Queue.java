@@ -91,6 +91,12 @@ public interface Queue<X extends Queue<X>> extends ConfiguredObject<X>,
     @ManagedContextDefault( name = QUEUE_ESTIMATED_MESSAGE_MEMORY_OVERHEAD)
     long DEFAULT_ESTIMATED_MESSAGE_MEMORY_OVERHEAD = 1024L;
 
+    String QUEUE_LATENCY_STATISTICS_ENABLED = "queue.latencyStatisticsEnabled";
+    @SuppressWarnings("unused")
+    @ManagedContextDefault( name = QUEUE_LATENCY_STATISTICS_ENABLED,
+            description = "If true, the queue records the enqueue, delivery and acknowledgement latency statistics")
+    boolean DEFAULT_LATENCY_STATISTICS_ENABLED = false;
+
     String QUEUE_SCAVANGE_COUNT = "qpid.queue.scavenge_count";
     @SuppressWarnings("unused")
     @ManagedContextDefault( name = QUEUE_SCAVANGE_COUNT)
@@ -359,6 +365,46 @@ public interface Queue<X extends Queue<X>> extends ConfiguredObject<X>,
     @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.ABSOLUTE_TIME, label = "Oldest Message")
     long getOldestMessageAge();
 
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.TIME_DURATION, label = "Last Housekeeping Duration")
+    long getLastMessageStatusCheckDuration();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.TIME_DURATION, label = "Enqueue Latency p50")
+    long getEnqueueLatencyP50();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.TIME_DURATION, label = "Enqueue Latency p99")
+    long getEnqueueLatencyP99();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.TIME_DURATION, label = "Enqueue Latency p99.9")
+    long getEnqueueLatencyP999();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.TIME_DURATION, label = "Time in Queue Before Delivery p50")
+    long getDeliveryLatencyP50();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.TIME_DURATION, label = "Time in Queue Before Delivery p99")
+    long getDeliveryLatencyP99();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.TIME_DURATION, label = "Time in Queue Before Delivery p99.9")
+    long getDeliveryLatencyP999();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.TIME_DURATION, label = "Acknowledgement Latency p50")
+    long getAcknowledgeLatencyP50();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.TIME_DURATION, label = "Acknowledgement Latency p99")
+    long getAcknowledgeLatencyP99();
+
+    @SuppressWarnings("unused")
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.TIME_DURATION, label = "Acknowledgement Latency p99.9")
+    long getAcknowledgeLatencyP999();
+
     @ManagedOperation(description = "reset cumulative and high watermark statistics values", changesConfiguredObjectState = false)
     void resetStatistics();
 
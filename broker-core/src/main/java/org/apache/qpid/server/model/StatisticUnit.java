@@ -25,7 +25,9 @@ public enum StatisticUnit
     COUNT("count"),
     BYTES("byte"),
     MESSAGES("message"),
-    ABSOLUTE_TIME("time");
+    ABSOLUTE_TIME("time"),
+    /** a duration in nanoseconds */
+    TIME_DURATION("time-duration");
 
 
     private String _name;
@@ -21,6 +21,8 @@
 package org.apache.qpid.server.model.port;
 
 import java.net.SocketAddress;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.net.ssl.SSLContext;
@@ -30,6 +32,7 @@ import org.apache.qpid.server.model.DerivedAttribute;
 import org.apache.qpid.server.model.ManagedAttribute;
 import org.apache.qpid.server.model.ManagedContextDefault;
 import org.apache.qpid.server.model.ManagedObject;
+import org.apache.qpid.server.model.ManagedOperation;
 import org.apache.qpid.server.model.ManagedStatistic;
 import org.apache.qpid.server.model.NamedAddressSpace;
 import org.apache.qpid.server.model.Protocol;
@@ -49,6 +52,7 @@ public interface AmqpPort<X extends AmqpPort<X>> extends ClientAuthCapablePort<X
     String MAX_OPEN_CONNECTIONS = "maxOpenConnections";
     String THREAD_POOL_SIZE = "threadPoolSize";
     String NUMBER_OF_SELECTORS = "numberOfSelectors";
+    String CONNECTION_AFFINITY = "connectionAffinity";
 
     String DEFAULT_AMQP_PROTOCOLS = "qpid.port.default_amqp_protocols";
 
@@ -57,6 +61,8 @@ public interface AmqpPort<X extends AmqpPort<X>> extends ClientAuthCapablePort<X
 
     String PORT_AMQP_NUMBER_OF_SELECTORS = "qpid.port.amqp.threadPool.numberOfSelectors";
     String PORT_AMQP_ACCEPT_BACKLOG = "qpid.port.amqp.acceptBacklog";
+    String PORT_AMQP_THREAD_POOL_CONNECTION_AFFINITY = "qpid.port.amqp.threadPool.connectionAffinity";
+    String PORT_AMQP_THREAD_POOL_STEAL_THRESHOLD = "qpid.port.amqp.threadPool.stealThreshold";
 
     @ManagedContextDefault(name = DEFAULT_AMQP_PROTOCOLS)
     String INSTALLED_PROTOCOLS = AmqpPortImpl.getInstalledProtocolsAsString();
@@ -82,6 +88,16 @@ public interface AmqpPort<X extends AmqpPort<X>> extends ClientAuthCapablePort<X
     @ManagedContextDefault(name = PORT_AMQP_ACCEPT_BACKLOG)
     int DEFAULT_PORT_AMQP_ACCEPT_BACKLOG = 1024;
 
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = PORT_AMQP_THREAD_POOL_CONNECTION_AFFINITY)
+    boolean DEFAULT_PORT_AMQP_THREAD_POOL_CONNECTION_AFFINITY = false;
+
+    @SuppressWarnings("unused")
+    @ManagedContextDefault(name = PORT_AMQP_THREAD_POOL_STEAL_THRESHOLD,
+                           description = "When IO threads have connection affinity, the number of tasks which must be"
+                                         + " queued for an IO thread before an idle IO thread takes work from it.")
+    int DEFAULT_PORT_AMQP_THREAD_POOL_STEAL_THRESHOLD = 16;
+
     String OPEN_CONNECTIONS_WARN_PERCENT = "qpid.port.open_connections_warn_percent";
 
     @ManagedContextDefault(name = OPEN_CONNECTIONS_WARN_PERCENT)
@@ -112,6 +128,11 @@ public interface AmqpPort<X extends AmqpPort<X>> extends ClientAuthCapablePort<X
     @ManagedAttribute( defaultValue = "${" + PORT_AMQP_NUMBER_OF_SELECTORS + "}")
     int getNumberOfSelectors();
 
+    @ManagedAttribute( defaultValue = "${" + PORT_AMQP_THREAD_POOL_CONNECTION_AFFINITY + "}",
+                       description = "If true, each IO thread selects on and performs the work of its own connections."
+                                     + " The number of selectors is then the thread pool size.")
+    boolean isConnectionAffinity();
+
     @ManagedAttribute( defaultValue = DEFAULT_AMQP_NEED_CLIENT_AUTH )
     boolean getNeedClientAuth();
 
@@ -138,6 +159,22 @@ public interface AmqpPort<X extends AmqpPort<X>> extends ClientAuthCapablePort<X
     @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.COUNT, label = "Connections")
     int getConnectionCount();
 
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.COUNT, label = "Longest IO Thread Queue")
+    int getMaximumIoThreadQueueLength();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.TIME_DURATION, label = "IO Thread Processing Time")
+    long getIoThreadProcessingTime();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "IO Thread Stolen Tasks")
+    long getIoThreadStolenTaskCount();
+
+    @ManagedOperation(nonModifying = true,
+            description = "Returns the queue length, maximum queue length, tasks processed, tasks stolen from other"
+                          + " threads and processing time (ns) of each IO thread.  Only available when IO threads"
+                          + " have connection affinity.",
+            changesConfiguredObjectState = false)
+    List<Map<String, Object>> getIoThreadStatistics();
+
     @DerivedAttribute(description = "Maximum time allowed for a new connection to send a protocol header."
                                     + " If the connection does not send a protocol header within this time,"
                                     + " the connection will be aborted.")
@@ -30,6 +30,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
@@ -111,13 +112,16 @@ public class AmqpPortImpl extends AbstractClientAuthCapablePortWithAuthProvider<
     @ManagedAttributeField
     private int _numberOfSelectors;
 
+    @ManagedAttributeField
+    private boolean _connectionAffinity;
+
     private final AtomicInteger _connectionCount = new AtomicInteger();
     private final AtomicBoolean _connectionCountWarningGiven = new AtomicBoolean();
 
     private final Container<?> _container;
     private final AtomicBoolean _closing = new AtomicBoolean();
 
-    private AcceptingTransport _transport;
+    private volatile AcceptingTransport _transport;
     private SSLContext _sslContext;
     private volatile int _connectionWarnCount;
     private volatile long _protocolHandshakeTimeout;
@@ -141,6 +145,12 @@ public class AmqpPortImpl extends AbstractClientAuthCapablePortWithAuthProvider<
         return _numberOfSelectors;
     }
 
+    @Override
+    public boolean isConnectionAffinity()
+    {
+        return _connectionAffinity;
+    }
+
 
     @Override
     public SSLContext getSSLContext()
@@ -356,7 +366,9 @@ public class AmqpPortImpl extends AbstractClientAuthCapablePortWithAuthProvider<
     {
         super.validateChange(proxyForValidation, changedAttributes);
         AmqpPort changed = (AmqpPort) proxyForValidation;
-        if (changedAttributes.contains(THREAD_POOL_SIZE) || changedAttributes.contains(NUMBER_OF_SELECTORS))
+        if (changedAttributes.contains(THREAD_POOL_SIZE)
+            || changedAttributes.contains(NUMBER_OF_SELECTORS)
+            || changedAttributes.contains(CONNECTION_AFFINITY))
         {
             validateThreadPoolSettings(changed);
         }
@@ -372,7 +384,7 @@ public class AmqpPortImpl extends AbstractClientAuthCapablePortWithAuthProvider<
         {
             throw new IllegalConfigurationException(String.format("Number of Selectors %d on Port %s must be greater than zero.", changed.getNumberOfSelectors(), getName()));
         }
-        if (changed.getThreadPoolSize() <= changed.getNumberOfSelectors())
+        if (!changed.isConnectionAffinity() && changed.getThreadPoolSize() <= changed.getNumberOfSelectors())
         {
             throw new IllegalConfigurationException(String.format("Number of Selectors %d on Port %s must be greater than the thread pool size %d.", changed.getNumberOfSelectors(), getName(), changed.getThreadPoolSize()));
         }
@@ -646,4 +658,44 @@ public class AmqpPortImpl extends AbstractClientAuthCapablePortWithAuthProvider<
     {
         return _protocolHandshakeTimeout;
     }
+
+    @Override
+    public int getMaximumIoThreadQueueLength()
+    {
+        int maximum = 0;
+        for (Map<String, Object> statistics : getIoThreadStatistics())
+        {
+            maximum = Math.max(maximum, ((Number) statistics.get("queueLength")).intValue());
+        }
+        return maximum;
+    }
+
+    @Override
+    public long getIoThreadProcessingTime()
+    {
+        long total = 0L;
+        for (Map<String, Object> statistics : getIoThreadStatistics())
+        {
+            total += ((Number) statistics.get("processingTime")).longValue();
+        }
+        return total;
+    }
+
+    @Override
+    public long getIoThreadStolenTaskCount()
+    {
+        long total = 0L;
+        for (Map<String, Object> statistics : getIoThreadStatistics())
+        {
+            total += ((Number) statistics.get("tasksStolen")).longValue();
+        }
+        return total;
+    }
+
+    @Override
+    public List<Map<String, Object>> getIoThreadStatistics()
+    {
+        final AcceptingTransport transport = _transport;
+        return transport == null ? Collections.<Map<String, Object>>emptyList() : transport.getIoThreadStatistics();
+    }
 }
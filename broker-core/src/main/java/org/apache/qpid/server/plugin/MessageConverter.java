@@ -29,4 +29,15 @@ public interface MessageConverter<M extends ServerMessage, N extends ServerMessa
     Class<N> getOutputClass();
 
     N convert(M message, NamedAddressSpace addressSpace);
+
+    /**
+     * @return the number of bytes held by a message returned by {@link #convert} which are not shared with the
+     * original message
+     */
+    long getRetainedSize(N message);
+
+    /**
+     * Releases the resources held by a message returned by {@link #convert} once it is no longer in use.
+     */
+    void dispose(N message);
 }
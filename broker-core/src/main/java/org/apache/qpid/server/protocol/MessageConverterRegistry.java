@@ -23,7 +23,10 @@ package org.apache.qpid.server.protocol;
 
 import java.util.HashMap;
 import java.util.Map;
+
+import org.apache.qpid.server.message.AbstractServerMessageImpl;
 import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.model.NamedAddressSpace;
 import org.apache.qpid.server.plugin.MessageConverter;
 import org.apache.qpid.server.plugin.QpidServiceLoader;
 
@@ -56,4 +59,21 @@ public class MessageConverterRegistry
         }
         return map == null ? null : map.get(to);
     }
+
+    /**
+     * Converts the message to the given type, reusing the result of an earlier conversion of the same message where
+     * it has been kept.  The converted message is shared and must not be modified.
+     */
+    @SuppressWarnings("unchecked")
+    public static <N extends ServerMessage> N convert(final ServerMessage message,
+                                                      final Class<N> to,
+                                                      final NamedAddressSpace addressSpace)
+    {
+        final MessageConverter converter = getConverter(message.getClass(), to);
+        if (message instanceof AbstractServerMessageImpl)
+        {
+            return (N) ((AbstractServerMessageImpl) message).getConvertedMessage(converter, addressSpace);
+        }
+        return (N) converter.convert(message, addressSpace);
+    }
 }
@@ -102,6 +102,7 @@ import org.apache.qpid.server.protocol.MessageConverterRegistry;
 import org.apache.qpid.server.security.SecurityToken;
 import org.apache.qpid.server.security.access.Operation;
 import org.apache.qpid.server.security.auth.AuthenticatedPrincipal;
+import org.apache.qpid.server.stats.LatencyHistogram;
 import org.apache.qpid.server.store.MessageDurability;
 import org.apache.qpid.server.store.MessageEnqueueRecord;
 import org.apache.qpid.server.store.StorableMessageMetaData;
@@ -266,9 +267,16 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     private Map<String, String> _mimeTypeToFileExtension = Collections.emptyMap();
     private AdvanceConsumersTask _queueHouseKeepingTask;
 
+    private final QueueEntryDeadlineIndex _expiryIndex = new QueueEntryDeadlineIndex();
+    private final Set<QueueEntry> _heldEntries = Collections.newSetFromMap(new ConcurrentHashMap<QueueEntry, Boolean>());
+    private volatile long _lastMessageStatusCheckDuration;
+
     private interface HoldMethod
     {
         boolean isHeld(MessageReference<?> message, long evalutaionTime);
+
+        /** @return the time up to which the message is held by this method, or 0 if it is not held */
+        long getHeldUntil(ServerMessage<?> message);
     }
 
     protected AbstractQueue(Map<String, Object> attributes, QueueManagingVirtualHost<?> virtualHost)
@@ -465,6 +473,10 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         }
 
         _estimatedAverageMessageHeaderSize = getContextValue(Long.class, QUEUE_ESTIMATED_MESSAGE_MEMORY_OVERHEAD);
+        if (getContextValue(Boolean.class, QUEUE_LATENCY_STATISTICS_ENABLED))
+        {
+            _queueStatistics.enableLatencyHistograms();
+        }
         _mimeTypeToFileExtension = getContextValue(Map.class, MAP_OF_STRING_STRING, MIME_TYPE_TO_FILE_EXTENSION);
 
         if(_defaultFilters != null)
@@ -518,6 +530,12 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
                                 {
                                     return messageReference.getMessage().getMessageHeader().getNotValidBefore() >= evaluationTime;
                                 }
+
+                                @Override
+                                public long getHeldUntil(final ServerMessage<?> message)
+                                {
+                                    return message.getMessageHeader().getNotValidBefore();
+                                }
                             });
         }
 
@@ -1049,6 +1067,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     public final void enqueue(ServerMessage message, Action<? super MessageInstance> action, MessageEnqueueRecord enqueueRecord)
     {
+        final long startTime = System.nanoTime();
 
         if(_recovering.get() != RECOVERED)
         {
@@ -1084,6 +1103,11 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         long estimatedQueueSize = _queueStatistics.getQueueSize() + _queueStatistics.getQueueCount() * _estimatedAverageMessageHeaderSize;
         _flowToDiskChecker.flowToDiskAndReportIfNecessary(message.getStoredMessage(), estimatedQueueSize,
                                                           _targetQueueSize.get());
+        final LatencyHistogram enqueueLatency = _queueStatistics.getEnqueueLatency();
+        if (enqueueLatency != null)
+        {
+            enqueueLatency.recordSince(startTime);
+        }
     }
 
     public final void recover(ServerMessage message, final MessageEnqueueRecord enqueueRecord)
@@ -1127,7 +1151,12 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
     protected void doEnqueue(final ServerMessage message, final Action<? super MessageInstance> action, MessageEnqueueRecord enqueueRecord)
     {
         final QueueEntry entry = getEntries().add(message, enqueueRecord);
-        updateExpiration(entry);
+        final long expiration = updateExpiration(entry);
+        if (expiration != 0L)
+        {
+            _expiryIndex.add(entry, expiration);
+        }
+        trackHeldEntry(entry, message);
 
         try
         {
@@ -1149,7 +1178,20 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     }
 
-    private void updateExpiration(final QueueEntry entry)
+    private void trackHeldEntry(final QueueEntry entry, final ServerMessage<?> message)
+    {
+        long heldUntil = 0L;
+        for (HoldMethod method : _holdMethods)
+        {
+            heldUntil = Math.max(heldUntil, method.getHeldUntil(message));
+        }
+        if (heldUntil != 0L)
+        {
+            _heldEntries.add(entry);
+        }
+    }
+
+    private long updateExpiration(final QueueEntry entry)
     {
         long expiration = entry.getMessage().getExpiration();
         long arrivalTime = entry.getMessage().getArrivalTime();
@@ -1179,8 +1221,10 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
             if(expiration == 0L || expiration > calculatedExpiration)
             {
                 entry.setExpiration(calculatedExpiration);
+                expiration = calculatedExpiration;
             }
         }
+        return expiration;
     }
 
     private boolean assign(final QueueConsumer<?> sub, final QueueEntry entry)
@@ -2098,10 +2142,11 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
 
     public void checkMessageStatus()
     {
-        QueueEntryIterator queueListIterator = getEntries().iterator();
+        final long startTime = System.nanoTime();
 
         final long estimatedQueueSize = _queueStatistics.getQueueSize() + _queueStatistics.getQueueCount() * _estimatedAverageMessageHeaderSize;
-        _flowToDiskChecker.reportFlowToDiskStatusIfNecessary(estimatedQueueSize, _targetQueueSize.get());
+        final long targetQueueSize = _targetQueueSize.get();
+        _flowToDiskChecker.reportFlowToDiskStatusIfNecessary(estimatedQueueSize, targetQueueSize);
 
         final Set<NotificationCheck> perMessageChecks = new HashSet<>();
         final Set<NotificationCheck> queueLevelChecks = new HashSet<>();
@@ -2121,36 +2166,45 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
         final long currentTime = System.currentTimeMillis();
         final long thresholdTime = currentTime - getAlertRepeatGap();
 
-        long cumulativeQueueSize = 0;
-        while (!_stopped.get() && queueListIterator.advance())
+        QueueEntry node;
+        final List<QueueEntry> unexpired = new ArrayList<>();
+        while (!_stopped.get() && (node = _expiryIndex.pollDue(currentTime)) != null)
         {
-            final QueueEntry node = queueListIterator.getNode();
-            // Only process nodes that are not currently deleted and not dequeued
-            if (!node.isDeleted())
+            if (!expireEntry(node))
             {
-                // If the node has expired then acquire it
-                if (node.expired())
-                {
-                    boolean acquiredForDequeueing = node.acquireOrSteal(new Runnable()
-                    {
-                        @Override
-                        public void run()
-                        {
-                            dequeueEntry(node);
-                        }
-                    });
+                unexpired.add(node);
+            }
+        }
+        // entries which are held or acquired are looked at again on the next pass
+        for (QueueEntry entry : unexpired)
+        {
+            _expiryIndex.add(entry, entry.getExpiration());
+        }
 
-                    if(acquiredForDequeueing)
-                    {
-                        _logger.debug("Dequeuing expired node {}", node);
-                        // Then dequeue it.
-                        dequeueEntry(node);
-                    }
-                }
-                else
-                {
-                    node.checkHeld(currentTime);
+        Iterator<QueueEntry> heldIterator = _heldEntries.iterator();
+        while (!_stopped.get() && heldIterator.hasNext())
+        {
+            node = heldIterator.next();
+            if (node.isDeleted() || (!node.checkHeld(currentTime) && node.isAvailable()))
+            {
+                heldIterator.remove();
+            }
+        }
+
+        _expiryIndex.purgeIfNecessary(_queueStatistics.getQueueCount());
 
+        // Only walk the queue if some messages may need to be flowed to disk, or if there are alerts to be raised
+        // on individual messages.  Expired and held entries have already been dealt with above.
+        if (estimatedQueueSize > targetQueueSize || !perMessageChecks.isEmpty())
+        {
+            QueueEntryIterator queueListIterator = getEntries().iterator();
+            long cumulativeQueueSize = 0;
+            while (!_stopped.get() && queueListIterator.advance())
+            {
+                node = queueListIterator.getNode();
+                // Only process nodes that are not currently deleted and not dequeued
+                if (!node.isDeleted())
+                {
                     // There is a chance that the node could be deleted by
                     // the time the check actually occurs. So verify we
                     // can actually get the message to perform the check.
@@ -2160,7 +2214,7 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
                     {
                         cumulativeQueueSize += msg.getSize() + _estimatedAverageMessageHeaderSize;
                         _flowToDiskChecker.flowToDiskIfNecessary(msg.getStoredMessage(), cumulativeQueueSize,
-                                                                 _targetQueueSize.get());
+                                                                 targetQueueSize);
 
                         for(NotificationCheck check : perMessageChecks)
                         {
@@ -2176,6 +2230,94 @@ public abstract class AbstractQueue<X extends AbstractQueue<X>>
             checkForNotification(null, listener, currentTime, thresholdTime, check);
         }
 
+        _lastMessageStatusCheckDuration = System.nanoTime() - startTime;
+    }
+
+    /**
+     * @return false if the entry is still on the queue and has yet to be expired
+     */
+    private boolean expireEntry(final QueueEntry node)
+    {
+        // the expiry index may hold entries which have since been consumed
+        if (node.isDeleted())
+        {
+            return true;
+        }
+        else if (node.expired() && node.acquireOrSteal(null))
+        {
+            _logger.debug("Dequeuing expired node {}", node);
+            dequeueEntry(node);
+            return true;
+        }
+        else
+        {
+            return node.isDeleted();
+        }
+    }
+
+    @Override
+    public long getLastMessageStatusCheckDuration()
+    {
+        return _lastMessageStatusCheckDuration;
+    }
+
+    @Override
+    public long getEnqueueLatencyP50()
+    {
+        return getValueAtPercentile(_queueStatistics.getEnqueueLatency(), 50.0);
+    }
+
+    @Override
+    public long getEnqueueLatencyP99()
+    {
+        return getValueAtPercentile(_queueStatistics.getEnqueueLatency(), 99.0);
+    }
+
+    @Override
+    public long getEnqueueLatencyP999()
+    {
+        return getValueAtPercentile(_queueStatistics.getEnqueueLatency(), 99.9);
+    }
+
+    @Override
+    public long getDeliveryLatencyP50()
+    {
+        return getValueAtPercentile(_queueStatistics.getDeliveryLatency(), 50.0);
+    }
+
+    @Override
+    public long getDeliveryLatencyP99()
+    {
+        return getValueAtPercentile(_queueStatistics.getDeliveryLatency(), 99.0);
+    }
+
+    @Override
+    public long getDeliveryLatencyP999()
+    {
+        return getValueAtPercentile(_queueStatistics.getDeliveryLatency(), 99.9);
+    }
+
+    @Override
+    public long getAcknowledgeLatencyP50()
+    {
+        return getValueAtPercentile(_queueStatistics.getAcknowledgeLatency(), 50.0);
+    }
+
+    @Override
+    public long getAcknowledgeLatencyP99()
+    {
+        return getValueAtPercentile(_queueStatistics.getAcknowledgeLatency(), 99.0);
+    }
+
+    @Override
+    public long getAcknowledgeLatencyP999()
+    {
+        return getValueAtPercentile(_queueStatistics.getAcknowledgeLatency(), 99.9);
+    }
+
+    private static long getValueAtPercentile(final LatencyHistogram histogram, final double percentile)
+    {
+        return histogram == null ? 0L : histogram.getValueAtPercentile(percentile);
     }
 
     private boolean consumerHasAvailableMessages(final QueueConsumer consumer)
@@ -22,6 +22,7 @@ package org.apache.qpid.server.queue;
 
 import org.apache.qpid.server.message.MessageInstance;
 import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.stats.LatencyHistogram;
 import org.apache.qpid.server.store.MessageDurability;
 
 abstract class AbstractQueueEntryList implements QueueEntryList
@@ -85,9 +86,20 @@ abstract class AbstractQueueEntryList implements QueueEntryList
                 if(isConsumerAcquired && !wasConsumerAcquired)
                 {
                     queueStatistics.addToUnacknowledged(size);
+                    final LatencyHistogram deliveryLatency = queueStatistics.getDeliveryLatency();
+                    if(deliveryLatency != null && entry instanceof QueueEntryImpl)
+                    {
+                        final long now = System.nanoTime();
+                        deliveryLatency.record(now - ((QueueEntryImpl) entry).swapStateChangeTime(now));
+                    }
                 }
                 break;
             case DELETED:
+                final LatencyHistogram acknowledgeLatency = queueStatistics.getAcknowledgeLatency();
+                if(acknowledgeLatency != null && wasConsumerAcquired && entry instanceof QueueEntryImpl)
+                {
+                    acknowledgeLatency.recordSince(((QueueEntryImpl) entry).getStateChangeTime());
+                }
                 queueStatistics.removeFromQueue(size);
                 queueStatistics.addToDequeued(size);
                 if(_forcePersistent || (_respectPersistent && entry.getMessage().isPersistent()))
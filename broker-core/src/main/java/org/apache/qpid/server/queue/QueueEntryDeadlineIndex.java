@@ -0,0 +1,122 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Orders queue entries by a deadline (such as their expiration time) so that housekeeping only needs to visit the
+ * entries which have fallen due, rather than walking the whole queue.
+ *
+ * Entries are removed lazily: deleted entries are discarded when they reach the head of the index, or by
+ * {@link #purgeIfNecessary(long)} once the index has grown well beyond the number of entries left on the queue.
+ */
+final class QueueEntryDeadlineIndex
+{
+    private static final int PURGE_SLACK = 1024;
+
+    private final ConcurrentSkipListSet<Deadline> _deadlines = new ConcurrentSkipListSet<>();
+    private final AtomicLong _sequence = new AtomicLong();
+    private final AtomicInteger _size = new AtomicInteger();
+
+    void add(final QueueEntry entry, final long deadline)
+    {
+        _deadlines.add(new Deadline(deadline, _sequence.incrementAndGet(), entry));
+        _size.incrementAndGet();
+    }
+
+    /**
+     * Removes and returns the next entry whose deadline is strictly before the given time.
+     *
+     * @return the entry, or null if no (undeleted) entry is due
+     */
+    QueueEntry pollDue(final long time)
+    {
+        Deadline first;
+        while (!_deadlines.isEmpty() && (first = _deadlines.first()).getDeadline() < time)
+        {
+            if (_deadlines.remove(first))
+            {
+                _size.decrementAndGet();
+                if (!first.getEntry().isDeleted())
+                {
+                    return first.getEntry();
+                }
+            }
+        }
+        return null;
+    }
+
+    void purgeIfNecessary(final long liveEntries)
+    {
+        if (_size.get() > 2 * liveEntries + PURGE_SLACK)
+        {
+            Iterator<Deadline> iterator = _deadlines.iterator();
+            while (iterator.hasNext())
+            {
+                if (iterator.next().getEntry().isDeleted())
+                {
+                    iterator.remove();
+                    _size.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    int size()
+    {
+        return _size.get();
+    }
+
+    private static final class Deadline implements Comparable<Deadline>
+    {
+        private final long _deadline;
+        private final long _sequence;
+        private final QueueEntry _entry;
+
+        private Deadline(final long deadline, final long sequence, final QueueEntry entry)
+        {
+            _deadline = deadline;
+            _sequence = sequence;
+            _entry = entry;
+        }
+
+        long getDeadline()
+        {
+            return _deadline;
+        }
+
+        QueueEntry getEntry()
+        {
+            return _entry;
+        }
+
+        @Override
+        public int compareTo(final Deadline other)
+        {
+            int result = Long.compare(_deadline, other._deadline);
+            return result == 0 ? Long.compare(_sequence, other._sequence) : result;
+        }
+    }
+}
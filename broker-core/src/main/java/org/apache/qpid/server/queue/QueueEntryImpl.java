@@ -113,6 +113,9 @@ public abstract class QueueEntryImpl implements QueueEntry
 
     private final MessageEnqueueRecord _enqueueRecord;
 
+    /** the time the entry was enqueued, or last delivered to a consumer, for the queue's latency statistics */
+    private volatile long _stateChangeTime = System.nanoTime();
+
 
     public QueueEntryImpl(QueueEntryList queueEntryList)
     {
@@ -162,6 +165,12 @@ public abstract class QueueEntryImpl implements QueueEntry
         _expiration = expiration;
     }
 
+    @Override
+    public long getExpiration()
+    {
+        return _expiration;
+    }
+
     public InstanceProperties getInstanceProperties()
     {
         return new EntryInstanceProperties();
@@ -683,6 +692,18 @@ public abstract class QueueEntryImpl implements QueueEntry
         return getQueue().getMaximumDeliveryAttempts();
     }
 
+    long getStateChangeTime()
+    {
+        return _stateChangeTime;
+    }
+
+    long swapStateChangeTime(final long time)
+    {
+        final long previous = _stateChangeTime;
+        _stateChangeTime = time;
+        return previous;
+    }
+
     public void incrementDeliveryCount()
     {
         _deliveryCountUpdater.compareAndSet(this,-1,0);
@@ -23,28 +23,42 @@ package org.apache.qpid.server.queue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.qpid.server.stats.LatencyHistogram;
+import org.apache.qpid.server.stats.StripedCounter;
+
+/**
+ * The statistics of a queue.  The counters of messages which have passed through the queue, and of unacknowledged
+ * messages, are updated by every enqueue, delivery and dequeue, so they are {@link StripedCounter}s.  The counters
+ * of messages on the queue, and of available messages, are single atomic values as their exact value is needed on
+ * each update to maintain the high-water marks.
+ * <p>
+ * The latency histograms record how long each enqueue takes, how long an entry waits on the queue before it is
+ * delivered to a consumer, and how long a delivered entry waits for the consumer to acknowledge it.  As together they
+ * take several kilobytes per queue, they are only kept once {@link #enableLatencyHistograms()} is called; until then
+ * their getters return null.
+ */
 final class QueueStatistics
 {
     private final AtomicInteger _queueCount = new AtomicInteger();
     private final AtomicLong _queueSize = new AtomicLong();
 
-    private final AtomicInteger _unackedCount = new AtomicInteger();
-    private final AtomicLong _unackedSize = new AtomicLong();
+    private final StripedCounter _unackedCount = new StripedCounter();
+    private final StripedCounter _unackedSize = new StripedCounter();
 
     private final AtomicInteger _availableCount = new AtomicInteger();
     private final AtomicLong _availableSize = new AtomicLong();
 
-    private final AtomicLong _dequeueCount = new AtomicLong();
-    private final AtomicLong _dequeueSize = new AtomicLong();
+    private final StripedCounter _dequeueCount = new StripedCounter();
+    private final StripedCounter _dequeueSize = new StripedCounter();
 
-    private final AtomicLong _enqueueCount = new AtomicLong();
-    private final AtomicLong _enqueueSize = new AtomicLong();
+    private final StripedCounter _enqueueCount = new StripedCounter();
+    private final StripedCounter _enqueueSize = new StripedCounter();
 
-    private final AtomicLong _persistentEnqueueCount = new AtomicLong();
-    private final AtomicLong _persistentEnqueueSize = new AtomicLong();
+    private final StripedCounter _persistentEnqueueCount = new StripedCounter();
+    private final StripedCounter _persistentEnqueueSize = new StripedCounter();
 
-    private final AtomicLong _persistentDequeueCount = new AtomicLong();
-    private final AtomicLong _persistentDequeueSize = new AtomicLong();
+    private final StripedCounter _persistentDequeueCount = new StripedCounter();
+    private final StripedCounter _persistentDequeueSize = new StripedCounter();
 
     private final AtomicInteger _queueCountHwm = new AtomicInteger();
     private final AtomicLong _queueSizeHwm = new AtomicLong();
@@ -52,6 +66,10 @@ final class QueueStatistics
     private final AtomicInteger _availableCountHwm = new AtomicInteger();
     private final AtomicLong _availableSizeHwm = new AtomicLong();
 
+    private volatile LatencyHistogram _enqueueLatency;
+    private volatile LatencyHistogram _deliveryLatency;
+    private volatile LatencyHistogram _acknowledgeLatency;
+
     public final int getQueueCount()
     {
         return _queueCount.get();
@@ -64,7 +82,7 @@ final class QueueStatistics
 
     public final int getUnackedCount()
     {
-        return _unackedCount.get();
+        return (int) _unackedCount.get();
     }
 
     public final long getUnackedSize()
@@ -142,6 +160,31 @@ final class QueueStatistics
         return _availableSizeHwm.get();
     }
 
+    public final LatencyHistogram getEnqueueLatency()
+    {
+        return _enqueueLatency;
+    }
+
+    public final LatencyHistogram getDeliveryLatency()
+    {
+        return _deliveryLatency;
+    }
+
+    public final LatencyHistogram getAcknowledgeLatency()
+    {
+        return _acknowledgeLatency;
+    }
+
+    void enableLatencyHistograms()
+    {
+        if (_acknowledgeLatency == null)
+        {
+            _enqueueLatency = new LatencyHistogram();
+            _deliveryLatency = new LatencyHistogram();
+            _acknowledgeLatency = new LatencyHistogram();
+        }
+    }
+
     void addToQueue(long size)
     {
         int count = _queueCount.incrementAndGet();
@@ -188,38 +231,38 @@ final class QueueStatistics
 
     void addToUnacknowledged(long size)
     {
-        _unackedCount.incrementAndGet();
-        _unackedSize.addAndGet(size);
+        _unackedCount.increment();
+        _unackedSize.add(size);
     }
 
     void removeFromUnacknowledged(long size)
     {
-        _unackedCount.decrementAndGet();
-        _unackedSize.addAndGet(-size);
+        _unackedCount.decrement();
+        _unackedSize.add(-size);
     }
 
     void addToEnqueued(long size)
     {
-        _enqueueCount.incrementAndGet();
-        _enqueueSize.addAndGet(size);
+        _enqueueCount.increment();
+        _enqueueSize.add(size);
     }
 
     void addToDequeued(long size)
     {
-        _dequeueCount.incrementAndGet();
-        _dequeueSize.addAndGet(size);
+        _dequeueCount.increment();
+        _dequeueSize.add(size);
     }
 
     void addToPersistentEnqueued(long size)
     {
-        _persistentEnqueueCount.incrementAndGet();
-        _persistentEnqueueSize.addAndGet(size);
+        _persistentEnqueueCount.increment();
+        _persistentEnqueueSize.add(size);
     }
 
     void addToPersistentDequeued(long size)
     {
-        _persistentDequeueCount.incrementAndGet();
-        _persistentDequeueSize.addAndGet(size);
+        _persistentDequeueCount.increment();
+        _persistentDequeueSize.add(size);
     }
 
     void reset()
@@ -228,14 +271,20 @@ final class QueueStatistics
         _availableSizeHwm.set(0L);
         _queueCountHwm.set(0);
         _queueSizeHwm.set(0L);
-        _enqueueCount.set(0L);
-        _enqueueSize.set(0L);
-        _dequeueCount.set(0L);
-        _dequeueSize.set(0L);
-        _persistentEnqueueCount.set(0L);
-        _persistentEnqueueSize.set(0L);
-        _persistentDequeueCount.set(0L);
-        _persistentDequeueSize.set(0L);
+        _enqueueCount.reset();
+        _enqueueSize.reset();
+        _dequeueCount.reset();
+        _dequeueSize.reset();
+        _persistentEnqueueCount.reset();
+        _persistentEnqueueSize.reset();
+        _persistentDequeueCount.reset();
+        _persistentDequeueSize.reset();
+        if (_acknowledgeLatency != null)
+        {
+            _enqueueLatency.reset();
+            _deliveryLatency.reset();
+            _acknowledgeLatency.reset();
+        }
     }
 
 }
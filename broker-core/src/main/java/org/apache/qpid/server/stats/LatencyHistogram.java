@@ -0,0 +1,170 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations, in nanoseconds, which many threads can record into without locking.
+ * <p>
+ * Each power of two is divided into four buckets, so a percentile read from the histogram is at most 25% above the
+ * true value.  Recording a value increments one bucket and adds to a {@link StripedCounter}; percentiles are
+ * computed when they are read.
+ */
+public final class LatencyHistogram
+{
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray _buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final StripedCounter _total = new StripedCounter();
+    private final AtomicLong _maximum = new AtomicLong();
+
+    /**
+     * @param duration the duration in nanoseconds; negative values are recorded as zero
+     */
+    public void record(final long duration)
+    {
+        final long value = Math.max(duration, 0L);
+        _buckets.incrementAndGet(bucketIndex(value));
+        _total.add(value);
+
+        long maximum;
+        while (value > (maximum = _maximum.get()) && !_maximum.compareAndSet(maximum, value))
+        {
+            // retry
+        }
+    }
+
+    /**
+     * Records the time elapsed since <code>startTime</code>, a value of {@link System#nanoTime()}.
+     */
+    public void recordSince(final long startTime)
+    {
+        record(System.nanoTime() - startTime);
+    }
+
+    public long getCount()
+    {
+        long count = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            count += _buckets.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @return the mean of the recorded values in nanoseconds
+     */
+    public long getMean()
+    {
+        final long count = getCount();
+        return count == 0L ? 0L : _total.get() / count;
+    }
+
+    /**
+     * @return the largest recorded value in nanoseconds
+     */
+    public long getMaximum()
+    {
+        return _maximum.get();
+    }
+
+    /**
+     * @param percentile the percentile, between 0 and 100
+     * @return an upper bound for the value in nanoseconds below which the given percentage of values fall, or zero if
+     * nothing has been recorded
+     */
+    public long getValueAtPercentile(final double percentile)
+    {
+        final long[] counts = new long[BUCKET_COUNT];
+        long count = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            counts[i] = _buckets.get(i);
+            count += counts[i];
+        }
+        if (count == 0L)
+        {
+            return 0L;
+        }
+
+        final long rank = Math.max(1L, (long) Math.ceil(count * Math.min(Math.max(percentile, 0.0), 100.0) / 100.0));
+        long cumulative = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            cumulative += counts[i];
+            if (cumulative >= rank)
+            {
+                return Math.min(bucketUpperBound(i), getMaximum());
+            }
+        }
+        return getMaximum();
+    }
+
+    /**
+     * Discards the recorded values.  Values recorded concurrently with the reset may or may not be discarded.
+     */
+    public void reset()
+    {
+        for (int i = 0; i < BUCKET_COUNT; i++)
+        {
+            _buckets.set(i, 0L);
+        }
+        _total.reset();
+        _maximum.set(0L);
+    }
+
+    @Override
+    public String toString()
+    {
+        return "LatencyHistogram[count=" + getCount()
+               + ", mean=" + getMean()
+               + ", p99=" + getValueAtPercentile(99.0)
+               + ", max=" + getMaximum() + "]";
+    }
+
+    static int bucketIndex(final long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(final int index)
+    {
+        if (index < SUB_BUCKETS)
+        {
+            return index;
+        }
+        final int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        final int subBucket = index % SUB_BUCKETS;
+        final long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (SUB_BUCKETS + subBucket) * width + (width - 1L);
+    }
+}
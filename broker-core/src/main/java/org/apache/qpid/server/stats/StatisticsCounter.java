@@ -27,6 +27,8 @@ import org.slf4j.LoggerFactory;
 /**
  * This class collects statistics and counts the total, rate per second and
  * peak rate per second values for the events that are registered with it. 
+ * The totals are {@link StripedCounter}s, so that the many threads registering
+ * events against a virtualhost or broker counter do not contend.
  */
 public class StatisticsCounter
 {
@@ -61,8 +63,8 @@ public class StatisticsCounter
     private static final class Sample
     {
         private final long _sampleId;
-        private final AtomicLong _sampleTotal = new AtomicLong();
-        private final AtomicLong _cumulativeTotal;
+        private final StripedCounter _sampleTotal = new StripedCounter();
+        private final StripedCounter _cumulativeTotal;
         private final long _peakTotal;
         private final long _previousSampleTotal;
         private final long _start;
@@ -71,7 +73,7 @@ public class StatisticsCounter
         private Sample(final long period)
         {
             _period = period;
-            _cumulativeTotal = new AtomicLong();
+            _cumulativeTotal = new StripedCounter();
             _peakTotal = 0L;
             _previousSampleTotal = 0L;
             _start = System.currentTimeMillis();
@@ -123,10 +125,10 @@ public class StatisticsCounter
                 {
                     return false;
                 }
-                _cumulativeTotal.addAndGet(value);
+                _cumulativeTotal.add(value);
                 if(eventSampleId == _sampleId)
                 {
-                    _sampleTotal.addAndGet(value);
+                    _sampleTotal.add(value);
                 }
                 return true;
             }
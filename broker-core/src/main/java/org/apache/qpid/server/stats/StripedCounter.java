@@ -0,0 +1,136 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter which many threads can update without contending on a single memory location.
+ * <p>
+ * The counter starts as a single atomic value.  The first time an update loses a race with another thread the
+ * counter is split into a number of cells, each on its own cache line, and from then on each thread adds to the
+ * cell chosen by its thread id.  The value of the counter is the sum of the cells, computed when it is read, so
+ * reads are more expensive than updates.  Counters which are never updated concurrently stay a single value.
+ */
+public final class StripedCounter
+{
+    private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+    /** the distance between cells in longs, so that each cell has a 128 byte region of the array to itself */
+    private static final int CELL_STRIDE = 16;
+
+    private final AtomicLong _base = new AtomicLong();
+    private volatile AtomicLongArray _cells;
+
+    public void increment()
+    {
+        add(1L);
+    }
+
+    public void decrement()
+    {
+        add(-1L);
+    }
+
+    public void add(final long delta)
+    {
+        AtomicLongArray cells = _cells;
+        if (cells == null)
+        {
+            final long value = _base.get();
+            if (_base.compareAndSet(value, value + delta))
+            {
+                return;
+            }
+            cells = inflate();
+        }
+        cells.addAndGet(cellIndex(), delta);
+    }
+
+    public long get()
+    {
+        long value = _base.get();
+        final AtomicLongArray cells = _cells;
+        if (cells != null)
+        {
+            for (int i = 0; i < STRIPES; i++)
+            {
+                value += cells.get(i * CELL_STRIDE);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Sets the counter to zero.  Updates made concurrently with the reset may or may not be included in
+     * the value afterwards.
+     */
+    public void reset()
+    {
+        _base.set(0L);
+        final AtomicLongArray cells = _cells;
+        if (cells != null)
+        {
+            for (int i = 0; i < STRIPES; i++)
+            {
+                cells.set(i * CELL_STRIDE, 0L);
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.valueOf(get());
+    }
+
+    private synchronized AtomicLongArray inflate()
+    {
+        AtomicLongArray cells = _cells;
+        if (cells == null)
+        {
+            cells = new AtomicLongArray(STRIPES * CELL_STRIDE);
+            _cells = cells;
+        }
+        return cells;
+    }
+
+    private static int cellIndex()
+    {
+        final long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        hash ^= hash >>> 16;
+        return (hash & (STRIPES - 1)) * CELL_STRIDE;
+    }
+
+    /**
+     * @return the smallest power of two which is at least twice the number of processors, at most 64
+     */
+    static int stripes(final int processors)
+    {
+        int stripes = 1;
+        while (stripes < 2 * processors && stripes < 64)
+        {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+}
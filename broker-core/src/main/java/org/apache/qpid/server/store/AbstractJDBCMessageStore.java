@@ -51,12 +51,21 @@ import org.apache.qpid.bytebuffer.QpidByteBuffer;
 import org.apache.qpid.server.message.EnqueueableMessage;
 import org.apache.qpid.server.model.ConfiguredObject;
 import org.apache.qpid.server.plugin.MessageMetaDataType;
+import org.apache.qpid.server.stats.LatencyHistogram;
 import org.apache.qpid.server.store.handler.DistributedTransactionHandler;
 import org.apache.qpid.server.store.handler.MessageHandler;
 import org.apache.qpid.server.store.handler.MessageInstanceHandler;
 
 public abstract class AbstractJDBCMessageStore implements MessageStore
 {
+    /** Maximum number of transactions the store merges into a single database transaction */
+    public static final String COMMIT_BATCH_SIZE = "qpid.jdbcstore.commitBatchSize";
+    public static final int DEFAULT_COMMIT_BATCH_SIZE = 256;
+
+    /** Time (in ms) the store waits for further transactions before committing a partially filled batch */
+    public static final String COMMIT_MAX_WAIT = "qpid.jdbcstore.commitMaxWait";
+    public static final long DEFAULT_COMMIT_MAX_WAIT = 0L;
+
     private static final String DB_VERSION_TABLE_NAME = "QPID_DB_VERSION";
 
     private static final String QUEUE_ENTRY_TABLE_NAME = "QPID_QUEUE_ENTRIES";
@@ -87,6 +96,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
     private static final String DELETE_FROM_QUEUE_ENTRY = "DELETE FROM " + QUEUE_ENTRY_TABLE_NAME + " WHERE queue_id = ? AND message_id =?";
     private static final String SELECT_FROM_QUEUE_ENTRY = "SELECT queue_id, message_id FROM " + QUEUE_ENTRY_TABLE_NAME + " ORDER BY queue_id, message_id";
     private static final String SELECT_FROM_QUEUE_ENTRY_FOR_QUEUE = "SELECT queue_id, message_id FROM " + QUEUE_ENTRY_TABLE_NAME + " WHERE queue_id = ? ORDER BY queue_id, message_id";
+    private static final String SELECT_FROM_QUEUE_ENTRY_FOR_QUEUE_RANGE = "SELECT queue_id, message_id FROM " + QUEUE_ENTRY_TABLE_NAME + " WHERE queue_id = ? AND message_id >= ? AND message_id < ? ORDER BY queue_id, message_id";
 
     private static final String INSERT_INTO_MESSAGE_CONTENT = "INSERT INTO " + MESSAGE_CONTENT_TABLE_NAME
                                                               + "( message_id, content ) values (?, ?)";
@@ -99,7 +109,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
     private static final String SELECT_FROM_META_DATA =
             "SELECT meta_data FROM " + META_DATA_TABLE_NAME + " WHERE message_id = ?";
     private static final String DELETE_FROM_META_DATA = "DELETE FROM " + META_DATA_TABLE_NAME + " WHERE message_id = ?";
-    private static final String SELECT_ALL_FROM_META_DATA = "SELECT message_id, meta_data FROM " + META_DATA_TABLE_NAME;
+    private static final String SELECT_ALL_FROM_META_DATA = "SELECT message_id, meta_data FROM " + META_DATA_TABLE_NAME + " ORDER BY message_id";
     private static final String SELECT_ONE_FROM_META_DATA = "SELECT message_id, meta_data FROM " + META_DATA_TABLE_NAME + " WHERE message_id = ?";
 
     private static final String INSERT_INTO_XIDS =
@@ -123,6 +133,9 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
     protected abstract void checkMessageStoreOpen();
     private ScheduledThreadPoolExecutor _executor;
+    private CoalescingJDBCCommitter _committer;
+    private final LatencyHistogram _commitLatencyHistogram = new LatencyHistogram();
+    private volatile MessageContentCompressor _contentCompressor = new MessageContentCompressor();
 
     public AbstractJDBCMessageStore()
     {
@@ -271,17 +284,87 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
             }
         });
         _executor.prestartAllCoreThreads();
-
+        _contentCompressor = MessageContentCompressor.create(parent);
+
+        final Integer commitBatchSize = parent.getContextValue(Integer.class, COMMIT_BATCH_SIZE);
+        final Long commitMaxWait = parent.getContextValue(Long.class, COMMIT_MAX_WAIT);
+        _committer = new CoalescingJDBCCommitter(parent.getName(),
+                                                 new CoalescingJDBCCommitter.ConnectionSource()
+                                                 {
+                                                     @Override
+                                                     public Connection newConnection() throws SQLException
+                                                     {
+                                                         return AbstractJDBCMessageStore.this.newConnection();
+                                                     }
+                                                 },
+                                                 Arrays.asList(INSERT_INTO_META_DATA,
+                                                               INSERT_INTO_MESSAGE_CONTENT,
+                                                               INSERT_INTO_QUEUE_ENTRY,
+                                                               DELETE_FROM_QUEUE_ENTRY),
+                                                 commitBatchSize == null ? DEFAULT_COMMIT_BATCH_SIZE : commitBatchSize,
+                                                 commitMaxWait == null ? DEFAULT_COMMIT_MAX_WAIT : commitMaxWait,
+                                                 _commitLatencyHistogram);
+        _committer.start();
     }
 
     @Override
     public void closeMessageStore()
     {
+        if(_committer != null)
+        {
+            _committer.stop();
+        }
         if(_executor != null)
         {
             _executor.shutdown();
         }
+        _contentCompressor.close();
+    }
+
+    /**
+     * @return the number of database transactions used to commit batches of store transactions
+     */
+    public long getCommitBatchCount()
+    {
+        return _committer == null ? 0L : _committer.getBatchCount();
+    }
+
+    /**
+     * @return the number of store transactions committed as part of a batch
+     */
+    public long getCommitBatchTransactionCount()
+    {
+        return _committer == null ? 0L : _committer.getBatchedTransactionCount();
+    }
 
+    public int getMaximumCommitBatchSize()
+    {
+        return _committer == null ? 0 : _committer.getMaximumBatchSize();
+    }
+
+    /**
+     * @return the total time (in ns) spent writing and committing batches
+     */
+    public long getTotalCommitBatchDuration()
+    {
+        return _committer == null ? 0L : _committer.getTotalCommitDuration();
+    }
+
+    public long getMaximumCommitBatchDuration()
+    {
+        return _committer == null ? 0L : _committer.getMaximumCommitDuration();
+    }
+
+    @Override
+    public LatencyHistogram getCommitLatencyHistogram()
+    {
+        return _commitLatencyHistogram;
+    }
+
+    @Override
+    public MessageContentCompressor getContentCompressor()
+    {
+        return _contentCompressor;
     }
 
     protected abstract Logger getLogger();
@@ -571,7 +654,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         return new JDBCTransaction();
     }
 
-    private void enqueueMessage(ConnectionWrapper connWrapper, final TransactionLogResource queue, Long messageId) throws StoreException
+    private void enqueueMessage(ConnectionWrapper connWrapper, final UUID queueId, Long messageId) throws StoreException
     {
         Connection conn = connWrapper.getConnection();
 
@@ -580,13 +663,13 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         {
             if (getLogger().isDebugEnabled())
             {
-                getLogger().debug("Enqueuing message {} on queue {} with id {} [Connection {}]",
-                                  messageId, queue.getName(), queue.getId(), conn);
+                getLogger().debug("Enqueuing message {} on queue with id {} [Connection {}]",
+                                  messageId, queueId, conn);
             }
 
             try (PreparedStatement stmt = conn.prepareStatement(INSERT_INTO_QUEUE_ENTRY))
             {
-                stmt.setString(1, queue.getId().toString());
+                stmt.setString(1, queueId.toString());
                 stmt.setLong(2, messageId);
                 stmt.executeUpdate();
             }
@@ -595,7 +678,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         catch (SQLException e)
         {
             getLogger().error("Failed to enqueue message {}", messageId, e);
-            throw new StoreException("Error writing enqueued message with id " + messageId + " for queue " + queue.getName() + " with id " + queue.getId()
+            throw new StoreException("Error writing enqueued message with id " + messageId + " for queue with id " + queueId
                                      + " to database", e);
         }
 
@@ -785,7 +868,9 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         try
         {
             Connection conn = connWrapper.getConnection();
+            final long startTime = System.nanoTime();
             conn.commit();
+            _commitLatencyHistogram.recordSince(startTime);
 
             getLogger().debug("commit tran completed");
 
@@ -841,7 +926,8 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
     }
 
-    private void storeMetaData(Connection conn, long messageId, StorableMessageMetaData metaData)
+    private void storeMetaData(Connection conn, long messageId, StorableMessageMetaData metaData,
+                               final boolean contentEncoded)
             throws SQLException
     {
         getLogger().debug("Adding metadata for message {}", messageId);
@@ -851,14 +937,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         {
             stmt.setLong(1, messageId);
 
-            final int bodySize = 1 + metaData.getStorableSize();
-            byte[] underlying = new byte[bodySize];
-            underlying[0] = (byte) metaData.getType().ordinal();
-            QpidByteBuffer buf = QpidByteBuffer.wrap(underlying);
-            buf.position(1);
-            buf = buf.slice();
-
-            metaData.writeToBuffer(buf);
+            byte[] underlying = getMetaDataBytes(metaData, contentEncoded);
             ByteArrayInputStream bis = new ByteArrayInputStream(underlying);
             try
             {
@@ -891,6 +970,37 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
     }
 
+    private byte[] getMetaDataBytes(final StorableMessageMetaData metaData, final boolean contentEncoded)
+    {
+        final int bodySize = 1 + metaData.getStorableSize();
+        byte[] underlying = new byte[bodySize];
+        underlying[0] = (byte) (metaData.getType().ordinal()
+                                | (contentEncoded ? MessageContentCompressor.ENCODED_CONTENT_FLAG : 0));
+        QpidByteBuffer buf = QpidByteBuffer.wrap(underlying);
+        buf.position(1);
+        buf = buf.slice();
+
+        metaData.writeToBuffer(buf);
+        return underlying;
+    }
+
+    private StorableMessageMetaData createMetaData(final byte[] dataAsBytes)
+    {
+        QpidByteBuffer buf = QpidByteBuffer.wrap(dataAsBytes);
+        buf.position(1);
+        buf = buf.slice();
+        MessageMetaDataType<?> type = MessageMetaDataTypeRegistry.fromOrdinal(dataAsBytes[0]
+                                                                             & 0xff
+                                                                             & ~MessageContentCompressor.ENCODED_CONTENT_FLAG);
+        StorableMessageMetaData metaData = type.createMetaData(buf);
+        buf.dispose();
+        return metaData;
+    }
+
+    private static boolean isContentEncoded(final byte[] metaDataBytes)
+    {
+        return (metaDataBytes[0] & MessageContentCompressor.ENCODED_CONTENT_FLAG) != 0;
+    }
 
     private static class RecordImpl implements Transaction.EnqueueRecord, Transaction.DequeueRecord, TransactionLogResource, EnqueueableMessage
     {
@@ -977,14 +1087,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
                     if(rs.next())
                     {
-                        byte[] dataAsBytes = getBlobAsBytes(rs, 1);
-                        QpidByteBuffer buf = QpidByteBuffer.wrap(dataAsBytes);
-                        buf.position(1);
-                        buf = buf.slice();
-                        MessageMetaDataType type = MessageMetaDataTypeRegistry.fromOrdinal(dataAsBytes[0]);
-                        StorableMessageMetaData metaData = type.createMetaData(buf);
-                        buf.dispose();
-                        return metaData;
+                        return createMetaData(getBlobAsBytes(rs, 1));
                     }
                     else
                     {
@@ -1010,24 +1113,14 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
     protected abstract byte[] getBlobAsBytes(ResultSet rs, int col) throws SQLException;
 
     private void addContent(final Connection conn, long messageId,
-                            Collection<QpidByteBuffer> contentBody)
+                            Collection<QpidByteBuffer> contentBody,
+                            final boolean contentEncoded)
     {
         getLogger().debug("Adding content for message {}", messageId);
 
         PreparedStatement stmt = null;
 
-        int size = 0;
-
-        for(QpidByteBuffer buf : contentBody)
-        {
-            size += buf.remaining();
-        }
-        byte[] data = new byte[size];
-        ByteBuffer dst = ByteBuffer.wrap(data);
-        for(QpidByteBuffer buf : contentBody)
-        {
-            buf.copyTo(dst);
-        }
+        byte[] data = getContentBytes(contentBody, contentEncoded);
 
         try
         {
@@ -1048,7 +1141,24 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         }
     }
 
-    Collection<QpidByteBuffer> getAllContent(long messageId) throws StoreException
+    private byte[] getContentBytes(final Collection<QpidByteBuffer> contentBody, final boolean contentEncoded)
+    {
+        int size = 0;
+
+        for(QpidByteBuffer buf : contentBody)
+        {
+            size += buf.remaining();
+        }
+        byte[] data = new byte[size];
+        ByteBuffer dst = ByteBuffer.wrap(data);
+        for(QpidByteBuffer buf : contentBody)
+        {
+            buf.copyTo(dst);
+        }
+        return contentEncoded ? _contentCompressor.encode(data, 0, data.length) : data;
+    }
+
+    Collection<QpidByteBuffer> getAllContent(long messageId, final boolean contentEncoded) throws StoreException
     {
         Connection conn = null;
         PreparedStatement stmt = null;
@@ -1066,6 +1176,10 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
             if (rs.next())
             {
                 byte[] data = getBlobAsBytes(rs, 1);
+                if (contentEncoded)
+                {
+                    data = _contentCompressor.decode(data, 0, data.length);
+                }
                 int offset = 0;
                 int length = data.length;
                 Collection<QpidByteBuffer> buffers = QpidByteBuffer.allocateDirectCollection(length);
@@ -1102,23 +1216,48 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
     }
 
 
+    /**
+     * Records the work of a transaction and hands it to the committer, which merges it with concurrently committing
+     * transactions.  Distributed (xid) transactions are written through a connection of their own instead.
+     */
     protected class JDBCTransaction implements Transaction
     {
-        private final ConnectionWrapper _connWrapper;
-        private int _storeSizeIncrease;
-        private final List<Runnable> _preCommitActions = new ArrayList<>();
-        private final List<Runnable> _postCommitActions = new ArrayList<>();
-
-        protected JDBCTransaction()
+        private final CoalescingJDBCCommitter.Work _batchWork = new CoalescingJDBCCommitter.Work()
         {
-            try
+            @Override
+            public void write(final CoalescingJDBCCommitter.StatementBatch batch) throws SQLException
             {
-                _connWrapper = new ConnectionWrapper(newConnection());
+                writeTo(batch);
             }
-            catch (SQLException e)
+
+            @Override
+            public void committed()
+            {
+                for (StoredJDBCMessage<?> message : _messagesToStore)
+                {
+                    message.batchCommitted();
+                }
+            }
+
+            @Override
+            public void failed()
             {
-                throw new StoreException(e);
+                for (StoredJDBCMessage<?> message : _messagesToStore)
+                {
+                    message.batchFailed();
+                }
             }
+        };
+
+        private ConnectionWrapper _connWrapper;
+        private int _storeSizeIncrease;
+        private final List<StoredJDBCMessage<?>> _messagesToStore = new ArrayList<>();
+        private final List<JDBCEnqueueRecord> _enqueues = new ArrayList<>();
+        private final List<MessageEnqueueRecord> _dequeues = new ArrayList<>();
+        private final List<Runnable> _postCommitActions = new ArrayList<>();
+
+        protected JDBCTransaction()
+        {
         }
 
         @Override
@@ -1129,26 +1268,20 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
             final StoredMessage storedMessage = message.getStoredMessage();
             if(storedMessage instanceof StoredJDBCMessage)
             {
-                _preCommitActions.add(new Runnable()
-                {
-                    @Override
-                    public void run()
-                    {
-                        try
-                        {
-                            ((StoredJDBCMessage) storedMessage).store(_connWrapper.getConnection());
-                            _storeSizeIncrease += storedMessage.getMetaData().getContentSize();
-                        }
-                        catch (SQLException e)
-                        {
-                            throw new StoreException("Exception on enqueuing message into message store" + _messageId,
-                                                     e);
-                        }
-                    }
-                });
+                _messagesToStore.add((StoredJDBCMessage<?>) storedMessage);
+                _storeSizeIncrease += storedMessage.getMetaData().getContentSize();
+            }
+
+            final JDBCEnqueueRecord record = new JDBCEnqueueRecord(queue.getId(), message.getMessageNumber());
+            if (_connWrapper == null)
+            {
+                _enqueues.add(record);
             }
-            AbstractJDBCMessageStore.this.enqueueMessage(_connWrapper, queue, message.getMessageNumber());
-            return new JDBCEnqueueRecord(queue.getId(), message.getMessageNumber());
+            else
+            {
+                AbstractJDBCMessageStore.this.enqueueMessage(_connWrapper, queue.getId(), message.getMessageNumber());
+            }
+            return record;
         }
 
         @Override
@@ -1156,17 +1289,31 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         {
             checkMessageStoreOpen();
 
-            AbstractJDBCMessageStore.this.dequeueMessage(_connWrapper,
-                                                         enqueueRecord.getQueueId(),
-                                                         enqueueRecord.getMessageNumber());
+            if (_connWrapper == null)
+            {
+                _dequeues.add(enqueueRecord);
+            }
+            else
+            {
+                AbstractJDBCMessageStore.this.dequeueMessage(_connWrapper,
+                                                             enqueueRecord.getQueueId(),
+                                                             enqueueRecord.getMessageNumber());
+            }
         }
 
         @Override
         public void commitTran()
         {
             checkMessageStoreOpen();
-            doPreCommitActions();
-            AbstractJDBCMessageStore.this.commitTran(_connWrapper);
+            if (_connWrapper == null)
+            {
+                _committer.commit(_batchWork);
+            }
+            else
+            {
+                storeMessages();
+                AbstractJDBCMessageStore.this.commitTran(_connWrapper);
+            }
             storedSizeChange(_storeSizeIncrease);
             doPostCommitActions();
         }
@@ -1175,20 +1322,69 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         public <X> ListenableFuture<X> commitTranAsync(final X val)
         {
             checkMessageStoreOpen();
-            doPreCommitActions();
-            ListenableFuture<X> futureResult = AbstractJDBCMessageStore.this.commitTranAsync(_connWrapper, val);
+            ListenableFuture<X> futureResult;
+            if (_connWrapper == null)
+            {
+                futureResult = _committer.commitAsync(_batchWork, val);
+            }
+            else
+            {
+                storeMessages();
+                futureResult = AbstractJDBCMessageStore.this.commitTranAsync(_connWrapper, val);
+            }
             storedSizeChange(_storeSizeIncrease);
             doPostCommitActions();
             return futureResult;
         }
 
-        private void doPreCommitActions()
+        private void writeTo(final CoalescingJDBCCommitter.StatementBatch batch) throws SQLException
         {
-            for(Runnable action : _preCommitActions)
+            for (StoredJDBCMessage<?> message : _messagesToStore)
             {
-                action.run();
+                message.addToBatch(batch);
+            }
+
+            if (!_enqueues.isEmpty())
+            {
+                PreparedStatement stmt = batch.getStatement(INSERT_INTO_QUEUE_ENTRY);
+                for (JDBCEnqueueRecord record : _enqueues)
+                {
+                    getLogger().debug("Enqueuing message {} on queue with id {}",
+                                      record.getMessageNumber(), record.getQueueId());
+                    stmt.setString(1, record.getQueueId().toString());
+                    stmt.setLong(2, record.getMessageNumber());
+                    stmt.addBatch();
+                }
+            }
+
+            if (!_dequeues.isEmpty())
+            {
+                PreparedStatement stmt = batch.getStatement(DELETE_FROM_QUEUE_ENTRY);
+                for (MessageEnqueueRecord record : _dequeues)
+                {
+                    getLogger().debug("Dequeuing message {} on queue with id {}",
+                                      record.getMessageNumber(), record.getQueueId());
+                    stmt.setString(1, record.getQueueId().toString());
+                    stmt.setLong(2, record.getMessageNumber());
+                    stmt.addBatch();
+                }
+            }
+        }
+
+        private void storeMessages()
+        {
+            for (StoredJDBCMessage<?> message : _messagesToStore)
+            {
+                try
+                {
+                    message.store(_connWrapper.getConnection());
+                }
+                catch (SQLException e)
+                {
+                    throw new StoreException("Exception on enqueuing message into message store" + _messageId,
+                                             e);
+                }
             }
-            _preCommitActions.clear();
         }
 
         private void doPostCommitActions()
@@ -1208,8 +1404,48 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         public void abortTran()
         {
             checkMessageStoreOpen();
-            _preCommitActions.clear();
-            AbstractJDBCMessageStore.this.abortTran(_connWrapper);
+            _messagesToStore.clear();
+            _enqueues.clear();
+            _dequeues.clear();
+            if (_connWrapper != null)
+            {
+                AbstractJDBCMessageStore.this.abortTran(_connWrapper);
+            }
+        }
+
+        /**
+         * Switches the transaction to a connection of its own, writing any work recorded so far to it.
+         */
+        private ConnectionWrapper getConnectionWrapper()
+        {
+            if (_connWrapper == null)
+            {
+                try
+                {
+                    _connWrapper = new ConnectionWrapper(newConnection());
+                }
+                catch (SQLException e)
+                {
+                    throw new StoreException(e);
+                }
+
+                for (JDBCEnqueueRecord record : _enqueues)
+                {
+                    AbstractJDBCMessageStore.this.enqueueMessage(_connWrapper,
+                                                                 record.getQueueId(),
+                                                                 record.getMessageNumber());
+                }
+                _enqueues.clear();
+
+                for (MessageEnqueueRecord record : _dequeues)
+                {
+                    AbstractJDBCMessageStore.this.dequeueMessage(_connWrapper,
+                                                                 record.getQueueId(),
+                                                                 record.getMessageNumber());
+                }
+                _dequeues.clear();
+            }
+            return _connWrapper;
         }
 
         @Override
@@ -1217,7 +1453,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         {
             checkMessageStoreOpen();
 
-            AbstractJDBCMessageStore.this.removeXid(_connWrapper,
+            AbstractJDBCMessageStore.this.removeXid(getConnectionWrapper(),
                                                     record.getFormat(),
                                                     record.getGlobalId(),
                                                     record.getBranchId());
@@ -1232,7 +1468,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         {
             checkMessageStoreOpen();
 
-            _postCommitActions.addAll(AbstractJDBCMessageStore.this.recordXid(_connWrapper, format, globalId, branchId, enqueues, dequeues));
+            _postCommitActions.addAll(AbstractJDBCMessageStore.this.recordXid(getConnectionWrapper(), format, globalId, branchId, enqueues, dequeues));
             return new JDBCStoredXidRecord(format, globalId, branchId);
         }
 
@@ -1404,18 +1640,24 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
         private final long _messageId;
 
         private MessageDataRef<T> _messageDataRef;
+        private CoalescingJDBCCommitter.StatementBatch _pendingBatch;
+        /** content size of a message removed while its rows were pending, to be deleted once they are committed */
+        private int _removedWhilePendingSize = -1;
+        /** whether the content row is (or is to be) written by the content compressor */
+        private boolean _contentEncoded;
 
 
         StoredJDBCMessage(long messageId, T metaData)
         {
-            this(messageId, metaData, false);
+            this(messageId, metaData, false, false);
         }
 
 
         StoredJDBCMessage(long messageId,
-                          T metaData, boolean isRecovered)
+                          T metaData, boolean isRecovered, boolean contentEncoded)
         {
             _messageId = messageId;
+            _contentEncoded = contentEncoded;
 
             if(!isRecovered)
             {
@@ -1498,7 +1740,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
                 if(stored())
                 {
                     checkMessageStoreOpen();
-                    data = AbstractJDBCMessageStore.this.getAllContent(_messageId);
+                    data = AbstractJDBCMessageStore.this.getAllContent(_messageId, _contentEncoded);
                     _messageDataRef.setData(data);
                 }
                 else
@@ -1558,14 +1800,16 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
         synchronized void store(final Connection conn) throws SQLException
         {
-            if (!stored())
+            if (!stored() && _pendingBatch == null)
             {
-
-                AbstractJDBCMessageStore.this.storeMetaData(conn, _messageId, _messageDataRef.getMetaData());
+                _contentEncoded = _contentCompressor.isEncodingRequired(_messageDataRef.getMetaData().getContentSize());
+                AbstractJDBCMessageStore.this.storeMetaData(conn, _messageId, _messageDataRef.getMetaData(),
+                                                            _contentEncoded);
                 AbstractJDBCMessageStore.this.addContent(conn, _messageId,
                                                          _messageDataRef.getData() == null
                                                                 ? Collections.<QpidByteBuffer>emptySet()
-                                                                : _messageDataRef.getData());
+                                                                : _messageDataRef.getData(),
+                                                         _contentEncoded);
 
                 getLogger().debug("Storing message {} to store", _messageId);
 
@@ -1580,9 +1824,75 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
             }
         }
 
+        /**
+         * Adds the rows for this message to the given batch, unless it is already stored or part of the batch.
+         * The message is only regarded as stored once {@link #batchCommitted()} is called.
+         */
+        synchronized void addToBatch(final CoalescingJDBCCommitter.StatementBatch batch) throws SQLException
+        {
+            if (_pendingBatch != null && _pendingBatch != batch)
+            {
+                // the batch the rows were added to was rolled back and its transactions are being retried
+                _pendingBatch = null;
+                _removedWhilePendingSize = -1;
+            }
+
+            if (_messageDataRef != null && !stored() && _pendingBatch != batch)
+            {
+                getLogger().debug("Adding message {} to commit batch", _messageId);
+
+                _contentEncoded = _contentCompressor.isEncodingRequired(_messageDataRef.getMetaData().getContentSize());
+                byte[] metaData = getMetaDataBytes(_messageDataRef.getMetaData(), _contentEncoded);
+                PreparedStatement stmt = batch.getStatement(INSERT_INTO_META_DATA);
+                stmt.setLong(1, _messageId);
+                stmt.setBinaryStream(2, new ByteArrayInputStream(metaData), metaData.length);
+                stmt.addBatch();
+
+                Collection<QpidByteBuffer> data = _messageDataRef.getData();
+                byte[] content = getContentBytes(data == null ? Collections.<QpidByteBuffer>emptySet() : data,
+                                                 _contentEncoded);
+                stmt = batch.getStatement(INSERT_INTO_MESSAGE_CONTENT);
+                stmt.setLong(1, _messageId);
+                stmt.setBinaryStream(2, new ByteArrayInputStream(content), content.length);
+                stmt.addBatch();
+
+                _pendingBatch = batch;
+            }
+        }
+
+        /**
+         * Called once the batch holding this message's rows is committed.  A message removed while the batch was
+         * pending has its rows deleted now.
+         */
+        synchronized void batchCommitted()
+        {
+            if (_pendingBatch != null)
+            {
+                _pendingBatch = null;
+                if (_removedWhilePendingSize >= 0)
+                {
+                    AbstractJDBCMessageStore.this.removeMessage(_messageId);
+                    storedSizeChange(-_removedWhilePendingSize);
+                    _removedWhilePendingSize = -1;
+                }
+                else if (_messageDataRef != null && !stored())
+                {
+                    _messageDataRef = new MessageDataSoftRef<>(_messageDataRef.getMetaData(),
+                                                               _messageDataRef.getData());
+                }
+            }
+        }
+
+        synchronized void batchFailed()
+        {
+            _pendingBatch = null;
+            _removedWhilePendingSize = -1;
+        }
+
         synchronized ListenableFuture<Void> flushToStore()
         {
-            if (_messageDataRef != null)
+            // while the rows are pending in a commit batch the committer writes them, and accounts for their size
+            if (_messageDataRef != null && _pendingBatch == null)
             {
                 if(!stored())
                 {
@@ -1612,7 +1922,11 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
 
             final T metaData = getMetaData();
             int delta = metaData.getContentSize();
-            if(stored())
+            if (_pendingBatch != null)
+            {
+                _removedWhilePendingSize = delta;
+            }
+            else if(stored())
             {
                 AbstractJDBCMessageStore.this.removeMessage(_messageId);
                 storedSizeChange(-delta);
@@ -1692,14 +2006,8 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
                         if (rs.next())
                         {
                             byte[] dataAsBytes = getBlobAsBytes(rs, 2);
-                            QpidByteBuffer buf = QpidByteBuffer.wrap(dataAsBytes);
-                            buf.position(1);
-                            buf = buf.slice();
-                            MessageMetaDataType<?> type = MessageMetaDataTypeRegistry.fromOrdinal(dataAsBytes[0]);
-                            StorableMessageMetaData metaData = type.createMetaData(buf);
-                            buf.dispose();
-                            message = new StoredJDBCMessage(messageId, metaData, true);
-
+                            message = new StoredJDBCMessage(messageId, createMetaData(dataAsBytes), true,
+                                                            isContentEncoded(dataAsBytes));
                         }
                         else
                         {
@@ -1745,13 +2053,8 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
                         {
                             long messageId = rs.getLong(1);
                             byte[] dataAsBytes = getBlobAsBytes(rs, 2);
-                            QpidByteBuffer buf = QpidByteBuffer.wrap(dataAsBytes);
-                            buf.position(1);
-                            buf = buf.slice();
-                            MessageMetaDataType<?> type = MessageMetaDataTypeRegistry.fromOrdinal(((int)dataAsBytes[0]) &0xff);
-                            StorableMessageMetaData metaData = type.createMetaData(buf);
-                            buf.dispose();
-                            StoredJDBCMessage message = new StoredJDBCMessage(messageId, metaData, true);
+                            StoredJDBCMessage message = new StoredJDBCMessage(messageId, createMetaData(dataAsBytes),
+                                                                              true, isContentEncoded(dataAsBytes));
                             if (!handler.handle(message))
                             {
                                 break;
@@ -1792,23 +2095,7 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
                 try
                 {
                     stmt.setString(1, queue.getId().toString());
-                    ResultSet rs = stmt.executeQuery();
-                    try
-                    {
-                        while (rs.next())
-                        {
-                            String id = rs.getString(1);
-                            long messageId = rs.getLong(2);
-                            if (!handler.handle(new JDBCEnqueueRecord(UUID.fromString(id), messageId)))
-                            {
-                                break;
-                            }
-                        }
-                    }
-                    finally
-                    {
-                        rs.close();
-                    }
+                    visitMessageInstances(stmt, handler);
                 }
                 finally
                 {
@@ -1823,7 +2110,63 @@ public abstract class AbstractJDBCMessageStore implements MessageStore
             {
                 JdbcUtils.closeConnection(conn, getLogger());
             }
+        }
+
+        @Override
+        public void visitMessageInstances(final TransactionLogResource queue,
+                                          final long fromMessageId,
+                                          final long toMessageId,
+                                          final MessageInstanceHandler handler) throws StoreException
+        {
+            checkMessageStoreOpen();
 
+            Connection conn = null;
+            try
+            {
+                conn = newAutoCommitConnection();
+                PreparedStatement stmt = conn.prepareStatement(SELECT_FROM_QUEUE_ENTRY_FOR_QUEUE_RANGE);
+                try
+                {
+                    stmt.setString(1, queue.getId().toString());
+                    stmt.setLong(2, fromMessageId);
+                    stmt.setLong(3, toMessageId);
+                    visitMessageInstances(stmt, handler);
+                }
+                finally
+                {
+                    stmt.close();
+                }
+            }
+            catch (SQLException e)
+            {
+                throw new StoreException("Error encountered when visiting message instances", e);
+            }
+            finally
+            {
+                JdbcUtils.closeConnection(conn, getLogger());
+            }
+        }
+
+        private void visitMessageInstances(final PreparedStatement stmt, final MessageInstanceHandler handler)
+                throws SQLException
+        {
+            ResultSet rs = stmt.executeQuery();
+            try
+            {
+                while (rs.next())
+                {
+                    String id = rs.getString(1);
+                    long messageId = rs.getLong(2);
+                    if (!handler.handle(new JDBCEnqueueRecord(UUID.fromString(id), messageId)))
+                    {
+                        break;
+                    }
+                }
+            }
+            finally
+            {
+                rs.close();
+            }
         }
 
         @Override
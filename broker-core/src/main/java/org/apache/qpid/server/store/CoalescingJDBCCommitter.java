@@ -0,0 +1,505 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.qpid.server.stats.LatencyHistogram;
+
+/**
+ * Merges the work of concurrently committing store transactions into a single JDBC transaction.
+ *
+ * A dedicated thread takes up to <code>maxBatchSize</code> pending transactions at a time, writes all their rows
+ * using one batched {@link PreparedStatement} per SQL statement and commits the connection once.  If the combined
+ * transaction fails, it is rolled back and each store transaction is retried on its own so that only the faulty
+ * one is failed.
+ */
+class CoalescingJDBCCommitter
+{
+    private static final Logger LOGGER = LoggerFactory.getLogger(CoalescingJDBCCommitter.class);
+
+    interface ConnectionSource
+    {
+        Connection newConnection() throws SQLException;
+    }
+
+    /**
+     * The database work of a single store transaction.
+     */
+    interface Work
+    {
+        void write(StatementBatch batch) throws SQLException;
+
+        void committed();
+
+        /**
+         * Called once the work will not be committed, either because it failed when written on its own or
+         * because the committer was stopped before it was written.
+         */
+        void failed();
+    }
+
+    private final ConnectionSource _connectionSource;
+    private final List<String> _statementOrder;
+    private final int _maxBatchSize;
+    private final long _maxWaitNanos;
+    private final Thread _commitThread;
+    private final LatencyHistogram _commitLatencyHistogram;
+
+    private final Queue<PendingCommit<?>> _pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger _pendingCount = new AtomicInteger();
+    private final Object _lock = new Object();
+    private volatile boolean _stopped;
+
+    private volatile long _batchCount;
+    private volatile long _batchedTransactionCount;
+    private volatile int _maximumBatchSize;
+    private volatile long _totalCommitDurationNanos;
+    private volatile long _maximumCommitDurationNanos;
+
+    /**
+     * @param statementOrder the SQL statements which may be batched, in the order in which the batches are executed
+     * @param maxBatchSize the maximum number of store transactions merged into one database transaction
+     * @param maxWaitMillis how long to wait for further transactions before committing a partially filled batch
+     * @param commitLatencyHistogram records the time from each commit request until its batch is committed
+     */
+    CoalescingJDBCCommitter(final String name,
+                            final ConnectionSource connectionSource,
+                            final List<String> statementOrder,
+                            final int maxBatchSize,
+                            final long maxWaitMillis,
+                            final LatencyHistogram commitLatencyHistogram)
+    {
+        _commitLatencyHistogram = commitLatencyHistogram;
+        _connectionSource = connectionSource;
+        _statementOrder = new ArrayList<>(statementOrder);
+        _maxBatchSize = Math.max(1, maxBatchSize);
+        _maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, maxWaitMillis));
+        _commitThread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                processPendingCommits();
+            }
+        }, "Commit-Thread-" + name);
+        _commitThread.setDaemon(true);
+    }
+
+    void start()
+    {
+        _commitThread.start();
+    }
+
+    /**
+     * Stops accepting work and waits for the commit thread to write any transactions that are still pending.
+     */
+    void stop()
+    {
+        _stopped = true;
+        synchronized (_lock)
+        {
+            _lock.notifyAll();
+        }
+        if (Thread.currentThread() != _commitThread)
+        {
+            try
+            {
+                _commitThread.join();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new StoreException("Commit thread has not shutdown", e);
+            }
+
+            PendingCommit<?> commit;
+            while ((commit = _pending.poll()) != null)
+            {
+                commit.failed(new StoreException("Unable to commit transaction: committer is stopped"));
+            }
+        }
+    }
+
+    <X> ListenableFuture<X> commitAsync(final Work work, final X val)
+    {
+        if (_stopped)
+        {
+            throw new StoreException("Unable to commit transaction: committer is stopped");
+        }
+
+        final PendingCommit<X> commit = new PendingCommit<>(work, val);
+        _pending.add(commit);
+        _pendingCount.incrementAndGet();
+        synchronized (_lock)
+        {
+            _lock.notifyAll();
+        }
+
+        // a concurrent stop() may have drained the pending commits before this one was added
+        if (_stopped && _pending.remove(commit))
+        {
+            _pendingCount.decrementAndGet();
+            commit.failed(new StoreException("Unable to commit transaction: committer is stopped"));
+        }
+        return commit.getFuture();
+    }
+
+    void commit(final Work work)
+    {
+        final ListenableFuture<Void> future = commitAsync(work, null);
+        boolean interrupted = false;
+        try
+        {
+            while (true)
+            {
+                try
+                {
+                    future.get();
+                    return;
+                }
+                catch (InterruptedException e)
+                {
+                    interrupted = true;
+                }
+            }
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new StoreException("Error commit tx", e.getCause());
+        }
+        finally
+        {
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    long getBatchCount()
+    {
+        return _batchCount;
+    }
+
+    long getBatchedTransactionCount()
+    {
+        return _batchedTransactionCount;
+    }
+
+    int getMaximumBatchSize()
+    {
+        return _maximumBatchSize;
+    }
+
+    long getTotalCommitDuration()
+    {
+        return _totalCommitDurationNanos;
+    }
+
+    long getMaximumCommitDuration()
+    {
+        return _maximumCommitDurationNanos;
+    }
+
+    private void processPendingCommits()
+    {
+        try
+        {
+            List<PendingCommit<?>> batch;
+            while (!(batch = nextBatch()).isEmpty())
+            {
+                process(batch);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            LOGGER.warn("Commit thread interrupted, failing {} pending transaction(s)", _pendingCount.get());
+            Thread.currentThread().interrupt();
+            PendingCommit<?> commit;
+            while ((commit = _pending.poll()) != null)
+            {
+                commit.failed(new StoreException("Commit thread interrupted", e));
+            }
+        }
+    }
+
+    /**
+     * Blocks until there is work to do, then waits up to the maximum wait for the batch to fill.
+     *
+     * @return the next batch, or an empty list once the committer is stopped and all pending work is done
+     */
+    private List<PendingCommit<?>> nextBatch() throws InterruptedException
+    {
+        synchronized (_lock)
+        {
+            while (_pending.isEmpty() && !_stopped)
+            {
+                _lock.wait();
+            }
+
+            if (_maxWaitNanos > 0L)
+            {
+                final long deadline = System.nanoTime() + _maxWaitNanos;
+                long remaining;
+                while (!_stopped
+                       && _pendingCount.get() < _maxBatchSize
+                       && (remaining = deadline - System.nanoTime()) > 0L)
+                {
+                    TimeUnit.NANOSECONDS.timedWait(_lock, remaining);
+                }
+            }
+        }
+
+        final List<PendingCommit<?>> batch = new ArrayList<>(Math.min(_maxBatchSize, _pendingCount.get() + 1));
+        PendingCommit<?> commit;
+        while (batch.size() < _maxBatchSize && (commit = _pending.poll()) != null)
+        {
+            _pendingCount.decrementAndGet();
+            batch.add(commit);
+        }
+        return batch;
+    }
+
+    private void process(final List<PendingCommit<?>> batch)
+    {
+        final long startTime = System.nanoTime();
+        try
+        {
+            writeAndCommit(batch);
+        }
+        catch (SQLException | RuntimeException e)
+        {
+            if (batch.size() == 1)
+            {
+                LOGGER.debug("Failed to commit transaction", e);
+                batch.get(0).failed(e instanceof RuntimeException
+                                            ? (RuntimeException) e
+                                            : new StoreException("Error commit tx", e));
+            }
+            else
+            {
+                LOGGER.debug("Failed to commit batch of {} transactions, committing them individually",
+                             batch.size(), e);
+                for (PendingCommit<?> commit : batch)
+                {
+                    process(Collections.<PendingCommit<?>>singletonList(commit));
+                }
+            }
+            return;
+        }
+
+        final long endTime = System.nanoTime();
+        updateStatistics(batch.size(), endTime - startTime);
+
+        for (PendingCommit<?> commit : batch)
+        {
+            _commitLatencyHistogram.record(endTime - commit.getRequestTime());
+            commit.committed();
+        }
+    }
+
+    private void writeAndCommit(final List<PendingCommit<?>> batch) throws SQLException
+    {
+        try (Connection connection = _connectionSource.newConnection())
+        {
+            final StatementBatch statements = new StatementBatch(connection, _statementOrder);
+            try
+            {
+                for (PendingCommit<?> commit : batch)
+                {
+                    commit.getWork().write(statements);
+                }
+                statements.execute();
+                connection.commit();
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                try
+                {
+                    connection.rollback();
+                }
+                catch (SQLException rollbackException)
+                {
+                    LOGGER.debug("Failed to rollback batch", rollbackException);
+                }
+                throw e;
+            }
+            finally
+            {
+                statements.close();
+            }
+        }
+    }
+
+    private void updateStatistics(final int batchSize, final long commitDuration)
+    {
+        // only ever updated from the commit thread
+        _batchCount++;
+        _batchedTransactionCount += batchSize;
+        _totalCommitDurationNanos += commitDuration;
+        if (batchSize > _maximumBatchSize)
+        {
+            _maximumBatchSize = batchSize;
+        }
+        if (commitDuration > _maximumCommitDurationNanos)
+        {
+            _maximumCommitDurationNanos = commitDuration;
+        }
+    }
+
+    /**
+     * The prepared statements used to write one batch, executed in the order given to the committer.
+     * Every batched row is expected to update exactly one row of the database.
+     */
+    static final class StatementBatch
+    {
+        private final Connection _connection;
+        private final Map<String, PreparedStatement> _statements = new LinkedHashMap<>();
+
+        private StatementBatch(final Connection connection, final List<String> statementOrder)
+        {
+            _connection = connection;
+            for (String sql : statementOrder)
+            {
+                _statements.put(sql, null);
+            }
+        }
+
+        PreparedStatement getStatement(final String sql) throws SQLException
+        {
+            PreparedStatement statement = _statements.get(sql);
+            if (statement == null)
+            {
+                if (!_statements.containsKey(sql))
+                {
+                    throw new IllegalArgumentException("Statement cannot be batched: " + sql);
+                }
+                statement = _connection.prepareStatement(sql);
+                _statements.put(sql, statement);
+            }
+            return statement;
+        }
+
+        private void execute() throws SQLException
+        {
+            for (Map.Entry<String, PreparedStatement> entry : _statements.entrySet())
+            {
+                final PreparedStatement statement = entry.getValue();
+                if (statement != null)
+                {
+                    final int[] results = statement.executeBatch();
+                    for (int i = 0; i < results.length; i++)
+                    {
+                        if (results[i] == 0 || results[i] == Statement.EXECUTE_FAILED)
+                        {
+                            throw new SQLException("Row " + i + " of batched statement '" + entry.getKey()
+                                                   + "' did not update the database");
+                        }
+                    }
+                }
+            }
+        }
+
+        private void close()
+        {
+            for (PreparedStatement statement : _statements.values())
+            {
+                JdbcUtils.closePreparedStatement(statement, LOGGER);
+            }
+        }
+    }
+
+    private static final class PendingCommit<X>
+    {
+        private final Work _work;
+        private final X _value;
+        private final SettableFuture<X> _future = SettableFuture.create();
+        private final long _requestTime = System.nanoTime();
+
+        private PendingCommit(final Work work, final X value)
+        {
+            _work = work;
+            _value = value;
+        }
+
+        Work getWork()
+        {
+            return _work;
+        }
+
+        long getRequestTime()
+        {
+            return _requestTime;
+        }
+
+        ListenableFuture<X> getFuture()
+        {
+            return _future;
+        }
+
+        void committed()
+        {
+            try
+            {
+                _work.committed();
+            }
+            finally
+            {
+                _future.set(_value);
+            }
+        }
+
+        void failed(final RuntimeException e)
+        {
+            try
+            {
+                _work.failed();
+            }
+            finally
+            {
+                _future.setException(e);
+            }
+        }
+    }
+}
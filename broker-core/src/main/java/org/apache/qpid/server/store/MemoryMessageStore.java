@@ -21,11 +21,15 @@
 package org.apache.qpid.server.store;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -36,6 +40,7 @@ import com.google.common.util.concurrent.ListenableFuture;
 
 import org.apache.qpid.server.message.EnqueueableMessage;
 import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.stats.LatencyHistogram;
 import org.apache.qpid.server.store.handler.DistributedTransactionHandler;
 import org.apache.qpid.server.store.handler.MessageHandler;
 import org.apache.qpid.server.store.handler.MessageInstanceHandler;
@@ -45,12 +50,27 @@ public class MemoryMessageStore implements MessageStore
 {
     public static final String TYPE = "Memory";
 
+    /** If true, message content and meta-data are held in off-heap arenas rather than separately allocated buffers */
+    public static final String SLAB_ALLOCATION = "qpid.memorystore.slabAllocation";
+    public static final boolean DEFAULT_SLAB_ALLOCATION = false;
+
+    /** The size in bytes of each off-heap arena used by slab allocation */
+    public static final String SLAB_ARENA_SIZE = "qpid.memorystore.slabArenaSize";
+    public static final int DEFAULT_SLAB_ARENA_SIZE = 4 * 1024 * 1024;
+
+    /** The number of empty arenas kept for reuse rather than released */
+    public static final String SLAB_MAXIMUM_SPARE_ARENAS = "qpid.memorystore.slabMaximumSpareArenas";
+    public static final int DEFAULT_SLAB_MAXIMUM_SPARE_ARENAS = 4;
+
     private final AtomicLong _messageId = new AtomicLong(1);
 
-    private final ConcurrentMap<Long, StoredMemoryMessage> _messages = new ConcurrentHashMap<Long, StoredMemoryMessage>();
+    private final ConcurrentMap<Long, StoredMessage<?>> _messages = new ConcurrentHashMap<Long, StoredMessage<?>>();
     private final Object _transactionLock = new Object();
     private final Map<UUID, Set<Long>> _messageInstances = new HashMap<UUID, Set<Long>>();
     private final Map<Xid, DistributedTransactionRecords> _distributedTransactions = new HashMap<Xid, DistributedTransactionRecords>();
+    private final LatencyHistogram _commitLatencyHistogram = new LatencyHistogram();
+    private final MessageContentCompressor _contentCompressor = new MessageContentCompressor();
+    private volatile SlabAllocator _slabAllocator;
 
 
     private final class MemoryMessageStoreTransaction implements Transaction
@@ -71,9 +91,10 @@ public class MemoryMessageStore implements MessageStore
         public MessageEnqueueRecord enqueueMessage(TransactionLogResource queue, EnqueueableMessage message)
         {
 
-            if(message.getStoredMessage() instanceof StoredMemoryMessage)
+            final StoredMessage storedMessage = message.getStoredMessage();
+            if(storedMessage instanceof StoredMemoryMessage || storedMessage instanceof StoredSlabMessage)
             {
-                _messages.putIfAbsent(message.getMessageNumber(), (StoredMemoryMessage) message.getStoredMessage());
+                _messages.putIfAbsent(message.getMessageNumber(), storedMessage);
             }
 
             Set<Long> messageIds = _localEnqueueMap.get(queue.getId());
@@ -271,6 +292,19 @@ public class MemoryMessageStore implements MessageStore
     @Override
     public void openMessageStore(final ConfiguredObject<?> parent)
     {
+        if (Boolean.TRUE.equals(parent.getContextValue(Boolean.class, SLAB_ALLOCATION)))
+        {
+            _slabAllocator = new SlabAllocator(parent.getContextValue(Integer.class, SLAB_ARENA_SIZE),
+                                               parent.getContextValue(Integer.class, SLAB_MAXIMUM_SPARE_ARENAS));
+        }
+    }
+
+    /**
+     * @return the allocator of the off-heap arenas holding messages, or null if slab allocation is not enabled
+     */
+    public SlabAllocator getSlabAllocator()
+    {
+        return _slabAllocator;
     }
 
     @Override
@@ -284,6 +318,20 @@ public class MemoryMessageStore implements MessageStore
     {
         long id = getNextMessageId();
 
+        final SlabAllocator slabAllocator = _slabAllocator;
+        if (slabAllocator != null)
+        {
+            return new StoredSlabMessage<T>(id, metaData, slabAllocator)
+            {
+                @Override
+                public void remove()
+                {
+                    _messages.remove(getMessageNumber());
+                    super.remove();
+                }
+            };
+        }
+
         StoredMemoryMessage<T> storedMemoryMessage = new StoredMemoryMessage<T>(id, metaData)
         {
 
@@ -357,6 +405,18 @@ public class MemoryMessageStore implements MessageStore
         return new MemoryMessageStoreReader();
     }
 
+    @Override
+    public LatencyHistogram getCommitLatencyHistogram()
+    {
+        return _commitLatencyHistogram;
+    }
+
+    @Override
+    public MessageContentCompressor getContentCompressor()
+    {
+        return _contentCompressor;
+    }
+
 
     private static class MemoryEnqueueRecord implements MessageEnqueueRecord
     {
@@ -434,11 +494,42 @@ public class MemoryMessageStore implements MessageStore
             }
         }
 
+        @Override
+        public void visitMessageInstances(final TransactionLogResource queue,
+                                          final long fromMessageId,
+                                          final long toMessageId,
+                                          final MessageInstanceHandler handler) throws StoreException
+        {
+            final List<Long> idsInRange = new ArrayList<>();
+            synchronized (_transactionLock)
+            {
+                Set<Long> ids = _messageInstances.get(queue.getId());
+                if(ids != null)
+                {
+                    for (long id : ids)
+                    {
+                        if (id >= fromMessageId && id < toMessageId)
+                        {
+                            idsInRange.add(id);
+                        }
+                    }
+                }
+            }
+            Collections.sort(idsInRange);
+            for (long id : idsInRange)
+            {
+                if (!handler.handle(new MemoryEnqueueRecord(queue.getId(), id)))
+                {
+                    return;
+                }
+            }
+        }
+
 
         @Override
         public void visitMessages(final MessageHandler handler) throws StoreException
         {
-            for (StoredMemoryMessage message : _messages.values())
+            for (StoredMessage<?> message : new TreeMap<>(_messages).values())
             {
                 if(!handler.handle(message))
                 {
@@ -0,0 +1,340 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.stats.StripedCounter;
+
+/**
+ * Compresses message content as a persistent store writes it, and decompresses it as the store reads it back.
+ * <p>
+ * Content is only compressed for messages whose content is at least the configured threshold in size.  Stores
+ * record that the content of a message has been encoded by setting {@link #ENCODED_CONTENT_FLAG} in the meta-data
+ * type byte of the message, so content written before compression was enabled (or below the threshold) is read
+ * back verbatim.  Each record written by {@link #encode(byte[], int, int)} starts with a byte saying whether the rest
+ * is deflated or stored as is, the latter being used where deflating does not make the record smaller.
+ * <p>
+ * Deflaters and inflaters hold native memory, so they are pooled between calls rather than held per thread, and are
+ * ended when the store closes the compressor with {@link #close()}.
+ */
+public final class MessageContentCompressor
+{
+    /** Content of at least this many bytes is compressed; a negative value disables compression */
+    public static final String CONTENT_COMPRESSION_THRESHOLD = "virtualhost.store.contentCompressionThreshold";
+    public static final int DEFAULT_CONTENT_COMPRESSION_THRESHOLD = -1;
+
+    /** The deflate compression level, from 1 (fastest) to 9 (smallest) */
+    public static final String CONTENT_COMPRESSION_LEVEL = "virtualhost.store.contentCompressionLevel";
+    public static final int DEFAULT_CONTENT_COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+
+    /** Set in the stored meta-data type of a message whose content records were written by this class */
+    public static final int ENCODED_CONTENT_FLAG = 0x80;
+
+    private static final byte STORED = 0;
+    private static final byte DEFLATED = 1;
+    private static final int STORED_HEADER_LENGTH = 1;
+    private static final int DEFLATED_HEADER_LENGTH = 5;
+
+    private final int _threshold;
+    private final int _level;
+
+    private final Queue<Deflater> _deflaters = new ConcurrentLinkedQueue<>();
+    private final Queue<Inflater> _inflaters = new ConcurrentLinkedQueue<>();
+    private volatile boolean _closed;
+
+    private final StripedCounter _bytesBeforeCompression = new StripedCounter();
+    private final StripedCounter _bytesAfterCompression = new StripedCounter();
+    private final StripedCounter _compressionTime = new StripedCounter();
+    private final StripedCounter _decompressionTime = new StripedCounter();
+
+    /**
+     * Creates a compressor which compresses nothing, for stores which do not write content to disk.
+     */
+    public MessageContentCompressor()
+    {
+        this(DEFAULT_CONTENT_COMPRESSION_THRESHOLD, DEFAULT_CONTENT_COMPRESSION_LEVEL);
+    }
+
+    public MessageContentCompressor(final int threshold, final int level)
+    {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION)
+        {
+            throw new IllegalArgumentException("Content compression level must be between " + Deflater.BEST_SPEED
+                                               + " and " + Deflater.BEST_COMPRESSION + ": " + level);
+        }
+        _threshold = threshold;
+        _level = level;
+    }
+
+    /**
+     * Creates a compressor configured by the context variables of the parent of a message store.
+     */
+    public static MessageContentCompressor create(final ConfiguredObject<?> parent)
+    {
+        final Integer threshold = parent.getContextValue(Integer.class, CONTENT_COMPRESSION_THRESHOLD);
+        final Integer level = parent.getContextValue(Integer.class, CONTENT_COMPRESSION_LEVEL);
+        return new MessageContentCompressor(threshold == null ? DEFAULT_CONTENT_COMPRESSION_THRESHOLD : threshold,
+                                            level == null ? DEFAULT_CONTENT_COMPRESSION_LEVEL : level);
+    }
+
+    public boolean isEnabled()
+    {
+        return _threshold >= 0;
+    }
+
+    /**
+     * @return true if the content of a message of the given size should be written with {@link #encode}
+     */
+    public boolean isEncodingRequired(final long contentSize)
+    {
+        return _threshold >= 0 && contentSize >= _threshold;
+    }
+
+    public byte[] encode(final byte[] data, final int offset, final int length)
+    {
+        final long startTime = System.nanoTime();
+        final Deflater deflater = takeDeflater();
+        final byte[] encoded;
+        try
+        {
+            deflater.setInput(data, offset, length);
+            deflater.finish();
+
+            final byte[] deflated = new byte[DEFLATED_HEADER_LENGTH + length];
+            int written = 0;
+            while (!deflater.finished() && written < length)
+            {
+                written += deflater.deflate(deflated, DEFLATED_HEADER_LENGTH + written, length - written);
+            }
+
+            if (deflater.finished())
+            {
+                encoded = Arrays.copyOf(deflated, DEFLATED_HEADER_LENGTH + written);
+                encoded[0] = DEFLATED;
+                putInt(encoded, 1, length);
+            }
+            else
+            {
+                encoded = new byte[STORED_HEADER_LENGTH + length];
+                encoded[0] = STORED;
+                System.arraycopy(data, offset, encoded, STORED_HEADER_LENGTH, length);
+            }
+        }
+        finally
+        {
+            returnDeflater(deflater);
+        }
+
+        _compressionTime.add(System.nanoTime() - startTime);
+        _bytesBeforeCompression.add(length);
+        _bytesAfterCompression.add(encoded.length);
+        return encoded;
+    }
+
+    /**
+     * @throws StoreException if the record was not written by {@link #encode}, or is corrupt
+     */
+    public byte[] decode(final byte[] encoded, final int offset, final int length)
+    {
+        if (length < STORED_HEADER_LENGTH)
+        {
+            throw new StoreException("Encoded content record is empty");
+        }
+        switch (encoded[offset])
+        {
+            case STORED:
+                return Arrays.copyOfRange(encoded, offset + STORED_HEADER_LENGTH, offset + length);
+            case DEFLATED:
+                if (length < DEFLATED_HEADER_LENGTH)
+                {
+                    throw new StoreException("Compressed content record is truncated");
+                }
+                return inflate(encoded, offset, length);
+            default:
+                throw new StoreException("Unknown content record encoding: " + encoded[offset]);
+        }
+    }
+
+    private byte[] inflate(final byte[] encoded, final int offset, final int length)
+    {
+        final long startTime = System.nanoTime();
+        final Inflater inflater = takeInflater();
+        try
+        {
+            final byte[] data = new byte[getInt(encoded, offset + 1)];
+            inflater.setInput(encoded, offset + DEFLATED_HEADER_LENGTH, length - DEFLATED_HEADER_LENGTH);
+            int read = 0;
+            while (read < data.length && !inflater.finished())
+            {
+                final int inflated = inflater.inflate(data, read, data.length - read);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                {
+                    break;
+                }
+                read += inflated;
+            }
+            if (read != data.length)
+            {
+                throw new StoreException("Compressed content record is truncated: expected " + data.length
+                                         + " bytes but found " + read);
+            }
+            return data;
+        }
+        catch (DataFormatException e)
+        {
+            throw new StoreException("Compressed content record is corrupt", e);
+        }
+        finally
+        {
+            returnInflater(inflater);
+            _decompressionTime.add(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * @return the number of content bytes passed to {@link #encode}
+     */
+    public long getBytesBeforeCompression()
+    {
+        return _bytesBeforeCompression.get();
+    }
+
+    /**
+     * @return the number of bytes returned by {@link #encode}
+     */
+    public long getBytesAfterCompression()
+    {
+        return _bytesAfterCompression.get();
+    }
+
+    /**
+     * @return the percentage of the content passed to {@link #encode} which compression saved
+     */
+    public long getCompressionSavingPercentage()
+    {
+        final long before = getBytesBeforeCompression();
+        return before == 0L ? 0L : Math.max(0L, 100L - (getBytesAfterCompression() * 100L) / before);
+    }
+
+    /**
+     * @return the time in nanoseconds spent compressing content
+     */
+    public long getCompressionTime()
+    {
+        return _compressionTime.get();
+    }
+
+    /**
+     * @return the time in nanoseconds spent decompressing content
+     */
+    public long getDecompressionTime()
+    {
+        return _decompressionTime.get();
+    }
+
+    public void resetStatistics()
+    {
+        _bytesBeforeCompression.reset();
+        _bytesAfterCompression.reset();
+        _compressionTime.reset();
+        _decompressionTime.reset();
+    }
+
+    /**
+     * Ends the pooled deflaters and inflaters.  The compressor remains usable, but any deflater or inflater used
+     * after it has been closed is ended as soon as the call using it returns.
+     */
+    public void close()
+    {
+        _closed = true;
+        Deflater deflater;
+        while ((deflater = _deflaters.poll()) != null)
+        {
+            deflater.end();
+        }
+        Inflater inflater;
+        while ((inflater = _inflaters.poll()) != null)
+        {
+            inflater.end();
+        }
+    }
+
+    int getPooledCount()
+    {
+        return _deflaters.size() + _inflaters.size();
+    }
+
+    private Deflater takeDeflater()
+    {
+        final Deflater deflater = _deflaters.poll();
+        return deflater == null ? new Deflater(_level, true) : deflater;
+    }
+
+    private void returnDeflater(final Deflater deflater)
+    {
+        deflater.reset();
+        _deflaters.add(deflater);
+        // either close() drains the deflater or, if it has already drained the pool, it is taken back out here
+        if (_closed && _deflaters.remove(deflater))
+        {
+            deflater.end();
+        }
+    }
+
+    private Inflater takeInflater()
+    {
+        final Inflater inflater = _inflaters.poll();
+        return inflater == null ? new Inflater(true) : inflater;
+    }
+
+    private void returnInflater(final Inflater inflater)
+    {
+        inflater.reset();
+        _inflaters.add(inflater);
+        if (_closed && _inflaters.remove(inflater))
+        {
+            inflater.end();
+        }
+    }
+
+    private static void putInt(final byte[] array, final int offset, final int value)
+    {
+        array[offset] = (byte) (value >>> 24);
+        array[offset + 1] = (byte) (value >>> 16);
+        array[offset + 2] = (byte) (value >>> 8);
+        array[offset + 3] = (byte) value;
+    }
+
+    private static int getInt(final byte[] array, final int offset)
+    {
+        return ((array[offset] & 0xff) << 24)
+               | ((array[offset + 1] & 0xff) << 16)
+               | ((array[offset + 2] & 0xff) << 8)
+               | (array[offset + 3] & 0xff);
+    }
+}
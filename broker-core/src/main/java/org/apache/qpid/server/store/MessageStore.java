@@ -24,6 +24,7 @@ package org.apache.qpid.server.store;
 import java.io.File;
 
 import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.stats.LatencyHistogram;
 import org.apache.qpid.server.store.handler.DistributedTransactionHandler;
 import org.apache.qpid.server.store.handler.MessageHandler;
 import org.apache.qpid.server.store.handler.MessageInstanceHandler;
@@ -79,13 +80,36 @@ public interface MessageStore
 
     MessageStoreReader newMessageStoreReader();
 
+    /**
+     * @return the time taken to make committed transactions durable.  Stores which do not write to disk record nothing.
+     */
+    LatencyHistogram getCommitLatencyHistogram();
+
+    /**
+     * @return the compressor applied to message content as it is written.  Stores which do not write to disk never
+     * compress content.
+     */
+    MessageContentCompressor getContentCompressor();
+
     interface MessageStoreReader
     {
+        /**
+         * Visits every message in the store in ascending message id order.
+         */
         void visitMessages(MessageHandler handler) throws StoreException;
 
         void visitMessageInstances(MessageInstanceHandler handler) throws StoreException;
         void visitMessageInstances(TransactionLogResource queue, MessageInstanceHandler handler) throws StoreException;
 
+        /**
+         * Visits, in ascending message id order, the instances on the given queue of messages whose id is at least
+         * {@code fromMessageId} and less than {@code toMessageId}.
+         */
+        void visitMessageInstances(TransactionLogResource queue,
+                                   long fromMessageId,
+                                   long toMessageId,
+                                   MessageInstanceHandler handler) throws StoreException;
+
         void visitDistributedTransactions(DistributedTransactionHandler handler) throws StoreException;
 
         StoredMessage<?> getMessage(long messageId);
@@ -23,6 +23,7 @@ import java.io.File;
 import java.util.UUID;
 
 import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.stats.LatencyHistogram;
 import org.apache.qpid.server.store.handler.ConfiguredObjectRecordHandler;
 import org.apache.qpid.server.store.handler.DistributedTransactionHandler;
 import org.apache.qpid.server.store.handler.MessageHandler;
@@ -30,6 +31,8 @@ import org.apache.qpid.server.store.handler.MessageInstanceHandler;
 
 public abstract class NullMessageStore implements MessageStore, DurableConfigurationStore, MessageStoreProvider, MessageStore.MessageStoreReader
 {
+    private final LatencyHistogram _commitLatencyHistogram = new LatencyHistogram();
+    private final MessageContentCompressor _contentCompressor = new MessageContentCompressor();
 
     @Override
     public MessageStore getMessageStore()
@@ -153,6 +156,14 @@ public abstract class NullMessageStore implements MessageStore, DurableConfigura
     {
     }
 
+    @Override
+    public void visitMessageInstances(final TransactionLogResource queue,
+                                      final long fromMessageId,
+                                      final long toMessageId,
+                                      final MessageInstanceHandler handler) throws StoreException
+    {
+    }
+
     @Override
     public void visitMessageInstances(MessageInstanceHandler handler) throws StoreException
     {
@@ -181,6 +192,18 @@ public abstract class NullMessageStore implements MessageStore, DurableConfigura
         return this;
     }
 
+    @Override
+    public LatencyHistogram getCommitLatencyHistogram()
+    {
+        return _commitLatencyHistogram;
+    }
+
+    @Override
+    public MessageContentCompressor getContentCompressor()
+    {
+        return _contentCompressor;
+    }
+
     @Override
     public void close()
     {
@@ -0,0 +1,330 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.qpid.bytebuffer.ByteBufferRef;
+import org.apache.qpid.bytebuffer.QpidByteBuffer;
+
+/**
+ * Allocates buffers from large off-heap arenas.
+ * <p>
+ * Requests are rounded up to one of a set of size classes, each a power of two or one and a half times a power of
+ * two.  An arena is divided into slots of a single size class when it is put into use, and each size class keeps the
+ * arenas which have free slots.  A slot is freed once the buffer returned by {@link #allocate(int)}, and every buffer
+ * derived from it, has been disposed.  When the last slot of an arena is freed the whole arena is reclaimed, kept
+ * for reuse by any size class up to a limit, and otherwise released.
+ * <p>
+ * Requests larger than a quarter of an arena are not served from the arenas.
+ * <p>
+ * Arenas are allocated as JVM direct buffers, so they count towards the JVM's direct memory limit and the broker's
+ * used direct memory, but not towards the network buffer pool.
+ */
+public final class SlabAllocator
+{
+    private static final int MINIMUM_SLOT_SIZE = 64;
+
+    private final int _arenaSize;
+    private final int _maximumSpareArenas;
+    private final SizeClass[] _sizeClasses;
+    private final int[] _slotSizes;
+
+    private final Deque<ByteBuffer> _spareArenas = new ArrayDeque<>();
+    private final AtomicInteger _arenaCount = new AtomicInteger();
+    private final AtomicLong _slotMemoryInUse = new AtomicLong();
+    private final AtomicLong _reclaimedArenaCount = new AtomicLong();
+    private final AtomicLong _largeAllocationCount = new AtomicLong();
+
+    /**
+     * @param arenaSize the size in bytes of each arena
+     * @param maximumSpareArenas the number of empty arenas kept for reuse
+     */
+    public SlabAllocator(final int arenaSize, final int maximumSpareArenas)
+    {
+        if (arenaSize < MINIMUM_SLOT_SIZE * 4)
+        {
+            throw new IllegalArgumentException("Arena size must be at least " + (MINIMUM_SLOT_SIZE * 4) + ": "
+                                               + arenaSize);
+        }
+        _arenaSize = arenaSize;
+        _maximumSpareArenas = Math.max(0, maximumSpareArenas);
+
+        final List<Integer> slotSizes = new ArrayList<>();
+        for (int size = MINIMUM_SLOT_SIZE; size <= arenaSize / 4; size <<= 1)
+        {
+            slotSizes.add(size);
+            if (size + size / 2 <= arenaSize / 4)
+            {
+                slotSizes.add(size + size / 2);
+            }
+        }
+        _slotSizes = new int[slotSizes.size()];
+        _sizeClasses = new SizeClass[slotSizes.size()];
+        for (int i = 0; i < _slotSizes.length; i++)
+        {
+            _slotSizes[i] = slotSizes.get(i);
+            _sizeClasses[i] = new SizeClass(_slotSizes[i]);
+        }
+    }
+
+    /**
+     * @return a buffer with position zero and a capacity and limit of <code>size</code>, which the caller must
+     * dispose
+     */
+    public QpidByteBuffer allocate(final int size)
+    {
+        if (size > getMaximumSlotSize())
+        {
+            _largeAllocationCount.incrementAndGet();
+            return QpidByteBuffer.allocateDirect(size);
+        }
+
+        final SizeClass sizeClass = _sizeClasses[sizeClassIndex(size)];
+        final Slot slot;
+        synchronized (sizeClass)
+        {
+            Arena arena = sizeClass._arenas.peekFirst();
+            if (arena == null)
+            {
+                arena = new Arena(takeArenaMemory(), sizeClass._slotSize);
+                sizeClass._arenas.addFirst(arena);
+            }
+            final int index = arena._freeSlots[--arena._freeCount];
+            if (arena._freeCount == 0)
+            {
+                sizeClass._arenas.pollFirst();
+            }
+            slot = new Slot(sizeClass, arena, index, size);
+        }
+        _slotMemoryInUse.addAndGet(sizeClass._slotSize);
+        return QpidByteBuffer.wrap(slot);
+    }
+
+    public int getArenaSize()
+    {
+        return _arenaSize;
+    }
+
+    public int getMaximumSlotSize()
+    {
+        return _slotSizes[_slotSizes.length - 1];
+    }
+
+    /**
+     * @return the number of arenas, including those kept for reuse
+     */
+    public int getArenaCount()
+    {
+        return _arenaCount.get();
+    }
+
+    public long getArenaMemory()
+    {
+        return (long) getArenaCount() * _arenaSize;
+    }
+
+    /**
+     * @return the total size in bytes of the slots in use
+     */
+    public long getSlotMemoryInUse()
+    {
+        return _slotMemoryInUse.get();
+    }
+
+    /**
+     * @return the percentage of the memory of the arenas which is in use by slots
+     */
+    public long getUtilisation()
+    {
+        final long arenaMemory = getArenaMemory();
+        return arenaMemory == 0L ? 0L : (getSlotMemoryInUse() * 100L) / arenaMemory;
+    }
+
+    public long getReclaimedArenaCount()
+    {
+        return _reclaimedArenaCount.get();
+    }
+
+    /**
+     * @return the number of requests which were too large to be served from an arena
+     */
+    public long getLargeAllocationCount()
+    {
+        return _largeAllocationCount.get();
+    }
+
+    int sizeClassIndex(final int size)
+    {
+        int low = 0;
+        int high = _slotSizes.length - 1;
+        while (low < high)
+        {
+            final int mid = (low + high) >>> 1;
+            if (_slotSizes[mid] < size)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    int getSlotSize(final int sizeClassIndex)
+    {
+        return _slotSizes[sizeClassIndex];
+    }
+
+    private ByteBuffer takeArenaMemory()
+    {
+        synchronized (_spareArenas)
+        {
+            final ByteBuffer spare = _spareArenas.pollFirst();
+            if (spare != null)
+            {
+                return spare;
+            }
+        }
+        _arenaCount.incrementAndGet();
+        return ByteBuffer.allocateDirect(_arenaSize);
+    }
+
+    private void free(final Slot slot)
+    {
+        final SizeClass sizeClass = slot._sizeClass;
+        final Arena arena = slot._arena;
+        boolean reclaim = false;
+        synchronized (sizeClass)
+        {
+            arena._freeSlots[arena._freeCount++] = slot._index;
+            if (arena._freeCount == arena._freeSlots.length)
+            {
+                sizeClass._arenas.remove(arena);
+                reclaim = true;
+            }
+            else if (arena._freeCount == 1)
+            {
+                sizeClass._arenas.addLast(arena);
+            }
+        }
+        _slotMemoryInUse.addAndGet(-sizeClass._slotSize);
+
+        if (reclaim)
+        {
+            _reclaimedArenaCount.incrementAndGet();
+            synchronized (_spareArenas)
+            {
+                if (_spareArenas.size() < _maximumSpareArenas)
+                {
+                    _spareArenas.addFirst(arena._memory);
+                    return;
+                }
+            }
+            _arenaCount.decrementAndGet();
+        }
+    }
+
+    private static final class SizeClass
+    {
+        private final int _slotSize;
+        /** the arenas of this size class which have free slots, most recently used first */
+        private final Deque<Arena> _arenas = new ArrayDeque<>();
+
+        private SizeClass(final int slotSize)
+        {
+            _slotSize = slotSize;
+        }
+    }
+
+    private static final class Arena
+    {
+        private final ByteBuffer _memory;
+        private final int[] _freeSlots;
+        private int _freeCount;
+
+        private Arena(final ByteBuffer memory, final int slotSize)
+        {
+            _memory = memory;
+            _freeSlots = new int[memory.capacity() / slotSize];
+            for (int i = 0; i < _freeSlots.length; i++)
+            {
+                _freeSlots[i] = _freeSlots.length - 1 - i;
+            }
+            _freeCount = _freeSlots.length;
+        }
+    }
+
+    private final class Slot implements ByteBufferRef
+    {
+        private final SizeClass _sizeClass;
+        private final Arena _arena;
+        private final int _index;
+        private final ByteBuffer _buffer;
+        private final AtomicInteger _refCount = new AtomicInteger();
+
+        private Slot(final SizeClass sizeClass, final Arena arena, final int index, final int size)
+        {
+            _sizeClass = sizeClass;
+            _arena = arena;
+            _index = index;
+            final ByteBuffer buffer = arena._memory.duplicate();
+            final int position = index * sizeClass._slotSize;
+            buffer.limit(position + size);
+            buffer.position(position);
+            _buffer = buffer.slice();
+        }
+
+        @Override
+        public void incrementRef()
+        {
+            _refCount.incrementAndGet();
+        }
+
+        @Override
+        public void decrementRef()
+        {
+            if (_refCount.decrementAndGet() == 0)
+            {
+                free(this);
+            }
+        }
+
+        @Override
+        public ByteBuffer getBuffer()
+        {
+            return _buffer.duplicate();
+        }
+
+        @Override
+        public void removeFromPool()
+        {
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.qpid.server.store;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.apache.qpid.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.server.plugin.MessageMetaDataType;
+
+/**
+ * A message of the {@link MemoryMessageStore} whose content and encoded meta-data are held in a single slot of a
+ * {@link SlabAllocator}, content first.
+ * <p>
+ * The meta-data is encoded into the slot once all content has been added.  The message has no disk to flow to: its
+ * content stays in the slot, in direct memory, until the message is removed.  Asking it to flow to disk only drops the
+ * decoded meta-data from the heap, which is decoded again from the slot when next needed.
+ */
+public class StoredSlabMessage<T extends StorableMessageMetaData> implements StoredMessage<T>, MessageHandle<T>
+{
+    private final long _messageNumber;
+    private final SlabAllocator _allocator;
+    private final MessageMetaDataType<T> _metaDataType;
+    private QpidByteBuffer _slot;
+    private int _contentSize;
+    private int _metaDataSize = -1;
+    private T _metaData;
+
+    @SuppressWarnings("unchecked")
+    public StoredSlabMessage(final long messageNumber, final T metaData, final SlabAllocator allocator)
+    {
+        _messageNumber = messageNumber;
+        _allocator = allocator;
+        _metaDataType = metaData.getType();
+        _metaData = metaData;
+        _slot = allocator.allocate(metaData.getContentSize() + metaData.getStorableSize());
+    }
+
+    @Override
+    public long getMessageNumber()
+    {
+        return _messageNumber;
+    }
+
+    @Override
+    public synchronized void addContent(final QpidByteBuffer src)
+    {
+        final int length = src.remaining();
+        ensureCapacity(_contentSize + length);
+        final QpidByteBuffer dst = _slot.view(_contentSize, length);
+        dst.putCopyOf(src);
+        dst.dispose();
+        _contentSize += length;
+    }
+
+    @Override
+    public synchronized StoredMessage<T> allContentAdded()
+    {
+        if (_metaDataSize < 0)
+        {
+            final int metaDataSize = _metaData.getStorableSize();
+            ensureCapacity(_contentSize + metaDataSize);
+            final QpidByteBuffer dst = _slot.view(_contentSize, metaDataSize);
+            _metaData.writeToBuffer(dst);
+            dst.dispose();
+            _metaDataSize = metaDataSize;
+        }
+        return this;
+    }
+
+    @Override
+    public synchronized Collection<QpidByteBuffer> getContent(final int offset, final int length)
+    {
+        if (_slot == null)
+        {
+            return null;
+        }
+        if (offset >= _contentSize)
+        {
+            return Collections.emptyList();
+        }
+        return Collections.singleton(_slot.view(offset, Math.min(length, _contentSize - offset)));
+    }
+
+    @Override
+    public synchronized T getMetaData()
+    {
+        if (_metaData == null && _slot != null)
+        {
+            final QpidByteBuffer src = _slot.view(_contentSize, _metaDataSize);
+            _metaData = _metaDataType.createMetaData(src);
+            src.dispose();
+        }
+        return _metaData;
+    }
+
+    @Override
+    public synchronized void remove()
+    {
+        if (_metaData != null)
+        {
+            _metaData.dispose();
+            _metaData = null;
+        }
+        if (_slot != null)
+        {
+            _slot.dispose();
+            _slot = null;
+        }
+    }
+
+    /**
+     * @return true until the message is removed, as its content is held in the slot
+     */
+    @Override
+    public synchronized boolean isInMemory()
+    {
+        return _slot != null;
+    }
+
+    /**
+     * Drops the decoded meta-data from the heap once it has been encoded into the slot.
+     *
+     * @return false, as the content of the message remains in memory
+     */
+    @Override
+    public synchronized boolean flowToDisk()
+    {
+        if (_metaData != null && _metaDataSize >= 0)
+        {
+            _metaData.clearEncodedForm();
+            _metaData = null;
+        }
+        return false;
+    }
+
+    private void ensureCapacity(final int required)
+    {
+        if (required > _slot.capacity())
+        {
+            final QpidByteBuffer slot = _allocator.allocate(required);
+            final QpidByteBuffer content = _slot.view(0, _contentSize);
+            slot.putCopyOf(content);
+            slot.clear();
+            content.dispose();
+            _slot.dispose();
+            _slot = slot;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return getClass().getSimpleName() + "[messageNumber=" + _messageNumber + "]";
+    }
+}
@@ -20,6 +20,9 @@
  */
 package org.apache.qpid.server.transport;
 
+import java.util.List;
+import java.util.Map;
+
 public interface AcceptingTransport
 {
     void start();
@@ -27,4 +30,9 @@ public interface AcceptingTransport
     void close();
 
     int getAcceptingPort();
+
+    /**
+     * @return statistics for each of the IO threads serving the transport, empty if they are not available
+     */
+    List<Map<String, Object>> getIoThreadStatistics();
 }
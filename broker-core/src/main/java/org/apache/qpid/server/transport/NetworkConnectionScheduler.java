@@ -22,6 +22,9 @@ package org.apache.qpid.server.transport;
 
 import java.io.IOException;
 import java.nio.channels.ServerSocketChannel;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
@@ -45,24 +48,15 @@ public class NetworkConnectionScheduler
     private final long _threadKeepAliveTimeout;
     private final String _name;
     private final int _numberOfSelectors;
-    private SelectorThread _selectorThread;
+    private final boolean _connectionAffinity;
+    private final int _stealThreshold;
+    private volatile SelectorThread _selectorThread;
 
     public NetworkConnectionScheduler(final String name,
                                       final int numberOfSelectors, int threadPoolSize,
                                       long threadKeepAliveTimeout)
     {
-        this(name, numberOfSelectors, threadPoolSize, threadKeepAliveTimeout, new ThreadFactory()
-                                    {
-                                        final AtomicInteger _count = new AtomicInteger();
-
-                                        @Override
-                                        public Thread newThread(final Runnable r)
-                                        {
-                                            Thread t = Executors.defaultThreadFactory().newThread(r);
-                                            t.setName("IO-pool-" + name + "-" + _count.incrementAndGet());
-                                            return t;
-                                        }
-                                    });
+        this(name, numberOfSelectors, threadPoolSize, threadKeepAliveTimeout, false, 0);
     }
 
     @Override
@@ -76,6 +70,7 @@ public class NetworkConnectionScheduler
                ", _threadKeepAliveTimeout=" + _threadKeepAliveTimeout +
                ", _name='" + _name + '\'' +
                ", _numberOfSelectors=" + _numberOfSelectors +
+               ", _connectionAffinity=" + _connectionAffinity +
                ", _selectorThread=" + _selectorThread +
                '}';
     }
@@ -84,12 +79,51 @@ public class NetworkConnectionScheduler
                                       final int numberOfSelectors, int threadPoolSize,
                                       long threadKeepAliveTimeout,
                                       ThreadFactory factory)
+    {
+        this(name, numberOfSelectors, threadPoolSize, threadKeepAliveTimeout, false, 0, factory);
+    }
+
+    /**
+     * Creates a scheduler whose IO threads are optionally affine to their connections.  With connection affinity
+     * each IO thread has a selector of its own, so the number of selectors is the thread pool size, and the work of
+     * a connection is performed by the thread which selects on it.  An idle thread only takes over work from another
+     * thread which has more than <code>stealThreshold</code> tasks queued.
+     */
+    public NetworkConnectionScheduler(final String name,
+                                      final int numberOfSelectors, int threadPoolSize,
+                                      long threadKeepAliveTimeout,
+                                      boolean connectionAffinity,
+                                      int stealThreshold)
+    {
+        this(name, numberOfSelectors, threadPoolSize, threadKeepAliveTimeout, connectionAffinity, stealThreshold,
+             new ThreadFactory()
+             {
+                 final AtomicInteger _count = new AtomicInteger();
+
+                 @Override
+                 public Thread newThread(final Runnable r)
+                 {
+                     Thread t = Executors.defaultThreadFactory().newThread(r);
+                     t.setName("IO-pool-" + name + "-" + _count.incrementAndGet());
+                     return t;
+                 }
+             });
+    }
+
+    public NetworkConnectionScheduler(String name,
+                                      final int numberOfSelectors, int threadPoolSize,
+                                      long threadKeepAliveTimeout,
+                                      boolean connectionAffinity,
+                                      int stealThreshold,
+                                      ThreadFactory factory)
     {
         _name = name;
         _poolSize = threadPoolSize;
         _threadKeepAliveTimeout = threadKeepAliveTimeout;
         _factory = factory;
-        _numberOfSelectors = numberOfSelectors;
+        _connectionAffinity = connectionAffinity;
+        _stealThreshold = stealThreshold;
+        _numberOfSelectors = connectionAffinity ? threadPoolSize : numberOfSelectors;
         _selectorThreadName = "Selector-"+name;
     }
 
@@ -98,7 +132,7 @@ public class NetworkConnectionScheduler
     {
         try
         {
-            _selectorThread = new SelectorThread(this, _numberOfSelectors);
+            _selectorThread = new SelectorThread(this, _numberOfSelectors, _connectionAffinity, _stealThreshold);
             _executor = new ThreadPoolExecutor(_poolSize, _poolSize,
                                                _threadKeepAliveTimeout, TimeUnit.MINUTES,
                                                new LinkedBlockingQueue<Runnable>(), _factory);
@@ -222,6 +256,23 @@ public class NetworkConnectionScheduler
         return _poolSize;
     }
 
+    public boolean isConnectionAffinity()
+    {
+        return _connectionAffinity;
+    }
+
+    /**
+     * @return the queue length, maximum queue length, number of tasks processed and stolen, and processing time
+     * (ns) of each IO thread, or an empty list unless connection affinity is enabled
+     */
+    public List<Map<String, Object>> getIoThreadStatistics()
+    {
+        final SelectorThread selectorThread = _selectorThread;
+        return selectorThread == null
+                ? Collections.<Map<String, Object>>emptyList()
+                : selectorThread.getIoThreadStatistics();
+    }
+
     public void schedule(final NonBlockingConnection connection)
     {
         _selectorThread.addToWork(connection);
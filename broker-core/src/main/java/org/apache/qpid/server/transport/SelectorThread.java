@@ -31,18 +31,22 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.common.util.concurrent.SettableFuture;
 import org.slf4j.Logger;
@@ -67,8 +71,14 @@ class SelectorThread extends Thread
     private final BlockingQueue<Runnable> _workQueue = new LinkedBlockingQueue<>();
     private final  AtomicInteger _nextSelectorTaskIndex = new AtomicInteger();
 
+    /** When connection affinity is enabled, each IO thread owns one selection task and a work queue of its own */
+    private final IoThread[] _ioThreads;
+    private final AtomicInteger _nextIoThreadIndex = new AtomicInteger();
+    private final int _stealThreshold;
+
     public final class SelectionTask implements Runnable
     {
+        private final int _index;
         private final Selector _selector;
         private final AtomicBoolean _selecting = new AtomicBoolean();
         private final AtomicBoolean _inSelect = new AtomicBoolean();
@@ -86,8 +96,9 @@ class SelectorThread extends Thread
 
 
 
-        private SelectionTask() throws IOException
+        private SelectionTask(final int index) throws IOException
         {
+            _index = index;
             _selector = Selector.open();
         }
 
@@ -193,7 +204,7 @@ class SelectorThread extends Thread
                                      localSocketAddress, e);
                     }
 
-                    _workQueue.add(new Runnable()
+                    addWork(this, new Runnable()
                     {
                         @Override
                         public void run()
@@ -290,54 +301,9 @@ class SelectorThread extends Thread
                         List<ConnectionProcessor> connections = new ArrayList<>();
                         try
                         {
-                            if (!_closed.get())
+                            if (!_closed.get() && !select(true, connections))
                             {
-                                Thread.currentThread().setName(_scheduler.getSelectorThreadName());
-                                _inSelect.set(true);
-                                try
-                                {
-                                    if (_wakeups.getAndSet(0) > 0)
-                                    {
-                                        _selector.selectNow();
-                                    }
-                                    else
-                                    {
-                                        _selector.select(_nextTimeout);
-                                    }
-                                }
-                                catch (IOException e)
-                                {
-                                    // TODO Inform the model object
-                                    LOGGER.error("Failed to trying to select()", e);
-                                    closeSelector();
-                                    return;
-                                }
-                                finally
-                                {
-                                    _inSelect.set(false);
-                                }
-                                for (NonBlockingConnection connection : processSelectionKeys())
-                                {
-                                    if (connection.setScheduled())
-                                    {
-                                        connections.add(new ConnectionProcessor(_scheduler, connection));
-                                    }
-                                }
-                                for (NonBlockingConnection connection : reregisterUnregisteredConnections())
-                                {
-                                    if (connection.setScheduled())
-                                    {
-                                        connections.add(new ConnectionProcessor(_scheduler, connection));
-                                    }
-                                }
-                                for (NonBlockingConnection connection : processUnscheduledConnections())
-                                {
-                                    if (connection.setScheduled())
-                                    {
-                                        connections.add(new ConnectionProcessor(_scheduler, connection));
-                                    }
-                                }
-                                runTasks();
+                                return;
                             }
                         }
                         finally
@@ -372,6 +338,63 @@ class SelectorThread extends Thread
             }
         }
 
+        /**
+         * Selects once and adds a processor for each connection which is ready to the given list.
+         *
+         * @param block whether to wait until a connection is ready, is woken up, or is due a tick
+         * @return false if the selector failed and has been closed
+         */
+        private boolean select(final boolean block, final List<ConnectionProcessor> connections)
+        {
+            Thread.currentThread().setName(_scheduler.getSelectorThreadName());
+            _inSelect.set(true);
+            try
+            {
+                if (_wakeups.getAndSet(0) > 0 || !block)
+                {
+                    _selector.selectNow();
+                }
+                else
+                {
+                    _selector.select(_nextTimeout);
+                }
+            }
+            catch (IOException e)
+            {
+                // TODO Inform the model object
+                LOGGER.error("Failed to trying to select()", e);
+                closeSelector();
+                return false;
+            }
+            finally
+            {
+                _inSelect.set(false);
+            }
+            for (NonBlockingConnection connection : processSelectionKeys())
+            {
+                if (connection.setScheduled())
+                {
+                    connections.add(new ConnectionProcessor(_scheduler, connection));
+                }
+            }
+            for (NonBlockingConnection connection : reregisterUnregisteredConnections())
+            {
+                if (connection.setScheduled())
+                {
+                    connections.add(new ConnectionProcessor(_scheduler, connection));
+                }
+            }
+            for (NonBlockingConnection connection : processUnscheduledConnections())
+            {
+                if (connection.setScheduled())
+                {
+                    connections.add(new ConnectionProcessor(_scheduler, connection));
+                }
+            }
+            runTasks();
+            return true;
+        }
+
         private void closeSelector()
         {
             try
@@ -401,16 +424,43 @@ class SelectorThread extends Thread
     private SelectionTask[] _selectionTasks;
 
     SelectorThread(final NetworkConnectionScheduler scheduler, final int numberOfSelectors) throws IOException
+    {
+        this(scheduler, numberOfSelectors, false, 0);
+    }
+
+    /**
+     * @param connectionAffinity if true, there must be one selector per IO thread.  Each thread then selects on
+     *                           its own connections and performs their work itself, taking work from another
+     *                           thread only while it is idle and the other thread has more than
+     *                           <code>stealThreshold</code> tasks queued.
+     */
+    SelectorThread(final NetworkConnectionScheduler scheduler,
+                   final int numberOfSelectors,
+                   final boolean connectionAffinity,
+                   final int stealThreshold) throws IOException
     {
         _scheduler = scheduler;
+        _stealThreshold = stealThreshold;
         _selectionTasks = new SelectionTask[numberOfSelectors];
         for(int i = 0; i < numberOfSelectors; i++)
         {
-            _selectionTasks[i] = new SelectionTask();
+            _selectionTasks[i] = new SelectionTask(i);
         }
-        for(SelectionTask task : _selectionTasks)
+        if (connectionAffinity)
+        {
+            _ioThreads = new IoThread[numberOfSelectors];
+            for (int i = 0; i < numberOfSelectors; i++)
+            {
+                _ioThreads[i] = new IoThread(_selectionTasks[i]);
+            }
+        }
+        else
         {
-            _workQueue.add(task);
+            _ioThreads = null;
+            for (SelectionTask task : _selectionTasks)
+            {
+                _workQueue.add(task);
+            }
         }
     }
 
@@ -512,6 +562,12 @@ class SelectorThread extends Thread
     {
 
         final String name = Thread.currentThread().getName();
+        if (_ioThreads != null)
+        {
+            _ioThreads[_nextIoThreadIndex.getAndIncrement() % _ioThreads.length].run(name);
+            return;
+        }
+
         try
         {
             do
@@ -529,6 +585,200 @@ class SelectorThread extends Thread
 
     }
 
+    private void addWork(final SelectionTask selectionTask, final Runnable work)
+    {
+        if (_ioThreads == null)
+        {
+            _workQueue.add(work);
+        }
+        else
+        {
+            _ioThreads[selectionTask._index].add(work);
+        }
+    }
+
+    private void requestSteal(final IoThread victim)
+    {
+        if (victim._stealRequested.compareAndSet(false, true))
+        {
+            for (int i = 1; i < _ioThreads.length; i++)
+            {
+                final IoThread thief = _ioThreads[(victim._selectionTask._index + i) % _ioThreads.length];
+                if (thief._idle.compareAndSet(true, false))
+                {
+                    thief._workQueue.add(new StealTask(thief, victim));
+                    thief._selectionTask.wakeup();
+                    return;
+                }
+            }
+            victim._stealRequested.set(false);
+        }
+    }
+
+    /**
+     * @return a snapshot of the statistics of each IO thread, empty unless connection affinity is enabled
+     */
+    List<Map<String, Object>> getIoThreadStatistics()
+    {
+        if (_ioThreads == null)
+        {
+            return Collections.emptyList();
+        }
+        List<Map<String, Object>> statistics = new ArrayList<>(_ioThreads.length);
+        for (IoThread ioThread : _ioThreads)
+        {
+            statistics.add(ioThread.getStatistics());
+        }
+        return statistics;
+    }
+
+    /**
+     * An IO thread with connection affinity: it alternates between selecting on its own selector and performing
+     * the work queued for its connections.  The thread only blocks in select when its queue is empty, and is
+     * then considered idle.
+     */
+    private final class IoThread
+    {
+        private final SelectionTask _selectionTask;
+        private final LinkedBlockingDeque<Runnable> _workQueue = new LinkedBlockingDeque<>();
+        private final AtomicBoolean _idle = new AtomicBoolean();
+        private final AtomicBoolean _stealRequested = new AtomicBoolean();
+        private final AtomicInteger _maximumQueueLength = new AtomicInteger();
+        private final AtomicLong _tasksStolen = new AtomicLong();
+
+        private volatile Thread _owner;
+        private volatile long _tasksProcessed;
+        private volatile long _processingTime;
+
+        private IoThread(final SelectionTask selectionTask)
+        {
+            _selectionTask = selectionTask;
+        }
+
+        void add(final Runnable work)
+        {
+            _workQueue.add(work);
+            if (Thread.currentThread() != _owner)
+            {
+                _selectionTask.wakeup();
+            }
+
+            final int queueLength = _workQueue.size();
+            int maximum;
+            while (queueLength > (maximum = _maximumQueueLength.get())
+                   && !_maximumQueueLength.compareAndSet(maximum, queueLength))
+            {
+                // retry
+            }
+            if (queueLength > _stealThreshold)
+            {
+                requestSteal(this);
+            }
+        }
+
+        void run(final String name)
+        {
+            _owner = Thread.currentThread();
+            while (!_closed.get())
+            {
+                if (_selectionTask.acquireSelecting())
+                {
+                    final List<ConnectionProcessor> connections = new ArrayList<>();
+                    final boolean block = _workQueue.isEmpty();
+                    final boolean selected;
+                    _idle.set(block);
+                    try
+                    {
+                        selected = !_closed.get() && _selectionTask.select(block, connections);
+                    }
+                    finally
+                    {
+                        _idle.set(false);
+                        _selectionTask.clearSelecting();
+                    }
+                    if (!selected)
+                    {
+                        break;
+                    }
+                    for (ConnectionProcessor connectionProcessor : connections)
+                    {
+                        add(connectionProcessor);
+                    }
+                }
+
+                Thread.currentThread().setName(name);
+                int pending = _workQueue.size();
+                Runnable task;
+                while (pending-- > 0 && (task = _workQueue.pollFirst()) != null)
+                {
+                    final long start = System.nanoTime();
+                    try
+                    {
+                        task.run();
+                    }
+                    finally
+                    {
+                        _processingTime += System.nanoTime() - start;
+                        _tasksProcessed++;
+                    }
+                }
+            }
+
+            if (_closed.get() && _selectionTask.acquireSelecting())
+            {
+                _selectionTask.closeSelector();
+            }
+        }
+
+        Map<String, Object> getStatistics()
+        {
+            Map<String, Object> statistics = new LinkedHashMap<>();
+            statistics.put("index", _selectionTask._index);
+            statistics.put("queueLength", _workQueue.size());
+            statistics.put("maximumQueueLength", _maximumQueueLength.get());
+            statistics.put("tasksProcessed", _tasksProcessed);
+            statistics.put("tasksStolen", _tasksStolen.get());
+            statistics.put("processingTime", _processingTime);
+            return statistics;
+        }
+    }
+
+    /**
+     * Queued to an idle IO thread to take work from the tail of an overloaded thread's queue until that queue is
+     * back within the threshold.
+     */
+    private final class StealTask implements Runnable
+    {
+        private final IoThread _thief;
+        private final IoThread _victim;
+
+        private StealTask(final IoThread thief, final IoThread victim)
+        {
+            _thief = thief;
+            _victim = victim;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                Runnable task;
+                while (!_closed.get()
+                       && _victim._workQueue.size() > _stealThreshold
+                       && (task = _victim._workQueue.pollLast()) != null)
+                {
+                    task.run();
+                    _thief._tasksStolen.incrementAndGet();
+                }
+            }
+            finally
+            {
+                _victim._stealRequested.set(false);
+            }
+        }
+    }
+
     private static final class ConnectionProcessor implements Runnable
     {
 
@@ -678,10 +928,13 @@ class SelectorThread extends Thread
         };
         _closed.set(true);
 
-        int count = _scheduler.getPoolSize();
-        while(count-- > 0)
+        if (_ioThreads == null)
         {
-            _workQueue.offer(goodNight);
+            int count = _scheduler.getPoolSize();
+            while(count-- > 0)
+            {
+                _workQueue.offer(goodNight);
+            }
         }
 
         for(SelectionTask task : _selectionTasks)
@@ -699,7 +952,14 @@ class SelectorThread extends Thread
          }
          if(connection.setScheduled())
          {
-             _workQueue.add(new ConnectionProcessor(_scheduler, connection));
+             SelectionTask selectionTask = connection.getSelectionTask();
+             if (selectionTask == null
+                 || selectionTask._index >= _selectionTasks.length
+                 || _selectionTasks[selectionTask._index] != selectionTask)
+             {
+                 selectionTask = getNextSelectionTask();
+             }
+             addWork(selectionTask, new ConnectionProcessor(_scheduler, connection));
          }
      }
 }
@@ -20,7 +20,10 @@
  */
 package org.apache.qpid.server.transport;
 
+import java.util.Collections;
 import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.qpid.server.model.Broker;
@@ -72,8 +75,11 @@ class TCPandSSLTransport implements AcceptingTransport
 
         long threadPoolKeepAliveTimeout = _port.getContextValue(Long.class, AmqpPort.PORT_AMQP_THREAD_POOL_KEEP_ALIVE_TIMEOUT);
 
+        int stealThreshold = _port.getContextValue(Integer.class, AmqpPort.PORT_AMQP_THREAD_POOL_STEAL_THRESHOLD);
+
         _scheduler = new NetworkConnectionScheduler("Port-"+_port.getName(), _port.getNumberOfSelectors(),
-                                                    _port.getThreadPoolSize(), threadPoolKeepAliveTimeout);
+                                                    _port.getThreadPoolSize(), threadPoolKeepAliveTimeout,
+                                                    _port.isConnectionAffinity(), stealThreshold);
         _scheduler.start();
         _networkTransport = new NonBlockingNetworkTransport(protocolEngineFactory,
                                                             encryptionSet, _scheduler, _port);
@@ -86,6 +92,12 @@ class TCPandSSLTransport implements AcceptingTransport
         return _networkTransport.getAcceptingPort();
     }
 
+    @Override
+    public List<Map<String, Object>> getIoThreadStatistics()
+    {
+        return _scheduler == null ? Collections.<Map<String, Object>>emptyList() : _scheduler.getIoThreadStatistics();
+    }
+
     @Override
     public void close()
     {
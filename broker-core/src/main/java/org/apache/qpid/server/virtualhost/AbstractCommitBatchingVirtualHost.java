@@ -0,0 +1,78 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.virtualhost;
+
+import java.util.Map;
+
+import org.apache.qpid.server.model.VirtualHostNode;
+import org.apache.qpid.server.store.AbstractJDBCMessageStore;
+import org.apache.qpid.server.store.MessageStore;
+
+public abstract class AbstractCommitBatchingVirtualHost<X extends AbstractCommitBatchingVirtualHost<X>>
+        extends AbstractVirtualHost<X> implements CommitBatchingVirtualHost<X>
+{
+    protected AbstractCommitBatchingVirtualHost(final Map<String, Object> attributes,
+                                                final VirtualHostNode<?> virtualHostNode)
+    {
+        super(attributes, virtualHostNode);
+    }
+
+    @Override
+    public long getCommitBatchCount()
+    {
+        final AbstractJDBCMessageStore store = getJDBCMessageStore();
+        return store == null ? 0L : store.getCommitBatchCount();
+    }
+
+    @Override
+    public long getCommitBatchTransactionCount()
+    {
+        final AbstractJDBCMessageStore store = getJDBCMessageStore();
+        return store == null ? 0L : store.getCommitBatchTransactionCount();
+    }
+
+    @Override
+    public int getMaximumCommitBatchSize()
+    {
+        final AbstractJDBCMessageStore store = getJDBCMessageStore();
+        return store == null ? 0 : store.getMaximumCommitBatchSize();
+    }
+
+    @Override
+    public long getTotalCommitBatchDuration()
+    {
+        final AbstractJDBCMessageStore store = getJDBCMessageStore();
+        return store == null ? 0L : store.getTotalCommitBatchDuration();
+    }
+
+    @Override
+    public long getMaximumCommitBatchDuration()
+    {
+        final AbstractJDBCMessageStore store = getJDBCMessageStore();
+        return store == null ? 0L : store.getMaximumCommitBatchDuration();
+    }
+
+    private AbstractJDBCMessageStore getJDBCMessageStore()
+    {
+        final MessageStore messageStore = getMessageStore();
+        return messageStore instanceof AbstractJDBCMessageStore ? (AbstractJDBCMessageStore) messageStore : null;
+    }
+}
@@ -28,6 +28,7 @@ import java.util.Map;
 
 import com.google.common.util.concurrent.ListenableFuture;
 
+import org.apache.qpid.server.message.MessageConversionCache;
 import org.apache.qpid.server.message.MessageDestination;
 import org.apache.qpid.server.message.MessageSource;
 import org.apache.qpid.server.model.AbstractConfiguredObject;
@@ -109,6 +110,12 @@ public abstract class AbstractNonConnectionAcceptingVirtualHost<X extends Abstra
         return null;
     }
 
+    @Override
+    public MessageConversionCache getMessageConversionCache()
+    {
+        return null;
+    }
+
     @Override
     public <T extends MessageSource> T createMessageSource(final Class<T> clazz, final Map<String, Object> attributes)
     {
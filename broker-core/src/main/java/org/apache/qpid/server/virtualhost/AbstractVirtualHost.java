@@ -86,6 +86,7 @@ import org.apache.qpid.server.logging.messages.VirtualHostMessages;
 import org.apache.qpid.server.logging.subjects.MessageStoreLogSubject;
 import org.apache.qpid.server.message.AMQMessageHeader;
 import org.apache.qpid.server.message.InstanceProperties;
+import org.apache.qpid.server.message.MessageConversionCache;
 import org.apache.qpid.server.message.MessageDestination;
 import org.apache.qpid.server.message.MessageNode;
 import org.apache.qpid.server.message.MessageSource;
@@ -114,9 +115,12 @@ import org.apache.qpid.server.store.ConfiguredObjectRecord;
 import org.apache.qpid.server.store.DurableConfigurationStore;
 import org.apache.qpid.server.store.Event;
 import org.apache.qpid.server.store.GenericRecoverer;
+import org.apache.qpid.server.store.MemoryMessageStore;
+import org.apache.qpid.server.store.MessageContentCompressor;
 import org.apache.qpid.server.store.MessageEnqueueRecord;
 import org.apache.qpid.server.store.MessageStore;
 import org.apache.qpid.server.store.MessageStoreProvider;
+import org.apache.qpid.server.store.SlabAllocator;
 import org.apache.qpid.server.store.StoreException;
 import org.apache.qpid.server.store.StoredMessage;
 import org.apache.qpid.server.store.handler.ConfiguredObjectRecordHandler;
@@ -260,9 +264,10 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
     private MessageDestination _defaultDestination;
 
     private MessageStore _messageStore;
-    private MessageStoreRecoverer _messageStoreRecoverer;
+    private volatile MessageStoreRecoverer _messageStoreRecoverer;
     private final FileSystemSpaceChecker _fileSystemSpaceChecker;
     private int _fileSystemMaxUsagePercent;
+    private volatile MessageConversionCache _messageConversionCache;
     private Collection<VirtualHostLogger> _virtualHostLoggersToClose;
     private PreferenceStore _preferenceStore;
 
@@ -506,6 +511,12 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         return _messageStore;
     }
 
+    @Override
+    public MessageConversionCache getMessageConversionCache()
+    {
+        return _messageConversionCache;
+    }
+
     private void validateConnectionThreadPoolSettings(QueueManagingVirtualHost<?> virtualHost)
     {
         if (virtualHost.getConnectionThreadPoolSize() < 1)
@@ -576,6 +587,8 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         _messageStore.addEventListener(this, Event.PERSISTENT_MESSAGE_SIZE_UNDERFULL);
 
         _fileSystemMaxUsagePercent = getContextValue(Integer.class, Broker.STORE_FILESYSTEM_MAX_USAGE_PERCENT);
+        _messageConversionCache =
+                new MessageConversionCache(getContextValue(Long.class, VIRTUALHOST_MESSAGE_CONVERSION_CACHE_SIZE));
 
 
         QpidServiceLoader serviceLoader = new QpidServiceLoader();
@@ -1580,6 +1593,19 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         {
             queue.resetStatistics();
         }
+
+        final MessageStore messageStore = getMessageStore();
+        if (messageStore != null)
+        {
+            messageStore.getCommitLatencyHistogram().reset();
+            messageStore.getContentCompressor().resetStatistics();
+        }
+
+        final MessageConversionCache messageConversionCache = _messageConversionCache;
+        if (messageConversionCache != null)
+        {
+            messageConversionCache.resetStatistics();
+        }
     }
 
     public synchronized LinkRegistry getLinkRegistry(String remoteContainerId)
@@ -2051,6 +2077,175 @@ public abstract class AbstractVirtualHost<X extends AbstractVirtualHost<X>> exte
         return getMessageDeliveryStatistics().getTotal();
     }
 
+    @Override
+    public long getRecoveringQueueCount()
+    {
+        final MessageStoreRecoverer recoverer = _messageStoreRecoverer;
+        return recoverer == null ? 0L : recoverer.getRecoveringQueueCount();
+    }
+
+    @Override
+    public long getRecoveredMessageInstanceCount()
+    {
+        final MessageStoreRecoverer recoverer = _messageStoreRecoverer;
+        return recoverer == null ? 0L : recoverer.getRecoveredMessageInstanceCount();
+    }
+
+    @Override
+    public long getRecoveryDuration()
+    {
+        final MessageStoreRecoverer recoverer = _messageStoreRecoverer;
+        return recoverer == null ? 0L : TimeUnit.MILLISECONDS.toNanos(recoverer.getRecoveryDuration());
+    }
+
+    @Override
+    public long getRecoveryRate()
+    {
+        final MessageStoreRecoverer recoverer = _messageStoreRecoverer;
+        if (recoverer == null)
+        {
+            return 0L;
+        }
+        final long duration = recoverer.getRecoveryDuration();
+        return duration == 0L ? 0L : recoverer.getRecoveredMessageInstanceCount() * 1000L / duration;
+    }
+
+    @Override
+    public long getStoreCommitLatencyP50()
+    {
+        return getStoreCommitLatency(50.0);
+    }
+
+    @Override
+    public long getStoreCommitLatencyP99()
+    {
+        return getStoreCommitLatency(99.0);
+    }
+
+    @Override
+    public long getStoreCommitLatencyP999()
+    {
+        return getStoreCommitLatency(99.9);
+    }
+
+    private long getStoreCommitLatency(final double percentile)
+    {
+        final MessageStore messageStore = getMessageStore();
+        return messageStore == null ? 0L : messageStore.getCommitLatencyHistogram().getValueAtPercentile(percentile);
+    }
+
+    @Override
+    public long getStoreContentBytesBeforeCompression()
+    {
+        final MessageContentCompressor compressor = getContentCompressor();
+        return compressor == null ? 0L : compressor.getBytesBeforeCompression();
+    }
+
+    @Override
+    public long getStoreContentBytesAfterCompression()
+    {
+        final MessageContentCompressor compressor = getContentCompressor();
+        return compressor == null ? 0L : compressor.getBytesAfterCompression();
+    }
+
+    @Override
+    public long getStoreContentCompressionSaving()
+    {
+        final MessageContentCompressor compressor = getContentCompressor();
+        return compressor == null ? 0L : compressor.getCompressionSavingPercentage();
+    }
+
+    @Override
+    public long getStoreContentCompressionTime()
+    {
+        final MessageContentCompressor compressor = getContentCompressor();
+        return compressor == null ? 0L : compressor.getCompressionTime();
+    }
+
+    @Override
+    public long getStoreContentDecompressionTime()
+    {
+        final MessageContentCompressor compressor = getContentCompressor();
+        return compressor == null ? 0L : compressor.getDecompressionTime();
+    }
+
+    private MessageContentCompressor getContentCompressor()
+    {
+        final MessageStore messageStore = getMessageStore();
+        return messageStore == null ? null : messageStore.getContentCompressor();
+    }
+
+    @Override
+    public long getMessageConversionCacheHits()
+    {
+        final MessageConversionCache messageConversionCache = _messageConversionCache;
+        return messageConversionCache == null ? 0L : messageConversionCache.getHitCount();
+    }
+
+    @Override
+    public long getMessageConversionCacheMisses()
+    {
+        final MessageConversionCache messageConversionCache = _messageConversionCache;
+        return messageConversionCache == null ? 0L : messageConversionCache.getMissCount();
+    }
+
+    @Override
+    public long getMessageConversionCacheHitRate()
+    {
+        final MessageConversionCache messageConversionCache = _messageConversionCache;
+        return messageConversionCache == null ? 0L : messageConversionCache.getHitRate();
+    }
+
+    @Override
+    public long getMessageConversionCacheEntries()
+    {
+        final MessageConversionCache messageConversionCache = _messageConversionCache;
+        return messageConversionCache == null ? 0L : messageConversionCache.getEntryCount();
+    }
+
+    @Override
+    public long getMessageConversionCacheSize()
+    {
+        final MessageConversionCache messageConversionCache = _messageConversionCache;
+        return messageConversionCache == null ? 0L : messageConversionCache.getSize();
+    }
+
+    @Override
+    public int getMemoryStoreSlabArenaCount()
+    {
+        final SlabAllocator slabAllocator = getSlabAllocator();
+        return slabAllocator == null ? 0 : slabAllocator.getArenaCount();
+    }
+
+    @Override
+    public long getMemoryStoreSlabArenaMemory()
+    {
+        final SlabAllocator slabAllocator = getSlabAllocator();
+        return slabAllocator == null ? 0L : slabAllocator.getArenaMemory();
+    }
+
+    @Override
+    public long getMemoryStoreSlabUtilisation()
+    {
+        final SlabAllocator slabAllocator = getSlabAllocator();
+        return slabAllocator == null ? 0L : slabAllocator.getUtilisation();
+    }
+
+    @Override
+    public long getMemoryStoreSlabReclaimedArenaCount()
+    {
+        final SlabAllocator slabAllocator = getSlabAllocator();
+        return slabAllocator == null ? 0L : slabAllocator.getReclaimedArenaCount();
+    }
+
+    private SlabAllocator getSlabAllocator()
+    {
+        final MessageStore messageStore = getMessageStore();
+        return messageStore instanceof MemoryMessageStore
+                ? ((MemoryMessageStore) messageStore).getSlabAllocator()
+                : null;
+    }
+
     @Override
     public int getHousekeepingThreadCount()
     {
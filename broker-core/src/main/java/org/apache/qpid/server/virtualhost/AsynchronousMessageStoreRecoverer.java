@@ -22,16 +22,21 @@ package org.apache.qpid.server.virtualhost;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-import com.google.common.base.Function;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
@@ -85,6 +90,37 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         }
     }
 
+    @Override
+    public int getRecoveringQueueCount()
+    {
+        return _asynchronousRecoverer == null ? 0 : _asynchronousRecoverer.getRecoveringQueueCount();
+    }
+
+    @Override
+    public long getRecoveredMessageInstanceCount()
+    {
+        return _asynchronousRecoverer == null ? 0L : _asynchronousRecoverer.getRecoveredMessageInstanceCount();
+    }
+
+    @Override
+    public long getRecoveryDuration()
+    {
+        return _asynchronousRecoverer == null ? 0L : _asynchronousRecoverer.getRecoveryDuration();
+    }
+
+    /**
+     * Recovers the queues of a virtual host in the background.
+     * <p>
+     * Distributed transactions are recovered first, synchronously, together with any queue they dequeue from.
+     * The metadata of the remaining messages is then read in a single sequential scan in ascending message id order.
+     * Each time {@link QueueManagingVirtualHost#VIRTUALHOST_RECOVERY_CHUNK_SIZE} messages have been read the scan
+     * pauses while every queue is handed its instances of those messages, so that at most one chunk of metadata is
+     * held by the recoverer at any time.  At most {@link QueueManagingVirtualHost#VIRTUALHOST_RECOVERY_THREAD_POOL_SIZE}
+     * queues are recovered at once.
+     * <p>
+     * In lazy mode the metadata and content of each message is released as soon as the message has been placed on
+     * its queues, leaving the queue entry with the message id and size; the store reloads the rest on first access.
+     */
     private static class AsynchronousRecoverer
     {
         private static final Logger LOGGER = LoggerFactory.getLogger(AsynchronousRecoverer.class);
@@ -97,9 +133,17 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         private final long _maxMessageId;
         private final Set<Queue<?>> _recoveringQueues = new CopyOnWriteArraySet<>();
         private final AtomicBoolean _recoveryComplete = new AtomicBoolean();
-        private final Map<Long, MessageReference<? extends ServerMessage<?>>> _recoveredMessages = new HashMap<>();
-        private final ListeningExecutorService _queueRecoveryExecutor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+        private final ConcurrentNavigableMap<Long, MessageReference<? extends ServerMessage<?>>> _recoveredMessages =
+                new ConcurrentSkipListMap<>();
+        private final Set<Long> _dtxMessageIds = new HashSet<>();
+        private final ListeningExecutorService _queueRecoveryExecutor;
         private final MessageStore.MessageStoreReader _storeReader;
+        private final boolean _lazy;
+        private final int _chunkSize;
+        private final AtomicLong _recoveredMessageInstances = new AtomicLong();
+        private volatile boolean _scanningMessages;
+        private volatile long _recoveryStartTime;
+        private volatile long _recoveryEndTime;
         private AtomicBoolean _continueRecovery = new AtomicBoolean(true);
 
         private AsynchronousRecoverer(final QueueManagingVirtualHost<?> virtualHost)
@@ -114,34 +158,43 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
             Collection children = _virtualHost.getChildren(Queue.class);
             _recoveringQueues.addAll((Collection<? extends Queue<?>>) children);
 
+            _lazy = Boolean.TRUE.equals(virtualHost.getContextValue(Boolean.class,
+                                                                    QueueManagingVirtualHost.VIRTUALHOST_RECOVERY_LAZY));
+            _chunkSize = getPositiveContextValue(QueueManagingVirtualHost.VIRTUALHOST_RECOVERY_CHUNK_SIZE,
+                                                 QueueManagingVirtualHost.DEFAULT_VIRTUALHOST_RECOVERY_CHUNK_SIZE);
+            final int threadPoolSize =
+                    getPositiveContextValue(QueueManagingVirtualHost.VIRTUALHOST_RECOVERY_THREAD_POOL_SIZE,
+                                            QueueManagingVirtualHost.DEFAULT_VIRTUALHOST_RECOVERY_THREAD_POOL_SIZE);
+            // one extra thread runs the message scan, which waits while the queues recover each chunk
+            _queueRecoveryExecutor = MoreExecutors.listeningDecorator(
+                    Executors.newFixedThreadPool(threadPoolSize + 1, new RecoveryThreadFactory(virtualHost.getName())));
+        }
+
+        private int getPositiveContextValue(final String name, final int defaultValue)
+        {
+            final Integer value = _virtualHost.getContextValue(Integer.class, name);
+            return value == null || value <= 0 ? defaultValue : value;
         }
 
         public ListenableFuture<Void> recover()
         {
+            _recoveryStartTime = System.currentTimeMillis();
             getStoreReader().visitDistributedTransactions(new DistributedTransactionVisitor());
 
-            List<ListenableFuture<Void>> queueRecoveryFutures = new ArrayList<>();
-            if(_recoveringQueues.isEmpty())
-            {
-                return _queueRecoveryExecutor.submit(new RemoveOrphanedMessagesTask(), null);
-            }
-            else
+            // queues recovered synchronously for distributed transactions have already been removed
+            final List<Queue<?>> queues = new ArrayList<>(_recoveringQueues);
+
+            final ListenableFuture<Void> result =
+                    _queueRecoveryExecutor.submit(new MessageScanningTask(queues), null);
+            result.addListener(new Runnable()
             {
-                for (Queue<?> queue : _recoveringQueues)
+                @Override
+                public void run()
                 {
-                    ListenableFuture<Void> result = _queueRecoveryExecutor.submit(new QueueRecoveringTask(queue), null);
-                    queueRecoveryFutures.add(result);
+                    _queueRecoveryExecutor.shutdown();
                 }
-                ListenableFuture<List<Void>> combinedFuture = Futures.allAsList(queueRecoveryFutures);
-                return Futures.transform(combinedFuture, new Function<List<?>, Void>()
-                {
-                    @Override
-                    public Void apply(List<?> voids)
-                    {
-                        return null;
-                    }
-                });
-            }
+            }, MoreExecutors.directExecutor());
+            return result;
         }
 
         public QueueManagingVirtualHost<?> getVirtualHost()
@@ -164,6 +217,23 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
             return _logSubject;
         }
 
+        public int getRecoveringQueueCount()
+        {
+            return _recoveringQueues.size();
+        }
+
+        public long getRecoveredMessageInstanceCount()
+        {
+            return _recoveredMessageInstances.get();
+        }
+
+        public long getRecoveryDuration()
+        {
+            final long start = _recoveryStartTime;
+            final long end = _recoveryEndTime;
+            return start == 0L ? 0L : (end == 0L ? System.currentTimeMillis() : end) - start;
+        }
+
         private boolean isRecovering(Queue<?> queue)
         {
             return _recoveringQueues.contains(queue);
@@ -173,80 +243,84 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         {
             MessageInstanceVisitor handler = new MessageInstanceVisitor(queue);
             _storeReader.visitMessageInstances(queue, handler);
+            completeQueueRecovery(handler);
+        }
 
+        private void completeQueueRecovery(final MessageInstanceVisitor handler)
+        {
+            final Queue<?> queue = handler.getQueue();
             getEventLogger().message(getLogSubject(), TransactionLogMessages.RECOVERED(handler.getRecoveredCount(), queue.getName()));
             getEventLogger().message(getLogSubject(), TransactionLogMessages.RECOVERY_COMPLETE(queue.getName(), true));
             queue.completeRecovery();
 
             _recoveringQueues.remove(queue);
-            if (_recoveringQueues.isEmpty() && _recoveryComplete.compareAndSet(false, true))
-            {
-                completeRecovery();
-            }
         }
 
-        private synchronized void completeRecovery()
+        private void releaseRecoveredMessages(final long toMessageId)
         {
-            // at this point nothing should be writing to the map of recovered messages
-            for (Map.Entry<Long,MessageReference<? extends ServerMessage<?>>> entry : _recoveredMessages.entrySet())
-            {
-                entry.getValue().release();
-                entry.setValue(null); // free up any memory associated with the reference object
-            }
-            final List<StoredMessage<?>> messagesToDelete = new ArrayList<>();
-            getStoreReader().visitMessages(new MessageHandler()
-            {
-                @Override
-                public boolean handle(final StoredMessage<?> storedMessage)
-                {
-
-                    long messageNumber = storedMessage.getMessageNumber();
-                    if (!_recoveredMessages.containsKey(messageNumber))
-                    {
-                        messagesToDelete.add(storedMessage);
-                    }
-                    return _continueRecovery.get() && messageNumber < _maxMessageId - 1;
-                }
-            });
-            for(StoredMessage<?> storedMessage : messagesToDelete)
+            // every queue has now been given its instances of these messages.  Releasing the reference held by the
+            // recoverer removes any message which was not placed on a queue.
+            final Map<Long, MessageReference<? extends ServerMessage<?>>> recovered =
+                    _recoveredMessages.headMap(toMessageId);
+            for (Map.Entry<Long, MessageReference<? extends ServerMessage<?>>> entry : recovered.entrySet())
             {
-                if (_continueRecovery.get())
+                final ServerMessage<?> message = entry.getValue().getMessage();
+                if (!message.isReferenced() && !_dtxMessageIds.contains(entry.getKey()))
                 {
                     _logger.info("Message id "
-                                 + storedMessage.getMessageNumber()
+                                 + entry.getKey()
                                  + " in store, but not in any queue - removing....");
-                    storedMessage.remove();
                 }
+                entry.getValue().release();
             }
+            recovered.clear();
+        }
 
-            messagesToDelete.clear();
-            _recoveredMessages.clear();
-            _storeReader.close();
+        private void completeRecovery()
+        {
+            if (_recoveryComplete.compareAndSet(false, true))
+            {
+                _recoveredMessages.clear();
+                _dtxMessageIds.clear();
+                _storeReader.close();
+                _recoveryEndTime = System.currentTimeMillis();
+
+                LOGGER.debug("Recovered {} message instances in {}ms",
+                             _recoveredMessageInstances.get(), getRecoveryDuration());
+            }
         }
 
-        private synchronized ServerMessage<?> getRecoveredMessage(final long messageId)
+        private ServerMessage<?> getRecoveredMessage(final long messageId)
         {
             MessageReference<? extends ServerMessage<?>> ref = _recoveredMessages.get(messageId);
-            if (ref == null)
+            if (ref == null && !_scanningMessages)
             {
-                StoredMessage<?> message = _storeReader.getMessage(messageId);
-                if(message != null)
+                // distributed transactions are recovered before the message scan starts
+                synchronized (this)
                 {
-                    StorableMessageMetaData metaData = message.getMetaData();
-
-                    @SuppressWarnings("rawtypes")
-                    MessageMetaDataType type = metaData.getType();
-
-                    @SuppressWarnings("unchecked")
-                    ServerMessage<?> serverMessage = type.createMessage(message);
-
-                    ref = serverMessage.newReference();
-                    _recoveredMessages.put(messageId, ref);
+                    StoredMessage<?> message = _storeReader.getMessage(messageId);
+                    if (message != null)
+                    {
+                        ref = createMessage(message).newReference();
+                        _recoveredMessages.put(messageId, ref);
+                    }
                 }
             }
             return ref == null ? null : ref.getMessage();
         }
 
+        private ServerMessage<?> createMessage(final StoredMessage<?> message)
+        {
+            StorableMessageMetaData metaData = message.getMetaData();
+
+            @SuppressWarnings("rawtypes")
+            MessageMetaDataType type = metaData.getType();
+
+            @SuppressWarnings("unchecked")
+            ServerMessage<?> serverMessage = type.createMessage(message);
+            return serverMessage;
+        }
+
         public void cancel()
         {
             _continueRecovery.set(false);
@@ -292,6 +366,7 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
                     {
                         final long messageId = record.getMessage().getMessageNumber();
                         final ServerMessage<?> message = getRecoveredMessage(messageId);
+                        _dtxMessageIds.add(messageId);
 
                         if (message != null)
                         {
@@ -440,22 +515,29 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
 
         private class QueueRecoveringTask implements Runnable
         {
-            private final Queue<?> _queue;
+            private final MessageInstanceVisitor _visitor;
+            private final long _fromMessageId;
+            private final long _toMessageId;
 
-            public QueueRecoveringTask(final Queue<?> queue)
+            public QueueRecoveringTask(final MessageInstanceVisitor visitor,
+                                       final long fromMessageId,
+                                       final long toMessageId)
             {
-                _queue = queue;
+                _visitor = visitor;
+                _fromMessageId = fromMessageId;
+                _toMessageId = toMessageId;
             }
 
             @Override
             public void run()
             {
+                final Queue<?> queue = _visitor.getQueue();
                 String originalThreadName = Thread.currentThread().getName();
-                Thread.currentThread().setName("Queue Recoverer : " + _queue.getName() + " (vh: " + getVirtualHost().getName() + ")");
+                Thread.currentThread().setName("Queue Recoverer : " + queue.getName() + " (vh: " + getVirtualHost().getName() + ")");
 
                 try
                 {
-                    recoverQueue(_queue);
+                    _storeReader.visitMessageInstances(queue, _fromMessageId, _toMessageId, _visitor);
                 }
                 finally
                 {
@@ -466,21 +548,40 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         }
 
 
-        private class RemoveOrphanedMessagesTask implements Runnable
+        private class MessageScanningTask implements Runnable, MessageHandler
         {
-            public RemoveOrphanedMessagesTask()
+            private final List<MessageInstanceVisitor> _visitors = new ArrayList<>();
+            private long _chunkStart;
+            private int _chunkCount;
+
+            private MessageScanningTask(final List<Queue<?>> queues)
             {
+                for (Queue<?> queue : queues)
+                {
+                    _visitors.add(new MessageInstanceVisitor(queue));
+                }
             }
 
             @Override
             public void run()
             {
                 String originalThreadName = Thread.currentThread().getName();
-                Thread.currentThread().setName("Orphaned message removal");
+                Thread.currentThread().setName("Message Recoverer (vh: " + getVirtualHost().getName() + ")");
 
                 try
                 {
-                    completeRecovery();
+                    _scanningMessages = true;
+                    getStoreReader().visitMessages(this);
+                    if (_continueRecovery.get())
+                    {
+                        recoverChunk(_maxMessageId);
+                        releaseRecoveredMessages(_maxMessageId);
+                        for (MessageInstanceVisitor visitor : _visitors)
+                        {
+                            completeQueueRecovery(visitor);
+                        }
+                        completeRecovery();
+                    }
                 }
                 finally
                 {
@@ -488,6 +589,76 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
                 }
             }
 
+            @Override
+            public boolean handle(final StoredMessage<?> storedMessage)
+            {
+                final long messageId = storedMessage.getMessageNumber();
+                if (messageId < _chunkStart)
+                {
+                    // the instances of earlier chunks have already been recovered, so the message would be lost
+                    throw new ServerScopedRuntimeException("Message id " + messageId
+                                                           + " was visited out of order during recovery");
+                }
+                if (messageId < _maxMessageId)
+                {
+                    if (!_recoveredMessages.containsKey(messageId))
+                    {
+                        _recoveredMessages.put(messageId, createMessage(storedMessage).newReference());
+                    }
+                    if (++_chunkCount == _chunkSize)
+                    {
+                        recoverChunk(messageId + 1);
+                    }
+                }
+                return _continueRecovery.get();
+            }
+
+            private void recoverChunk(final long toMessageId)
+            {
+                if (!_continueRecovery.get())
+                {
+                    return;
+                }
+
+                final List<ListenableFuture<?>> futures = new ArrayList<>(_visitors.size());
+                for (MessageInstanceVisitor visitor : _visitors)
+                {
+                    futures.add(_queueRecoveryExecutor.submit(new QueueRecoveringTask(visitor, _chunkStart, toMessageId)));
+                }
+
+                try
+                {
+                    Futures.allAsList(futures).get();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new ServerScopedRuntimeException("Recovery interrupted", e);
+                }
+                catch (ExecutionException e)
+                {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException)
+                    {
+                        throw (RuntimeException) cause;
+                    }
+                    else if (cause instanceof Error)
+                    {
+                        throw (Error) cause;
+                    }
+                    throw new ServerScopedRuntimeException(cause);
+                }
+
+                if (_continueRecovery.get())
+                {
+                    // the store is still positioned on the last message of the chunk, so that message is released
+                    // with the next chunk rather than being removed from under the scan
+                    releaseRecoveredMessages(toMessageId - 1);
+                }
+                LOGGER.debug("Recovered instances of messages {} to {}", _chunkStart, toMessageId - 1);
+                _chunkStart = toMessageId;
+                _chunkCount = 0;
+            }
         }
 
 
@@ -519,7 +690,12 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
                         }
 
                         _queue.recover(message, record);
+                        if (_lazy)
+                        {
+                            message.getStoredMessage().flowToDisk();
+                        }
                         _recoveredCount++;
+                        _recoveredMessageInstances.incrementAndGet();
                     }
                     else
                     {
@@ -541,6 +717,11 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
 
             }
 
+            public Queue<?> getQueue()
+            {
+                return _queue;
+            }
+
             public long getRecoveredCount()
             {
                 return _recoveredCount;
@@ -548,5 +729,23 @@ public class AsynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         }
     }
 
+    private static class RecoveryThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger _threadCount = new AtomicInteger();
+        private final String _virtualHostName;
+
+        private RecoveryThreadFactory(final String virtualHostName)
+        {
+            _virtualHostName = virtualHostName;
+        }
 
+        @Override
+        public Thread newThread(final Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, "Queue Recoverer-" + _threadCount.incrementAndGet()
+                                                 + " (vh: " + _virtualHostName + ")");
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
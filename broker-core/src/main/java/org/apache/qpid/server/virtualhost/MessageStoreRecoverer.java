@@ -31,4 +31,19 @@ public interface MessageStoreRecoverer
      * completed, this method call has no effect.
      */
     void cancel();
+
+    /**
+     * @return the number of queues whose messages have not yet been recovered
+     */
+    int getRecoveringQueueCount();
+
+    /**
+     * @return the number of messages placed on queues so far
+     */
+    long getRecoveredMessageInstanceCount();
+
+    /**
+     * @return the time in milliseconds that recovery took, or has taken so far if it is still in progress
+     */
+    long getRecoveryDuration();
 }
@@ -46,8 +46,11 @@ import org.apache.qpid.server.model.StatisticUnit;
 import org.apache.qpid.server.model.VirtualHost;
 import org.apache.qpid.server.queue.QueueEntry;
 import org.apache.qpid.server.stats.StatisticsGatherer;
+import org.apache.qpid.server.store.AbstractJDBCMessageStore;
 import org.apache.qpid.server.store.DurableConfigurationStore;
 import org.apache.qpid.server.store.EventListener;
+import org.apache.qpid.server.store.MemoryMessageStore;
+import org.apache.qpid.server.store.MessageContentCompressor;
 import org.apache.qpid.server.store.preferences.UserPreferencesCreator;
 
 public interface QueueManagingVirtualHost<X extends QueueManagingVirtualHost<X>> extends VirtualHost<X>,
@@ -162,6 +165,71 @@ public interface QueueManagingVirtualHost<X extends QueueManagingVirtualHost<X>>
                           + "created, and the properties of the node.")
     List<NodeAutoCreationPolicy> getNodeAutoCreationPolicies();
 
+    String VIRTUALHOST_RECOVERY_THREAD_POOL_SIZE = "virtualhost.recovery.threadPoolSize";
+    @SuppressWarnings("unused")
+    @ManagedContextDefault( name = VIRTUALHOST_RECOVERY_THREAD_POOL_SIZE,
+            description = "The maximum number of queues whose messages are recovered concurrently")
+    int DEFAULT_VIRTUALHOST_RECOVERY_THREAD_POOL_SIZE = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+
+    String VIRTUALHOST_RECOVERY_CHUNK_SIZE = "virtualhost.recovery.chunkSize";
+    @SuppressWarnings("unused")
+    @ManagedContextDefault( name = VIRTUALHOST_RECOVERY_CHUNK_SIZE,
+            description = "The number of messages whose metadata is read from the store before the queues recover "
+                          + "their instances of those messages")
+    int DEFAULT_VIRTUALHOST_RECOVERY_CHUNK_SIZE = 65536;
+
+    String VIRTUALHOST_MESSAGE_CONVERSION_CACHE_SIZE = "virtualhost.messageConversionCacheSize";
+    @SuppressWarnings("unused")
+    @ManagedContextDefault( name = VIRTUALHOST_MESSAGE_CONVERSION_CACHE_SIZE,
+            description = "The maximum total size in bytes of the converted forms of messages kept for reuse by "
+                          + "further consumers using the same protocol, or 0 to keep none")
+    long DEFAULT_VIRTUALHOST_MESSAGE_CONVERSION_CACHE_SIZE = 32 * 1024 * 1024;
+
+    String VIRTUALHOST_RECOVERY_LAZY = "virtualhost.recovery.lazy";
+    @SuppressWarnings("unused")
+    @ManagedContextDefault( name = VIRTUALHOST_RECOVERY_LAZY,
+            description = "If true, the metadata and content of recovered messages is only loaded on first access")
+    boolean DEFAULT_VIRTUALHOST_RECOVERY_LAZY = false;
+
+    @SuppressWarnings("unused")
+    @ManagedContextDefault( name = MessageContentCompressor.CONTENT_COMPRESSION_THRESHOLD,
+            description = "Message content of at least this many bytes is compressed when written to a persistent "
+                          + "store.  A negative value disables compression")
+    int DEFAULT_STORE_CONTENT_COMPRESSION_THRESHOLD = MessageContentCompressor.DEFAULT_CONTENT_COMPRESSION_THRESHOLD;
+
+    @SuppressWarnings("unused")
+    @ManagedContextDefault( name = MessageContentCompressor.CONTENT_COMPRESSION_LEVEL,
+            description = "The level, from 1 (fastest) to 9 (smallest), at which message content is compressed")
+    int DEFAULT_STORE_CONTENT_COMPRESSION_LEVEL = MessageContentCompressor.DEFAULT_CONTENT_COMPRESSION_LEVEL;
+
+    @SuppressWarnings("unused")
+    @ManagedContextDefault( name = AbstractJDBCMessageStore.COMMIT_BATCH_SIZE,
+            description = "The maximum number of transactions a JDBC or Derby store merges into a single database "
+                          + "transaction")
+    int DEFAULT_JDBC_STORE_COMMIT_BATCH_SIZE = AbstractJDBCMessageStore.DEFAULT_COMMIT_BATCH_SIZE;
+
+    @SuppressWarnings("unused")
+    @ManagedContextDefault( name = AbstractJDBCMessageStore.COMMIT_MAX_WAIT,
+            description = "The time in milliseconds a JDBC or Derby store waits for further transactions before "
+                          + "committing a partially filled batch")
+    long DEFAULT_JDBC_STORE_COMMIT_MAX_WAIT = AbstractJDBCMessageStore.DEFAULT_COMMIT_MAX_WAIT;
+
+    @SuppressWarnings("unused")
+    @ManagedContextDefault( name = MemoryMessageStore.SLAB_ALLOCATION,
+            description = "If true, a memory message store holds message content and meta-data in off-heap arenas "
+                          + "rather than separately allocated buffers")
+    boolean DEFAULT_MEMORY_STORE_SLAB_ALLOCATION = MemoryMessageStore.DEFAULT_SLAB_ALLOCATION;
+
+    @SuppressWarnings("unused")
+    @ManagedContextDefault( name = MemoryMessageStore.SLAB_ARENA_SIZE,
+            description = "The size in bytes of each off-heap arena used by memory store slab allocation")
+    int DEFAULT_MEMORY_STORE_SLAB_ARENA_SIZE = MemoryMessageStore.DEFAULT_SLAB_ARENA_SIZE;
+
+    @SuppressWarnings("unused")
+    @ManagedContextDefault( name = MemoryMessageStore.SLAB_MAXIMUM_SPARE_ARENAS,
+            description = "The number of empty memory store arenas kept for reuse rather than released")
+    int DEFAULT_MEMORY_STORE_SLAB_MAXIMUM_SPARE_ARENAS = MemoryMessageStore.DEFAULT_SLAB_MAXIMUM_SPARE_ARENAS;
+
     @ManagedContextDefault( name = "virtualhost.enabledConnectionValidators")
     String DEFAULT_ENABLED_VALIDATORS = "[]";
 
@@ -199,6 +267,69 @@ public interface QueueManagingVirtualHost<X extends QueueManagingVirtualHost<X>>
     @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.MESSAGES, label = "Outbound")
     long getMessagesOut();
 
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.COUNT, label = "Recovering Queues")
+    long getRecoveringQueueCount();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.MESSAGES, label = "Recovered")
+    long getRecoveredMessageInstanceCount();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.TIME_DURATION, label = "Recovery Duration")
+    long getRecoveryDuration();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.MESSAGES, label = "Recovery Rate (per second)")
+    long getRecoveryRate();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.TIME_DURATION, label = "Store Commit Latency p50")
+    long getStoreCommitLatencyP50();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.TIME_DURATION, label = "Store Commit Latency p99")
+    long getStoreCommitLatencyP99();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.TIME_DURATION, label = "Store Commit Latency p99.9")
+    long getStoreCommitLatencyP999();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.BYTES, label = "Store Content Before Compression")
+    long getStoreContentBytesBeforeCompression();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.BYTES, label = "Store Content After Compression")
+    long getStoreContentBytesAfterCompression();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.COUNT, label = "Store Content Compression Saving (%)")
+    long getStoreContentCompressionSaving();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.TIME_DURATION, label = "Store Content Compression Time")
+    long getStoreContentCompressionTime();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.TIME_DURATION, label = "Store Content Decompression Time")
+    long getStoreContentDecompressionTime();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "Message Conversion Cache Hits")
+    long getMessageConversionCacheHits();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "Message Conversion Cache Misses")
+    long getMessageConversionCacheMisses();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.COUNT, label = "Message Conversion Cache Hit Rate (%)")
+    long getMessageConversionCacheHitRate();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.COUNT, label = "Message Conversion Cache Entries")
+    long getMessageConversionCacheEntries();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.BYTES, label = "Message Conversion Cache Size")
+    long getMessageConversionCacheSize();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.COUNT, label = "Memory Store Slab Arenas")
+    int getMemoryStoreSlabArenaCount();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.BYTES, label = "Memory Store Slab Arena Memory")
+    long getMemoryStoreSlabArenaMemory();
+
+    @ManagedStatistic(statisticType = StatisticType.POINT_IN_TIME, units = StatisticUnit.COUNT, label = "Memory Store Slab Utilisation (%)")
+    long getMemoryStoreSlabUtilisation();
+
+    @ManagedStatistic(statisticType = StatisticType.CUMULATIVE, units = StatisticUnit.COUNT, label = "Memory Store Slab Arenas Reclaimed")
+    long getMemoryStoreSlabReclaimedArenaCount();
+
 
     @Override
     @ManagedOperation(nonModifying = true, changesConfiguredObjectState = false)
@@ -60,9 +60,13 @@ public class SynchronousMessageStoreRecoverer implements MessageStoreRecoverer
 {
     private static final Logger _logger = LoggerFactory.getLogger(SynchronousMessageStoreRecoverer.class);
 
+    private volatile long _recoveredMessageInstanceCount;
+    private volatile long _recoveryDuration;
+
     @Override
     public ListenableFuture<Void> recover(QueueManagingVirtualHost<?> virtualHost)
     {
+        final long startTime = System.currentTimeMillis();
         EventLogger eventLogger = virtualHost.getEventLogger();
         MessageStore store = virtualHost.getMessageStore();
         MessageStore.MessageStoreReader storeReader = store.newMessageStoreReader();
@@ -82,6 +86,7 @@ public class SynchronousMessageStoreRecoverer implements MessageStoreRecoverer
                                                                recoveredMessages, unusedMessages));
         for(Map.Entry<String,Integer> entry : queueRecoveries.entrySet())
         {
+            _recoveredMessageInstanceCount += entry.getValue();
             eventLogger.message(logSubject, TransactionLogMessages.RECOVERED(entry.getValue(), entry.getKey()));
             eventLogger.message(logSubject, TransactionLogMessages.RECOVERY_COMPLETE(entry.getKey(), true));
             virtualHost.getAttainedChildFromAddress(Queue.class, entry.getKey()).completeRecovery();
@@ -111,6 +116,7 @@ public class SynchronousMessageStoreRecoverer implements MessageStoreRecoverer
                              MessageStoreMessages.RECOVERED(recoveredMessages.size() - unusedMessages.size()));
         eventLogger.message(logSubject, MessageStoreMessages.RECOVERY_COMPLETE());
 
+        _recoveryDuration = System.currentTimeMillis() - startTime;
         return Futures.immediateFuture(null);
     }
 
@@ -120,6 +126,24 @@ public class SynchronousMessageStoreRecoverer implements MessageStoreRecoverer
         // No-op
     }
 
+    @Override
+    public int getRecoveringQueueCount()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getRecoveredMessageInstanceCount()
+    {
+        return _recoveredMessageInstanceCount;
+    }
+
+    @Override
+    public long getRecoveryDuration()
+    {
+        return _recoveryDuration;
+    }
+
     private static class MessageVisitor implements MessageHandler
     {
 
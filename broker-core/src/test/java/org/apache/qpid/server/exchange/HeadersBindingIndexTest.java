@@ -0,0 +1,196 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.exchange;
+
+import static org.mockito.Matchers.anySet;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.apache.qpid.server.message.AMQMessageHeader;
+import org.apache.qpid.server.model.Binding;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class HeadersBindingIndexTest extends QpidTestCase
+{
+    private HeadersBindingIndex _index;
+    private List<HeadersBinding> _bindings;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        _index = new HeadersBindingIndex();
+        _bindings = new ArrayList<>();
+
+        addBinding();
+        addBinding("x-match", "any");
+        addBinding("A", "");
+        addBinding("A", "1");
+        addBinding("x-match", "all", "A", "1", "B", "2");
+        addBinding("x-match", "all", "A", "", "B", "2");
+        addBinding("x-match", "any", "A", "1", "B", "2");
+        addBinding("x-match", "any", "A", "", "C", "3");
+        addBinding("x-match", "any", "C", "");
+    }
+
+    public void testIndexAgreesWithLinearMatch()
+    {
+        assertIndexAgreesWithLinearMatch(null);
+        assertIndexAgreesWithLinearMatch(createHeaders());
+        assertIndexAgreesWithLinearMatch(createHeaders("A", "1"));
+        assertIndexAgreesWithLinearMatch(createHeaders("A", "2"));
+        assertIndexAgreesWithLinearMatch(createHeaders("B", "2"));
+        assertIndexAgreesWithLinearMatch(createHeaders("A", "1", "B", "2"));
+        assertIndexAgreesWithLinearMatch(createHeaders("A", "9", "B", "2"));
+        assertIndexAgreesWithLinearMatch(createHeaders("A", "1", "B", "2", "C", "3"));
+        assertIndexAgreesWithLinearMatch(createHeaders("C", "4", "D", "5"));
+        assertIndexAgreesWithLinearMatch(createHeaders("A", null));
+    }
+
+    public void testMatchAllRequiresEveryCondition()
+    {
+        HeadersBinding binding = _bindings.get(4);
+
+        assertFalse("Binding should not match", _index.match(createHeaders("A", "1")).contains(binding));
+        assertTrue("Binding should match", _index.match(createHeaders("A", "1", "B", "2")).contains(binding));
+    }
+
+    public void testMatchAnyReportedOnce()
+    {
+        HeadersBinding binding = _bindings.get(6);
+
+        List<HeadersBinding> matched = _index.match(createHeaders("A", "1", "B", "2"));
+        assertEquals("Binding should be matched exactly once", 1, Collections.frequency(matched, binding));
+    }
+
+    public void testRemoveAndUpdate()
+    {
+        HeadersBinding binding = _bindings.get(3);
+        assertTrue("Binding should match", _index.match(createHeaders("A", "1")).contains(binding));
+
+        assertTrue("Binding should have been removed", _index.remove(binding.getBinding()));
+        assertFalse("Binding should not match once removed", _index.match(createHeaders("A", "1")).contains(binding));
+        assertFalse("Binding should no longer be indexed", _index.remove(binding.getBinding()));
+
+        Binding<?> updatedBinding = binding.getBinding();
+        when(updatedBinding.getArguments()).thenReturn(Collections.<String, Object>singletonMap("A", "2"));
+        _index.add(new HeadersBinding(updatedBinding));
+        _index.add(new HeadersBinding(updatedBinding));
+
+        assertEquals("Unexpected number of bindings", _bindings.size(), _index.size());
+        assertFalse("Updated binding should not match old value",
+                    containsBinding(_index.match(createHeaders("A", "1")), updatedBinding));
+        assertTrue("Updated binding should match new value",
+                   containsBinding(_index.match(createHeaders("A", "2")), updatedBinding));
+    }
+
+    private void assertIndexAgreesWithLinearMatch(final AMQMessageHeader headers)
+    {
+        Set<HeadersBinding> expected = new HashSet<>();
+        for (HeadersBinding binding : _bindings)
+        {
+            if (binding.matches(headers))
+            {
+                expected.add(binding);
+            }
+        }
+
+        List<HeadersBinding> actual = _index.match(headers);
+        assertEquals("Index matched a binding more than once", new HashSet<>(actual).size(), actual.size());
+        assertEquals("Unexpected bindings matched for headers "
+                     + (headers == null ? null : headers.getHeaderNames()), expected, new HashSet<>(actual));
+    }
+
+    private boolean containsBinding(final List<HeadersBinding> matched, final Binding<?> binding)
+    {
+        for (HeadersBinding headersBinding : matched)
+        {
+            if (headersBinding.getBinding() == binding)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addBinding(final String... arguments)
+    {
+        Binding<?> binding = mock(Binding.class);
+        when(binding.getArguments()).thenReturn(toMap(arguments));
+        HeadersBinding headersBinding = new HeadersBinding(binding);
+        _bindings.add(headersBinding);
+        _index.add(headersBinding);
+    }
+
+    private AMQMessageHeader createHeaders(final String... headers)
+    {
+        final Map<String, Object> headerValues = toMap(headers);
+        AMQMessageHeader header = mock(AMQMessageHeader.class);
+        when(header.getHeaderNames()).thenReturn(headerValues.keySet());
+        when(header.containsHeader(anyString())).then(new Answer<Boolean>()
+        {
+            @Override
+            public Boolean answer(final InvocationOnMock invocation) throws Throwable
+            {
+                return headerValues.containsKey((String) invocation.getArguments()[0]);
+            }
+        });
+        when(header.getHeader(anyString())).then(new Answer<Object>()
+        {
+            @Override
+            public Object answer(final InvocationOnMock invocation) throws Throwable
+            {
+                return headerValues.get((String) invocation.getArguments()[0]);
+            }
+        });
+        when(header.containsHeaders(anySet())).then(new Answer<Boolean>()
+        {
+            @Override
+            public Boolean answer(final InvocationOnMock invocation) throws Throwable
+            {
+                return headerValues.keySet().containsAll((Set<String>) invocation.getArguments()[0]);
+            }
+        });
+        return header;
+    }
+
+    private static Map<String, Object> toMap(final String... keysAndValues)
+    {
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2)
+        {
+            map.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+}
@@ -52,7 +52,7 @@ import org.apache.qpid.test.utils.QpidTestCase;
 public class TopicExchangeTest extends QpidTestCase
 {
 
-    private TopicExchange _exchange;
+    private TopicExchangeImpl _exchange;
     private VirtualHost<?> _vhost;
 
 
@@ -67,7 +67,7 @@ public class TopicExchangeTest extends QpidTestCase
         attributes.put(Exchange.DURABLE, false);
         attributes.put(Exchange.TYPE, ExchangeDefaults.TOPIC_EXCHANGE_CLASS);
 
-        _exchange = (TopicExchange) _vhost.createChild(Exchange.class, attributes, _vhost);
+        _exchange = (TopicExchangeImpl) _vhost.createChild(Exchange.class, attributes, _vhost);
         _exchange.open();
     }
 
@@ -467,6 +467,29 @@ public class TopicExchangeTest extends QpidTestCase
         _exchange.delete();
     }
 
+    public void testRoutingCacheInvalidatedByNewBindingKey() throws Exception
+    {
+        Queue<?> queue1 = createQueue("queue1");
+        createBinding(UUID.randomUUID(), "a.*", queue1, _exchange, null);
+
+        assertEquals("Unexpected number of queues", 1, routeMessage("a.b", 0L));
+        assertEquals("Unexpected number of queues", 1, routeMessage("a.b", 1L));
+        assertEquals("Unexpected cache misses", 1L, _exchange.getRoutingCacheMisses());
+        assertEquals("Unexpected cache hits", 1L, _exchange.getRoutingCacheHits());
+
+        Queue<?> queue2 = createQueue("queue2");
+        createBinding(UUID.randomUUID(), "*.b", queue2, _exchange, null);
+
+        assertEquals("New binding not seen by the cache", 2, routeMessage("a.b", 2L));
+        assertEquals("Unexpected cache misses", 2L, _exchange.getRoutingCacheMisses());
+
+        Queue<?> queue3 = createQueue("queue3");
+        createBinding(UUID.randomUUID(), "*.b", queue3, _exchange, null);
+
+        assertEquals("Queue added to existing binding key not seen by the cache", 3, routeMessage("a.b", 3L));
+        assertEquals("Unexpected cache hits", 2L, _exchange.getRoutingCacheHits());
+    }
+
     private BindingImpl createBinding(UUID id,
                                       String bindingKey,
                                       Queue<?> queue,
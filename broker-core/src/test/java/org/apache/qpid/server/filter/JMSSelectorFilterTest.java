@@ -18,6 +18,12 @@
  */
 package org.apache.qpid.server.filter;
 
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
 import org.apache.qpid.test.utils.QpidTestCase;
 
 public class JMSSelectorFilterTest extends QpidTestCase
@@ -37,6 +43,93 @@ public class JMSSelectorFilterTest extends QpidTestCase
         assertNotEqual(filter1, differentFilter);
     }
 
+    public void testCompiledSelectorMatchesInterpretedSelector() throws Exception
+    {
+        String[] selectors = {"colour = 'red'",
+                              "colour <> 'red'",
+                              "colour = 'red' AND size > 10",
+                              "colour = 'blue' OR size <= 20",
+                              "size BETWEEN 5 AND 50 AND NOT (weight < 2.5)",
+                              "size NOT BETWEEN 5 AND 15",
+                              "size * 2 + 1 = 41 OR size / 4 = 2 OR size % 3 = 1",
+                              "-size < -10",
+                              "weight = 1.5 AND size = 20.0",
+                              "colour IN ('blue', 'green', 'red')",
+                              "colour NOT IN ('blue', 'green')",
+                              "region LIKE 'eu-%' AND region NOT LIKE '%-east'",
+                              "missing IS NULL AND colour IS NOT NULL",
+                              "missing = 'x' OR missing > 3",
+                              "flag AND JMSPriority > 3",
+                              "NOT flag OR JMSPriority = 4",
+                              "JMSDeliveryMode = 'PERSISTENT' AND JMSType = 'type'",
+                              "1 + 2 = 3 AND colour = 'red'",
+                              "2 > 3 OR colour = 'blue'",
+                              "FALSE AND colour = 'red'",
+                              "TRUE"};
+
+        Filterable[] messages = {createMessage("red", 20, 1.5d, "eu-west", true, (byte) 4, true),
+                                 createMessage("blue", 8, 3.0d, "eu-east", false, (byte) 9, false),
+                                 createMessage(null, null, null, null, null, (byte) 0, false)};
+
+        for (String selector : selectors)
+        {
+            JMSSelectorFilter compiled = new JMSSelectorFilter(selector, true);
+            JMSSelectorFilter interpreted = new JMSSelectorFilter(selector, false);
+            assertTrue("Selector was not compiled: " + selector, compiled.isCompiled());
+            assertFalse("Selector was compiled: " + selector, interpreted.isCompiled());
+
+            for (Filterable message : messages)
+            {
+                assertEquals("Unexpected result for selector " + selector + " and colour "
+                             + message.getHeader("colour"),
+                             interpreted.matches(message),
+                             compiled.matches(message));
+            }
+        }
+    }
+
+    public void testSharedPropertyReadOncePerMessage() throws Exception
+    {
+        JMSSelectorFilter filter = new JMSSelectorFilter("size = 1 OR size = 2 OR size > 10 AND colour = 'red'", true);
+        Filterable message = createMessage("red", 20, null, null, null, (byte) 4, false);
+
+        assertTrue("Selector should match", filter.matches(message));
+        verify(message, times(1)).getHeader("size");
+        verify(message, times(1)).getHeader("colour");
+
+        assertTrue("Selector should match", filter.matches(message));
+        verify(message, times(2)).getHeader("size");
+    }
+
+    public void testConstantSelectorIsFolded() throws Exception
+    {
+        Filterable message = mock(Filterable.class);
+
+        assertTrue("Selector should match", new JMSSelectorFilter("1 + 1 = 2", true).matches(message));
+        assertFalse("Selector should not match", new JMSSelectorFilter("'abc' LIKE 'b%'", true).matches(message));
+        verifyZeroInteractions(message);
+    }
+
+    private Filterable createMessage(final String colour,
+                                     final Integer size,
+                                     final Double weight,
+                                     final String region,
+                                     final Boolean flag,
+                                     final byte priority,
+                                     final boolean persistent)
+    {
+        Filterable message = mock(Filterable.class);
+        when(message.getHeader("colour")).thenReturn(colour);
+        when(message.getHeader("size")).thenReturn(size);
+        when(message.getHeader("weight")).thenReturn(weight);
+        when(message.getHeader("region")).thenReturn(region);
+        when(message.getHeader("flag")).thenReturn(flag);
+        when(message.getPriority()).thenReturn(priority);
+        when(message.isPersistent()).thenReturn(persistent);
+        when(message.getType()).thenReturn("type");
+        return message;
+    }
+
     private void assertEqualsAndHashCodeMatch(JMSSelectorFilter filter1, JMSSelectorFilter filter2)
     {
         String message = filter1 + " and " + filter2 + " should be equal";
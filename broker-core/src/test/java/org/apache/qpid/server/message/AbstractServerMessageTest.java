@@ -25,6 +25,8 @@ import static org.mockito.Mockito.when;
 
 import java.util.UUID;
 
+import org.apache.qpid.server.model.NamedAddressSpace;
+import org.apache.qpid.server.plugin.MessageConverter;
 import org.apache.qpid.server.store.StorableMessageMetaData;
 import org.apache.qpid.server.store.StoredMessage;
 import org.apache.qpid.server.store.TransactionLogResource;
@@ -56,7 +58,7 @@ public class AbstractServerMessageTest extends QpidTestCase
         @Override
         public long getSize()
         {
-            return 0;
+            return 100;
         }
 
         @Override
@@ -72,6 +74,49 @@ public class AbstractServerMessageTest extends QpidTestCase
         }
     }
 
+    private static class TestConverter implements MessageConverter<TestMessage, TestMessage>
+    {
+        private int _conversions;
+        private int _disposals;
+
+        @Override
+        public Class<TestMessage> getInputClass()
+        {
+            return TestMessage.class;
+        }
+
+        @Override
+        public Class<TestMessage> getOutputClass()
+        {
+            return TestMessage.class;
+        }
+
+        @Override
+        public TestMessage convert(final TestMessage message, final NamedAddressSpace addressSpace)
+        {
+            _conversions++;
+            return new TestMessage<StorableMessageMetaData>(mock(StoredMessage.class), null);
+        }
+
+        @Override
+        public long getRetainedSize(final TestMessage message)
+        {
+            return message.getSize();
+        }
+
+        @Override
+        public void dispose(final TestMessage message)
+        {
+            _disposals++;
+        }
+
+        @Override
+        public String getType()
+        {
+            return "Test";
+        }
+    }
+
     private TransactionLogResource createQueue(String name)
     {
         TransactionLogResource queue = mock(TransactionLogResource.class);
@@ -143,4 +188,60 @@ public class AbstractServerMessageTest extends QpidTestCase
         }
 
     }
+
+    public void testConvertedMessageKeptWhileReferenced()
+    {
+        final MessageConversionCache cache = new MessageConversionCache(1024);
+        final NamedAddressSpace addressSpace = mock(NamedAddressSpace.class);
+        when(addressSpace.getMessageConversionCache()).thenReturn(cache);
+        final TestConverter converter = new TestConverter();
+
+        TestMessage<StorableMessageMetaData> msg = new TestMessage<StorableMessageMetaData>(mock(StoredMessage.class),this);
+        MessageReference<TestMessage<StorableMessageMetaData>> ref = msg.newReference();
+
+        TestMessage converted = msg.getConvertedMessage(converter, addressSpace);
+        assertSame("Converted message should be reused", converted, msg.getConvertedMessage(converter, addressSpace));
+        assertEquals("Unexpected number of conversions", 1, converter._conversions);
+        assertEquals("Unexpected number of hits", 1, cache.getHitCount());
+        assertEquals("Unexpected number of misses", 1, cache.getMissCount());
+        assertEquals("Unexpected cache size", 100, cache.getSize());
+        assertEquals("Unexpected cache entry count", 1, cache.getEntryCount());
+
+        ref.release();
+        assertEquals("Converted message should be released with the message", 0, cache.getSize());
+        assertEquals("Unexpected cache entry count", 0, cache.getEntryCount());
+        assertEquals("Converted message should be disposed when released", 1, converter._disposals);
+    }
+
+    public void testConvertedMessageNotKeptBeyondMaximumSize()
+    {
+        final NamedAddressSpace addressSpace = mock(NamedAddressSpace.class);
+        when(addressSpace.getMessageConversionCache()).thenReturn(new MessageConversionCache(50));
+        final TestConverter converter = new TestConverter();
+
+        TestMessage<StorableMessageMetaData> msg = new TestMessage<StorableMessageMetaData>(mock(StoredMessage.class),this);
+        MessageReference<TestMessage<StorableMessageMetaData>> ref = msg.newReference();
+
+        assertNotSame("Converted message should not be kept",
+                      msg.getConvertedMessage(converter, addressSpace),
+                      msg.getConvertedMessage(converter, addressSpace));
+        assertEquals("Unexpected number of conversions", 2, converter._conversions);
+        ref.release();
+        assertEquals("Converted message not kept should not be disposed", 0, converter._disposals);
+    }
+
+    public void testConvertedMessageNotKeptWithoutCache()
+    {
+        final NamedAddressSpace addressSpace = mock(NamedAddressSpace.class);
+        final TestConverter converter = new TestConverter();
+
+        TestMessage<StorableMessageMetaData> msg = new TestMessage<StorableMessageMetaData>(mock(StoredMessage.class),this);
+        MessageReference<TestMessage<StorableMessageMetaData>> ref = msg.newReference();
+
+        assertNotSame("Converted message should not be kept",
+                      msg.getConvertedMessage(converter, addressSpace),
+                      msg.getConvertedMessage(converter, addressSpace));
+        assertEquals("Unexpected number of conversions", 2, converter._conversions);
+        ref.release();
+    }
 }
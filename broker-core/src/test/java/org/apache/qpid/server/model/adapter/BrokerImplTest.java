@@ -37,6 +37,7 @@ import java.util.concurrent.TimeoutException;
 
 import javax.security.auth.Subject;
 
+import org.apache.qpid.bytebuffer.QpidByteBuffer;
 import org.apache.qpid.server.configuration.updater.TaskExecutorImpl;
 import org.apache.qpid.server.logging.EventLogger;
 import org.apache.qpid.server.model.Broker;
@@ -130,6 +131,19 @@ public class BrokerImplTest extends QpidTestCase
                                flowToDiskThreshold);
     }
 
+    public void testDefaultFlowToDiskThresholdAllowsForPooledBufferOverhead()
+    {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(Broker.NAME, "Broker");
+        attributes.put(Broker.MODEL_VERSION, BrokerModel.MODEL_VERSION);
+        attributes.put(Broker.DURABLE, true);
+        _brokerImpl = new BrokerImpl(attributes, _systemConfig);
+
+        assertTrue("Worst case pooled buffer capacity for the default flow to disk threshold exceeds direct memory",
+                   Broker.DEFAULT_FLOW_TO_DISK_THRESHOLD * QpidByteBuffer.MAXIMUM_POOLED_CAPACITY_FACTOR
+                   <= _brokerImpl.getMaximumDirectMemorySize());
+    }
+
     public void testNetworkBufferSize()
     {
         Map<String, Object> attributes = new HashMap<>();
@@ -187,6 +187,28 @@ public class AmqpPortImplTest extends QpidTestCase
         }
     }
 
+    public void testConnectionAffinityIgnoresNumberOfSelectors() throws Exception
+    {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(AmqpPort.CONNECTION_AFFINITY, true);
+        attributes.put(AmqpPort.NUMBER_OF_SELECTORS, AmqpPort.DEFAULT_PORT_AMQP_THREAD_POOL_SIZE);
+        _port = createPort(getTestName(), attributes);
+
+        assertTrue("Connection affinity not enabled", _port.isConnectionAffinity());
+        assertEquals("Unexpected maximum IO thread queue length", 0, _port.getMaximumIoThreadQueueLength());
+
+        _port.setAttributes(Collections.<String, Object>singletonMap(AmqpPort.THREAD_POOL_SIZE, "1"));
+        try
+        {
+            _port.setAttributes(Collections.<String, Object>singletonMap(AmqpPort.CONNECTION_AFFINITY, "false"));
+            fail("Exception not thrown for number of selectors greater than thread pool size");
+        }
+        catch (IllegalConfigurationException e)
+        {
+            // pass
+        }
+    }
+
     private AmqpPortImpl createPort(final String portName)
     {
         return createPort(portName, Collections.<String, Object>emptyMap());
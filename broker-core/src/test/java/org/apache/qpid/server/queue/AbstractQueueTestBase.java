@@ -310,6 +310,97 @@ abstract class AbstractQueueTestBase extends QpidTestCase
 
     }
 
+    public void testLatencyStatisticsRecordedOnlyWhenEnabled() throws Exception
+    {
+        _queue.enqueue(createMessage(new Long(24)), null, null);
+        assertEquals("Enqueue latency recorded without being enabled", 0L, _queue.getEnqueueLatencyP50());
+
+        _queue.close();
+        Map<String,Object> attributes = new HashMap<>(_arguments);
+        attributes.put(Queue.NAME, _qname);
+        attributes.put(Queue.OWNER, _owner);
+        attributes.put(Queue.CONTEXT, Collections.singletonMap(Queue.QUEUE_LATENCY_STATISTICS_ENABLED, "true"));
+
+        _queue = _virtualHost.createChild(Queue.class, attributes);
+
+        _queue.enqueue(createMessage(new Long(25)), null, null);
+        assertTrue("Enqueue latency not recorded once enabled", _queue.getEnqueueLatencyP50() > 0L);
+    }
+
+    public void testExpiredMessagesRemovedByCheckMessageStatus() throws Exception
+    {
+        ServerMessage messageA = createMessage(new Long(24));
+        when(messageA.getExpiration()).thenReturn(System.currentTimeMillis() - 1000L);
+        ServerMessage messageB = createMessage(new Long(25));
+        ServerMessage messageC = createMessage(new Long(26));
+        when(messageC.getExpiration()).thenReturn(System.currentTimeMillis() + 60000L);
+
+        final ArrayList<QueueEntry> queueEntries = new ArrayList<QueueEntry>();
+        EntryListAddingAction postEnqueueAction = new EntryListAddingAction(queueEntries);
+        _queue.enqueue(messageA, postEnqueueAction, null);
+        _queue.enqueue(messageB, postEnqueueAction, null);
+        _queue.enqueue(messageC, postEnqueueAction, null);
+
+        _queue.checkMessageStatus();
+
+        assertEquals("Unexpected queue depth after expiry", 2, _queue.getQueueDepthMessages());
+        assertTrue("Expired message was not removed", queueEntries.get(0).isDeleted());
+        assertFalse("Message without expiration was removed", queueEntries.get(1).isDeleted());
+        assertFalse("Message yet to expire was removed", queueEntries.get(2).isDeleted());
+    }
+
+    public void testAcquiredExpiredMessageRemovedOnceReleased() throws Exception
+    {
+        ServerMessage messageA = createMessage(new Long(24));
+        when(messageA.getExpiration()).thenReturn(System.currentTimeMillis() - 1000L);
+
+        final ArrayList<QueueEntry> queueEntries = new ArrayList<QueueEntry>();
+        _queue.enqueue(messageA, new EntryListAddingAction(queueEntries), null);
+        QueueEntry entry = queueEntries.get(0);
+        assertTrue("Could not acquire entry", entry.acquire());
+
+        _queue.checkMessageStatus();
+        assertFalse("Acquired message was removed", entry.isDeleted());
+        assertEquals("Unexpected queue depth while acquired", 1, _queue.getQueueDepthMessages());
+
+        entry.release();
+        _queue.checkMessageStatus();
+        assertTrue("Expired message was not removed once released", entry.isDeleted());
+        assertEquals("Unexpected queue depth after release", 0, _queue.getQueueDepthMessages());
+    }
+
+    public void testHeldExpiredMessageRemovedOnceNoLongerHeld() throws Exception
+    {
+        _queue.close();
+        Map<String,Object> attributes = new HashMap<>(_arguments);
+        attributes.put(Queue.NAME, _qname);
+        attributes.put(Queue.OWNER, _owner);
+        attributes.put(Queue.HOLD_ON_PUBLISH_ENABLED, Boolean.TRUE);
+
+        _queue = _virtualHost.createChild(Queue.class, attributes);
+
+        ServerMessage messageA = createMessage(new Long(24));
+        AMQMessageHeader messageHeader = messageA.getMessageHeader();
+        when(messageHeader.getNotValidBefore()).thenReturn(System.currentTimeMillis()+20000L);
+        when(messageA.getExpiration()).thenReturn(System.currentTimeMillis() - 1000L);
+
+        final ArrayList<QueueEntry> queueEntries = new ArrayList<QueueEntry>();
+        _queue.enqueue(messageA, new EntryListAddingAction(queueEntries), null);
+        QueueEntry entry = queueEntries.get(0);
+        assertTrue("Message which was not yet valid was not held", entry.isHeld());
+
+        _queue.checkMessageStatus();
+        assertFalse("Held message was removed", entry.isDeleted());
+
+        when(messageHeader.getNotValidBefore()).thenReturn(System.currentTimeMillis()-100L);
+        _queue.checkMessageStatus();
+        assertFalse("Message should be released from hold before it is expired", entry.isHeld());
+
+        _queue.checkMessageStatus();
+        assertTrue("Expired message was not removed once no longer held", entry.isDeleted());
+        assertEquals("Unexpected queue depth", 0, _queue.getQueueDepthMessages());
+    }
+
     /**
      * Tests that a released queue entry is resent to the subscriber.  Verifies also that the
      * QueueContext._releasedEntry is reset to null after the entry has been reset.
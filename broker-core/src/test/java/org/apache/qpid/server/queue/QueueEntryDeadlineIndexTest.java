@@ -0,0 +1,92 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.queue;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class QueueEntryDeadlineIndexTest extends QpidTestCase
+{
+    private QueueEntryDeadlineIndex _index;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        _index = new QueueEntryDeadlineIndex();
+    }
+
+    public void testPollDueReturnsEntriesInDeadlineOrder()
+    {
+        QueueEntry late = mock(QueueEntry.class);
+        QueueEntry early = mock(QueueEntry.class);
+        QueueEntry sameAsEarly = mock(QueueEntry.class);
+
+        _index.add(late, 300L);
+        _index.add(early, 100L);
+        _index.add(sameAsEarly, 100L);
+
+        assertNull("No entry should be due", _index.pollDue(100L));
+
+        assertSame("Unexpected entry", early, _index.pollDue(101L));
+        assertSame("Unexpected entry", sameAsEarly, _index.pollDue(101L));
+        assertNull("No further entry should be due", _index.pollDue(101L));
+        assertEquals("Unexpected index size", 1, _index.size());
+
+        assertSame("Unexpected entry", late, _index.pollDue(Long.MAX_VALUE));
+        assertEquals("Unexpected index size", 0, _index.size());
+    }
+
+    public void testPollDueSkipsDeletedEntries()
+    {
+        QueueEntry deleted = mock(QueueEntry.class);
+        when(deleted.isDeleted()).thenReturn(true);
+        QueueEntry live = mock(QueueEntry.class);
+
+        _index.add(deleted, 100L);
+        _index.add(live, 200L);
+
+        assertSame("Unexpected entry", live, _index.pollDue(201L));
+        assertEquals("Unexpected index size", 0, _index.size());
+    }
+
+    public void testPurgeRemovesDeletedEntriesOnlyWhenIndexOutgrowsQueue()
+    {
+        QueueEntry live = mock(QueueEntry.class);
+        _index.add(live, 100L);
+
+        QueueEntry deleted = mock(QueueEntry.class);
+        when(deleted.isDeleted()).thenReturn(true);
+        for (int i = 0; i < 2000; i++)
+        {
+            _index.add(deleted, 200L + i);
+        }
+
+        _index.purgeIfNecessary(1000L);
+        assertEquals("Index should not have been purged", 2001, _index.size());
+
+        _index.purgeIfNecessary(1L);
+        assertEquals("Deleted entries should have been purged", 1, _index.size());
+        assertSame("Unexpected entry", live, _index.pollDue(Long.MAX_VALUE));
+    }
+}
@@ -25,9 +25,11 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -421,6 +423,64 @@ public class SortedQueueEntryListTest extends QueueEntryListTestBase
         validateEntry(entry, "D", 2);
     }
 
+    public void testConcurrentAddAndDelete() throws Exception
+    {
+        final SortedQueueEntryList list = new SortedQueueEntryList(_testQueue, _testQueue.getQueueStatistics());
+        final int threadCount = 4;
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++)
+        {
+            final long firstMessageId = i * keys.length;
+            threads[i] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for (int j = 0; j < keys.length; j++)
+                        {
+                            QueueEntry entry = list.add(generateTestMessage(firstMessageId + j, keys[j]), null);
+                            if (j % 2 == 1)
+                            {
+                                assertTrue("Entry could not be acquired", entry.acquire());
+                                entry.delete();
+                            }
+                        }
+                    }
+                    catch (Throwable t)
+                    {
+                        failures.add(t);
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads)
+        {
+            thread.start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        assertEquals("Unexpected failures " + failures, 0, failures.size());
+
+        int count = 0;
+        QueueEntry previous = list.getHead();
+        final QueueEntryIterator iter = list.iterator();
+        while (iter.advance())
+        {
+            QueueEntry entry = iter.getNode();
+            assertFalse("Deleted entry found", entry.isDeleted());
+            assertTrue("Entries not in sort order", previous.compareTo(entry) < 0);
+            previous = entry;
+            count++;
+        }
+        assertEquals("Unexpected number of entries", threadCount * keys.length / 2, count);
+    }
+
     private void validateEntry(final SortedQueueEntry entry, final String expectedSortKey, final long expectedMessageId)
     {
         assertEquals("Sorted queue entry value is not as expected",
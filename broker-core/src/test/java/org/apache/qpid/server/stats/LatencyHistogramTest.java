@@ -0,0 +1,78 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.stats;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class LatencyHistogramTest extends QpidTestCase
+{
+    public void testBucketsCoverEachValue()
+    {
+        long previousUpperBound = -1L;
+        for (int i = 0; i < LatencyHistogram.BUCKET_COUNT; i++)
+        {
+            long upperBound = LatencyHistogram.bucketUpperBound(i);
+            assertTrue("Bucket bounds should increase", upperBound > previousUpperBound);
+            assertEquals("Unexpected bucket for lower bound", i, LatencyHistogram.bucketIndex(previousUpperBound + 1L));
+            assertEquals("Unexpected bucket for upper bound", i, LatencyHistogram.bucketIndex(upperBound));
+            previousUpperBound = upperBound;
+        }
+        assertEquals("Last bucket should end at the largest value", Long.MAX_VALUE, previousUpperBound);
+    }
+
+    public void testPercentiles()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals("Unexpected percentile of empty histogram", 0L, histogram.getValueAtPercentile(99.0));
+
+        for (long value = 1L; value <= 1000L; value++)
+        {
+            histogram.record(value * 1000L);
+        }
+
+        assertEquals("Unexpected count", 1000L, histogram.getCount());
+        assertEquals("Unexpected maximum", 1000000L, histogram.getMaximum());
+        assertEquals("Unexpected mean", 500500L, histogram.getMean());
+        assertPercentile(histogram, 50.0, 500000L);
+        assertPercentile(histogram, 99.0, 990000L);
+        assertEquals("Percentile above maximum", 1000000L, histogram.getValueAtPercentile(100.0));
+    }
+
+    public void testReset()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(123L);
+        histogram.record(-5L);
+        assertEquals("Unexpected count", 2L, histogram.getCount());
+
+        histogram.reset();
+        assertEquals("Unexpected count after reset", 0L, histogram.getCount());
+        assertEquals("Unexpected maximum after reset", 0L, histogram.getMaximum());
+        assertEquals("Unexpected mean after reset", 0L, histogram.getMean());
+    }
+
+    private void assertPercentile(final LatencyHistogram histogram, final double percentile, final long expected)
+    {
+        long actual = histogram.getValueAtPercentile(percentile);
+        assertTrue("Percentile " + percentile + " below true value: " + actual, actual >= expected);
+        assertTrue("Percentile " + percentile + " too far above true value: " + actual, actual <= expected * 5L / 4L);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.stats;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class StripedCounterTest extends QpidTestCase
+{
+    public void testAddAndReset()
+    {
+        StripedCounter counter = new StripedCounter();
+        assertEquals("Unexpected initial value", 0L, counter.get());
+
+        counter.increment();
+        counter.add(10L);
+        counter.decrement();
+        assertEquals("Unexpected value", 10L, counter.get());
+
+        counter.reset();
+        assertEquals("Unexpected value after reset", 0L, counter.get());
+    }
+
+    public void testConcurrentUpdatesAreCounted() throws Exception
+    {
+        final StripedCounter counter = new StripedCounter();
+        final int threadCount = 8;
+        final int updates = 100000;
+        final CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++)
+        {
+            threads[i] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int j = 0; j < updates; j++)
+                    {
+                        counter.add(2L);
+                        counter.decrement();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        assertEquals("Unexpected value", (long) threadCount * updates, counter.get());
+    }
+
+    public void testStripes()
+    {
+        assertEquals(2, StripedCounter.stripes(1));
+        assertEquals(8, StripedCounter.stripes(3));
+        assertEquals(16, StripedCounter.stripes(8));
+        assertEquals(64, StripedCounter.stripes(256));
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.apache.qpid.server.stats.LatencyHistogram;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class CoalescingJDBCCommitterTest extends QpidTestCase
+{
+    private static final String SQL = "DELETE FROM T WHERE id = ?";
+
+    private Connection _connection;
+    private PreparedStatement _statement;
+    private CoalescingJDBCCommitter _committer;
+    private final LatencyHistogram _commitLatencyHistogram = new LatencyHistogram();
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        _connection = mock(Connection.class);
+        _statement = mock(PreparedStatement.class);
+        when(_connection.prepareStatement(anyString())).thenReturn(_statement);
+    }
+
+    @Override
+    public void tearDown() throws Exception
+    {
+        try
+        {
+            if (_committer != null)
+            {
+                _committer.stop();
+            }
+        }
+        finally
+        {
+            super.tearDown();
+        }
+    }
+
+    public void testConcurrentTransactionsCommittedInOneDatabaseTransaction() throws Exception
+    {
+        when(_statement.executeBatch()).thenReturn(new int[]{1, 1, 1});
+        _committer = createCommitter(3, 10000L);
+        _committer.start();
+
+        TestWork work1 = new TestWork(1L);
+        TestWork work2 = new TestWork(2L);
+        TestWork work3 = new TestWork(3L);
+        ListenableFuture<String> future1 = _committer.commitAsync(work1, "1");
+        ListenableFuture<String> future2 = _committer.commitAsync(work2, "2");
+        ListenableFuture<String> future3 = _committer.commitAsync(work3, "3");
+
+        assertEquals("Unexpected result", "1", future1.get(10, TimeUnit.SECONDS));
+        assertEquals("Unexpected result", "2", future2.get(10, TimeUnit.SECONDS));
+        assertEquals("Unexpected result", "3", future3.get(10, TimeUnit.SECONDS));
+        assertTrue("Work not notified of commit", work1.isCommitted() && work2.isCommitted() && work3.isCommitted());
+
+        verify(_statement, times(3)).addBatch();
+        verify(_statement, times(1)).executeBatch();
+        verify(_connection, times(1)).commit();
+
+        assertEquals("Unexpected batch count", 1L, _committer.getBatchCount());
+        assertEquals("Unexpected batched transaction count", 3L, _committer.getBatchedTransactionCount());
+        assertEquals("Unexpected maximum batch size", 3, _committer.getMaximumBatchSize());
+        assertEquals("Unexpected commit latency count", 3L, _commitLatencyHistogram.getCount());
+    }
+
+    public void testFailedTransactionIsRetriedAloneWithoutFailingTheBatch() throws Exception
+    {
+        when(_statement.executeBatch()).thenReturn(new int[]{1, 0}, new int[]{1}, new int[]{0});
+        _committer = createCommitter(2, 10000L);
+        _committer.start();
+
+        TestWork good = new TestWork(1L);
+        TestWork bad = new TestWork(2L);
+        ListenableFuture<String> goodFuture = _committer.commitAsync(good, "good");
+        ListenableFuture<String> badFuture = _committer.commitAsync(bad, "bad");
+
+        assertEquals("Unexpected result", "good", goodFuture.get(10, TimeUnit.SECONDS));
+        assertTrue("Work not notified of commit", good.isCommitted());
+        try
+        {
+            badFuture.get(10, TimeUnit.SECONDS);
+            fail("Exception not thrown");
+        }
+        catch (ExecutionException e)
+        {
+            assertTrue("Unexpected cause " + e.getCause(), e.getCause() instanceof StoreException);
+        }
+        assertFalse("Failed work notified of commit", bad.isCommitted());
+        assertTrue("Failed work not notified of failure", bad.isFailed());
+        assertFalse("Committed work notified of failure", good.isFailed());
+
+        verify(_connection, times(2)).rollback();
+        verify(_connection, times(1)).commit();
+    }
+
+    public void testSynchronousCommitRethrowsStoreException() throws Exception
+    {
+        _committer = createCommitter(10, 0L);
+        _committer.start();
+
+        try
+        {
+            _committer.commit(new TestWork(1L)
+            {
+                @Override
+                public void write(final CoalescingJDBCCommitter.StatementBatch batch) throws SQLException
+                {
+                    throw new StoreException("Test");
+                }
+            });
+            fail("Exception not thrown");
+        }
+        catch (StoreException e)
+        {
+            assertEquals("Unexpected message", "Test", e.getMessage());
+        }
+    }
+
+    public void testCommitsRacingWithStopAreAllCompleted() throws Exception
+    {
+        when(_statement.executeBatch()).thenReturn(new int[]{1});
+        _committer = createCommitter(1, 0L);
+        _committer.start();
+
+        final List<ListenableFuture<String>> futures = new CopyOnWriteArrayList<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        Thread committing = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    for (long id = 0; ; id++)
+                    {
+                        futures.add(_committer.commitAsync(new TestWork(id), "value"));
+                        started.countDown();
+                    }
+                }
+                catch (StoreException e)
+                {
+                    // committer stopped
+                }
+            }
+        });
+        committing.start();
+        assertTrue("Commits not started", started.await(10, TimeUnit.SECONDS));
+
+        _committer.stop();
+        committing.join(10000L);
+        assertFalse("Committing thread did not observe the stop", committing.isAlive());
+
+        for (ListenableFuture<String> future : futures)
+        {
+            assertTrue("Commit neither completed nor failed after stop", future.isDone());
+        }
+    }
+
+    private CoalescingJDBCCommitter createCommitter(final int batchSize, final long maxWait)
+    {
+        return new CoalescingJDBCCommitter(getTestName(),
+                                           new CoalescingJDBCCommitter.ConnectionSource()
+                                           {
+                                               @Override
+                                               public Connection newConnection()
+                                               {
+                                                   return _connection;
+                                               }
+                                           },
+                                           Collections.singletonList(SQL),
+                                           batchSize,
+                                           maxWait,
+                                           _commitLatencyHistogram);
+    }
+
+    private static class TestWork implements CoalescingJDBCCommitter.Work
+    {
+        private final long _id;
+        private volatile boolean _committed;
+        private volatile boolean _failed;
+
+        private TestWork(final long id)
+        {
+            _id = id;
+        }
+
+        @Override
+        public void write(final CoalescingJDBCCommitter.StatementBatch batch) throws SQLException
+        {
+            PreparedStatement statement = batch.getStatement(SQL);
+            statement.setLong(1, _id);
+            statement.addBatch();
+        }
+
+        @Override
+        public void committed()
+        {
+            _committed = true;
+        }
+
+        @Override
+        public void failed()
+        {
+            _failed = true;
+        }
+
+        boolean isCommitted()
+        {
+            return _committed;
+        }
+
+        boolean isFailed()
+        {
+            return _failed;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class MessageContentCompressorTest extends QpidTestCase
+{
+    public void testEncodingThreshold()
+    {
+        assertFalse("Compression should be disabled by default", new MessageContentCompressor().isEnabled());
+        assertFalse("Nothing should be encoded by default", new MessageContentCompressor().isEncodingRequired(1000000L));
+
+        MessageContentCompressor compressor = new MessageContentCompressor(100, 1);
+        assertFalse("Content below threshold should not be encoded", compressor.isEncodingRequired(99L));
+        assertTrue("Content at threshold should be encoded", compressor.isEncodingRequired(100L));
+    }
+
+    public void testCompressibleContentIsDeflated()
+    {
+        MessageContentCompressor compressor = new MessageContentCompressor(0, 1);
+        byte[] content = new byte[10000];
+        for (int i = 0; i < content.length; i++)
+        {
+            content[i] = (byte) ('a' + i % 8);
+        }
+
+        byte[] encoded = compressor.encode(content, 0, content.length);
+        assertTrue("Content should be compressed: " + encoded.length, encoded.length < content.length / 10);
+        assertTrue("Unexpected decoded content", Arrays.equals(content, compressor.decode(encoded, 0, encoded.length)));
+
+        assertEquals("Unexpected bytes before compression", content.length, compressor.getBytesBeforeCompression());
+        assertEquals("Unexpected bytes after compression", encoded.length, compressor.getBytesAfterCompression());
+        assertTrue("Unexpected saving", compressor.getCompressionSavingPercentage() >= 90L);
+
+        compressor.resetStatistics();
+        assertEquals("Unexpected bytes after reset", 0L, compressor.getBytesBeforeCompression());
+    }
+
+    public void testIncompressibleContentIsStored()
+    {
+        MessageContentCompressor compressor = new MessageContentCompressor(0, 9);
+        byte[] content = new byte[1000];
+        new Random(0).nextBytes(content);
+
+        byte[] encoded = compressor.encode(content, 0, content.length);
+        assertEquals("Incompressible content should be stored with a one byte header", content.length + 1,
+                     encoded.length);
+        assertTrue("Unexpected decoded content", Arrays.equals(content, compressor.decode(encoded, 0, encoded.length)));
+    }
+
+    public void testEncodeAndDecodeWithOffsets()
+    {
+        MessageContentCompressor compressor = new MessageContentCompressor(0, 1);
+        byte[] content = new byte[300];
+        Arrays.fill(content, (byte) 'x');
+
+        byte[] encoded = compressor.encode(content, 100, 100);
+        byte[] record = new byte[encoded.length + 20];
+        System.arraycopy(encoded, 0, record, 10, encoded.length);
+
+        byte[] decoded = compressor.decode(record, 10, encoded.length);
+        assertTrue("Unexpected decoded content", Arrays.equals(Arrays.copyOfRange(content, 100, 200), decoded));
+        assertEquals("Empty content", 0, compressor.decode(compressor.encode(content, 0, 0), 0, 1).length);
+    }
+
+    public void testCloseEndsPooledCoders()
+    {
+        MessageContentCompressor compressor = new MessageContentCompressor(0, 1);
+        byte[] content = new byte[1000];
+        byte[] encoded = compressor.encode(content, 0, content.length);
+        assertTrue("Unexpected decoded content", Arrays.equals(content, compressor.decode(encoded, 0, encoded.length)));
+        assertEquals("Deflater and inflater should be pooled for reuse", 2, compressor.getPooledCount());
+
+        compressor.encode(content, 0, content.length);
+        assertEquals("Pooled deflater should have been reused", 2, compressor.getPooledCount());
+
+        compressor.close();
+        assertEquals("Pool should be empty after close", 0, compressor.getPooledCount());
+
+        encoded = compressor.encode(content, 0, content.length);
+        assertTrue("Unexpected decoded content after close",
+                   Arrays.equals(content, compressor.decode(encoded, 0, encoded.length)));
+        assertEquals("Nothing should be pooled after close", 0, compressor.getPooledCount());
+    }
+
+    public void testCorruptRecordRejected()
+    {
+        MessageContentCompressor compressor = new MessageContentCompressor(0, 1);
+        byte[] content = new byte[1000];
+        Arrays.fill(content, (byte) 'x');
+        byte[] encoded = compressor.encode(content, 0, content.length);
+
+        try
+        {
+            compressor.decode(encoded, 0, encoded.length - 2);
+            fail("Truncated record should be rejected");
+        }
+        catch (StoreException e)
+        {
+            // pass
+        }
+
+        encoded[0] = 7;
+        try
+        {
+            compressor.decode(encoded, 0, encoded.length);
+            fail("Unknown encoding should be rejected");
+        }
+        catch (StoreException e)
+        {
+            // pass
+        }
+    }
+}
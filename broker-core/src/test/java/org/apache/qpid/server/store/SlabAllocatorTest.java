@@ -0,0 +1,155 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store;
+
+import org.apache.qpid.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class SlabAllocatorTest extends QpidTestCase
+{
+    private static final int ARENA_SIZE = 4096;
+
+    public void testSizeClasses()
+    {
+        SlabAllocator allocator = new SlabAllocator(ARENA_SIZE, 0);
+
+        assertEquals("Unexpected maximum slot size", 1024, allocator.getMaximumSlotSize());
+        assertEquals("Unexpected slot size", 64, allocator.getSlotSize(allocator.sizeClassIndex(1)));
+        assertEquals("Unexpected slot size", 64, allocator.getSlotSize(allocator.sizeClassIndex(64)));
+        assertEquals("Unexpected slot size", 96, allocator.getSlotSize(allocator.sizeClassIndex(65)));
+        assertEquals("Unexpected slot size", 128, allocator.getSlotSize(allocator.sizeClassIndex(97)));
+        assertEquals("Unexpected slot size", 768, allocator.getSlotSize(allocator.sizeClassIndex(700)));
+        assertEquals("Unexpected slot size", 1024, allocator.getSlotSize(allocator.sizeClassIndex(1024)));
+    }
+
+    public void testAllocateAndFree()
+    {
+        SlabAllocator allocator = new SlabAllocator(ARENA_SIZE, 0);
+
+        QpidByteBuffer buffer = allocator.allocate(100);
+        assertEquals("Unexpected capacity", 100, buffer.capacity());
+        assertEquals("Unexpected limit", 100, buffer.limit());
+        assertEquals("Unexpected position", 0, buffer.position());
+        assertTrue("Buffer should be direct", buffer.isDirect());
+        assertEquals("Unexpected arena count", 1, allocator.getArenaCount());
+        assertEquals("Unexpected memory in use", 128L, allocator.getSlotMemoryInUse());
+
+        buffer.dispose();
+        assertEquals("Unexpected memory in use", 0L, allocator.getSlotMemoryInUse());
+        assertEquals("Unexpected arena count", 0, allocator.getArenaCount());
+        assertEquals("Unexpected reclaimed arena count", 1L, allocator.getReclaimedArenaCount());
+    }
+
+    public void testSlotsDoNotOverlap()
+    {
+        SlabAllocator allocator = new SlabAllocator(ARENA_SIZE, 0);
+
+        QpidByteBuffer[] buffers = new QpidByteBuffer[ARENA_SIZE / 64];
+        for (int i = 0; i < buffers.length; i++)
+        {
+            buffers[i] = allocator.allocate(64);
+            for (int j = 0; j < 64; j++)
+            {
+                buffers[i].put((byte) i);
+            }
+        }
+        assertEquals("Unexpected arena count", 1, allocator.getArenaCount());
+        assertEquals("Unexpected utilisation", 100L, allocator.getUtilisation());
+
+        for (int i = 0; i < buffers.length; i++)
+        {
+            for (int j = 0; j < 64; j++)
+            {
+                assertEquals("Unexpected content", (byte) i, buffers[i].get(j));
+            }
+            buffers[i].dispose();
+        }
+        assertEquals("Unexpected arena count", 0, allocator.getArenaCount());
+    }
+
+    public void testArenaAddedWhenFull()
+    {
+        SlabAllocator allocator = new SlabAllocator(ARENA_SIZE, 0);
+
+        QpidByteBuffer[] buffers = new QpidByteBuffer[5];
+        for (int i = 0; i < buffers.length; i++)
+        {
+            buffers[i] = allocator.allocate(1024);
+        }
+        assertEquals("Unexpected arena count", 2, allocator.getArenaCount());
+        assertEquals("Unexpected arena memory", 2L * ARENA_SIZE, allocator.getArenaMemory());
+
+        buffers[4].dispose();
+        assertEquals("Unexpected arena count", 1, allocator.getArenaCount());
+
+        buffers[0].dispose();
+        QpidByteBuffer reused = allocator.allocate(1000);
+        assertEquals("Freed slot should be reused", 1, allocator.getArenaCount());
+
+        reused.dispose();
+        for (int i = 1; i < 4; i++)
+        {
+            buffers[i].dispose();
+        }
+        assertEquals("Unexpected arena count", 0, allocator.getArenaCount());
+    }
+
+    public void testSpareArenaReusedByOtherSizeClass()
+    {
+        SlabAllocator allocator = new SlabAllocator(ARENA_SIZE, 1);
+
+        allocator.allocate(64).dispose();
+        assertEquals("Spare arena should be retained", 1, allocator.getArenaCount());
+        assertEquals("Unexpected utilisation", 0L, allocator.getUtilisation());
+
+        QpidByteBuffer buffer = allocator.allocate(500);
+        assertEquals("Spare arena should be reused", 1, allocator.getArenaCount());
+        buffer.dispose();
+        assertEquals("Unexpected reclaimed arena count", 2L, allocator.getReclaimedArenaCount());
+    }
+
+    public void testViewKeepsSlotAllocated()
+    {
+        SlabAllocator allocator = new SlabAllocator(ARENA_SIZE, 0);
+
+        QpidByteBuffer buffer = allocator.allocate(64);
+        buffer.putLong(0, 42L);
+        QpidByteBuffer view = buffer.view(0, 8);
+        buffer.dispose();
+
+        assertEquals("Slot should remain allocated while a view exists", 64L, allocator.getSlotMemoryInUse());
+        assertEquals("Unexpected content", 42L, view.getLong(0));
+
+        view.dispose();
+        assertEquals("Unexpected memory in use", 0L, allocator.getSlotMemoryInUse());
+    }
+
+    public void testLargeAllocationNotFromArena()
+    {
+        SlabAllocator allocator = new SlabAllocator(ARENA_SIZE, 0);
+
+        QpidByteBuffer buffer = allocator.allocate(ARENA_SIZE);
+        assertEquals("Unexpected capacity", ARENA_SIZE, buffer.capacity());
+        assertEquals("Unexpected arena count", 0, allocator.getArenaCount());
+        assertEquals("Unexpected large allocation count", 1L, allocator.getLargeAllocationCount());
+        buffer.dispose();
+    }
+}
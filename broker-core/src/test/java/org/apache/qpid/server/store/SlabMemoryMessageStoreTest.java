@@ -0,0 +1,74 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.store;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.apache.qpid.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.server.model.VirtualHost;
+import org.apache.qpid.server.virtualhost.TestMemoryVirtualHost;
+
+public class SlabMemoryMessageStoreTest extends MemoryMessageStoreTest
+{
+    @Override
+    protected VirtualHost createVirtualHost()
+    {
+        final TestMemoryVirtualHost parent = mock(TestMemoryVirtualHost.class);
+        when(parent.getContextValue(Boolean.class, MemoryMessageStore.SLAB_ALLOCATION)).thenReturn(true);
+        when(parent.getContextValue(Integer.class, MemoryMessageStore.SLAB_ARENA_SIZE)).thenReturn(64 * 1024);
+        when(parent.getContextValue(Integer.class, MemoryMessageStore.SLAB_MAXIMUM_SPARE_ARENAS)).thenReturn(4);
+        return parent;
+    }
+
+    public void testMessageHeldInSlab() throws Exception
+    {
+        final MemoryMessageStore store = (MemoryMessageStore) getStore();
+        final SlabAllocator allocator = store.getSlabAllocator();
+        assertNotNull("Slab allocation not enabled", allocator);
+
+        final byte[] content = "slab content".getBytes();
+        final TestMessageMetaData metaData = new TestMessageMetaData(1L, content.length);
+        final MessageHandle<TestMessageMetaData> handle = store.addMessage(metaData);
+        handle.addContent(QpidByteBuffer.wrap(content));
+        final StoredMessage<TestMessageMetaData> storedMessage = handle.allContentAdded();
+        assertTrue("Unexpected stored message type", storedMessage instanceof StoredSlabMessage);
+        assertTrue("Slot should be allocated", allocator.getSlotMemoryInUse() > 0L);
+
+        assertFalse("Message content cannot flow to disk", storedMessage.flowToDisk());
+        assertTrue("Message content should remain in memory", storedMessage.isInMemory());
+        final TestMessageMetaData decoded = storedMessage.getMetaData();
+        assertNotSame("Meta-data should be decoded from the slot", metaData, decoded);
+        assertEquals("Unexpected content size", content.length, decoded.getContentSize());
+
+        final QpidByteBuffer buffer = storedMessage.getContent(0, content.length).iterator().next();
+        final byte[] read = new byte[buffer.remaining()];
+        buffer.get(read);
+        buffer.dispose();
+        assertTrue("Unexpected content", Arrays.equals(content, read));
+
+        storedMessage.remove();
+        assertFalse("Removed message should not be held in memory", storedMessage.isInMemory());
+        assertEquals("Slot should be freed", 0L, allocator.getSlotMemoryInUse());
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.apache.qpid.server.transport;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.qpid.server.model.port.AmqpPort;
+import org.apache.qpid.test.utils.QpidTestCase;
+import org.apache.qpid.transport.network.TransportEncryption;
+
+public class NetworkConnectionSchedulerTest extends QpidTestCase
+{
+    private static final long TIMEOUT = 10000L;
+
+    private final List<Socket> _clients = new ArrayList<>();
+    private final List<TestConnection> _connections = new ArrayList<>();
+    private ServerSocketChannel _serverSocket;
+    private NetworkConnectionScheduler _scheduler;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        super.setUp();
+        _serverSocket = ServerSocketChannel.open();
+        _serverSocket.socket().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @Override
+    public void tearDown() throws Exception
+    {
+        try
+        {
+            if (_scheduler != null)
+            {
+                _scheduler.close();
+            }
+            for (Socket client : _clients)
+            {
+                client.close();
+            }
+            for (TestConnection connection : _connections)
+            {
+                connection.getSocketChannel().close();
+            }
+            _serverSocket.close();
+        }
+        finally
+        {
+            super.tearDown();
+        }
+    }
+
+    public void testConnectionStaysOnItsIoThread() throws Exception
+    {
+        _scheduler = new NetworkConnectionScheduler(getTestName(), 2, 2, 1L, true, 16);
+        _scheduler.start();
+
+        for (int i = 0; i < 4; i++)
+        {
+            createConnection();
+        }
+
+        for (int round = 1; round <= 10; round++)
+        {
+            for (int i = 0; i < _connections.size(); i++)
+            {
+                write(i);
+            }
+            for (TestConnection connection : _connections)
+            {
+                connection.awaitBytesRead(round);
+            }
+        }
+
+        for (TestConnection connection : _connections)
+        {
+            assertEquals("Connection " + connection + " was not pinned to one IO thread",
+                         1, connection.getThreads().size());
+        }
+
+        for (TestConnection connection : _connections)
+        {
+            for (TestConnection other : _connections)
+            {
+                final boolean sameSelector = connection.getSelectionTask() == other.getSelectionTask();
+                final boolean sameThread = connection.getThread() == other.getThread();
+                assertEquals("Connections " + connection + " and " + other
+                             + " should run on the same IO thread exactly when they share a selector",
+                             sameSelector, sameThread);
+            }
+        }
+    }
+
+    public void testWorkStolenFromBusyIoThread() throws Exception
+    {
+        _scheduler = new NetworkConnectionScheduler(getTestName(), 2, 2, 1L, true, 1);
+        _scheduler.start();
+
+        for (int i = 0; i < 8; i++)
+        {
+            createConnection();
+        }
+
+        final TestConnection blocker = _connections.get(0);
+        final List<Integer> siblings = new ArrayList<>();
+        for (int i = 1; i < _connections.size(); i++)
+        {
+            if (_connections.get(i).getSelectionTask() == blocker.getSelectionTask())
+            {
+                siblings.add(i);
+            }
+        }
+        assertTrue("Expected other connections to share the selector of the first", siblings.size() >= 2);
+
+        write(0);
+        blocker.awaitBytesRead(1);
+        final Thread owner = blocker.getThread();
+
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        blocker.setWorkHook(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                blocked.countDown();
+                await(release);
+            }
+        });
+
+        final CountDownLatch stolen = new CountDownLatch(1);
+        final Runnable siblingHook = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if (Thread.currentThread() == owner)
+                {
+                    // hold the owner so that the remaining queued work is left for an idle thread to take
+                    await(stolen);
+                }
+                else
+                {
+                    stolen.countDown();
+                }
+            }
+        };
+        for (int i : siblings)
+        {
+            _connections.get(i).setWorkHook(siblingHook);
+        }
+
+        write(0);
+        assertTrue("Owning IO thread did not start work", blocked.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        for (int i : siblings)
+        {
+            write(i);
+        }
+        release.countDown();
+
+        for (int i : siblings)
+        {
+            _connections.get(i).awaitBytesRead(1);
+        }
+
+        assertEquals("Work queued behind a busy IO thread was not stolen", 0, stolen.getCount());
+        for (int i : siblings)
+        {
+            final Set<Thread> threads = _connections.get(i).getThreads();
+            assertEquals("Unexpected threads for connection " + i, 1, threads.size());
+        }
+
+        long tasksStolen = 0;
+        for (Map<String, Object> statistics : _scheduler.getIoThreadStatistics())
+        {
+            tasksStolen += ((Number) statistics.get("tasksStolen")).longValue();
+        }
+        assertTrue("Stolen tasks were not counted", tasksStolen > 0);
+    }
+
+    private void createConnection() throws IOException
+    {
+        final Socket client = new Socket(InetAddress.getLoopbackAddress(), _serverSocket.socket().getLocalPort());
+        _clients.add(client);
+        final SocketChannel channel = _serverSocket.accept();
+        channel.configureBlocking(false);
+
+        final ProtocolEngine engine = mock(ProtocolEngine.class);
+        when(engine.getAggregateTicker()).thenReturn(new AggregateTicker());
+
+        final TestConnection connection = new TestConnection(channel, engine, _scheduler);
+        _connections.add(connection);
+        _scheduler.addConnection(connection);
+    }
+
+    private void write(final int index) throws IOException
+    {
+        final OutputStream outputStream = _clients.get(index).getOutputStream();
+        outputStream.write(index);
+        outputStream.flush();
+    }
+
+    private static void await(final CountDownLatch latch)
+    {
+        try
+        {
+            latch.await(TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class TestConnection extends NonBlockingConnection
+    {
+        private final Set<Thread> _threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+        private final ByteBuffer _buffer = ByteBuffer.allocate(64);
+        private final Object _lock = new Object();
+        private volatile Runnable _workHook;
+        private long _bytesRead;
+
+        TestConnection(final SocketChannel channel,
+                       final ProtocolEngine engine,
+                       final NetworkConnectionScheduler scheduler)
+        {
+            super(channel,
+                  engine,
+                  EnumSet.of(TransportEncryption.NONE, TransportEncryption.TLS),
+                  null,
+                  scheduler,
+                  mock(AmqpPort.class));
+        }
+
+        @Override
+        public boolean doWork()
+        {
+            long read = 0;
+            try
+            {
+                int count;
+                while ((count = getSocketChannel().read(_buffer)) > 0)
+                {
+                    read += count;
+                    _buffer.clear();
+                }
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeException(e);
+            }
+
+            if (read > 0)
+            {
+                _threads.add(Thread.currentThread());
+                final Runnable workHook = _workHook;
+                if (workHook != null)
+                {
+                    workHook.run();
+                }
+            }
+
+            synchronized (_lock)
+            {
+                _bytesRead += read;
+                _lock.notifyAll();
+            }
+            return false;
+        }
+
+        @Override
+        public boolean isStateChanged()
+        {
+            return false;
+        }
+
+        void setWorkHook(final Runnable workHook)
+        {
+            _workHook = workHook;
+        }
+
+        Set<Thread> getThreads()
+        {
+            return _threads;
+        }
+
+        Thread getThread()
+        {
+            assertEquals("Expected a single IO thread", 1, _threads.size());
+            return _threads.iterator().next();
+        }
+
+        void awaitBytesRead(final long expected) throws InterruptedException
+        {
+            final long deadline = System.currentTimeMillis() + TIMEOUT;
+            synchronized (_lock)
+            {
+                long remaining;
+                while (_bytesRead < expected && (remaining = deadline - System.currentTimeMillis()) > 0)
+                {
+                    _lock.wait(remaining);
+                }
+                assertTrue("Connection " + this + " read " + _bytesRead + " bytes, expected " + expected,
+                           _bytesRead >= expected);
+            }
+        }
+    }
+}
@@ -26,11 +26,13 @@ import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayInputStream;
 import java.net.InetAddress;
+import java.net.Socket;
 import java.net.SocketAddress;
 import java.security.KeyStore;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
@@ -126,6 +128,57 @@ public class TCPandSSLTransportTest extends QpidTestCase
 
 
 
+    public void testConnectionAffinity() throws Exception
+    {
+        final AmqpPort<?> port = createPort(null);
+        when(port.isConnectionAffinity()).thenReturn(true);
+
+        TCPandSSLTransport transport = createTransport(port, Transport.TCP);
+        transport.start();
+        try
+        {
+            Socket socket = new Socket(InetAddress.getLoopbackAddress(), transport.getAcceptingPort());
+            try
+            {
+                socket.getOutputStream().write("AMQP".getBytes());
+                socket.getOutputStream().flush();
+            }
+            finally
+            {
+                socket.close();
+            }
+
+            List<Map<String, Object>> statistics = transport.getIoThreadStatistics();
+            assertEquals("Unexpected number of IO threads", port.getThreadPoolSize(), statistics.size());
+            for (Map<String, Object> threadStatistics : statistics)
+            {
+                assertTrue("Unexpected statistics " + threadStatistics,
+                           threadStatistics.keySet().containsAll(Arrays.asList("queueLength",
+                                                                               "tasksProcessed",
+                                                                               "tasksStolen",
+                                                                               "processingTime")));
+            }
+        }
+        finally
+        {
+            transport.close();
+        }
+    }
+
+    public void testNoIoThreadStatisticsWithoutConnectionAffinity() throws Exception
+    {
+        TCPandSSLTransport transport = createTransport(createPort(null), Transport.TCP);
+        transport.start();
+        try
+        {
+            assertTrue("Unexpected IO thread statistics", transport.getIoThreadStatistics().isEmpty());
+        }
+        finally
+        {
+            transport.close();
+        }
+    }
+
     private void checkSSLExcluded(String clientProtocol, final Transport... transports) throws Exception
     {
         KeyStore keyStore = KeyStore.getInstance("JKS");
@@ -140,35 +193,8 @@ public class TCPandSSLTransportTest extends QpidTestCase
 
 
 
-        final AmqpPort<?> port = mock(AmqpPort.class);
-        when(port.getPort()).thenReturn(0);
-        when(port.getName()).thenReturn("testAmqp");
-        when(port.getNetworkBufferSize()).thenReturn(64*1024);
-        when(port.canAcceptNewConnection(any(SocketAddress.class))).thenReturn(true);
-        when(port.getThreadPoolSize()).thenReturn(2);
-        when(port.getNumberOfSelectors()).thenReturn(1);
-        when(port.getSSLContext()).thenReturn(sslContext);
-        when(port.getContextValue(Long.class, AmqpPort.PORT_AMQP_THREAD_POOL_KEEP_ALIVE_TIMEOUT)).thenReturn(1l);
-        when(port.getContextValue(Integer.class, AmqpPort.PORT_AMQP_ACCEPT_BACKLOG)).thenReturn(AmqpPort.DEFAULT_PORT_AMQP_ACCEPT_BACKLOG);
-        when(port.getProtocolHandshakeTimeout()).thenReturn(AmqpPort.DEFAULT_PROTOCOL_HANDSHAKE_TIMEOUT);
-        ObjectMapper mapper = new ObjectMapper();
-        JavaType type = mapper.getTypeFactory().constructCollectionType(List.class, String.class);
-        List<String> whiteList = mapper.readValue(Broker.DEFAULT_SECURITY_TLS_PROTOCOL_WHITE_LIST, type);
-        List<String> blackList = mapper.readValue(Broker.DEFAULT_SECURITY_TLS_PROTOCOL_BLACK_LIST, type);
-        when(port.getTlsProtocolBlackList()).thenReturn(blackList);
-        when(port.getTlsProtocolWhiteList()).thenReturn(whiteList);
-        final Broker broker = mock(Broker.class);
-        when(broker.getEventLogger()).thenReturn(mock(EventLogger.class));
-        when(port.getParent(Broker.class)).thenReturn(broker);
-
-        TCPandSSLTransport transport = new TCPandSSLTransport(new HashSet<>(Arrays.asList(transports)),
-                                                              port,
-                                                              new HashSet<>(Arrays.asList(Protocol.AMQP_0_8,
-                                                                                          Protocol.AMQP_0_9,
-                                                                                          Protocol.AMQP_0_9_1,
-                                                                                          Protocol.AMQP_0_10,
-                                                                                          Protocol.AMQP_1_0)),
-                                                              Protocol.AMQP_0_9_1);
+        final AmqpPort<?> port = createPort(sslContext);
+        TCPandSSLTransport transport = createTransport(port, transports);
 
         transport.start();
         try
@@ -193,7 +219,44 @@ public class TCPandSSLTransportTest extends QpidTestCase
         }
     }
 
+    private AmqpPort<?> createPort(final SSLContext sslContext) throws Exception
+    {
+        final AmqpPort<?> port = mock(AmqpPort.class);
+        when(port.getPort()).thenReturn(0);
+        when(port.getName()).thenReturn("testAmqp");
+        when(port.getNetworkBufferSize()).thenReturn(64*1024);
+        when(port.canAcceptNewConnection(any(SocketAddress.class))).thenReturn(true);
+        when(port.getThreadPoolSize()).thenReturn(2);
+        when(port.getNumberOfSelectors()).thenReturn(1);
+        when(port.getSSLContext()).thenReturn(sslContext);
+        when(port.getContextValue(Long.class, AmqpPort.PORT_AMQP_THREAD_POOL_KEEP_ALIVE_TIMEOUT)).thenReturn(1l);
+        when(port.getContextValue(Integer.class, AmqpPort.PORT_AMQP_ACCEPT_BACKLOG)).thenReturn(AmqpPort.DEFAULT_PORT_AMQP_ACCEPT_BACKLOG);
+        when(port.getContextValue(Integer.class, AmqpPort.PORT_AMQP_THREAD_POOL_STEAL_THRESHOLD)).thenReturn(AmqpPort.DEFAULT_PORT_AMQP_THREAD_POOL_STEAL_THRESHOLD);
+        when(port.getProtocolHandshakeTimeout()).thenReturn(AmqpPort.DEFAULT_PROTOCOL_HANDSHAKE_TIMEOUT);
+        ObjectMapper mapper = new ObjectMapper();
+        JavaType type = mapper.getTypeFactory().constructCollectionType(List.class, String.class);
+        List<String> whiteList = mapper.readValue(Broker.DEFAULT_SECURITY_TLS_PROTOCOL_WHITE_LIST, type);
+        List<String> blackList = mapper.readValue(Broker.DEFAULT_SECURITY_TLS_PROTOCOL_BLACK_LIST, type);
+        when(port.getTlsProtocolBlackList()).thenReturn(blackList);
+        when(port.getTlsProtocolWhiteList()).thenReturn(whiteList);
+        final Broker broker = mock(Broker.class);
+        when(broker.getEventLogger()).thenReturn(mock(EventLogger.class));
+        when(port.getParent(Broker.class)).thenReturn(broker);
+
+        return port;
+    }
 
+    private TCPandSSLTransport createTransport(final AmqpPort<?> port, final Transport... transports)
+    {
+        return new TCPandSSLTransport(new HashSet<>(Arrays.asList(transports)),
+                                      port,
+                                      new HashSet<>(Arrays.asList(Protocol.AMQP_0_8,
+                                                                  Protocol.AMQP_0_9,
+                                                                  Protocol.AMQP_0_9_1,
+                                                                  Protocol.AMQP_0_10,
+                                                                  Protocol.AMQP_1_0)),
+                                      Protocol.AMQP_0_9_1);
+    }
 
     // self signed cert keystore valid until Oct 2024
     private static String keystoreString = "/u3+7QAAAAIAAAABAAAAAQAKc2VsZnNpZ25lZAAAAUkYmo+uAAAFATCCBP0wDgYKKwYBBAEqAhEB"
@@ -22,19 +22,34 @@ package org.apache.qpid.server.virtualhost;
 
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Collections;
 import java.util.concurrent.ExecutionException;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import org.apache.qpid.server.logging.EventLogger;
+import org.apache.qpid.server.message.MessageReference;
+import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.model.Queue;
+import org.apache.qpid.server.plugin.MessageMetaDataType;
+import org.apache.qpid.server.store.MessageEnqueueRecord;
 import org.apache.qpid.server.store.MessageStore;
+import org.apache.qpid.server.store.StorableMessageMetaData;
+import org.apache.qpid.server.store.StoredMessage;
 import org.apache.qpid.server.store.TransactionLogResource;
+import org.apache.qpid.server.store.handler.MessageHandler;
 import org.apache.qpid.server.store.handler.MessageInstanceHandler;
 import org.apache.qpid.server.util.ServerScopedRuntimeException;
 import org.apache.qpid.test.utils.QpidTestCase;
@@ -63,7 +78,9 @@ public class AsynchronousMessageStoreRecovererTest extends QpidTestCase
     {
         ServerScopedRuntimeException exception = new ServerScopedRuntimeException("test");
         doThrow(exception).when(_storeReader).visitMessageInstances(any(TransactionLogResource.class),
-                                                                                             any(MessageInstanceHandler.class));
+                                                                    anyLong(),
+                                                                    anyLong(),
+                                                                    any(MessageInstanceHandler.class));
         Queue<?> queue = mock(Queue.class);
         when(_virtualHost.getChildren(eq(Queue.class))).thenReturn(Collections.singleton(queue));
 
@@ -89,4 +106,153 @@ public class AsynchronousMessageStoreRecovererTest extends QpidTestCase
         ListenableFuture<Void> result = recoverer.recover(_virtualHost);
         assertNull(result.get());
     }
+
+    public void testRecoveryUsesPrefetchedMessages() throws Exception
+    {
+        recoverSingleMessage(false);
+    }
+
+    public void testLazyRecoveryReleasesMessageContent() throws Exception
+    {
+        when(_virtualHost.getContextValue(Boolean.class, QueueManagingVirtualHost.VIRTUALHOST_RECOVERY_LAZY)).thenReturn(true);
+
+        StoredMessage<?> storedMessage = recoverSingleMessage(true);
+        verify(storedMessage).flowToDisk();
+    }
+
+    public void testRecoveryInChunks() throws Exception
+    {
+        when(_virtualHost.getContextValue(Integer.class, QueueManagingVirtualHost.VIRTUALHOST_RECOVERY_CHUNK_SIZE)).thenReturn(1);
+        when(_store.getNextMessageId()).thenReturn(3L);
+
+        final StoredMessage<?> storedMessage1 = createStoredMessage(1L);
+        final StoredMessage<?> storedMessage2 = createStoredMessage(2L);
+        final ServerMessage<?> message1 = createServerMessage(storedMessage1);
+        final ServerMessage<?> message2 = createServerMessage(storedMessage2);
+        final MessageReference<?> reference1 = message1.newReference();
+        final MessageReference<?> reference2 = message2.newReference();
+        final MessageEnqueueRecord record1 = createEnqueueRecord(1L);
+        final MessageEnqueueRecord record2 = createEnqueueRecord(2L);
+
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable
+            {
+                final MessageHandler handler = (MessageHandler) invocation.getArguments()[0];
+                handler.handle(storedMessage1);
+                handler.handle(storedMessage2);
+                return null;
+            }
+        }).when(_storeReader).visitMessages(any(MessageHandler.class));
+
+        final Queue<?> queue = mock(Queue.class);
+        when(_virtualHost.getChildren(eq(Queue.class))).thenReturn(Collections.singleton(queue));
+        answerMessageInstances(queue, 0L, 2L, record1);
+        answerMessageInstances(queue, 2L, 3L, record2);
+
+        AsynchronousMessageStoreRecoverer recoverer = new AsynchronousMessageStoreRecoverer();
+        assertNull(recoverer.recover(_virtualHost).get());
+
+        InOrder inOrder = inOrder(_storeReader, queue);
+        inOrder.verify(_storeReader).visitMessageInstances(eq(queue), eq(0L), eq(2L), any(MessageInstanceHandler.class));
+        inOrder.verify(queue).recover(message1, record1);
+        inOrder.verify(_storeReader).visitMessageInstances(eq(queue), eq(2L), eq(3L), any(MessageInstanceHandler.class));
+        inOrder.verify(queue).recover(message2, record2);
+        inOrder.verify(queue).completeRecovery();
+        verify(reference1).release();
+        verify(reference2).release();
+        verify(_storeReader, never()).visitMessageInstances(eq(queue), any(MessageInstanceHandler.class));
+        assertEquals("Unexpected recovered count", 2L, recoverer.getRecoveredMessageInstanceCount());
+    }
+
+    private StoredMessage<?> recoverSingleMessage(final boolean lazy) throws Exception
+    {
+        final StoredMessage<?> storedMessage = createStoredMessage(1L);
+        final ServerMessage<?> message = createServerMessage(storedMessage);
+        final MessageReference<?> reference = message.newReference();
+        when(_store.getNextMessageId()).thenReturn(2L);
+
+        final MessageEnqueueRecord record = createEnqueueRecord(1L);
+
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable
+            {
+                ((MessageHandler) invocation.getArguments()[0]).handle(storedMessage);
+                return null;
+            }
+        }).when(_storeReader).visitMessages(any(MessageHandler.class));
+
+        Queue<?> queue = mock(Queue.class);
+        when(_virtualHost.getChildren(eq(Queue.class))).thenReturn(Collections.singleton(queue));
+        answerMessageInstances(queue, 0L, 2L, record);
+
+        AsynchronousMessageStoreRecoverer recoverer = new AsynchronousMessageStoreRecoverer();
+        ListenableFuture<Void> result = recoverer.recover(_virtualHost);
+        assertNull(result.get());
+
+        verify(queue).recover(message, record);
+        verify(queue).completeRecovery();
+        verify(reference).release();
+        verify(_storeReader, never()).getMessage(anyLong());
+        if (!lazy)
+        {
+            verify(storedMessage, never()).flowToDisk();
+        }
+        assertEquals("Unexpected recovering queue count", 0, recoverer.getRecoveringQueueCount());
+        assertEquals("Unexpected recovered count", 1L, recoverer.getRecoveredMessageInstanceCount());
+        return storedMessage;
+    }
+
+    private void answerMessageInstances(final Queue<?> queue,
+                                        final long fromMessageId,
+                                        final long toMessageId,
+                                        final MessageEnqueueRecord record)
+    {
+        doAnswer(new Answer<Void>()
+        {
+            @Override
+            public Void answer(final InvocationOnMock invocation) throws Throwable
+            {
+                ((MessageInstanceHandler) invocation.getArguments()[3]).handle(record);
+                return null;
+            }
+        }).when(_storeReader).visitMessageInstances(eq(queue),
+                                                    eq(fromMessageId),
+                                                    eq(toMessageId),
+                                                    any(MessageInstanceHandler.class));
+    }
+
+    private StoredMessage<?> createStoredMessage(final long messageId)
+    {
+        final StoredMessage storedMessage = mock(StoredMessage.class);
+        StorableMessageMetaData metaData = mock(StorableMessageMetaData.class);
+        MessageMetaDataType type = mock(MessageMetaDataType.class);
+        when(storedMessage.getMessageNumber()).thenReturn(messageId);
+        when(storedMessage.getMetaData()).thenReturn(metaData);
+        when(metaData.getType()).thenReturn(type);
+        return storedMessage;
+    }
+
+    private ServerMessage<?> createServerMessage(final StoredMessage storedMessage)
+    {
+        final MessageMetaDataType type = storedMessage.getMetaData().getType();
+        ServerMessage message = mock(ServerMessage.class);
+        MessageReference reference = mock(MessageReference.class);
+        when(type.createMessage(storedMessage)).thenReturn(message);
+        when(message.newReference()).thenReturn(reference);
+        when(message.getStoredMessage()).thenReturn(storedMessage);
+        when(message.getMessageNumber()).thenReturn(storedMessage.getMessageNumber());
+        when(reference.getMessage()).thenReturn(message);
+        return message;
+    }
+
+    private MessageEnqueueRecord createEnqueueRecord(final long messageId)
+    {
+        final MessageEnqueueRecord record = mock(MessageEnqueueRecord.class);
+        when(record.getMessageNumber()).thenReturn(messageId);
+        return record;
+    }
 }
@@ -57,6 +57,11 @@ public class RuleBasedAccessControl implements AccessControl<CachingSecurityToke
         return _ruleSet.getDefault();
     }
 
+    public RuleSet getRuleSet()
+    {
+        return _ruleSet;
+    }
+
     @Override
     public CachingSecurityToken newToken()
     {
@@ -23,17 +23,17 @@ import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.EnumMap;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.WeakHashMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import javax.security.auth.Subject;
 
+import com.google.common.collect.MapMaker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,9 +42,16 @@ import org.apache.qpid.server.logging.EventLoggerProvider;
 import org.apache.qpid.server.logging.messages.AccessControlMessages;
 import org.apache.qpid.server.security.Result;
 import org.apache.qpid.server.security.access.plugins.RuleOutcome;
+import org.apache.qpid.server.stats.LatencyHistogram;
+import org.apache.qpid.server.stats.StripedCounter;
 
 /**
  * Models the rule configuration for the access control plugin.
+ * <p>
+ * On construction the rules are compiled into an index from operation and object type to the rules which could apply,
+ * in rule order.  Each subject then has its own decision cache holding, for every operation and object type it has
+ * been checked against, the indexed rules which apply to its principals.  Both are read without locking.  A rule set
+ * is never modified after construction, so changing the rules replaces the rule set and with it all of the caches.
  */
 public class RuleSet implements EventLoggerProvider
 {
@@ -55,9 +62,16 @@ public class RuleSet implements EventLoggerProvider
 
     private static final Integer _increment = 10;
 
+    private static final LegacyOperation[] OPERATIONS = LegacyOperation.values();
+    private static final ObjectType[] OBJECT_TYPES = ObjectType.values();
+
     private final List<Rule> _rules;
-    private final Map<Subject, Map<LegacyOperation, Map<ObjectType, List<Rule>>>> _cache =
-                        Collections.synchronizedMap(new WeakHashMap<Subject, Map<LegacyOperation, Map<ObjectType, List<Rule>>>>());
+    /** rules indexed by {@link #indexOf(LegacyOperation, ObjectType)}, null where no rule controls the pair */
+    private final List<List<Rule>> _rulesByOperationAndObjectType;
+    private final ConcurrentMap<Subject, SubjectRules> _subjectRules = new MapMaker().weakKeys().makeMap();
+    private final StripedCounter _decisionCacheHits = new StripedCounter();
+    private final StripedCounter _decisionCacheMisses = new StripedCounter();
+    private final LatencyHistogram _checkLatency = new LatencyHistogram();
     private final Map<String, Boolean> _config = new HashMap<String, Boolean>();
     private final EventLoggerProvider _eventLogger;
     private Result _defaultResult = Result.DENIED;
@@ -68,6 +82,7 @@ public class RuleSet implements EventLoggerProvider
     {
         _eventLogger = eventLogger;
         _rules = new ArrayList<>(rules);
+        _rulesByOperationAndObjectType = compile(_rules);
         _defaultResult = defaultResult;
     }
 
@@ -76,51 +91,78 @@ public class RuleSet implements EventLoggerProvider
         return _rules.size();
     }
 
-    /**
-     * Filtered rules list based on a subject and operation.
-     *
-     * Allows only enabled rules with identity equal to all, the same, or a group with identity as a member,
-     * and operation is either all or the same operation.
-     */
-    private List<Rule> getRules(final Subject subject, final LegacyOperation operation, final ObjectType objectType)
+    private static int indexOf(final LegacyOperation operation, final ObjectType objectType)
     {
-        final Map<ObjectType, List<Rule>> objects = getObjectToRuleCache(subject, operation);
+        return operation.ordinal() * OBJECT_TYPES.length + objectType.ordinal();
+    }
 
-        // Lookup object type rules for the operation
-        if (!objects.containsKey(objectType))
+    private static List<List<Rule>> compile(final List<Rule> rules)
+    {
+        final List<List<Rule>> index = new ArrayList<>(OPERATIONS.length * OBJECT_TYPES.length);
+        for (LegacyOperation operation : OPERATIONS)
         {
-            final Set<Principal> principals = subject.getPrincipals();
-            boolean controlled = false;
-            List<Rule> filtered = new LinkedList<Rule>();
-            for (Rule rule : _rules)
+            for (ObjectType objectType : OBJECT_TYPES)
             {
-                final Action ruleAction = rule.getAction();
-                if ((ruleAction.getOperation() == LegacyOperation.ALL || ruleAction.getOperation() == operation)
-                    && (ruleAction.getObjectType() == ObjectType.ALL || ruleAction.getObjectType() == objectType))
+                List<Rule> controlling = null;
+                for (Rule rule : rules)
                 {
-                    controlled = true;
-
-                    if (isRelevant(principals,rule))
+                    final Action ruleAction = rule.getAction();
+                    if ((ruleAction.getOperation() == LegacyOperation.ALL || ruleAction.getOperation() == operation)
+                        && (ruleAction.getObjectType() == ObjectType.ALL || ruleAction.getObjectType() == objectType))
                     {
-                        filtered.add(rule);
+                        if (controlling == null)
+                        {
+                            controlling = new ArrayList<>();
+                        }
+                        controlling.add(rule);
                     }
                 }
+                index.add(controlling == null ? null : Collections.unmodifiableList(controlling));
             }
+        }
+        return index;
+    }
+
+    /**
+     * Filtered rules list based on a subject and operation.
+     *
+     * Allows only enabled rules with identity equal to all, the same, or a group with identity as a member,
+     * and operation is either all or the same operation.  Returns null if there are no rules at all for the
+     * operation and object type.
+     */
+    private List<Rule> getRules(final Subject subject, final LegacyOperation operation, final ObjectType objectType)
+    {
+        final int index = indexOf(operation, objectType);
+        final List<Rule> controlling = _rulesByOperationAndObjectType.get(index);
+        if (controlling == null)
+        {
+            return null;
+        }
 
-            // Return null if there are no rules at all for this operation and object type
-            if (filtered.isEmpty() && !controlled)
+        SubjectRules subjectRules = _subjectRules.get(subject);
+        if (subjectRules == null)
+        {
+            subjectRules = new SubjectRules(subject);
+            final SubjectRules existing = _subjectRules.putIfAbsent(subject, subjectRules);
+            if (existing != null)
             {
-                filtered = null;
+                subjectRules = existing;
             }
+        }
 
-            // Save the rules we selected
-            objects.put(objectType, filtered);
+        List<Rule> rules = subjectRules.get(index);
+        if (rules == null)
+        {
+            _decisionCacheMisses.increment();
+            rules = subjectRules.filter(controlling);
+            subjectRules.set(index, rules);
 
-            _logger.debug("Cached {} RulesList: {}", objectType, filtered);
+            _logger.debug("Cached {} {} RulesList: {}", operation, objectType, rules);
+        }
+        else
+        {
+            _decisionCacheHits.increment();
         }
-
-        // Return the cached rules
-        List<Rule> rules = objects.get(objectType);
 
         _logger.debug("Returning RuleList: {}", rules);
 
@@ -147,6 +189,23 @@ public class RuleSet implements EventLoggerProvider
      * to have a default deny or allow rule at the end of an access configuration however.
      */
     public Result check(Subject subject, LegacyOperation operation, ObjectType objectType, ObjectProperties properties, InetAddress addressOfClient)
+    {
+        final long startTime = System.nanoTime();
+        try
+        {
+            return checkRules(subject, operation, objectType, properties, addressOfClient);
+        }
+        finally
+        {
+            _checkLatency.recordSince(startTime);
+        }
+    }
+
+    private Result checkRules(final Subject subject,
+                              final LegacyOperation operation,
+                              final ObjectType objectType,
+                              final ObjectProperties properties,
+                              final InetAddress addressOfClient)
     {
         ClientAction action = new ClientAction(operation, objectType, properties);
 
@@ -226,50 +285,75 @@ public class RuleSet implements EventLoggerProvider
          return Collections.unmodifiableList(_rules);
      }
 
-    private boolean isRelevant(final Set<Principal> principals, final Rule rule)
+    /**
+     * @return the number of checks answered from a subject's decision cache
+     */
+    public long getDecisionCacheHits()
     {
-        if (rule.getIdentity().equalsIgnoreCase(Rule.ALL))
-        {
-            return true;
-        }
-        else
+        return _decisionCacheHits.get();
+    }
+
+    /**
+     * @return the number of checks which had to select the rules applying to a subject
+     */
+    public long getDecisionCacheMisses()
+    {
+        return _decisionCacheMisses.get();
+    }
+
+    public LatencyHistogram getCheckLatency()
+    {
+        return _checkLatency;
+    }
+
+    public EventLogger getEventLogger()
+    {
+        return _eventLogger.getEventLogger();
+    }
+
+    /**
+     * The decision cache of a single subject.  Slots are filled at most once per rule set, and since a filtered
+     * list depends only on the rule set and the subject's principals, threads racing to fill a slot store equal
+     * lists.
+     */
+    private static final class SubjectRules
+    {
+        private final Set<String> _principalNames = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        private final AtomicReferenceArray<List<Rule>> _rules =
+                new AtomicReferenceArray<>(OPERATIONS.length * OBJECT_TYPES.length);
+
+        private SubjectRules(final Subject subject)
         {
-            for (Iterator<Principal> iterator = principals.iterator(); iterator.hasNext();)
+            for (Principal principal : subject.getPrincipals())
             {
-                final Principal principal = iterator.next();
-
-                if (rule.getIdentity().equalsIgnoreCase(principal.getName()))
+                if (principal.getName() != null)
                 {
-                    return true;
+                    _principalNames.add(principal.getName());
                 }
             }
         }
 
-        return false;
-    }
-
-    private Map<ObjectType, List<Rule>> getObjectToRuleCache(final Subject subject, final LegacyOperation operation)
-    {
-        // Lookup identity in cache and create empty operation map if required
-        Map<LegacyOperation, Map<ObjectType, List<Rule>>> operations = _cache.get(subject);
-        if (operations == null)
+        private List<Rule> get(final int index)
         {
-            operations = Collections.synchronizedMap(new EnumMap<LegacyOperation, Map<ObjectType, List<Rule>>>(LegacyOperation.class));
-            _cache.put(subject, operations);
+            return _rules.get(index);
         }
 
-        // Lookup operation and create empty object type map if required
-        Map<ObjectType, List<Rule>> objects = operations.get(operation);
-        if (objects == null)
+        private void set(final int index, final List<Rule> rules)
         {
-            objects = Collections.synchronizedMap(new EnumMap<ObjectType, List<Rule>>(ObjectType.class));
-            operations.put(operation, objects);
+            _rules.lazySet(index, rules);
         }
-        return objects;
-    }
 
-    public EventLogger getEventLogger()
-    {
-        return _eventLogger.getEventLogger();
+        private List<Rule> filter(final List<Rule> controlling)
+        {
+            final List<Rule> filtered = new ArrayList<>();
+            for (Rule rule : controlling)
+            {
+                if (rule.getIdentity().equalsIgnoreCase(Rule.ALL) || _principalNames.contains(rule.getIdentity()))
+                {
+                    filtered.add(rule);
+                }
+            }
+            return filtered.isEmpty() ? Collections.<Rule>emptyList() : Collections.unmodifiableList(filtered);
+        }
     }
 }
@@ -40,7 +40,7 @@ import org.apache.qpid.server.security.access.config.RuleBasedAccessControl;
 import org.apache.qpid.server.util.urlstreamhandler.data.Handler;
 
 abstract class AbstractLegacyAccessControlProvider<X extends AbstractLegacyAccessControlProvider<X,T,Y>, T extends EventLoggerProvider & ConfiguredObject<?>, Y extends CommonAccessControlProvider<Y>>
-        extends AbstractAccessControlProvider<X, Y, T> implements EventLoggerProvider
+        extends AbstractAccessControlProvider<X, Y, T> implements EventLoggerProvider, LegacyAccessControlProvider<X>
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractLegacyAccessControlProvider.class);
 
@@ -123,4 +123,36 @@ abstract class AbstractLegacyAccessControlProvider<X extends AbstractLegacyAcces
         return _accessControl;
     }
 
+    @Override
+    public long getDecisionCacheHits()
+    {
+        final RuleBasedAccessControl accessControl = _accessControl;
+        return accessControl == null ? 0L : accessControl.getRuleSet().getDecisionCacheHits();
+    }
+
+    @Override
+    public long getDecisionCacheMisses()
+    {
+        final RuleBasedAccessControl accessControl = _accessControl;
+        return accessControl == null ? 0L : accessControl.getRuleSet().getDecisionCacheMisses();
+    }
+
+    @Override
+    public long getCheckLatencyP50()
+    {
+        return getCheckLatencyAtPercentile(50.0);
+    }
+
+    @Override
+    public long getCheckLatencyP99()
+    {
+        return getCheckLatencyAtPercentile(99.0);
+    }
+
+    private long getCheckLatencyAtPercentile(final double percentile)
+    {
+        final RuleBasedAccessControl accessControl = _accessControl;
+        return accessControl == null ? 0L : accessControl.getRuleSet().getCheckLatency().getValueAtPercentile(percentile);
+    }
+
 }
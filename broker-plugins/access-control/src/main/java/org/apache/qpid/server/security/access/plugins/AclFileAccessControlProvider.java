@@ -27,7 +27,8 @@ import org.apache.qpid.server.model.ManagedObject;
 import org.apache.qpid.server.model.ManagedOperation;
 
 @ManagedObject( category = false, type=AclFileAccessControlProvider.ACL_FILE_PROVIDER_TYPE )
-public interface AclFileAccessControlProvider<X extends AclFileAccessControlProvider<X>> extends AccessControlProvider<X>
+public interface AclFileAccessControlProvider<X extends AclFileAccessControlProvider<X>> extends AccessControlProvider<X>,
+                                                                                                       LegacyAccessControlProvider<X>
 {
     String ACL_FILE_PROVIDER_TYPE = "AclFile";
     String PATH = "path";
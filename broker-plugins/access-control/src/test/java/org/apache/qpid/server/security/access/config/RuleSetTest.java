@@ -484,4 +484,33 @@ public class RuleSetTest extends QpidTestCase
 
         assertEquals(Result.ALLOWED, ruleSet.check(subjectInAllowedGroupAndOneOther, LegacyOperation.ACCESS, ObjectType.VIRTUALHOST, ObjectProperties.EMPTY));
     }
+
+    public void testDecisionCachedPerSubject()
+    {
+        _ruleSetCreator.addRule(1, TEST_USER, RuleOutcome.ALLOW, LegacyOperation.ACCESS, ObjectType.VIRTUALHOST, ObjectProperties.EMPTY);
+        RuleSet ruleSet = createRuleSet();
+        Subject otherSubject = TestPrincipalUtils.createTestSubject("other");
+
+        assertEquals(Result.ALLOWED, ruleSet.check(_testSubject, LegacyOperation.ACCESS, ObjectType.VIRTUALHOST, ObjectProperties.EMPTY));
+        assertEquals(Result.ALLOWED, ruleSet.check(_testSubject, LegacyOperation.ACCESS, ObjectType.VIRTUALHOST, ObjectProperties.EMPTY));
+        assertEquals(Result.DEFER, ruleSet.check(otherSubject, LegacyOperation.ACCESS, ObjectType.VIRTUALHOST, ObjectProperties.EMPTY));
+        assertEquals(Result.DEFER, ruleSet.check(otherSubject, LegacyOperation.ACCESS, ObjectType.VIRTUALHOST, ObjectProperties.EMPTY));
+
+        assertEquals("Unexpected number of cache misses", 2, ruleSet.getDecisionCacheMisses());
+        assertEquals("Unexpected number of cache hits", 2, ruleSet.getDecisionCacheHits());
+        assertEquals("Unexpected number of recorded checks", 4, ruleSet.getCheckLatency().getCount());
+
+        // operations which no rule controls are answered from the compiled rules without consulting the cache
+        assertEquals(Result.DENIED, ruleSet.check(_testSubject, LegacyOperation.CREATE, ObjectType.QUEUE, ObjectProperties.EMPTY));
+        assertEquals(2, ruleSet.getDecisionCacheMisses());
+        assertEquals(2, ruleSet.getDecisionCacheHits());
+    }
+
+    public void testIdentityMatchedIgnoringCase()
+    {
+        _ruleSetCreator.addRule(1, TEST_USER.toUpperCase(), RuleOutcome.ALLOW, LegacyOperation.ACCESS, ObjectType.VIRTUALHOST, ObjectProperties.EMPTY);
+        RuleSet ruleSet = createRuleSet();
+
+        assertEquals(Result.ALLOWED, ruleSet.check(_testSubject, LegacyOperation.ACCESS, ObjectType.VIRTUALHOST, ObjectProperties.EMPTY));
+    }
 }
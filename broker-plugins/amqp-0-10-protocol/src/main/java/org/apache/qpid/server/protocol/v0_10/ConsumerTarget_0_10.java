@@ -40,7 +40,6 @@ import org.apache.qpid.server.message.MessageInstance.EntryState;
 import org.apache.qpid.server.message.ServerMessage;
 import org.apache.qpid.server.model.Exchange;
 import org.apache.qpid.server.model.Queue;
-import org.apache.qpid.server.plugin.MessageConverter;
 import org.apache.qpid.server.protocol.MessageConverterRegistry;
 import org.apache.qpid.server.store.TransactionLogResource;
 import org.apache.qpid.server.txn.AutoCommitTransaction;
@@ -206,11 +205,7 @@ public class ConsumerTarget_0_10 extends AbstractConsumerTarget
         }
         else
         {
-            MessageConverter converter =
-                    MessageConverterRegistry.getConverter(serverMsg.getClass(), MessageTransferMessage.class);
-
-
-            msg = (MessageTransferMessage) converter.convert(serverMsg, _session.getAddressSpace());
+            msg = MessageConverterRegistry.convert(serverMsg, MessageTransferMessage.class, _session.getAddressSpace());
         }
         DeliveryProperties origDeliveryProps = msg.getHeader() == null ? null : msg.getHeader().getDeliveryProperties();
         messageProps = msg.getHeader() == null ? null : msg.getHeader().getMessageProperties();
@@ -262,6 +257,8 @@ public class ConsumerTarget_0_10 extends AbstractConsumerTarget
         if(msgCompressed && !compressionSupported && bodyBuffers != null)
         {
             Collection<QpidByteBuffer> uncompressedBuffers = inflateIfPossible(bodyBuffers);
+            // the message properties may be shared with other deliveries of the message
+            messageProps = new MessageProperties(messageProps);
             messageProps.setContentEncoding(null);
             for (QpidByteBuffer buf : bodyBuffers)
             {
@@ -276,10 +273,8 @@ public class ConsumerTarget_0_10 extends AbstractConsumerTarget
                 && ByteBufferUtils.remaining(bodyBuffers) > _session.getConnection().getMessageCompressionThreshold())
         {
             Collection<QpidByteBuffer> compressedBuffers = deflateIfPossible(bodyBuffers);
-            if(messageProps == null)
-            {
-                messageProps = new MessageProperties();
-            }
+            // the message properties may be shared with other deliveries of the message
+            messageProps = messageProps == null ? new MessageProperties() : new MessageProperties(messageProps);
             messageProps.setContentEncoding(GZIPUtils.GZIP_CONTENT_ENCODING);
             for (QpidByteBuffer buf : bodyBuffers)
             {
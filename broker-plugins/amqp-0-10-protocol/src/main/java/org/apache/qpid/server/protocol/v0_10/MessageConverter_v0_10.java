@@ -67,6 +67,20 @@ public class MessageConverter_v0_10 implements MessageConverter<ServerMessage, M
         return new MessageTransferMessage(convertToStoredMessage(serverMsg), null);
     }
 
+    /**
+     * The converted message shares the content of the original, so retains only its converted meta-data.
+     */
+    @Override
+    public long getRetainedSize(final MessageTransferMessage message)
+    {
+        return message.getStoredMessage().getMetaData().getStorableSize();
+    }
+
+    @Override
+    public void dispose(final MessageTransferMessage message)
+    {
+    }
+
     private StoredMessage<MessageMetaData_0_10> convertToStoredMessage(final ServerMessage<?> serverMsg)
     {
         final MessageMetaData_0_10 messageMetaData_0_10 = convertMetaData(serverMsg);
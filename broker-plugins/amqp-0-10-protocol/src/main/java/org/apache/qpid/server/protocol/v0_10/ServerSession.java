@@ -21,7 +21,6 @@
 package org.apache.qpid.server.protocol.v0_10;
 
 import static org.apache.qpid.server.logging.subjects.LogSubjectFormat.CHANNEL_FORMAT;
-import static org.apache.qpid.util.Serial.gt;
 
 import java.security.AccessControlContext;
 import java.security.AccessController;
@@ -37,10 +36,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedMap;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -99,6 +96,7 @@ import org.apache.qpid.server.util.Action;
 import org.apache.qpid.server.util.Deletable;
 import org.apache.qpid.server.util.ServerScopedRuntimeException;
 import org.apache.qpid.transport.Binary;
+import org.apache.qpid.transport.CommandWindow;
 import org.apache.qpid.transport.Connection;
 import org.apache.qpid.transport.MessageCreditUnit;
 import org.apache.qpid.transport.MessageFlow;
@@ -163,8 +161,8 @@ public class ServerSession extends Session
 
     }
 
-    private final SortedMap<Integer, MessageDispositionChangeListener> _messageDispositionListenerMap =
-            new ConcurrentSkipListMap<Integer, MessageDispositionChangeListener>();
+    private final CommandWindow<MessageDispositionChangeListener> _messageDispositionListenerMap =
+            new CommandWindow<MessageDispositionChangeListener>();
 
     private ServerTransaction _transaction;
 
@@ -353,7 +351,10 @@ public class ServerSession extends Session
 
     public void onMessageDispositionChange(MessageTransfer xfr, MessageDispositionChangeListener acceptListener)
     {
-        _messageDispositionListenerMap.put(xfr.getId(), acceptListener);
+        synchronized (_messageDispositionListenerMap)
+        {
+            _messageDispositionListenerMap.put(xfr.getId(), acceptListener);
+        }
     }
 
 
@@ -400,45 +401,33 @@ public class ServerSession extends Session
     {
         RangeSet acquired = RangeSetFactory.createRangeSet();
 
-        if(!_messageDispositionListenerMap.isEmpty())
-        {
-            Iterator<Integer> unacceptedMessages = _messageDispositionListenerMap.keySet().iterator();
-            Iterator<Range> rangeIter = transfers.iterator();
-
-            if(rangeIter.hasNext())
-            {
-                Range range = rangeIter.next();
-
-                while(range != null && unacceptedMessages.hasNext())
+        final List<Integer> ids = new ArrayList<>();
+        final List<MessageDispositionChangeListener> changeListeners = new ArrayList<>();
+        final CommandWindow.Visitor<MessageDispositionChangeListener> collector =
+                new CommandWindow.Visitor<MessageDispositionChangeListener>()
                 {
-                    int next = unacceptedMessages.next();
-                    while(gt(next, range.getUpper()))
-                    {
-                        if(rangeIter.hasNext())
-                        {
-                            range = rangeIter.next();
-                        }
-                        else
-                        {
-                            range = null;
-                            break;
-                        }
-                    }
-                    if(range != null && range.includes(next))
+                    @Override
+                    public void visit(final int id, final MessageDispositionChangeListener changeListener)
                     {
-                        MessageDispositionChangeListener changeListener = _messageDispositionListenerMap.get(next);
-                        if(changeListener != null && changeListener.acquire())
-                        {
-                            acquired.add(next);
-                        }
+                        ids.add(id);
+                        changeListeners.add(changeListener);
                     }
+                };
 
-
-                }
-
+        synchronized (_messageDispositionListenerMap)
+        {
+            for(Range range : transfers)
+            {
+                _messageDispositionListenerMap.visitRange(range.getLower(), range.getUpper(), collector);
             }
+        }
 
-
+        for(int i = 0; i < changeListeners.size(); i++)
+        {
+            if(changeListeners.get(i).acquire())
+            {
+                acquired.add(ids.get(i));
+            }
         }
 
         return acquired;
@@ -448,52 +437,16 @@ public class ServerSession extends Session
     {
         if(ranges != null)
         {
-
-            if(ranges.size() == 1)
+            for(Range range : ranges)
             {
-                Range r = ranges.getFirst();
-                for(int i = r.getLower(); i <= r.getUpper(); i++)
+                List<MessageDispositionChangeListener> changeListeners;
+                synchronized (_messageDispositionListenerMap)
                 {
-                    MessageDispositionChangeListener changeListener = _messageDispositionListenerMap.remove(i);
-                    if(changeListener != null)
-                    {
-                        action.performAction(changeListener);
-                    }
+                    changeListeners = _messageDispositionListenerMap.removeRange(range.getLower(), range.getUpper());
                 }
-            }
-            else if(!_messageDispositionListenerMap.isEmpty())
-            {
-                Iterator<Integer> unacceptedMessages = _messageDispositionListenerMap.keySet().iterator();
-                Iterator<Range> rangeIter = ranges.iterator();
-
-                if(rangeIter.hasNext())
+                for(MessageDispositionChangeListener changeListener : changeListeners)
                 {
-                    Range range = rangeIter.next();
-
-                    while(range != null && unacceptedMessages.hasNext())
-                    {
-                        int next = unacceptedMessages.next();
-                        while(gt(next, range.getUpper()))
-                        {
-                            if(rangeIter.hasNext())
-                            {
-                                range = rangeIter.next();
-                            }
-                            else
-                            {
-                                range = null;
-                                break;
-                            }
-                        }
-                        if(range != null && range.includes(next))
-                        {
-                            MessageDispositionChangeListener changeListener = _messageDispositionListenerMap.remove(next);
-                            action.performAction(changeListener);
-                        }
-
-
-                    }
-
+                    action.performAction(changeListener);
                 }
             }
         }
@@ -501,7 +454,10 @@ public class ServerSession extends Session
 
     public void removeDispositionListener(Method method)
     {
-        _messageDispositionListenerMap.remove(method.getId());
+        synchronized (_messageDispositionListenerMap)
+        {
+            _messageDispositionListenerMap.remove(method.getId());
+        }
     }
 
     public void onClose()
@@ -515,11 +471,16 @@ public class ServerSession extends Session
             getAddressSpace().getDtxRegistry().endAssociations(this);
         }
 
-        for(MessageDispositionChangeListener listener : _messageDispositionListenerMap.values())
+        List<MessageDispositionChangeListener> unsettledListeners;
+        synchronized (_messageDispositionListenerMap)
+        {
+            unsettledListeners = _messageDispositionListenerMap.values();
+            _messageDispositionListenerMap.clear();
+        }
+        for(MessageDispositionChangeListener listener : unsettledListeners)
         {
             listener.onRelease(true);
         }
-        _messageDispositionListenerMap.clear();
 
         for (Action<? super ServerSession> task : _taskList)
         {
@@ -998,7 +959,10 @@ public class ServerSession extends Session
 
     public int getUnacknowledgedMessageCount()
     {
-        return _messageDispositionListenerMap.size();
+        synchronized (_messageDispositionListenerMap)
+        {
+            return _messageDispositionListenerMap.size();
+        }
     }
 
     public boolean getBlocking()
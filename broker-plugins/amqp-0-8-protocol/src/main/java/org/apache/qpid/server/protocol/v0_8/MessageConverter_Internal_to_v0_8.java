@@ -70,6 +70,17 @@ public class MessageConverter_Internal_to_v0_8 implements MessageConverter<Inter
         return new AMQMessage(convertToStoredMessage(serverMsg), null);
     }
 
+    @Override
+    public long getRetainedSize(final AMQMessage message)
+    {
+        return message.getSize() + message.getStoredMessage().getMetaData().getStorableSize();
+    }
+
+    @Override
+    public void dispose(final AMQMessage message)
+    {
+    }
+
     private StoredMessage<MessageMetaData> convertToStoredMessage(final InternalMessage serverMsg)
     {
         final byte[] messageContent = convertToBody(serverMsg.getMessageBody());
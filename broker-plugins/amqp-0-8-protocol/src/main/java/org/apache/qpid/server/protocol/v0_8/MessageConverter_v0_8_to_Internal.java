@@ -89,6 +89,17 @@ public class MessageConverter_v0_8_to_Internal implements MessageConverter<AMQMe
                 new DelegatingMessageHeader(serverMessage.getMessageHeader(), encoding), body);
     }
 
+    @Override
+    public long getRetainedSize(final InternalMessage message)
+    {
+        return message.getSize() + message.getStoredMessage().getMetaData().getStorableSize();
+    }
+
+    @Override
+    public void dispose(final InternalMessage message)
+    {
+    }
+
     private static class ReplyToComponents
     {
         private String _exchange;
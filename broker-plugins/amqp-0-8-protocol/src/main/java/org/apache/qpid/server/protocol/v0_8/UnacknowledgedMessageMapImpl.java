@@ -23,30 +23,62 @@ package org.apache.qpid.server.protocol.v0_8;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 
 import org.apache.qpid.server.message.MessageInstance;
 
+/**
+ * Holds the unacknowledged deliveries of a channel in a ring buffer indexed by delivery tag.
+ * <p>
+ * The channel allocates delivery tags in increasing order, so the ring holds the window of tags from the oldest
+ * unacknowledged delivery to the newest delivery.  The ring doubles in size if the window is densely populated;
+ * if only a few old deliveries keep the window open they are moved to an overflow map so that the ring does not
+ * grow with the number of deliveries made since.  Tags added out of order below the window also go to the
+ * overflow map.
+ */
 class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
 {
-    private Map<Long, MessageInstance> _map;
-    private volatile int _size;
+    private MessageInstance[] _entries;
+    private int _mask;
 
-    private final int _prefetchLimit;
+    /** the tag of the oldest delivery held in the ring, or {@link #_tail} if the ring is empty */
+    private long _head;
+    /** one more than the tag of the newest delivery held in the ring */
+    private long _tail;
+    private int _ringSize;
+
+    private NavigableMap<Long, MessageInstance> _overflow;
+
+    private volatile int _size;
 
     UnacknowledgedMessageMapImpl(int prefetchLimit)
     {
-        _prefetchLimit = prefetchLimit;
-        _map = new LinkedHashMap<>(prefetchLimit);
+        int capacity = Integer.highestOneBit(Math.max(prefetchLimit, 16) - 1) << 1;
+        _entries = new MessageInstance[capacity];
+        _mask = capacity - 1;
     }
 
     public void collect(long deliveryTag, boolean multiple, Map<Long, MessageInstance> msgs)
     {
         if (multiple)
         {
-            collect(deliveryTag, msgs);
+            if (_overflow != null)
+            {
+                msgs.putAll(isAll(deliveryTag) ? _overflow : _overflow.headMap(deliveryTag, true));
+            }
+            final long last = lastTagInRange(deliveryTag);
+            for (long tag = _head; tag <= last; tag++)
+            {
+                final MessageInstance entry = _entries[index(tag)];
+                if (entry != null)
+                {
+                    msgs.put(tag, entry);
+                }
+            }
         }
         else
         {
@@ -59,17 +91,28 @@ class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
 
     }
 
-    public void remove(Map<Long,MessageInstance> msgs)
+    public MessageInstance remove(long deliveryTag)
     {
-        for (Long deliveryTag : msgs.keySet())
+        MessageInstance message;
+        if (deliveryTag >= _head && deliveryTag < _tail)
+        {
+            final int index = index(deliveryTag);
+            message = _entries[index];
+            if (message != null)
+            {
+                _entries[index] = null;
+                _ringSize--;
+                if (deliveryTag == _head)
+                {
+                    advanceHead();
+                }
+            }
+        }
+        else
         {
-            remove(deliveryTag);
+            message = _overflow == null ? null : _overflow.remove(deliveryTag);
         }
-    }
 
-    public MessageInstance remove(long deliveryTag)
-    {
-        MessageInstance message = _map.remove(deliveryTag);
         if(message != null)
         {
             _size--;
@@ -79,16 +122,61 @@ class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
 
     public void visit(Visitor visitor)
     {
-        for (Map.Entry<Long, MessageInstance> entry : _map.entrySet())
+        if (_overflow != null)
         {
-            visitor.callback(entry.getKey(), entry.getValue());
+            for (Map.Entry<Long, MessageInstance> entry : _overflow.entrySet())
+            {
+                visitor.callback(entry.getKey(), entry.getValue());
+            }
+        }
+        for (long tag = _head; tag < _tail; tag++)
+        {
+            final MessageInstance entry = _entries[index(tag)];
+            if (entry != null)
+            {
+                visitor.callback(tag, entry);
+            }
         }
         visitor.visitComplete();
     }
 
     public void add(long deliveryTag, MessageInstance message)
     {
-        if(_map.put(deliveryTag, message) == null)
+        boolean added;
+        if (deliveryTag >= _tail)
+        {
+            if (_ringSize == 0)
+            {
+                _head = deliveryTag;
+            }
+            while (deliveryTag - _head >= _entries.length)
+            {
+                if (_ringSize >= _entries.length / 2)
+                {
+                    grow();
+                }
+                else
+                {
+                    overflowHead(deliveryTag);
+                }
+            }
+            _tail = deliveryTag + 1;
+            added = store(deliveryTag, message);
+        }
+        else if (deliveryTag >= _head)
+        {
+            added = store(deliveryTag, message);
+        }
+        else
+        {
+            if (_overflow == null)
+            {
+                _overflow = new TreeMap<>();
+            }
+            added = _overflow.put(deliveryTag, message) == null;
+        }
+
+        if(added)
         {
             _size++;
         }
@@ -96,9 +184,20 @@ class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
 
     public Collection<MessageInstance> cancelAllMessages()
     {
-        Collection<MessageInstance> currentEntries = _map.values();
-        _map = new LinkedHashMap<>(_prefetchLimit);
-        _size = 0;
+        final List<MessageInstance> currentEntries = new ArrayList<>(_size);
+        if (_overflow != null)
+        {
+            currentEntries.addAll(_overflow.values());
+        }
+        for (long tag = _head; tag < _tail; tag++)
+        {
+            final MessageInstance entry = _entries[index(tag)];
+            if (entry != null)
+            {
+                currentEntries.add(entry);
+            }
+        }
+        clear();
         return currentEntries;
     }
 
@@ -109,30 +208,65 @@ class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
 
     public void clear()
     {
-        _map.clear();
+        for (long tag = _head; tag < _tail; tag++)
+        {
+            _entries[index(tag)] = null;
+        }
+        _head = _tail;
+        _ringSize = 0;
+        _overflow = null;
         _size = 0;
     }
 
     public MessageInstance get(long key)
     {
-        return _map.get(key);
+        if (key >= _head && key < _tail)
+        {
+            return _entries[index(key)];
+        }
+        return _overflow == null ? null : _overflow.get(key);
     }
 
     public Collection<MessageInstance> acknowledge(long deliveryTag, boolean multiple)
     {
         if(multiple)
         {
-            Map<Long, MessageInstance> ackedMessageMap = new LinkedHashMap<>();
-            collect(deliveryTag, multiple, ackedMessageMap);
-            remove(ackedMessageMap);
             List<MessageInstance> acknowledged = new ArrayList<>();
-            for (MessageInstance instance : ackedMessageMap.values())
+            if (_overflow != null)
+            {
+                final Iterator<MessageInstance> iterator =
+                        (isAll(deliveryTag) ? _overflow : _overflow.headMap(deliveryTag, true)).values().iterator();
+                while (iterator.hasNext())
+                {
+                    final MessageInstance instance = iterator.next();
+                    iterator.remove();
+                    _size--;
+                    addIfUnstealable(instance, acknowledged);
+                }
+                if (_overflow.isEmpty())
+                {
+                    _overflow = null;
+                }
+            }
+
+            final long last = lastTagInRange(deliveryTag);
+            for (long tag = _head; tag <= last; tag++)
             {
-                if (instance.makeAcquisitionUnstealable(instance.getAcquiringConsumer()))
+                final int index = index(tag);
+                final MessageInstance instance = _entries[index];
+                if (instance != null)
                 {
-                    acknowledged.add(instance);
+                    _entries[index] = null;
+                    _ringSize--;
+                    _size--;
+                    addIfUnstealable(instance, acknowledged);
                 }
             }
+            if (last >= _head)
+            {
+                _head = last + 1;
+                advanceHead();
+            }
             return acknowledged;
         }
         else
@@ -151,16 +285,86 @@ class UnacknowledgedMessageMapImpl implements UnacknowledgedMessageMap
         }
     }
 
-    private void collect(long key, Map<Long, MessageInstance> msgs)
+    private void addIfUnstealable(final MessageInstance instance, final List<MessageInstance> acknowledged)
     {
-        for (Map.Entry<Long, MessageInstance> entry : _map.entrySet())
+        if (instance.makeAcquisitionUnstealable(instance.getAcquiringConsumer()))
         {
-            msgs.put(entry.getKey(), entry.getValue());
-            if (entry.getKey() == key)
-            {
-                break;
-            }
+            acknowledged.add(instance);
+        }
+    }
+
+    /**
+     * A cumulative acknowledgement of delivery tag zero acknowledges all outstanding deliveries
+     */
+    private boolean isAll(final long deliveryTag)
+    {
+        return deliveryTag == 0L;
+    }
+
+    private long lastTagInRange(final long deliveryTag)
+    {
+        return isAll(deliveryTag) ? _tail - 1 : Math.min(deliveryTag, _tail - 1);
+    }
+
+    private int index(final long deliveryTag)
+    {
+        return (int) (deliveryTag & _mask);
+    }
+
+    private boolean store(final long deliveryTag, final MessageInstance message)
+    {
+        final int index = index(deliveryTag);
+        final boolean added = _entries[index] == null;
+        _entries[index] = message;
+        if (added)
+        {
+            _ringSize++;
         }
+        return added;
     }
 
+    private void advanceHead()
+    {
+        while (_head < _tail && _entries[index(_head)] == null)
+        {
+            _head++;
+        }
+    }
+
+    private void grow()
+    {
+        final MessageInstance[] entries = new MessageInstance[_entries.length << 1];
+        final int mask = entries.length - 1;
+        for (long tag = _head; tag < _tail; tag++)
+        {
+            entries[(int) (tag & mask)] = _entries[index(tag)];
+        }
+        _entries = entries;
+        _mask = mask;
+    }
+
+    /**
+     * Moves the oldest delivery in the ring to the overflow map, so that the window starts at the next delivery
+     * held, or at the given tag if there is none.
+     */
+    private void overflowHead(final long deliveryTag)
+    {
+        final int index = index(_head);
+        if (_overflow == null)
+        {
+            _overflow = new TreeMap<>();
+        }
+        _overflow.put(_head, _entries[index]);
+        _entries[index] = null;
+        _ringSize--;
+        if (_ringSize == 0)
+        {
+            _head = deliveryTag;
+        }
+        else
+        {
+            _head++;
+            advanceHead();
+        }
+    }
 }
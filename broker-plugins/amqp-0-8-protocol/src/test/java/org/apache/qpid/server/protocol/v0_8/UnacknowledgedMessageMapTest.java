@@ -23,7 +23,9 @@ package org.apache.qpid.server.protocol.v0_8;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import org.apache.qpid.server.consumer.ConsumerImpl;
 import org.apache.qpid.server.message.MessageInstance;
@@ -66,6 +68,106 @@ public class UnacknowledgedMessageMapTest extends QpidTestCase
 
     }
 
+    public void testSingleAndCumulativeAcknowledge()
+    {
+        UnacknowledgedMessageMap map = new UnacknowledgedMessageMapImpl(100);
+        MessageInstance[] msgs = populateMap(map, 10);
+
+        Collection<MessageInstance> acknowledged = map.acknowledge(3, false);
+        assertEquals("Unexpected number of acknowledged messages", 1, acknowledged.size());
+        assertTrue("Message 3 is missing", acknowledged.contains(msgs[3]));
+        assertEquals("Unexpected number of acknowledged messages", 0, map.acknowledge(3, false).size());
+        assertNull("Message 3 should have been removed", map.get(3));
+
+        acknowledged = map.acknowledge(5, true);
+        assertEquals("Unexpected number of acknowledged messages", 5, acknowledged.size());
+        for (int i = 0; i <= 5; i++)
+        {
+            assertEquals("Unexpected acknowledgement of message " + i, i != 3, acknowledged.contains(msgs[i]));
+        }
+        assertEquals("Unexpected size", 4, map.size());
+        assertSame("Unexpected message", msgs[6], map.get(6));
+
+        acknowledged = map.acknowledge(0, true);
+        assertEquals("Unexpected number of acknowledged messages", 4, acknowledged.size());
+        assertEquals("Unexpected size", 0, map.size());
+    }
+
+    public void testMoreDeliveriesThanPrefetch()
+    {
+        UnacknowledgedMessageMap map = new UnacknowledgedMessageMapImpl(16);
+        final int expectedSize = 100;
+        MessageInstance[] msgs = populateMap(map, expectedSize);
+        assertEquals("Unexpected size", expectedSize, map.size());
+
+        for (int i = 0; i < expectedSize; i++)
+        {
+            assertSame("Unexpected message " + i, msgs[i], map.get(i));
+        }
+        assertEquals("Unexpected number of acknowledged messages",
+                     expectedSize, map.acknowledge(expectedSize - 1, true).size());
+        assertEquals("Unexpected size", 0, map.size());
+    }
+
+    public void testLongOutstandingDelivery()
+    {
+        UnacknowledgedMessageMap map = new UnacknowledgedMessageMapImpl(16);
+        MessageInstance first = createMessageInstance(0);
+        map.add(0L, first);
+
+        final int deliveries = 1000;
+        for (int i = 1; i < deliveries; i++)
+        {
+            map.add((long) i, createMessageInstance(i));
+            assertEquals("Unexpected number of acknowledged messages", 1, map.acknowledge(i, false).size());
+        }
+        MessageInstance last = createMessageInstance(deliveries);
+        map.add((long) deliveries, last);
+
+        assertEquals("Unexpected size", 2, map.size());
+        assertSame("Unexpected message", first, map.get(0));
+
+        final List<Long> visited = new ArrayList<>();
+        map.visit(new UnacknowledgedMessageMap.Visitor()
+        {
+            @Override
+            public boolean callback(final long deliveryTag, final MessageInstance message)
+            {
+                visited.add(deliveryTag);
+                return false;
+            }
+
+            @Override
+            public void visitComplete()
+            {
+            }
+        });
+        assertEquals("Unexpected deliveries visited", 2, visited.size());
+        assertEquals("Unexpected first delivery", 0L, (long) visited.get(0));
+        assertEquals("Unexpected last delivery", (long) deliveries, (long) visited.get(1));
+
+        Collection<MessageInstance> acknowledged = map.acknowledge(deliveries, true);
+        assertEquals("Unexpected number of acknowledged messages", 2, acknowledged.size());
+        assertTrue("First message is missing", acknowledged.contains(first));
+        assertTrue("Last message is missing", acknowledged.contains(last));
+        assertEquals("Unexpected size", 0, map.size());
+    }
+
+    public void testCancelAllMessages()
+    {
+        UnacknowledgedMessageMap map = new UnacknowledgedMessageMapImpl(100);
+        MessageInstance[] msgs = populateMap(map, 5);
+
+        Collection<MessageInstance> cancelled = map.cancelAllMessages();
+        assertEquals("Unexpected number of cancelled messages", 5, cancelled.size());
+        for (MessageInstance msg : msgs)
+        {
+            assertTrue("Message is missing", cancelled.contains(msg));
+        }
+        assertEquals("Unexpected size", 0, map.size());
+        assertNull("Message should have been removed", map.get(1));
+    }
+
     public MessageInstance[] populateMap(final UnacknowledgedMessageMap map, int size)
     {
         MessageInstance[] msgs = new MessageInstance[size];
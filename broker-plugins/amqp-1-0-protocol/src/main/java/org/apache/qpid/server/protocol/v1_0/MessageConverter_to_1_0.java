@@ -23,12 +23,15 @@ package org.apache.qpid.server.protocol.v1_0;
 import java.io.EOFException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.qpid.server.model.NamedAddressSpace;
 import org.apache.qpid.server.protocol.v1_0.messaging.SectionEncoder;
@@ -51,6 +54,17 @@ import org.apache.qpid.util.GZIPUtils;
 
 public abstract class MessageConverter_to_1_0<M extends ServerMessage> implements MessageConverter<M, Message_1_0>
 {
+    /** the mime types of bodies which are re-encoded as AMQP values rather than passed through as data */
+    private static final Set<String> STRUCTURED_MIME_TYPES =
+            new HashSet<>(Arrays.asList("text/plain", "text/xml", "jms/map-message", "amqp/map", "amqp/list",
+                                        "jms/stream-message"));
+
+    private static final byte DESCRIBED_TYPE = (byte) 0x00;
+    private static final byte SMALL_ULONG = (byte) 0x53;
+    private static final byte DATA_DESCRIPTOR = (byte) 0x75;
+    private static final byte VBIN8 = (byte) 0xa0;
+    private static final byte VBIN32 = (byte) 0xb0;
+
     private final AMQPDescribedTypeRegistry _typeRegistry = AMQPDescribedTypeRegistry.newInstance()
                                                                                          .registerTransportLayer()
                                                                                          .registerMessagingLayer()
@@ -71,9 +85,32 @@ public abstract class MessageConverter_to_1_0<M extends ServerMessage> implement
         return new Message_1_0(convertToStoredMessage(message, sectionEncoder));
     }
 
+    /**
+     * The converted message holds its encoded sections, both in the meta-data and in its own content buffer.  A body
+     * passed through from the original message is shared rather than retained.
+     */
+    @Override
+    public final long getRetainedSize(final Message_1_0 message)
+    {
+        final MessageMetaData_1_0 metaData = message.getStoredMessage().getMetaData();
+        return message.getSize() - metaData.getExternalBodySize() + 2L * metaData.getStorableSize();
+    }
+
+    @Override
+    public final void dispose(final Message_1_0 message)
+    {
+        message.getStoredMessage().remove();
+    }
+
 
     private StoredMessage<MessageMetaData_1_0> convertToStoredMessage(final M serverMessage, SectionEncoder sectionEncoder)
     {
+        if (isOpaqueBody(serverMessage))
+        {
+            final MessageMetaData_1_0 metaData = convertMetaData(serverMessage, null, sectionEncoder);
+            return convertServerMessageWithOpaqueBody(metaData, serverMessage);
+        }
+
         Section bodySection = getBodySection(serverMessage);
 
         final MessageMetaData_1_0 metaData = convertMetaData(serverMessage, bodySection, sectionEncoder);
@@ -242,7 +279,104 @@ public abstract class MessageConverter_to_1_0<M extends ServerMessage> implement
                         @Override
                         public void remove()
                         {
-                            throw new UnsupportedOperationException();
+                            allData.dispose();
+                            metaData.dispose();
+                        }
+
+                        @Override
+                        public boolean isInMemory()
+                        {
+                            return true;
+                        }
+
+                        @Override
+                        public boolean flowToDisk()
+                        {
+                            return false;
+                        }
+        };
+    }
+
+    /**
+     * Returns whether the content of the message passes through unchanged as a single data section, without
+     * calling {@link #getBodySection(ServerMessage)}.  Converters only enable this where their body section would
+     * be exactly the message content as data, and where {@link #convertMetaData} does not depend on the body section.
+     */
+    protected boolean isOpaqueBody(final M serverMessage)
+    {
+        return false;
+    }
+
+    /**
+     * @return true if the message content is neither re-encoded as an AMQP value nor compressed, so that
+     * {@link #getBodySection(ServerMessage)} would return it as a single data section
+     */
+    protected final boolean hasUnstructuredContent(final M serverMessage)
+    {
+        return !STRUCTURED_MIME_TYPES.contains(serverMessage.getMessageHeader().getMimeType())
+               && !GZIPUtils.GZIP_CONTENT_ENCODING.equals(serverMessage.getMessageHeader().getEncoding());
+    }
+
+    /**
+     * Converts a message whose body passes through unchanged as a single data section.  Only the sections before the
+     * body are encoded; the content of the converted message is a view of those sections followed by the content of
+     * the original message, so the body is never copied.
+     */
+    private StoredMessage<MessageMetaData_1_0> convertServerMessageWithOpaqueBody(final MessageMetaData_1_0 metaData,
+                                                                                  final M serverMessage)
+    {
+        final int bodySize = (int) serverMessage.getSize();
+        final byte[] dataSectionPrefix = encodeDataSectionPrefix(bodySize);
+        final QpidByteBuffer headerData =
+                QpidByteBuffer.allocateDirect(metaData.getStorableSize() + dataSectionPrefix.length);
+        metaData.writeToBuffer(headerData);
+        headerData.put(dataSectionPrefix);
+        headerData.flip();
+        metaData.setExternalBodySize(dataSectionPrefix.length + bodySize);
+
+        if(metaData.getPropertiesSection() != null)
+        {
+            metaData.getPropertiesSection().setContentEncoding(null);
+        }
+
+        return new StoredMessage<MessageMetaData_1_0>()
+                    {
+                        @Override
+                        public MessageMetaData_1_0 getMetaData()
+                        {
+                            return metaData;
+                        }
+
+                        @Override
+                        public long getMessageNumber()
+                        {
+                            return serverMessage.getMessageNumber();
+                        }
+
+                        @Override
+                        public Collection<QpidByteBuffer> getContent(int offset, int length)
+                        {
+                            final int headerSize = headerData.limit();
+                            final List<QpidByteBuffer> content = new ArrayList<>(2);
+                            if (offset < headerSize && length > 0)
+                            {
+                                final int headerLength = Math.min(length, headerSize - offset);
+                                content.add(headerData.view(offset, headerLength));
+                                offset += headerLength;
+                                length -= headerLength;
+                            }
+                            if (length > 0)
+                            {
+                                content.addAll(serverMessage.getContent(offset - headerSize, length));
+                            }
+                            return content;
+                        }
+
+                        @Override
+                        public void remove()
+                        {
+                            headerData.dispose();
+                            metaData.dispose();
                         }
 
                         @Override
@@ -259,6 +393,25 @@ public abstract class MessageConverter_to_1_0<M extends ServerMessage> implement
         };
     }
 
+    /**
+     * @return the encoding of a data section, up to the bytes of its binary value of the given size
+     */
+    static byte[] encodeDataSectionPrefix(final int size)
+    {
+        final ByteBuffer prefix;
+        if (size <= 0xff)
+        {
+            prefix = ByteBuffer.allocate(5);
+            prefix.put(DESCRIBED_TYPE).put(SMALL_ULONG).put(DATA_DESCRIPTOR).put(VBIN8).put((byte) size);
+        }
+        else
+        {
+            prefix = ByteBuffer.allocate(8);
+            prefix.put(DESCRIBED_TYPE).put(SMALL_ULONG).put(DATA_DESCRIPTOR).put(VBIN32).putInt(size);
+        }
+        return prefix.array();
+    }
+
     protected Section getBodySection(final M serverMessage)
     {
         final String mimeType = serverMessage.getMessageHeader().getMimeType();
@@ -59,6 +59,17 @@ public class MessageConverter_v1_0_to_Internal implements MessageConverter<Messa
         return InternalMessage.convert(serverMessage.getMessageNumber(), serverMessage.isPersistent(), serverMessage.getMessageHeader(), bodyObject);
     }
 
+    @Override
+    public long getRetainedSize(final InternalMessage message)
+    {
+        return message.getSize() + message.getStoredMessage().getMetaData().getStorableSize();
+    }
+
+    @Override
+    public void dispose(final InternalMessage message)
+    {
+    }
+
     @Override
     public String getType()
     {
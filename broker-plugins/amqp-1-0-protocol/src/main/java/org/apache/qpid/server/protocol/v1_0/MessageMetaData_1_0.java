@@ -73,6 +73,7 @@ public class MessageMetaData_1_0 implements StorableMessageMetaData
     private volatile List<QpidByteBuffer> _encodedSections = new ArrayList<>(3);
 
     private volatile QpidByteBuffer _encoded;
+    private volatile int _externalBodySize;
     private MessageHeader_1_0 _messageHeader;
 
 
@@ -360,7 +361,21 @@ public class MessageMetaData_1_0 implements StorableMessageMetaData
             buf = encodeAsBuffer();
             _encoded = buf;
         }
-        return buf.remaining();
+        return buf.remaining() + _externalBodySize;
+    }
+
+    /**
+     * Records that in the message content the encoded sections of this meta-data are followed by body sections of the
+     * given size, which are held by the message rather than encoded into the meta-data.
+     */
+    void setExternalBodySize(final int externalBodySize)
+    {
+        _externalBodySize = externalBodySize;
+    }
+
+    int getExternalBodySize()
+    {
+        return _externalBodySize;
     }
 
     public boolean isPersistent()
@@ -0,0 +1,213 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.server.protocol.v1_0;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import org.apache.qpid.bytebuffer.QpidByteBuffer;
+import org.apache.qpid.server.message.AMQMessageHeader;
+import org.apache.qpid.server.message.ServerMessage;
+import org.apache.qpid.server.message.internal.InternalMessage;
+import org.apache.qpid.server.message.internal.InternalMessageHeader;
+import org.apache.qpid.server.protocol.v1_0.messaging.SectionEncoder;
+import org.apache.qpid.server.protocol.v1_0.messaging.SectionEncoderImpl;
+import org.apache.qpid.server.protocol.v1_0.type.Binary;
+import org.apache.qpid.server.protocol.v1_0.type.Section;
+import org.apache.qpid.server.protocol.v1_0.type.Symbol;
+import org.apache.qpid.server.protocol.v1_0.type.codec.AMQPDescribedTypeRegistry;
+import org.apache.qpid.server.protocol.v1_0.type.messaging.Data;
+import org.apache.qpid.server.protocol.v1_0.type.messaging.Properties;
+import org.apache.qpid.server.store.TestMemoryMessageStore;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class MessageConverter_to_1_0Test extends QpidTestCase
+{
+    private final AMQPDescribedTypeRegistry _typeRegistry = AMQPDescribedTypeRegistry.newInstance()
+                                                                                         .registerTransportLayer()
+                                                                                         .registerMessagingLayer();
+
+    public void testDataSectionPrefixMatchesEncodedDataSection()
+    {
+        for (int size : new int[]{0, 1, 255, 256, 70000})
+        {
+            final byte[] body = new byte[size];
+            for (int i = 0; i < size; i++)
+            {
+                body[i] = (byte) i;
+            }
+
+            final SectionEncoder encoder = new SectionEncoderImpl(_typeRegistry);
+            encoder.encodeObject(new Data(new Binary(body)));
+            final Binary encoding = encoder.getEncoding();
+            final byte[] expected = Arrays.copyOfRange(encoding.getArray(),
+                                                       encoding.getArrayOffset(),
+                                                       encoding.getArrayOffset() + encoding.getLength());
+
+            final byte[] prefix = MessageConverter_to_1_0.encodeDataSectionPrefix(size);
+            final byte[] actual = Arrays.copyOf(prefix, prefix.length + size);
+            System.arraycopy(body, 0, actual, prefix.length, size);
+
+            assertTrue("Unexpected encoding of data section of size " + size, Arrays.equals(expected, actual));
+        }
+    }
+
+    public void testOpaqueBodyPassedThroughAsDataSection()
+    {
+        final byte[] body = new byte[300];
+        for (int i = 0; i < body.length; i++)
+        {
+            body[i] = (byte) i;
+        }
+        final String mimeType = "application/octet-stream";
+
+        final AMQMessageHeader header = mock(AMQMessageHeader.class);
+        when(header.getMimeType()).thenReturn(mimeType);
+        final ServerMessage serverMessage = mock(ServerMessage.class);
+        when(serverMessage.getMessageHeader()).thenReturn(header);
+        when(serverMessage.getSize()).thenReturn((long) body.length);
+        when(serverMessage.getContent(anyInt(), anyInt())).thenAnswer(new Answer<Collection<QpidByteBuffer>>()
+        {
+            @Override
+            public Collection<QpidByteBuffer> answer(final InvocationOnMock invocation)
+            {
+                final int offset = (Integer) invocation.getArguments()[0];
+                final int length = Math.min((Integer) invocation.getArguments()[1], body.length - offset);
+                return Collections.singletonList(QpidByteBuffer.wrap(body, offset, length));
+            }
+        });
+
+        final Message_1_0 converted = new TestConverter().convert(serverMessage, null);
+
+        final byte[] expected = encode(createProperties(mimeType), new Data(new Binary(body)));
+        assertEquals("Unexpected size", expected.length, converted.getSize());
+        assertTrue("Unexpected content", Arrays.equals(expected, getContent(converted)));
+    }
+
+    public void testInternalMessageBodyIsConvertedRatherThanPassedThrough() throws Exception
+    {
+        final String mimeType = "application/x-java-serialized-object";
+        final Long body = 42L;
+        final InternalMessageHeader header = new InternalMessageHeader(null, null, 0L, null, null, "messageId",
+                                                                       mimeType, null, (byte) 4, 0L, 0L, null, null);
+        final InternalMessage internalMessage =
+                InternalMessage.createMessage(new TestMemoryMessageStore(), header, body, false);
+
+        final Message_1_0 converted = new MessageConverter_Internal_to_v1_0().convert(internalMessage, null);
+
+        final ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+        try (ObjectOutputStream os = new ObjectOutputStream(bytesOut))
+        {
+            os.writeObject(body);
+        }
+        final byte[] expectedBody = encode(new Data(new Binary(bytesOut.toByteArray())));
+        final byte[] content = getContent(converted);
+
+        assertEquals("Unexpected size", content.length, converted.getSize());
+        assertTrue("Body is not the serialized object as a data section",
+                   Arrays.equals(expectedBody,
+                                 Arrays.copyOfRange(content, content.length - expectedBody.length, content.length)));
+        assertEquals("Unexpected content type", mimeType, converted.getMessageHeader().getMimeType());
+    }
+
+    private byte[] encode(final Section... sections)
+    {
+        final SectionEncoder encoder = new SectionEncoderImpl(_typeRegistry);
+        final ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
+        for (Section section : sections)
+        {
+            encoder.reset();
+            encoder.encodeObject(section);
+            final Binary encoding = encoder.getEncoding();
+            bytesOut.write(encoding.getArray(), encoding.getArrayOffset(), encoding.getLength());
+        }
+        return bytesOut.toByteArray();
+    }
+
+    private static byte[] getContent(final Message_1_0 message)
+    {
+        final byte[] content = new byte[(int) message.getSize()];
+        int position = 0;
+        for (QpidByteBuffer buf : message.getContent(0, content.length))
+        {
+            final int length = buf.remaining();
+            buf.get(content, position, length);
+            buf.dispose();
+            position += length;
+        }
+        assertEquals("Unexpected content length", content.length, position);
+        return content;
+    }
+
+    private static Properties createProperties(final String mimeType)
+    {
+        final Properties properties = new Properties();
+        properties.setContentType(Symbol.valueOf(mimeType));
+        return properties;
+    }
+
+    private static class TestConverter extends MessageConverter_to_1_0<ServerMessage>
+    {
+        @Override
+        public Class<ServerMessage> getInputClass()
+        {
+            return ServerMessage.class;
+        }
+
+        @Override
+        public String getType()
+        {
+            return "Test to v1-0";
+        }
+
+        @Override
+        protected boolean isOpaqueBody(final ServerMessage serverMessage)
+        {
+            return hasUnstructuredContent(serverMessage);
+        }
+
+        @Override
+        protected MessageMetaData_1_0 convertMetaData(final ServerMessage serverMessage,
+                                                      final Section bodySection,
+                                                      final SectionEncoder sectionEncoder)
+        {
+            final List<Section> sections = new ArrayList<>(2);
+            sections.add(createProperties(serverMessage.getMessageHeader().getMimeType()));
+            if (bodySection != null)
+            {
+                sections.add(bodySection);
+            }
+            return new MessageMetaData_1_0(sections, sectionEncoder);
+        }
+    }
+}
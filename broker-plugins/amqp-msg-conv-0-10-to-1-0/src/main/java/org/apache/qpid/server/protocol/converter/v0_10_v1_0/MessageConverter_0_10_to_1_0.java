@@ -150,6 +150,12 @@ public class MessageConverter_0_10_to_1_0  extends MessageConverter_to_1_0<Messa
         return new MessageMetaData_1_0(sections, sectionEncoder);
     }
 
+    @Override
+    protected boolean isOpaqueBody(final MessageTransferMessage serverMessage)
+    {
+        return hasUnstructuredContent(serverMessage);
+    }
+
     @Override
     public String getType()
     {
@@ -177,6 +177,20 @@ public class MessageConverter_0_10_to_0_8 implements MessageConverter<MessageTra
         return new AMQMessage(convertToStoredMessage(message, addressSpace));
     }
 
+    /**
+     * The converted message shares the content of the original, so retains only its converted meta-data.
+     */
+    @Override
+    public long getRetainedSize(final AMQMessage message)
+    {
+        return message.getStoredMessage().getMetaData().getStorableSize();
+    }
+
+    @Override
+    public void dispose(final AMQMessage message)
+    {
+    }
+
     private StoredMessage<MessageMetaData> convertToStoredMessage(final MessageTransferMessage message,
                                                                   NamedAddressSpace addressSpace)
     {
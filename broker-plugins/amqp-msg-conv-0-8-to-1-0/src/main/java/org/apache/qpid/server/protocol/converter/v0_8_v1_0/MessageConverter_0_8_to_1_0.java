@@ -176,6 +176,12 @@ public class MessageConverter_0_8_to_1_0 extends MessageConverter_to_1_0<AMQMess
         return new MessageMetaData_1_0(sections, sectionEncoder);
     }
 
+    @Override
+    protected boolean isOpaqueBody(final AMQMessage serverMessage)
+    {
+        return hasUnstructuredContent(serverMessage);
+    }
+
     @Override
     public String getType()
     {
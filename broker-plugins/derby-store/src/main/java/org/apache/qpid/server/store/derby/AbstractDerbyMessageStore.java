@@ -88,11 +88,12 @@ public abstract class AbstractDerbyMessageStore extends AbstractJDBCMessageStore
         {
             try
             {
-                doClose();
+                // stop the committer first so that any transactions it still holds reach the database
+                super.closeMessageStore();
             }
             finally
             {
-                super.closeMessageStore();
+                doClose();
             }
         }
     }
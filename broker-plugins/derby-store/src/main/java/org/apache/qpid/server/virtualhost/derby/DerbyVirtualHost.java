@@ -22,9 +22,9 @@ package org.apache.qpid.server.virtualhost.derby;
 import org.apache.qpid.server.model.ManagedAttribute;
 import org.apache.qpid.server.store.FileBasedSettings;
 import org.apache.qpid.server.store.SizeMonitoringSettings;
-import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
+import org.apache.qpid.server.virtualhost.CommitBatchingVirtualHost;
 
-public interface DerbyVirtualHost<X extends DerbyVirtualHost<X>> extends QueueManagingVirtualHost<X>,
+public interface DerbyVirtualHost<X extends DerbyVirtualHost<X>> extends CommitBatchingVirtualHost<X>,
                                                                          FileBasedSettings,
                                                                          SizeMonitoringSettings
 {
@@ -29,12 +29,12 @@ import org.apache.qpid.server.store.MessageStore;
 import org.apache.qpid.server.store.derby.DerbyMessageStore;
 import org.apache.qpid.server.store.derby.DerbyUtils;
 import org.apache.qpid.server.util.FileHelper;
-import org.apache.qpid.server.virtualhost.AbstractVirtualHost;
+import org.apache.qpid.server.virtualhost.AbstractCommitBatchingVirtualHost;
 
 import java.util.Map;
 
 @ManagedObject(category = false, type = DerbyVirtualHostImpl.VIRTUAL_HOST_TYPE)
-public class DerbyVirtualHostImpl extends AbstractVirtualHost<DerbyVirtualHostImpl> implements DerbyVirtualHost<DerbyVirtualHostImpl>
+public class DerbyVirtualHostImpl extends AbstractCommitBatchingVirtualHost<DerbyVirtualHostImpl> implements DerbyVirtualHost<DerbyVirtualHostImpl>
 {
     public static final String VIRTUAL_HOST_TYPE = "DERBY";
 
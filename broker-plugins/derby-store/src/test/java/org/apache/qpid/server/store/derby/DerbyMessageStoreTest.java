@@ -22,10 +22,30 @@ package org.apache.qpid.server.store.derby;
 
 
 import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.apache.qpid.server.message.EnqueueableMessage;
 import org.apache.qpid.server.model.VirtualHost;
+import org.apache.qpid.server.store.MessageDurability;
 import org.apache.qpid.server.store.MessageStore;
 import org.apache.qpid.server.store.MessageStoreTestCase;
+import org.apache.qpid.server.store.StoredMessage;
+import org.apache.qpid.server.store.TestMessageMetaData;
+import org.apache.qpid.server.store.Transaction;
+import org.apache.qpid.server.store.TransactionLogResource;
+import org.apache.qpid.server.store.handler.MessageHandler;
 import org.apache.qpid.server.virtualhost.derby.DerbyVirtualHost;
 import org.apache.qpid.util.FileUtils;
 
@@ -35,6 +55,9 @@ import static org.mockito.Mockito.when;
 public class DerbyMessageStoreTest extends MessageStoreTestCase
 {
     private String _storeLocation;
+    private final AtomicBoolean _holdNextCommit = new AtomicBoolean();
+    private final CountDownLatch _commitHeld = new CountDownLatch(1);
+    private final CountDownLatch _commitReleased = new CountDownLatch(1);
 
     @Override
     public void tearDown() throws Exception
@@ -64,6 +87,76 @@ public class DerbyMessageStoreTest extends MessageStoreTestCase
         assertFalse("Store exists at " + _storeLocation, location.exists());
     }
 
+    public void testFlowToDiskWhileRowsArePendingInCommitBatch() throws Exception
+    {
+        final StoredMessage<TestMessageMetaData> message = getStore().addMessage(new TestMessageMetaData(1L, 0)).allContentAdded();
+        final ListenableFuture<Void> commitFuture = commitEnqueueHeldByCommitter(message);
+
+        assertTrue("Message could not flow to disk", message.flowToDisk());
+
+        _commitReleased.countDown();
+        commitFuture.get(10, TimeUnit.SECONDS);
+
+        assertEquals("Unexpected number of stored messages", 1, countStoredMessages());
+    }
+
+    public void testRemoveWhileRowsArePendingInCommitBatch() throws Exception
+    {
+        final StoredMessage<TestMessageMetaData> message = getStore().addMessage(new TestMessageMetaData(1L, 0)).allContentAdded();
+        final ListenableFuture<Void> commitFuture = commitEnqueueHeldByCommitter(message);
+
+        message.remove();
+
+        _commitReleased.countDown();
+        commitFuture.get(10, TimeUnit.SECONDS);
+
+        assertEquals("Removed message remains in store", 0, countStoredMessages());
+    }
+
+    private ListenableFuture<Void> commitEnqueueHeldByCommitter(final StoredMessage<TestMessageMetaData> message)
+            throws InterruptedException
+    {
+        final TransactionLogResource queue = mock(TransactionLogResource.class);
+        when(queue.getId()).thenReturn(UUID.randomUUID());
+        when(queue.getName()).thenReturn("testQueue");
+        when(queue.getMessageDurability()).thenReturn(MessageDurability.DEFAULT);
+
+        final EnqueueableMessage enqueueableMessage = mock(EnqueueableMessage.class);
+        when(enqueueableMessage.isPersistent()).thenReturn(true);
+        when(enqueueableMessage.getMessageNumber()).thenReturn(message.getMessageNumber());
+        when(enqueueableMessage.getStoredMessage()).thenReturn(message);
+
+        _holdNextCommit.set(true);
+        final Transaction txn = getStore().newTransaction();
+        txn.enqueueMessage(queue, enqueueableMessage);
+        final ListenableFuture<Void> commitFuture = txn.commitTranAsync(null);
+        assertTrue("Committer did not write the batch", _commitHeld.await(10, TimeUnit.SECONDS));
+        return commitFuture;
+    }
+
+    private int countStoredMessages()
+    {
+        final AtomicInteger count = new AtomicInteger();
+        final MessageStore.MessageStoreReader reader = getStore().newMessageStoreReader();
+        try
+        {
+            reader.visitMessages(new MessageHandler()
+            {
+                @Override
+                public boolean handle(final StoredMessage<?> storedMessage)
+                {
+                    count.incrementAndGet();
+                    return true;
+                }
+            });
+        }
+        finally
+        {
+            reader.close();
+        }
+        return count.get();
+    }
+
     @Override
     protected VirtualHost createVirtualHost()
     {
@@ -90,7 +183,47 @@ public class DerbyMessageStoreTest extends MessageStoreTestCase
     @Override
     protected MessageStore createMessageStore()
     {
-        return new DerbyMessageStore();
+        return new DerbyMessageStore()
+        {
+            @Override
+            protected Connection getConnection() throws SQLException
+            {
+                return holdingCommit(super.getConnection());
+            }
+        };
+    }
+
+    /**
+     * Wraps the connection so that, once requested by a test, the next commit is held until the test releases it.
+     */
+    private Connection holdingCommit(final Connection connection)
+    {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                                                   new Class<?>[]{Connection.class},
+                                                   new InvocationHandler()
+                                                   {
+                                                       @Override
+                                                       public Object invoke(final Object proxy,
+                                                                            final Method method,
+                                                                            final Object[] args)
+                                                               throws Throwable
+                                                       {
+                                                           if ("commit".equals(method.getName())
+                                                               && _holdNextCommit.compareAndSet(true, false))
+                                                           {
+                                                               _commitHeld.countDown();
+                                                               _commitReleased.await(10, TimeUnit.SECONDS);
+                                                           }
+                                                           try
+                                                           {
+                                                               return method.invoke(connection, args);
+                                                           }
+                                                           catch (InvocationTargetException e)
+                                                           {
+                                                               throw e.getCause();
+                                                           }
+                                                       }
+                                                   });
     }
 
 }
@@ -22,9 +22,9 @@ package org.apache.qpid.server.virtualhost.jdbc;
 import org.apache.qpid.server.model.ManagedAttribute;
 import org.apache.qpid.server.store.jdbc.DefaultConnectionProviderFactory;
 import org.apache.qpid.server.store.jdbc.JDBCSettings;
-import org.apache.qpid.server.virtualhost.QueueManagingVirtualHost;
+import org.apache.qpid.server.virtualhost.CommitBatchingVirtualHost;
 
-public interface JDBCVirtualHost<X extends JDBCVirtualHost<X>> extends QueueManagingVirtualHost<X>,
+public interface JDBCVirtualHost<X extends JDBCVirtualHost<X>> extends CommitBatchingVirtualHost<X>,
                                                                        JDBCSettings
 {
     @ManagedAttribute(mandatory=true)
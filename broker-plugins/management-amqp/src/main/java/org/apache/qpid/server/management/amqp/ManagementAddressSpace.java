@@ -30,6 +30,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.qpid.exchange.ExchangeDefaults;
 import org.apache.qpid.server.message.InstanceProperties;
+import org.apache.qpid.server.message.MessageConversionCache;
 import org.apache.qpid.server.message.MessageDestination;
 import org.apache.qpid.server.message.MessageInstance;
 import org.apache.qpid.server.message.MessageSource;
@@ -174,6 +175,12 @@ public class ManagementAddressSpace implements NamedAddressSpace
         return _messageStore;
     }
 
+    @Override
+    public MessageConversionCache getMessageConversionCache()
+    {
+        return null;
+    }
+
     @Override
     public <T extends MessageSource> T createMessageSource(final Class<T> clazz, final Map<String, Object> attributes)
     {
@@ -20,12 +20,14 @@
  */
 package org.apache.qpid.server.management.plugin.servlet.query;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.PriorityQueue;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -80,16 +82,34 @@ public final class ConfiguredObjectQuery
         int offset = toInt(offsetClause, DEFAULT_OFFSET);
 
         HeadersAndValueExpressions headersAndValueExpressions = parseSelectClause(selectClause);
+        BooleanExpression<ConfiguredObject> whereExpression = whereClause == null ? null : parseWhereClause(whereClause);
+        OrderByComparator comparator = orderByClause == null
+                ? null
+                : new OrderByComparator(parseOrderByClause(orderByClause),
+                                        headersAndValueExpressions.getValueExpressions());
+
+        final Selection selection;
+        if (limit >= 0 && offset >= 0)
+        {
+            selection = comparator == null ? new PageSelection(offset, limit) : new TopSelection(comparator, offset, limit);
+        }
+        else
+        {
+            selection = new FullSelection(comparator);
+        }
 
-        List<ConfiguredObject<?>> filteredObjects = whereClause == null ? objects : filterObjects(objects, whereClause);
-        List<ConfiguredObject<?>> orderedObjects = orderByClause == null ? filteredObjects : orderObjects(filteredObjects,
-                                                                                                          orderByClause,
-                                                                                                          headersAndValueExpressions.getValueExpressions());
-        List<ConfiguredObject<?>> limitedOrderedObjects = applyLimitAndOffset(orderedObjects, limit, offset);
+        int totalNumberOfRows = 0;
+        for (ConfiguredObject<?> object : objects)
+        {
+            if (whereExpression == null || matches(whereExpression, object))
+            {
+                selection.offer(object, totalNumberOfRows++);
+            }
+        }
 
         _headers = headersAndValueExpressions.getHeaders();
-        _results = evaluateResults(limitedOrderedObjects, headersAndValueExpressions.getValueExpressions());
-        _totalNumberOfRows = filteredObjects.size();
+        _results = new ResultList(selection.getPage(limit, offset), headersAndValueExpressions.getValueExpressions());
+        _totalNumberOfRows = totalNumberOfRows;
     }
 
     public List<List<Object>> getResults()
@@ -172,76 +192,233 @@ public final class ConfiguredObjectQuery
                 };
     }
 
-    private List<ConfiguredObject<?>> filterObjects(final List<ConfiguredObject<?>> objects, final String whereClause)
+    private BooleanExpression<ConfiguredObject> parseWhereClause(final String whereClause)
     {
-        List<ConfiguredObject<?>> filteredObjects = new ArrayList<>();
         ConfiguredObjectFilterParser parser = new ConfiguredObjectFilterParser();
         parser.setConfiguredObjectExpressionFactory(_expressionFactory);
         try
         {
-            final BooleanExpression<ConfiguredObject> expression =
-                    parser.parseWhere(whereClause);
+            return parser.parseWhere(whereClause);
+        }
+        catch (ParseException | TokenMgrError e)
+        {
+            throw new SelectorParsingException("Unable to parse where clause", e);
+        }
+    }
 
+    private boolean matches(final BooleanExpression<ConfiguredObject> expression, final ConfiguredObject<?> object)
+    {
+        try
+        {
+            return expression.matches(object);
+        }
+        catch (RuntimeException e)
+        {
+            throw new EvaluationException("Error while evaluating object against where clause", e);
+        }
+    }
 
-            for (ConfiguredObject<?> object : objects)
+    private static List<Object> evaluateRow(final ConfiguredObject<?> object, final List<Expression> valueExpressions)
+    {
+        List<Object> objectVals = new ArrayList<>(valueExpressions.size());
+        for (Expression<ConfiguredObject<?>> evaluator : valueExpressions)
+        {
+            Object value;
+            try
             {
-                try
-                {
-                    if (expression.matches(object))
-                    {
-                        filteredObjects.add(object);
-                    }
-                }
-                catch (RuntimeException e)
-                {
-                    throw new EvaluationException("Error while evaluating object against where clause", e);
-                }
+                value = evaluator.evaluate(object);
             }
+            catch (RuntimeException e)
+            {
+                LOGGER.debug("Error while evaluating select clause", e);
+                value = null;
+            }
+            objectVals.add(value);
+        }
+        return objectVals;
+    }
 
+    /**
+     * The rows of the page.  The select expressions of a row are evaluated when the row is read, so that a caller
+     * writing the rows out one at a time never holds the values of the whole page.
+     */
+    private static final class ResultList extends AbstractList<List<Object>>
+    {
+        private final List<ConfiguredObject<?>> _objects;
+        private final List<Expression> _valueExpressions;
+
+        private ResultList(final List<ConfiguredObject<?>> objects, final List<Expression> valueExpressions)
+        {
+            _objects = objects;
+            _valueExpressions = valueExpressions;
         }
-        catch (ParseException | TokenMgrError e)
+
+        @Override
+        public List<Object> get(final int index)
         {
-            throw new SelectorParsingException("Unable to parse where clause", e);
+            return evaluateRow(_objects.get(index), _valueExpressions);
+        }
+
+        @Override
+        public int size()
+        {
+            return _objects.size();
         }
-        return filteredObjects;
     }
 
-    private List<List<Object>> evaluateResults(final List<ConfiguredObject<?>> filteredObjects, List<Expression> valueExpressions)
+    /**
+     * Receives the objects matching the where clause, in order, and retains those which may be part of the
+     * requested page.
+     */
+    private interface Selection
+    {
+        void offer(ConfiguredObject<?> object, int position);
+
+        List<ConfiguredObject<?>> getPage(int limit, int offset);
+    }
+
+    /**
+     * Retains every matching object.  Used when the page cannot be known until all objects have been seen,
+     * i.e. when there is no limit or the offset counts back from the end.
+     */
+    private static final class FullSelection implements Selection
     {
-        List<List<Object>> values = new ArrayList<>();
-        for (ConfiguredObject<?> object : filteredObjects)
+        private final OrderByComparator _comparator;
+        private final List<Candidate> _candidates = new ArrayList<>();
+
+        private FullSelection(final OrderByComparator comparator)
+        {
+            _comparator = comparator;
+        }
+
+        @Override
+        public void offer(final ConfiguredObject<?> object, final int position)
         {
-            List<Object> objectVals = new ArrayList<>();
-            for (Expression<ConfiguredObject<?>> evaluator : valueExpressions)
+            _candidates.add(new Candidate(object, position, _comparator));
+        }
+
+        @Override
+        public List<ConfiguredObject<?>> getPage(final int limit, final int offset)
+        {
+            if (_comparator != null)
             {
-                Object value;
-                try
-                {
-                    value = evaluator.evaluate(object);
-                }
-                catch (RuntimeException e)
-                {
-                    LOGGER.debug("Error while evaluating select clause", e);
-                    value = null;
-                }
-                objectVals.add(value);
+                Collections.sort(_candidates, _comparator.candidateComparator());
+            }
+            int size = _candidates.size();
+            int firstIndex = offset < 0 ? Math.max(0, size + offset) : Math.min(size, offset);
+            int lastIndex = limit < 0 ? size : Math.min(size, firstIndex + limit);
+            return toObjects(_candidates.subList(firstIndex, lastIndex));
+        }
+    }
+
+    /**
+     * Retains the matching objects at the positions of the page when there is no orderBy clause.
+     */
+    private static final class PageSelection implements Selection
+    {
+        private final int _firstPosition;
+        private final long _lastPosition;
+        private final List<ConfiguredObject<?>> _page = new ArrayList<>();
+
+        private PageSelection(final int offset, final int limit)
+        {
+            _firstPosition = offset;
+            _lastPosition = (long) offset + limit;
+        }
+
+        @Override
+        public void offer(final ConfiguredObject<?> object, final int position)
+        {
+            if (position >= _firstPosition && position < _lastPosition)
+            {
+                _page.add(object);
+            }
+        }
+
+        @Override
+        public List<ConfiguredObject<?>> getPage(final int limit, final int offset)
+        {
+            return _page;
+        }
+    }
+
+    /**
+     * Retains the first <code>offset + limit</code> matching objects in orderBy order, in a heap whose root is
+     * the last of them, so that memory and the cost of each offer is bounded by the size of the page rather than
+     * the number of objects.
+     */
+    private static final class TopSelection implements Selection
+    {
+        private final OrderByComparator _comparator;
+        private final int _capacity;
+        private final PriorityQueue<Candidate> _heap;
+
+        private TopSelection(final OrderByComparator comparator, final int offset, final int limit)
+        {
+            _comparator = comparator;
+            _capacity = (int) Math.min(Integer.MAX_VALUE - 1, (long) offset + limit);
+            _heap = new PriorityQueue<>(Math.max(1, Math.min(_capacity, 1024)),
+                                        Collections.reverseOrder(comparator.candidateComparator()));
+        }
+
+        @Override
+        public void offer(final ConfiguredObject<?> object, final int position)
+        {
+            if (_capacity == 0)
+            {
+                return;
+            }
+            Candidate candidate = new Candidate(object, position, _comparator);
+            if (_heap.size() < _capacity)
+            {
+                _heap.add(candidate);
+            }
+            else if (_heap.comparator().compare(candidate, _heap.peek()) > 0)
+            {
+                _heap.poll();
+                _heap.add(candidate);
             }
-            values.add(objectVals);
         }
-        return values;
+
+        @Override
+        public List<ConfiguredObject<?>> getPage(final int limit, final int offset)
+        {
+            List<Candidate> candidates = new ArrayList<>(_heap);
+            Collections.sort(candidates, _comparator.candidateComparator());
+            int firstIndex = Math.min(candidates.size(), offset);
+            return toObjects(candidates.subList(firstIndex, candidates.size()));
+        }
     }
 
-    private List<ConfiguredObject<?>> applyLimitAndOffset(final List<ConfiguredObject<?>> orderedObjects, final int limit, int offset)
+    /**
+     * A matching object together with its position among the matching objects, which breaks ties so that the
+     * ordering is stable, and the values of its orderBy expressions, which are evaluated once.
+     */
+    private static final class Candidate
     {
-        int size = orderedObjects.size();
-        int firstIndex = offset < 0 ? Math.max(0, size + offset) : Math.min(size, offset);
-        int lastIndex = limit < 0 ? size : Math.min(size, firstIndex + limit);
+        private final ConfiguredObject<?> _object;
+        private final int _position;
+        private final Object[] _keys;
 
-        return orderedObjects.subList(firstIndex, lastIndex);
+        private Candidate(final ConfiguredObject<?> object, final int position, final OrderByComparator comparator)
+        {
+            _object = object;
+            _position = position;
+            _keys = comparator == null ? null : comparator.evaluateKeys(object);
+        }
     }
 
+    private static List<ConfiguredObject<?>> toObjects(final List<Candidate> candidates)
+    {
+        List<ConfiguredObject<?>> objects = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates)
+        {
+            objects.add(candidate._object);
+        }
+        return objects;
+    }
 
-    class OrderByComparator implements Comparator<Object>
+    static class OrderByComparator implements Comparator<Object>
     {
         private final List<OrderByExpression> _orderByExpressions;
 
@@ -272,14 +449,46 @@ public final class ConfiguredObjectQuery
         @Override
         public int compare(final Object o1, final Object o2)
         {
+            return compareKeys(evaluateKeys(o1), evaluateKeys(o2));
+        }
+
+        Object[] evaluateKeys(final Object object)
+        {
+            Object[] keys = new Object[_orderByExpressions.size()];
             int index = 0;
-            int comparisonResult = 0;
             for (OrderByExpression orderByExpression : _orderByExpressions)
+            {
+                keys[index++] = orderByExpression.evaluate(object);
+            }
+            return keys;
+        }
+
+        Comparator<Candidate> candidateComparator()
+        {
+            return new Comparator<Candidate>()
+            {
+                @Override
+                public int compare(final Candidate c1, final Candidate c2)
+                {
+                    int comparisonResult = compareKeys(c1._keys, c2._keys);
+                    if (comparisonResult == 0)
+                    {
+                        comparisonResult = c1._position < c2._position ? -1 : (c1._position == c2._position ? 0 : 1);
+                    }
+                    return comparisonResult;
+                }
+            };
+        }
+
+        private int compareKeys(final Object[] keys1, final Object[] keys2)
+        {
+            int comparisonResult = 0;
+            for (int index = 0; index < keys1.length; index++)
             {
                 try
                 {
-                    Comparable left = (Comparable) orderByExpression.evaluate(o1);
-                    Comparable right = (Comparable) orderByExpression.evaluate(o2);
+                    Comparable left = (Comparable) keys1[index];
+                    Comparable right = (Comparable) keys2[index];
                     if (left == null && right != null)
                     {
                         comparisonResult = -1;
@@ -295,13 +504,12 @@ public final class ConfiguredObjectQuery
                     if (comparisonResult != 0)
                     {
                         int order = 1;
-                        if (orderByExpression.getOrder() == OrderByExpression.Order.DESC)
+                        if (_orderByExpressions.get(index).getOrder() == OrderByExpression.Order.DESC)
                         {
                             order = -1;
                         }
                         return order * comparisonResult;
                     }
-                    index++;
                 }
                 catch (ClassCastException e)
                 {
@@ -312,18 +520,6 @@ public final class ConfiguredObjectQuery
         }
     }
 
-    private List<ConfiguredObject<?>> orderObjects(final List<ConfiguredObject<?>> unorderedResults,
-                                                   String orderByClause,
-                                                   final List<Expression> valueExpressions)
-    {
-        List<OrderByExpression> orderByExpressions = parseOrderByClause(orderByClause);
-        List<ConfiguredObject<?>> orderedObjects = new ArrayList<>(unorderedResults.size());
-        orderedObjects.addAll(unorderedResults);
-        Comparator<Object> comparator = new OrderByComparator(orderByExpressions, valueExpressions);
-        Collections.sort(orderedObjects, comparator);
-        return orderedObjects;
-    }
-
     private List<OrderByExpression> parseOrderByClause(final String orderByClause)
     {
         final List<OrderByExpression> orderByExpressions;
@@ -21,14 +21,15 @@
 package org.apache.qpid.server.management.plugin.servlet.rest;
 
 import java.io.IOException;
-import java.util.LinkedHashMap;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.Map;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,6 +37,7 @@ import org.apache.qpid.filter.SelectorParsingException;
 import org.apache.qpid.server.management.plugin.servlet.query.ConfiguredObjectQuery;
 import org.apache.qpid.server.management.plugin.servlet.query.EvaluationException;
 import org.apache.qpid.server.model.ConfiguredObject;
+import org.apache.qpid.server.model.ConfiguredObjectJacksonModule;
 import org.apache.qpid.server.model.Model;
 
 public abstract class QueryServlet<X extends ConfiguredObject<?>> extends AbstractServlet
@@ -72,7 +74,6 @@ public abstract class QueryServlet<X extends ConfiguredObject<?>> extends Abstra
             if (category != null)
             {
                 List<ConfiguredObject<?>> objects = getAllObjects(parent, category, request);
-                Map<String, Object> resultsObject = new LinkedHashMap<>();
 
                 try
                 {
@@ -83,10 +84,7 @@ public abstract class QueryServlet<X extends ConfiguredObject<?>> extends Abstra
                                                                             request.getParameter("limit"),
                                                                             request.getParameter("offset"));
 
-                    resultsObject.put("headers", query.getHeaders());
-                    resultsObject.put("results", query.getResults());
-                    resultsObject.put("total", query.getTotalNumberOfRows());
-                    sendJsonResponse(resultsObject, request, response);
+                    sendQueryResults(query, request, response);
                 }
                 catch (SelectorParsingException e)
                 {
@@ -119,6 +117,37 @@ public abstract class QueryServlet<X extends ConfiguredObject<?>> extends Abstra
 
     }
 
+    /**
+     * Writes the query results a row at a time, so that the select expressions of a row are only evaluated as it
+     * is written.  Errors in the clauses are detected when the query is constructed, before the response is
+     * started.
+     */
+    private void sendQueryResults(final ConfiguredObjectQuery query,
+                                  final HttpServletRequest request,
+                                  final HttpServletResponse response) throws IOException
+    {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("application/json");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        sendCachingHeadersOnResponse(response);
+
+        ObjectMapper mapper = ConfiguredObjectJacksonModule.newObjectMapper();
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(getOutputStream(request, response)))
+        {
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartObject();
+            generator.writeObjectField("headers", query.getHeaders());
+            generator.writeArrayFieldStart("results");
+            for (List<Object> row : query.getResults())
+            {
+                generator.writeObject(row);
+            }
+            generator.writeEndArray();
+            generator.writeNumberField("total", query.getTotalNumberOfRows());
+            generator.writeEndObject();
+        }
+    }
+
     abstract protected X getParent(final HttpServletRequest request);
 
     abstract protected Class<? extends ConfiguredObject> getSupportedCategory(final String categoryName,
@@ -31,6 +31,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
@@ -672,6 +673,69 @@ public class ConfiguredObjectQueryTest extends QpidTestCase
         assertQueryResults(new Object[][]{{"test-0"},{"test-1"},{"test-2"}}, _query.getResults());
     }
 
+    public void testOrderByWithLimitAndOffsetMatchesFullOrdering() throws Exception
+    {
+        final Random random = new Random(0);
+        for (int i = 0; i < 100; i++)
+        {
+            final String name = "test-" + i;
+            final int number = random.nextInt(10);
+            ConfiguredObject object = createCO(new HashMap<String, Object>()
+            {{
+                put("name", name);
+                put(NUMBER_ATTR, number);
+            }});
+            _objects.add(object);
+        }
+
+        final String select = "name, " + NUMBER_ATTR;
+        final String orderBy = NUMBER_ATTR + " DESC";
+        final List<List<Object>> allResults = new ConfiguredObjectQuery(_objects, select, null, orderBy).getResults();
+        assertEquals("Unexpected number of results", 100, allResults.size());
+
+        for (int offset : new int[]{0, 1, 17, 95, 100, 150})
+        {
+            for (int limit : new int[]{0, 1, 20, 100})
+            {
+                _query = new ConfiguredObjectQuery(_objects,
+                                                   select,
+                                                   null,
+                                                   orderBy,
+                                                   String.valueOf(limit),
+                                                   String.valueOf(offset));
+                final int firstIndex = Math.min(100, offset);
+                final int lastIndex = Math.min(100, offset + limit);
+                assertEquals(String.format("Unexpected page for limit %d and offset %d", limit, offset),
+                             allResults.subList(firstIndex, lastIndex),
+                             _query.getResults());
+                assertEquals("Unexpected total number of rows", 100, _query.getTotalNumberOfRows());
+            }
+        }
+    }
+
+    public void testWhereClauseWithLimitCountsAllMatchingObjects() throws Exception
+    {
+        for (int i = 0; i < 10; i++)
+        {
+            final String name = "test-" + i;
+            final int number = i;
+            ConfiguredObject object = createCO(new HashMap<String, Object>()
+            {{
+                put("name", name);
+                put(NUMBER_ATTR, number);
+            }});
+            _objects.add(object);
+        }
+
+        _query = new ConfiguredObjectQuery(_objects, "name", NUMBER_ATTR + " > 2", null, "2", "1");
+        assertQueryResults(new Object[][]{{"test-4"}, {"test-5"}}, _query.getResults());
+        assertEquals("Unexpected total number of rows", 7, _query.getTotalNumberOfRows());
+
+        _query = new ConfiguredObjectQuery(_objects, "name", NUMBER_ATTR + " > 2", NUMBER_ATTR + " DESC", "2", "1");
+        assertQueryResults(new Object[][]{{"test-8"}, {"test-7"}}, _query.getResults());
+        assertEquals("Unexpected total number of rows", 7, _query.getTotalNumberOfRows());
+    }
+
     private void assertQueryResults(final Object[][] expectedAttributes,
                                     final List<List<Object>> results)
     {
@@ -219,6 +219,10 @@ public class AMQConnection extends Closeable implements CommonConnection, Refere
     //By default it's async publish
     private String _syncPublish = "";
 
+    //Indicates the number of publishes a 0-8/0-9/0-9-1 session may have awaiting confirmation
+    //By default each publish is confirmed before the send returns
+    private int _publishConfirmWindow;
+
     //Indicates whether user-id should be attached to every sent message
     //By default the user ID is attached
     private boolean _populateUserId = true;
@@ -378,6 +382,16 @@ public class AMQConnection extends Closeable implements CommonConnection, Refere
                 _syncPublish = System.getProperty((ClientProperties.SYNC_PUBLISH_PROP_NAME),_syncPublish);
             }
 
+            if (connectionURL.getOption(ConnectionURL.OPTIONS_PUBLISH_CONFIRM_WINDOW) != null)
+            {
+                _publishConfirmWindow = Integer.parseInt(connectionURL.getOption(ConnectionURL.OPTIONS_PUBLISH_CONFIRM_WINDOW));
+            }
+            else
+            {
+                _publishConfirmWindow = Integer.getInteger(ClientProperties.PUBLISH_CONFIRM_WINDOW,
+                                                           ClientProperties.DEFAULT_PUBLISH_CONFIRM_WINDOW);
+            }
+
             if (connectionURL.getOption(ConnectionURL.OPTIONS_POPULATE_USER_ID) != null)
             {
                 _populateUserId = Boolean.parseBoolean(connectionURL.getOption(ConnectionURL.OPTIONS_POPULATE_USER_ID));
@@ -1827,6 +1841,11 @@ public class AMQConnection extends Closeable implements CommonConnection, Refere
         return _syncPublish;
     }
 
+    public int getPublishConfirmWindow()
+    {
+        return _publishConfirmWindow;
+    }
+
     public boolean isPopulateUserId()
     {
         return _populateUserId;
@@ -93,6 +93,7 @@ public class AMQSession_0_8 extends AMQSession<BasicMessageConsumer_0_8, BasicMe
     /** Flow control */
     private FlowControlIndicator _flowControl = new FlowControlIndicator();
     private final AtomicBoolean _creditChanged = new AtomicBoolean();
+    private final PublishConfirmWindow _publishConfirmWindow;
 
     /**
      * Creates a new session on a connection.
@@ -113,6 +114,9 @@ public class AMQSession_0_8 extends AMQSession<BasicMessageConsumer_0_8, BasicMe
 
         super(con,channelId,transacted,acknowledgeMode, defaultPrefetchHighMark,defaultPrefetchLowMark);
         _unacknowledgedMessages.set(0);
+        _publishConfirmWindow = con.getPublishConfirmWindow() > 0
+                ? new PublishConfirmWindow(con.getPublishConfirmWindow(), con.getProtocolHandler().getDefaultTimeout())
+                : null;
     }
 
 
@@ -176,6 +180,10 @@ public class AMQSession_0_8 extends AMQSession<BasicMessageConsumer_0_8, BasicMe
     @Override
     void resubscribe() throws QpidException
     {
+        if (_publishConfirmWindow != null)
+        {
+            _publishConfirmWindow.reset("Fail-over interrupted send");
+        }
         clearDispatchQueue();
 
         getDeliveredMessageTags().clear();
@@ -239,6 +247,19 @@ public class AMQSession_0_8 extends AMQSession<BasicMessageConsumer_0_8, BasicMe
         if (!(getProtocolHandler().getStateManager().getCurrentState().equals(AMQState.CONNECTION_CLOSED)
             || getProtocolHandler().getStateManager().getCurrentState().equals(AMQState.CONNECTION_CLOSING)))
         {
+            // the channel is closed even if its publishes were not all confirmed, and the failure reported after
+            QpidException confirmFailure = null;
+            if (_publishConfirmWindow != null)
+            {
+                try
+                {
+                    _publishConfirmWindow.awaitConfirmed();
+                }
+                catch (QpidException e)
+                {
+                    confirmFailure = e;
+                }
+            }
 
             getProtocolHandler().closeSession(this);
             getProtocolHandler().syncWrite(getProtocolHandler().getMethodRegistry()
@@ -249,6 +270,11 @@ public class AMQSession_0_8 extends AMQSession<BasicMessageConsumer_0_8, BasicMe
                                            ChannelCloseOkBody.class, timeout);
             // When control resumes at this point, a reply will have been received that
             // indicates the broker has closed the channel successfully.
+
+            if (confirmFailure != null)
+            {
+                throw confirmFailure;
+            }
         }
     }
 
@@ -266,6 +292,11 @@ public class AMQSession_0_8 extends AMQSession<BasicMessageConsumer_0_8, BasicMe
             acknowledgeMessage(tag, false);
         }
 
+        if (_publishConfirmWindow != null)
+        {
+            _publishConfirmWindow.awaitConfirmed();
+        }
+
         final AMQProtocolHandler handler = getProtocolHandler();
         reduceCreditToOriginalSize();
         handler.syncWrite(getProtocolHandler().getMethodRegistry().createTxCommitBody().generateFrame(getChannelId()), TxCommitOkBody.class);
@@ -1000,6 +1031,43 @@ public class AMQSession_0_8 extends AMQSession<BasicMessageConsumer_0_8, BasicMe
         declareExchange("amq.direct", "direct", false);
     }
 
+    @Override
+    public void closed(final Throwable e) throws JMSException
+    {
+        super.closed(e);
+        if (_publishConfirmWindow != null)
+        {
+            final int discarded = _publishConfirmWindow.discard();
+            if (discarded > 0)
+            {
+                _logger.warn("Session on channel " + getChannelId() + " closed by the server with " + discarded
+                             + " publishes awaiting confirmation");
+            }
+        }
+    }
+
+    /**
+     * @return the publishes awaiting confirmation from the broker, or null if each send waits for its own
+     * confirmation
+     */
+    public PublishConfirmWindow getPublishConfirmWindow()
+    {
+        return _publishConfirmWindow;
+    }
+
+    /**
+     * @return true if the confirmation was recorded in the publish confirm window, false if there is none
+     */
+    public boolean publishConfirmed(final long deliveryTag, final boolean multiple, final boolean rejected)
+    {
+        if (_publishConfirmWindow == null)
+        {
+            return false;
+        }
+        _publishConfirmWindow.confirmed(deliveryTag, multiple, rejected);
+        return true;
+    }
+
     @Override
     public void resolveAddress(final AMQDestination dest, final boolean isConsumer, final boolean noLocal)
             throws QpidException
@@ -363,10 +363,23 @@ public class BasicMessageProducer_0_8 extends BasicMessageProducer
                               && (connectionDelegate80.isConfirmedPublishSupported()
                                || (!getSession().isTransacted() && connectionDelegate80.isConfirmedPublishNonTransactionalSupported()));
 
+        final PublishConfirmWindow publishConfirmWindow = getSession().getPublishConfirmWindow();
         if(!useConfirms)
         {
             getConnection().getProtocolHandler().writeFrame(compositeFrame);
         }
+        else if (publishConfirmWindow != null)
+        {
+            try
+            {
+                publishConfirmWindow.beforePublish();
+            }
+            catch (QpidException e)
+            {
+                throw JMSExceptionHelper.chainJMSException(new JMSException(e.getMessage()), e);
+            }
+            getConnection().getProtocolHandler().writeFrame(compositeFrame);
+        }
         else
         {
             final PublishConfirmMessageListener frameListener = new PublishConfirmMessageListener(getChannelId());
@@ -454,6 +467,32 @@ public class BasicMessageProducer_0_8 extends BasicMessageProducer
         return getSession().getAMQConnection().getMaximumFrameSize() - 8;
     }
 
+    @Override
+    public void close() throws JMSException
+    {
+        // publishes are numbered by the session, so this waits for those of every producer on the session
+        final PublishConfirmWindow publishConfirmWindow = getSession().getPublishConfirmWindow();
+        JMSException confirmFailure = null;
+        if (publishConfirmWindow != null && !isClosed() && !getSession().isClosed())
+        {
+            try
+            {
+                publishConfirmWindow.awaitConfirmed();
+            }
+            catch (QpidException e)
+            {
+                confirmFailure = JMSExceptionHelper.chainJMSException(new JMSException(e.getMessage()), e);
+            }
+        }
+
+        super.close();
+
+        if (confirmFailure != null)
+        {
+            throw confirmFailure;
+        }
+    }
+
     @Override
     public AMQSession_0_8 getSession()
     {
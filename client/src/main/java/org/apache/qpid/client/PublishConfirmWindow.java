@@ -0,0 +1,290 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.client;
+
+import org.apache.qpid.QpidException;
+
+/**
+ * Tracks the publishes of a 0-8/0-9/0-9-1 session which have been sent in confirm mode but not yet confirmed by
+ * the broker.
+ * <p>
+ * The broker numbers the publishes on a channel from one, in the order it receives them, and acknowledges (or
+ * rejects) each by its number, singly or cumulatively.  Up to <code>size</code> publishes may be awaiting
+ * confirmation; a publisher waits for space before sending more.  A rejection, or a publish left unconfirmed by
+ * a failover, is reported to the next caller of {@link #beforePublish()} or {@link #awaitConfirmed()}.  Closing
+ * a session or producer waits for its publishes to be confirmed.
+ */
+public final class PublishConfirmWindow
+{
+    private final int _size;
+    private final long _timeout;
+    private final int _mask;
+    private final long[] _publishTimes;
+    private final boolean[] _confirmed;
+
+    private long _nextSequence = 1L;
+    private long _oldestUnconfirmed = 1L;
+    private int _inFlight;
+    private QpidException _failure;
+
+    private int _peakInFlight;
+    private long _confirmedCount;
+    private long _rejectedCount;
+    private long _totalLatency;
+    private long _maxLatency;
+
+    /**
+     * @param size the maximum number of publishes awaiting confirmation
+     * @param timeout the time in milliseconds to wait for space in the window, or for all publishes to be confirmed
+     */
+    public PublishConfirmWindow(final int size, final long timeout)
+    {
+        if (size <= 0)
+        {
+            throw new IllegalArgumentException("Publish confirm window size must be positive: " + size);
+        }
+        _size = size;
+        _timeout = timeout;
+        final int capacity = Integer.highestOneBit(Math.max(size, 2) - 1) << 1;
+        _mask = capacity - 1;
+        _publishTimes = new long[capacity];
+        _confirmed = new boolean[capacity];
+    }
+
+    /**
+     * Waits until there is space in the window and assigns the next sequence number.  The caller must send the
+     * publish before another publish is assigned a number.
+     *
+     * @return the sequence number of the publish
+     * @throws QpidException if an earlier publish failed, or there was no space in the window before the timeout
+     */
+    public synchronized long beforePublish() throws QpidException
+    {
+        throwFailure();
+        long remaining = _timeout;
+        final long deadline = System.currentTimeMillis() + _timeout;
+        while (_nextSequence - _oldestUnconfirmed >= _size)
+        {
+            if (remaining <= 0L)
+            {
+                throw new QpidException("Timed out after " + _timeout + "ms waiting for the broker to confirm "
+                                        + _inFlight + " outstanding publishes");
+            }
+            waitFor(remaining);
+            throwFailure();
+            remaining = deadline - System.currentTimeMillis();
+        }
+
+        final long sequence = _nextSequence++;
+        final int index = index(sequence);
+        _publishTimes[index] = System.nanoTime();
+        _confirmed[index] = false;
+        _inFlight++;
+        if (_inFlight > _peakInFlight)
+        {
+            _peakInFlight = _inFlight;
+        }
+        return sequence;
+    }
+
+    /**
+     * Records a <code>basic.ack</code> or <code>basic.nack</code> from the broker.
+     */
+    public synchronized void confirmed(final long deliveryTag, final boolean multiple, final boolean rejected)
+    {
+        final long now = System.nanoTime();
+        final long first = multiple ? _oldestUnconfirmed : Math.max(deliveryTag, _oldestUnconfirmed);
+        final long last = Math.min(deliveryTag, _nextSequence - 1L);
+        long completed = 0L;
+        for (long sequence = first; sequence <= last; sequence++)
+        {
+            final int index = index(sequence);
+            if (!_confirmed[index])
+            {
+                _confirmed[index] = true;
+                _inFlight--;
+                completed++;
+
+                final long latency = now - _publishTimes[index];
+                _totalLatency += latency;
+                if (latency > _maxLatency)
+                {
+                    _maxLatency = latency;
+                }
+            }
+        }
+
+        if (rejected)
+        {
+            _rejectedCount += completed;
+            if (completed > 0L && _failure == null)
+            {
+                _failure = new QpidException("The message was not accepted by the server (e.g. because the address"
+                                             + " was no longer valid)");
+            }
+        }
+        else
+        {
+            _confirmedCount += completed;
+        }
+
+        while (_oldestUnconfirmed < _nextSequence && _confirmed[index(_oldestUnconfirmed)])
+        {
+            _oldestUnconfirmed++;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Waits until every publish sent so far has been confirmed.
+     *
+     * @throws QpidException if any of the publishes failed, or they were not all confirmed before the timeout
+     */
+    public synchronized void awaitConfirmed() throws QpidException
+    {
+        long remaining = _timeout;
+        final long deadline = System.currentTimeMillis() + _timeout;
+        while (_inFlight > 0)
+        {
+            if (remaining <= 0L)
+            {
+                throw new QpidException("Timed out after " + _timeout + "ms waiting for the broker to confirm "
+                                        + _inFlight + " outstanding publishes");
+            }
+            waitFor(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        throwFailure();
+    }
+
+    /**
+     * Forgets the publishes awaiting confirmation, which will not now be confirmed, and starts numbering publishes
+     * from one again as the broker does for a newly opened channel.
+     *
+     * @param reason the failure reported for the outstanding publishes, if there are any
+     */
+    public synchronized void reset(final String reason)
+    {
+        if (_inFlight > 0 && _failure == null)
+        {
+            _failure = new QpidException(reason + ": the status of " + _inFlight + " publishes is uncertain");
+        }
+        _nextSequence = 1L;
+        _oldestUnconfirmed = 1L;
+        _inFlight = 0;
+        notifyAll();
+    }
+
+    /**
+     * Forgets the publishes awaiting confirmation, and any failure not yet reported, because the session has been
+     * closed and nothing will be sent on it again.
+     *
+     * @return the number of publishes whose status is uncertain
+     */
+    public synchronized int discard()
+    {
+        final int inFlight = _inFlight;
+        _failure = null;
+        _oldestUnconfirmed = _nextSequence;
+        _inFlight = 0;
+        notifyAll();
+        return inFlight;
+    }
+
+    public int getSize()
+    {
+        return _size;
+    }
+
+    public synchronized int getInFlightCount()
+    {
+        return _inFlight;
+    }
+
+    public synchronized int getPeakInFlightCount()
+    {
+        return _peakInFlight;
+    }
+
+    public synchronized long getConfirmedCount()
+    {
+        return _confirmedCount;
+    }
+
+    public synchronized long getRejectedCount()
+    {
+        return _rejectedCount;
+    }
+
+    /**
+     * @return the mean time in nanoseconds between sending a publish and receiving its confirmation or rejection
+     */
+    public synchronized long getMeanConfirmLatency()
+    {
+        final long completed = _confirmedCount + _rejectedCount;
+        return completed == 0L ? 0L : _totalLatency / completed;
+    }
+
+    /**
+     * @return the longest time in nanoseconds between sending a publish and receiving its confirmation or rejection
+     */
+    public synchronized long getMaxConfirmLatency()
+    {
+        return _maxLatency;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        return "PublishConfirmWindow[size=" + _size
+               + ", inFlight=" + _inFlight
+               + ", confirmed=" + _confirmedCount
+               + ", rejected=" + _rejectedCount + "]";
+    }
+
+    private void throwFailure() throws QpidException
+    {
+        final QpidException failure = _failure;
+        if (failure != null)
+        {
+            _failure = null;
+            throw failure;
+        }
+    }
+
+    private void waitFor(final long timeout) throws QpidException
+    {
+        try
+        {
+            wait(timeout);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new QpidException("Interrupted while waiting for publish confirmations", e);
+        }
+    }
+
+    private int index(final long sequence)
+    {
+        return (int) (sequence & _mask);
+    }
+}
@@ -282,13 +282,16 @@ public class ClientMethodDispatcherImpl implements MethodDispatcher
     @Override
     public boolean dispatchBasicAck(BasicAckBody body, int channelId) throws QpidException
     {
-        return false;
+        return _session.publishConfirmed(channelId, body.getDeliveryTag(), body.getMultiple(), false);
     }
 
     @Override
     public boolean dispatchBasicNack(final BasicNackBody basicNackBody, final int channelId)
     {
-        return false;
+        return _session.publishConfirmed(channelId,
+                                         basicNackBody.getDeliveryTag(),
+                                         basicNackBody.getMultiple(),
+                                         true);
     }
 
 
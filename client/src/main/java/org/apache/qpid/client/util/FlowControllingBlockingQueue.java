@@ -20,29 +20,62 @@
  */
 package org.apache.qpid.client.util;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * A blocking queue that emits events above a user specified threshold allowing the caller to take action (e.g. flow
  * control) to try to prevent the queue growing (much) further. The underlying queue itself is not bounded therefore the
  * caller is not obliged to react to the events.
  * <p>
- * This implementation is <b>only</b> safe where we have a single
- * thread adding items and a single (different) thread removing items.
+ * The items are held in a ring of fixed size array segments.  The adding thread fills the segment at the tail and
+ * links in a new one when it is full; the taking thread empties the segment at the head and hands it back to be
+ * reused, so a queue which keeps up with its producer does not allocate.  Adding and taking use separate locks,
+ * which in the usual case of one thread adding and one (different) thread taking are never contended, and items
+ * are handed between them through ordered writes rather than a shared monitor.  A thread finding the queue empty
+ * spins briefly before parking; the adding thread only unparks threads that have parked.
  * <p>
- * TODO  Make this implement java.util.Queue and hide the implementation. Then different queue types can be substituted.
+ * The threshold listener is called, under the listener's monitor, only when the number of items crosses a
+ * threshold.
  */
 public class FlowControllingBlockingQueue<T>
 {
-	private static final Logger _logger = LoggerFactory.getLogger(FlowControllingBlockingQueue.class);
-	
-    /** This queue is bounded and is used to store messages before being dispatched to the consumer */
-    private final Queue<T> _queue = new ConcurrentLinkedQueue<T>();
+    private static final int MINIMUM_SEGMENT_SIZE = 16;
+    private static final int MAXIMUM_SEGMENT_SIZE = 1024;
+    private static final int SPIN_TRIES = 100;
+    /** an upper bound on a park, as a guard against a lost wake-up */
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100L);
+    /** marks the slot of an item removed from the middle of the queue */
+    private static final Object REMOVED = new Object();
+
+    private final int _segmentSize;
+    private final Object _addLock = new Object();
+    private final Object _takeLock = new Object();
+    private final AtomicReference<Segment> _spareSegment = new AtomicReference<>();
+    private final Queue<Thread> _parkedThreads = new ConcurrentLinkedQueue<>();
+
+    /** the segment and slot the next item will be added to, guarded by {@link #_addLock} */
+    private Segment _tailSegment;
+    private int _tailIndex;
+    /** the number of slots filled, written under {@link #_addLock} after the slot itself */
+    private volatile long _added;
+
+    /** the segment and slot of the next item to be taken, guarded by {@link #_takeLock} */
+    private Segment _headSegment;
+    private int _headIndex;
+    /** the number of slots emptied, guarded by {@link #_takeLock} */
+    private long _headPosition;
+    /** the number of items taken or removed, written under {@link #_takeLock} */
+    private volatile long _taken;
 
     private final int _flowControlHighThreshold;
     private final int _flowControlLowThreshold;
@@ -50,24 +83,23 @@ public class FlowControllingBlockingQueue<T>
     private final ThresholdListener _listener;
 
     /** We require a separate count so we can track whether we have reached the threshold */
-    private int _count;
-    
-    private boolean disableFlowControl; 
+    private final AtomicInteger _count = new AtomicInteger();
+    /** whether the listener was last told the queue is above the threshold, written under the listener's monitor */
+    private volatile boolean _aboveThreshold;
+
+    private boolean disableFlowControl;
 
     private volatile boolean _closed;
 
     public boolean isEmpty()
     {
-        return _queue.isEmpty();
+        return _taken == _added;
     }
 
     public void close()
     {
-        synchronized (this)
-        {
-            _closed = true;
-            notifyAll();
-        }
+        _closed = true;
+        unparkWaitingThreads();
     }
 
 
@@ -104,27 +136,29 @@ public class FlowControllingBlockingQueue<T>
             throw new IllegalArgumentException(String.format("Invalid low threshold %d: it should be greater than 0",
                                                              lowThreshold));
         }
+
+        int segmentSize = MINIMUM_SEGMENT_SIZE;
+        while (segmentSize < highThreshold && segmentSize < MAXIMUM_SEGMENT_SIZE)
+        {
+            segmentSize <<= 1;
+        }
+        _segmentSize = segmentSize;
+        _tailSegment = _headSegment = new Segment(segmentSize);
     }
 
     public T blockingPeek() throws InterruptedException
     {
-        T o = _queue.peek();
+        T o = peek();
         if (o == null)
         {
-            synchronized (this)
-            {
-                while (!_closed && (o = _queue.peek()) == null)
-                {
-                    wait();
-                }
-            }
+            o = await(false);
         }
         return o;
     }
 
     public T nonBlockingTake() throws InterruptedException
     {
-        T o = _queue.poll();
+        T o = poll();
 
         if (o != null && !disableFlowControl && _listener != null)
         {
@@ -136,16 +170,10 @@ public class FlowControllingBlockingQueue<T>
 
     public T take() throws InterruptedException
     {
-        T o = _queue.poll();
+        T o = poll();
         if(o == null)
         {
-            synchronized(this)
-            {
-                while(!_closed && (o = _queue.poll())==null)
-                {
-                    wait();
-                }
-            }
+            o = await(true);
         }
         if (!_closed && !disableFlowControl && _listener != null)
         {
@@ -157,12 +185,24 @@ public class FlowControllingBlockingQueue<T>
 
     public void add(T o)
     {
-        synchronized(this)
+        synchronized (_addLock)
         {
-            _queue.add(o);
-
-            notifyAll();
+            if (_tailIndex == _segmentSize)
+            {
+                Segment segment = _spareSegment.getAndSet(null);
+                if (segment == null)
+                {
+                    segment = new Segment(_segmentSize);
+                }
+                _tailSegment._next = segment;
+                _tailSegment = segment;
+                _tailIndex = 0;
+            }
+            _tailSegment._slots.lazySet(_tailIndex++, o);
+            _added++;
         }
+        unparkWaitingThreads();
+
         if (!disableFlowControl && _listener != null)
         {
             reportAboveIfNecessary();
@@ -171,7 +211,28 @@ public class FlowControllingBlockingQueue<T>
 
     public boolean remove(final T o)
     {
-        final boolean removed = _queue.remove(o);
+        boolean removed = false;
+        synchronized (_takeLock)
+        {
+            Segment segment = _headSegment;
+            int index = _headIndex;
+            for (long position = _headPosition; position < _added; position++, index++)
+            {
+                if (index == _segmentSize)
+                {
+                    segment = segment._next;
+                    index = 0;
+                }
+                final Object item = segment._slots.get(index);
+                if (item != REMOVED && item != null && item.equals(o))
+                {
+                    segment._slots.set(index, REMOVED);
+                    _taken++;
+                    removed = true;
+                    break;
+                }
+            }
+        }
         if (removed && !disableFlowControl && _listener != null)
         {
             reportBelowIfNecessary();
@@ -179,50 +240,202 @@ public class FlowControllingBlockingQueue<T>
         return removed;
     }
 
+    /**
+     * @return an iterator over a copy of the items in the queue when it is created, which does not reflect items
+     * added, taken or removed afterwards.  The iterator does not support removal.
+     */
     public Iterator<T> iterator()
     {
-        return _queue.iterator();
+        final List<T> items = new ArrayList<>();
+        synchronized (_takeLock)
+        {
+            // segments are only handed back for reuse under the take lock, so none can be recycled while copying
+            Segment segment = _headSegment;
+            int index = _headIndex;
+            for (long position = _headPosition, added = _added; position < added; position++, index++)
+            {
+                if (index == _segmentSize)
+                {
+                    segment = segment._next;
+                    index = 0;
+                }
+                final Object item = segment._slots.get(index);
+                if (item != REMOVED && item != null)
+                {
+                    items.add((T) item);
+                }
+            }
+        }
+        return Collections.unmodifiableList(items).iterator();
     }
 
     public void clear()
     {
-        _queue.clear();
+        synchronized (_takeLock)
+        {
+            while (poll() != null)
+            {
+            }
+        }
 
         if (!disableFlowControl && _listener != null)
         {
-            synchronized (_listener)
+            _count.set(0);
+            updateThresholdState();
+        }
+    }
+
+    private T peek()
+    {
+        synchronized (_takeLock)
+        {
+            while (_headPosition != _added)
+            {
+                advanceSegmentIfNecessary();
+                final Object item = _headSegment._slots.get(_headIndex);
+                if (item != REMOVED)
+                {
+                    return (T) item;
+                }
+                _headSegment._slots.lazySet(_headIndex++, null);
+                _headPosition++;
+            }
+            return null;
+        }
+    }
+
+    private T poll()
+    {
+        synchronized (_takeLock)
+        {
+            while (_headPosition != _added)
             {
-                int count = _count;
-                _count = 0;
+                advanceSegmentIfNecessary();
+                final Object item = _headSegment._slots.get(_headIndex);
+                _headSegment._slots.lazySet(_headIndex++, null);
+                _headPosition++;
+                if (item != REMOVED)
+                {
+                    _taken++;
+                    return (T) item;
+                }
+            }
+            return null;
+        }
+    }
 
-                if (count >= _flowControlLowThreshold)
+    private void advanceSegmentIfNecessary()
+    {
+        if (_headIndex == _segmentSize)
+        {
+            final Segment emptied = _headSegment;
+            _headSegment = emptied._next;
+            _headIndex = 0;
+            emptied._next = null;
+            _spareSegment.set(emptied);
+        }
+    }
+
+    private T await(final boolean take) throws InterruptedException
+    {
+        int spins = 0;
+        while (true)
+        {
+            T o = take ? poll() : peek();
+            if (o != null || _closed)
+            {
+                return o;
+            }
+            else if (spins < SPIN_TRIES)
+            {
+                spins++;
+                Thread.yield();
+            }
+            else
+            {
+                final Thread thread = Thread.currentThread();
+                _parkedThreads.add(thread);
+                try
                 {
-                    _listener.underThreshold(0);
+                    o = take ? poll() : peek();
+                    if (o != null || _closed)
+                    {
+                        return o;
+                    }
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                finally
+                {
+                    _parkedThreads.remove(thread);
                 }
             }
 
+            if (Thread.interrupted())
+            {
+                throw new InterruptedException();
+            }
         }
     }
 
-    private void reportAboveIfNecessary()
+    private void unparkWaitingThreads()
     {
-        synchronized (_listener)
+        if (!_parkedThreads.isEmpty())
         {
-            if (++_count == _flowControlHighThreshold)
+            for (Thread thread : _parkedThreads)
             {
-                _listener.aboveThreshold(_count);
+                LockSupport.unpark(thread);
             }
         }
     }
 
+    private void reportAboveIfNecessary()
+    {
+        if (_count.incrementAndGet() >= _flowControlHighThreshold && !_aboveThreshold)
+        {
+            updateThresholdState();
+        }
+    }
+
     private void reportBelowIfNecessary()
+    {
+        if (_count.decrementAndGet() < _flowControlLowThreshold && _aboveThreshold)
+        {
+            updateThresholdState();
+        }
+    }
+
+    /**
+     * Tells the listener if the count has crossed a threshold since it was last told.  The count is read again
+     * after telling the listener the queue is above the threshold, so that a concurrent take which did not see
+     * the new state cannot leave the listener suspended below the low threshold.
+     */
+    private void updateThresholdState()
     {
         synchronized (_listener)
         {
-            if (_count-- == _flowControlLowThreshold)
+            int count = _count.get();
+            if (!_aboveThreshold && count >= _flowControlHighThreshold)
+            {
+                _aboveThreshold = true;
+                _listener.aboveThreshold(count);
+                count = _count.get();
+            }
+            if (_aboveThreshold && count < _flowControlLowThreshold)
             {
-                _listener.underThreshold(_count);
+                _aboveThreshold = false;
+                _listener.underThreshold(count);
             }
         }
     }
+
+    private static final class Segment
+    {
+        private final AtomicReferenceArray<Object> _slots;
+        private volatile Segment _next;
+
+        private Segment(final int size)
+        {
+            _slots = new AtomicReferenceArray<>(size);
+        }
+    }
 }
@@ -38,6 +38,18 @@ public interface ConnectionURL
     String OPTIONS_SYNC_ACK = "sync_ack";
     String OPTIONS_SYNC_CLIENT_ACK = "sync_client_ack";
     String OPTIONS_SYNC_PUBLISH = "sync_publish";
+
+    /**
+     * <p>
+     * This option is only applicable for 0-8/0-9/0-9-1 protocol connections using sync_publish 'all'.
+     * </p>
+     * <p>
+     * It sets the number of publishes a session may have awaiting confirmation from the broker.  A send only
+     * waits when the window is full; a publish the broker rejects fails the next send or commit.  Zero (the
+     * default) makes each send wait for its own confirmation.
+     * </p>
+     */
+    String OPTIONS_PUBLISH_CONFIRM_WINDOW = "publishConfirmWindow";
     String OPTIONS_USE_LEGACY_MAP_MESSAGE_FORMAT = "use_legacy_map_msg_format";
     String OPTIONS_USE_LEGACY_STREAM_MESSAGE_FORMAT = "use_legacy_stream_msg_format";
     String OPTIONS_BROKERLIST = "brokerlist";
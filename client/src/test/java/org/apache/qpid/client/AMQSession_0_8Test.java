@@ -28,6 +28,10 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
 import org.apache.qpid.QpidException;
 import org.apache.qpid.client.message.UnprocessedMessage;
 import org.apache.qpid.client.transport.TestNetworkConnection;
@@ -35,6 +39,7 @@ import org.apache.qpid.configuration.ClientProperties;
 import org.apache.qpid.framing.AMQBody;
 import org.apache.qpid.framing.AMQShortString;
 import org.apache.qpid.framing.BasicConsumeOkBody;
+import org.apache.qpid.framing.ChannelCloseOkBody;
 import org.apache.qpid.framing.ChannelFlowOkBody;
 import org.apache.qpid.framing.ExchangeDeclareOkBody;
 import org.apache.qpid.framing.QueueDeclareOkBody;
@@ -153,6 +158,103 @@ public class AMQSession_0_8Test extends QpidTestCase
         assertEquals("Unexpected consumers", new HashSet<>(Arrays.asList(consumer1, consumer2)), new HashSet<>(session.getConsumers()));
     }
 
+    public void testCloseWaitsForOutstandingPublishConfirms() throws Exception
+    {
+        AMQSession_0_8 session = createPublishConfirmSession();
+        PublishConfirmWindow window = session.getPublishConfirmWindow();
+        window.beforePublish();
+        window.beforePublish();
+
+        MockReceiveConnectionListener listener = new MockReceiveConnectionListener(_connection, 1, ChannelCloseOkBody.INSTANCE);
+        _connection.setConnectionListener(listener);
+        confirmLater(session, 2L, false);
+
+        session.close();
+
+        assertEquals("Session closed before its publishes were confirmed", 2L, window.getConfirmedCount());
+        assertTrue("Channel was not closed", listener.responsesEmpty());
+    }
+
+    public void testCloseReportsRejectedPublish() throws Exception
+    {
+        AMQSession_0_8 session = createPublishConfirmSession();
+        session.getPublishConfirmWindow().beforePublish();
+
+        MockReceiveConnectionListener listener = new MockReceiveConnectionListener(_connection, 1, ChannelCloseOkBody.INSTANCE);
+        _connection.setConnectionListener(listener);
+        confirmLater(session, 1L, true);
+
+        try
+        {
+            session.close();
+            fail("Close should report the rejected publish");
+        }
+        catch (JMSException e)
+        {
+            // pass
+        }
+
+        assertTrue("Session was not closed", session.isClosed());
+        assertTrue("Channel was not closed", listener.responsesEmpty());
+    }
+
+    public void testProducerCloseWaitsForOutstandingPublishConfirms() throws Exception
+    {
+        setTestSystemProperty(ClientProperties.QPID_DECLARE_EXCHANGES_PROP_NAME, "false");
+
+        AMQSession_0_8 session = createPublishConfirmSession();
+        MessageProducer producer =
+                session.createProducer(new AMQQueue(new AMQBindingURL("direct://amq.direct//test?routingkey='test'")));
+        PublishConfirmWindow window = session.getPublishConfirmWindow();
+        window.beforePublish();
+
+        confirmLater(session, 1L, true);
+
+        try
+        {
+            producer.close();
+            fail("Close should report the rejected publish");
+        }
+        catch (JMSException e)
+        {
+            // pass
+        }
+
+        assertEquals("Unexpected rejected count", 1L, window.getRejectedCount());
+        assertFalse("Session should remain open", session.isClosed());
+    }
+
+    private AMQSession_0_8 createPublishConfirmSession() throws Exception
+    {
+        _connection = new MockAMQConnection("amqp://guest:guest@/test?brokerlist='tcp://localhost:5672'&publishConfirmWindow='4'");
+        _connection.getProtocolHandler().setNetworkConnection(new TestNetworkConnection());
+        AMQSession_0_8 session = new AMQSession_0_8(_connection, 1, false, Session.AUTO_ACKNOWLEDGE, 1, 1);
+        assertNotNull("Session should have a publish confirm window", session.getPublishConfirmWindow());
+        return session;
+    }
+
+    private void confirmLater(final AMQSession_0_8 session, final long deliveryTag, final boolean rejected)
+    {
+        Thread confirmer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    Thread.sleep(100L);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                session.publishConfirmed(deliveryTag, true, rejected);
+            }
+        });
+        confirmer.setDaemon(true);
+        confirmer.start();
+    }
+
     private UnprocessedMessage createMockMessage(long deliveryTag, int consumerTag)
     {
         UnprocessedMessage message = mock(UnprocessedMessage.class);
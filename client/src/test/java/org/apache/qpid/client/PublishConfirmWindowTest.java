@@ -0,0 +1,169 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.client;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.qpid.QpidException;
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class PublishConfirmWindowTest extends QpidTestCase
+{
+    public void testSequenceNumbersAndCumulativeConfirm() throws Exception
+    {
+        PublishConfirmWindow window = new PublishConfirmWindow(4, 1000L);
+
+        assertEquals(1L, window.beforePublish());
+        assertEquals(2L, window.beforePublish());
+        assertEquals(3L, window.beforePublish());
+        assertEquals("Unexpected in flight count", 3, window.getInFlightCount());
+
+        window.confirmed(2L, true, false);
+        assertEquals("Unexpected in flight count", 1, window.getInFlightCount());
+        assertEquals("Unexpected confirmed count", 2L, window.getConfirmedCount());
+
+        window.confirmed(3L, false, false);
+        assertEquals("Unexpected in flight count", 0, window.getInFlightCount());
+        assertEquals("Unexpected peak in flight count", 3, window.getPeakInFlightCount());
+        assertEquals("Unexpected confirmed count", 3L, window.getConfirmedCount());
+
+        window.awaitConfirmed();
+    }
+
+    public void testOutOfOrderConfirms() throws Exception
+    {
+        PublishConfirmWindow window = new PublishConfirmWindow(2, 100L);
+
+        window.beforePublish();
+        window.beforePublish();
+        window.confirmed(2L, false, false);
+        assertEquals("Unexpected in flight count", 1, window.getInFlightCount());
+
+        try
+        {
+            window.beforePublish();
+            fail("Publish should not be allowed while the oldest publish is unconfirmed");
+        }
+        catch (QpidException e)
+        {
+            // pass
+        }
+
+        window.confirmed(1L, false, false);
+        assertEquals(3L, window.beforePublish());
+        assertEquals(4L, window.beforePublish());
+    }
+
+    public void testPublisherWaitsForSpaceInWindow() throws Exception
+    {
+        final PublishConfirmWindow window = new PublishConfirmWindow(1, 10000L);
+        window.beforePublish();
+
+        final CountDownLatch published = new CountDownLatch(1);
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread publisher = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    window.beforePublish();
+                    published.countDown();
+                }
+                catch (QpidException e)
+                {
+                    failure.set(e);
+                }
+            }
+        });
+        publisher.start();
+
+        assertFalse("Publisher should wait while the window is full", published.await(100, TimeUnit.MILLISECONDS));
+        window.confirmed(1L, false, false);
+        assertTrue("Publisher should proceed once the window has space", published.await(5, TimeUnit.SECONDS));
+        publisher.join(5000L);
+        assertNull("Unexpected failure", failure.get());
+    }
+
+    public void testRejectionReportedOnceToNextCaller() throws Exception
+    {
+        PublishConfirmWindow window = new PublishConfirmWindow(8, 1000L);
+        window.beforePublish();
+        window.beforePublish();
+        window.beforePublish();
+
+        window.confirmed(2L, true, true);
+        window.confirmed(3L, false, false);
+        assertEquals("Unexpected rejected count", 2L, window.getRejectedCount());
+        assertEquals("Unexpected confirmed count", 1L, window.getConfirmedCount());
+
+        try
+        {
+            window.awaitConfirmed();
+            fail("Rejection not reported");
+        }
+        catch (QpidException e)
+        {
+            // pass
+        }
+
+        window.awaitConfirmed();
+        assertEquals(4L, window.beforePublish());
+    }
+
+    public void testResetReportsUncertainPublishes() throws Exception
+    {
+        PublishConfirmWindow window = new PublishConfirmWindow(8, 1000L);
+        window.beforePublish();
+        window.beforePublish();
+
+        window.reset("Fail-over interrupted send");
+        assertEquals("Unexpected in flight count", 0, window.getInFlightCount());
+
+        try
+        {
+            window.beforePublish();
+            fail("Uncertain publishes not reported");
+        }
+        catch (QpidException e)
+        {
+            // pass
+        }
+
+        assertEquals("Sequence numbers should restart after reset", 1L, window.beforePublish());
+    }
+
+    public void testDiscardForgetsOutstandingPublishes() throws Exception
+    {
+        PublishConfirmWindow window = new PublishConfirmWindow(8, 1000L);
+        window.beforePublish();
+        window.beforePublish();
+        window.confirmed(1L, false, true);
+
+        assertEquals("Unexpected discarded count", 1, window.discard());
+        assertEquals("Unexpected in flight count", 0, window.getInFlightCount());
+
+        window.awaitConfirmed();
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.client.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class FlowControllingBlockingQueueTest extends QpidTestCase
+{
+    private final List<String> _events = Collections.synchronizedList(new ArrayList<String>());
+
+    private final FlowControllingBlockingQueue.ThresholdListener _listener =
+            new FlowControllingBlockingQueue.ThresholdListener()
+            {
+                @Override
+                public void aboveThreshold(final int currentValue)
+                {
+                    _events.add("above" + currentValue);
+                }
+
+                @Override
+                public void underThreshold(final int currentValue)
+                {
+                    _events.add("under" + currentValue);
+                }
+            };
+
+    public void testThresholdEvents() throws Exception
+    {
+        FlowControllingBlockingQueue<Integer> queue = new FlowControllingBlockingQueue<>(20, 10, _listener);
+
+        for (int i = 0; i < 25; i++)
+        {
+            queue.add(i);
+        }
+        assertEquals("Unexpected events", Collections.singletonList("above20"), _events);
+
+        for (int i = 0; i < 15; i++)
+        {
+            assertEquals("Unexpected item", Integer.valueOf(i), queue.take());
+        }
+        assertEquals("Unexpected events", Collections.singletonList("above20"), _events);
+
+        queue.take();
+        assertEquals("Unexpected events", Arrays.asList("above20", "under9"), _events);
+    }
+
+    public void testItemsTakenInOrderAcrossSegments() throws Exception
+    {
+        FlowControllingBlockingQueue<Integer> queue = new FlowControllingBlockingQueue<>(0, null);
+
+        for (int round = 0; round < 3; round++)
+        {
+            for (int i = 0; i < 100; i++)
+            {
+                queue.add(i);
+            }
+            for (int i = 0; i < 100; i++)
+            {
+                assertEquals("Unexpected peeked item", Integer.valueOf(i), queue.blockingPeek());
+                assertEquals("Unexpected item", Integer.valueOf(i), queue.nonBlockingTake());
+            }
+            assertTrue("Queue should be empty", queue.isEmpty());
+        }
+        assertNull("Unexpected item", queue.nonBlockingTake());
+    }
+
+    public void testRemoveAndIterator() throws Exception
+    {
+        FlowControllingBlockingQueue<Integer> queue = new FlowControllingBlockingQueue<>(0, null);
+        for (int i = 0; i < 40; i++)
+        {
+            queue.add(i);
+        }
+
+        assertTrue("Item should be removed", queue.remove(17));
+        assertFalse("Item should already be removed", queue.remove(17));
+
+        int count = 0;
+        for (Iterator<Integer> iterator = queue.iterator(); iterator.hasNext(); )
+        {
+            assertFalse("Removed item returned by iterator", iterator.next() == 17);
+            count++;
+        }
+        assertEquals("Unexpected number of items", 39, count);
+
+        for (int i = 0; i < 40; i++)
+        {
+            if (i != 17)
+            {
+                assertEquals("Unexpected item", Integer.valueOf(i), queue.take());
+            }
+        }
+        assertTrue("Queue should be empty", queue.isEmpty());
+    }
+
+    public void testIteratorUnaffectedBySegmentReuse() throws Exception
+    {
+        FlowControllingBlockingQueue<Integer> queue = new FlowControllingBlockingQueue<>(0, null);
+        for (int i = 0; i < 40; i++)
+        {
+            queue.add(i);
+        }
+
+        Iterator<Integer> iterator = queue.iterator();
+
+        // empty the queue and fill it again, so that the emptied segments are reused for the new items
+        for (int i = 0; i < 40; i++)
+        {
+            assertEquals("Unexpected item", Integer.valueOf(i), queue.take());
+            queue.add(100 + i);
+        }
+
+        for (int i = 0; i < 40; i++)
+        {
+            assertTrue("Iterator should have item " + i, iterator.hasNext());
+            assertEquals("Unexpected item from iterator", Integer.valueOf(i), iterator.next());
+        }
+        assertFalse("Iterator should be exhausted", iterator.hasNext());
+    }
+
+    public void testClearReportsUnderThreshold() throws Exception
+    {
+        FlowControllingBlockingQueue<Integer> queue = new FlowControllingBlockingQueue<>(5, 5, _listener);
+        for (int i = 0; i < 5; i++)
+        {
+            queue.add(i);
+        }
+        queue.clear();
+
+        assertTrue("Queue should be empty", queue.isEmpty());
+        assertEquals("Unexpected events", Arrays.asList("above5", "under0"), _events);
+    }
+
+    public void testTakeWaitsForProducer() throws Exception
+    {
+        final FlowControllingBlockingQueue<Integer> queue = new FlowControllingBlockingQueue<>(0, null);
+        final int items = 10000;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread consumer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    for (int i = 0; i < items; i++)
+                    {
+                        Integer item = queue.take();
+                        if (item != i)
+                        {
+                            throw new AssertionError("Expected " + i + " but got " + item);
+                        }
+                    }
+                }
+                catch (Throwable e)
+                {
+                    failure.set(e);
+                }
+            }
+        });
+        consumer.start();
+
+        for (int i = 0; i < items; i++)
+        {
+            queue.add(i);
+            if (i % 1000 == 0)
+            {
+                Thread.sleep(10L);
+            }
+        }
+        consumer.join(10000L);
+        assertFalse("Consumer did not finish", consumer.isAlive());
+        assertNull("Unexpected failure", failure.get());
+    }
+
+    public void testCloseReleasesWaitingThread() throws Exception
+    {
+        final FlowControllingBlockingQueue<Integer> queue = new FlowControllingBlockingQueue<>(0, null);
+        final AtomicReference<Object> result = new AtomicReference<>();
+        Thread consumer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    result.set(queue.blockingPeek() == null ? "closed" : "item");
+                }
+                catch (InterruptedException e)
+                {
+                    result.set(e);
+                }
+            }
+        });
+        consumer.start();
+        Thread.sleep(100L);
+
+        queue.close();
+        consumer.join(5000L);
+        assertEquals("Unexpected result", "closed", result.get());
+    }
+}
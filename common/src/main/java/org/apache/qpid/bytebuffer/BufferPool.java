@@ -21,34 +21,392 @@
 package org.apache.qpid.bytebuffer;
 
 import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * A pool of direct buffers in several size classes: the pooled buffer size, and successive halves of it down to
+ * {@link #MINIMUM_SIZE_CLASS}.
+ * <p>
+ * A request is served from the smallest size class which can hold it.  As each class is twice the size of the next,
+ * the buffer is less than twice the requested size (see {@link QpidByteBuffer#MAXIMUM_POOLED_CAPACITY_FACTOR}).  This
+ * unused capacity counts toward the JVM's direct memory limit but not toward the message sizes the broker compares
+ * with its flow to disk threshold.
+ * <p>
+ * Each thread caches released buffers in a small per size class magazine.  Allocation and release only touch the
+ * thread's own magazine; full magazines spill to, and empty ones are refilled from, a depot shared by all
+ * threads.  The magazines of threads which have terminated are returned to the depot when the pool notices
+ * them.
+ * <p>
+ * The buffers held by the depots and by the thread magazines of all size classes together are bounded by
+ * <code>maxPoolSize</code> buffers of the pooled buffer size.  Threads reserve this budget a magazine at a time,
+ * buffers released when it is exhausted are left to the garbage collector.
+ */
 class BufferPool
 {
+    static final int MAXIMUM_SIZE_CLASSES = 4;
+    static final int MINIMUM_SIZE_CLASS = 16 * 1024;
+    static final int MAGAZINE_SIZE = 4;
+
     private final int _maxSize;
-    private final ConcurrentLinkedQueue<ByteBuffer> _pooledBuffers = new ConcurrentLinkedQueue<>();
+    private final long _maxPooledBytes;
+    private final int _magazineSize;
+    private final SizeClass[] _sizeClasses;
+    private final Queue<ThreadCache> _threadCaches = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<ThreadCache> _threadCache = new ThreadLocal<ThreadCache>()
+    {
+        @Override
+        protected ThreadCache initialValue()
+        {
+            reclaimTerminatedThreadCaches();
+            final ThreadCache cache = new ThreadCache(Thread.currentThread());
+            _threadCaches.add(cache);
+            return cache;
+        }
+    };
+
+    private final AtomicLong _directMemorySize = new AtomicLong();
+    private final AtomicLong _reservedBytes = new AtomicLong();
+    private final AtomicLong _retiredAllocations = new AtomicLong();
+    private final AtomicLong _retiredHits = new AtomicLong();
+    private final AtomicLong _retiredReleases = new AtomicLong();
 
-    BufferPool(final int maxSize)
+    BufferPool(final int bufferSize, final int maxSize)
     {
         _maxSize = maxSize;
+        _maxPooledBytes = (long) maxSize * bufferSize;
+        _magazineSize = Math.max(0, Math.min(MAGAZINE_SIZE, maxSize));
+
+        int sizeClassCount = 1;
+        while (sizeClassCount < MAXIMUM_SIZE_CLASSES && (bufferSize >> sizeClassCount) >= MINIMUM_SIZE_CLASS)
+        {
+            sizeClassCount++;
+        }
+        _sizeClasses = new SizeClass[sizeClassCount];
+        for (int i = 0; i < sizeClassCount; i++)
+        {
+            _sizeClasses[i] = new SizeClass(bufferSize >> i);
+        }
     }
 
-    ByteBuffer getBuffer()
+    /**
+     * @return the size of the smallest size class
+     */
+    int getMinimumBufferSize()
     {
-        return _pooledBuffers.poll();
+        return _sizeClasses[_sizeClasses.length - 1].getBufferSize();
+    }
+
+    /**
+     * Takes a buffer of the smallest size class which can hold the given size.  The buffer is either a pooled
+     * (zeroed) buffer or newly allocated.
+     *
+     * @param size a size between {@link #getMinimumBufferSize()} and the pooled buffer size
+     */
+    ByteBuffer getBuffer(final int size)
+    {
+        int index = _sizeClasses.length - 1;
+        while (_sizeClasses[index].getBufferSize() < size)
+        {
+            index--;
+        }
+        return _threadCache.get().take(index);
     }
 
     void returnBuffer(ByteBuffer buf)
     {
         buf.clear();
-        if (_pooledBuffers.size() < _maxSize)
+        for (int i = 0; i < _sizeClasses.length; i++)
         {
-            _pooledBuffers.add(buf);
+            if (_sizeClasses[i].getBufferSize() == buf.capacity())
+            {
+                _threadCache.get().release(i, buf);
+                return;
+            }
         }
+        throw new IllegalArgumentException("Buffer of capacity " + buf.capacity() + " does not belong to the pool");
     }
 
     public int getMaxSize()
     {
         return _maxSize;
     }
+
+    long getAllocationCount()
+    {
+        final Queue<ThreadCache> threadCaches = reclaimTerminatedThreadCaches();
+        long allocations = _retiredAllocations.get();
+        for (ThreadCache cache : threadCaches)
+        {
+            allocations += cache._allocations;
+        }
+        return allocations;
+    }
+
+    long getHitCount()
+    {
+        final Queue<ThreadCache> threadCaches = reclaimTerminatedThreadCaches();
+        long hits = _retiredHits.get();
+        for (ThreadCache cache : threadCaches)
+        {
+            hits += cache._hits;
+        }
+        return hits;
+    }
+
+    long getMissCount()
+    {
+        long misses = 0L;
+        for (SizeClass sizeClass : _sizeClasses)
+        {
+            misses += sizeClass._misses.get();
+        }
+        return misses;
+    }
+
+    /**
+     * @return the number of buffers taken from the pool which have not been returned yet
+     */
+    long getOutstandingBufferCount()
+    {
+        final Queue<ThreadCache> threadCaches = reclaimTerminatedThreadCaches();
+        long outstanding = _retiredAllocations.get() - _retiredReleases.get();
+        for (ThreadCache cache : threadCaches)
+        {
+            outstanding += cache._allocations - cache._releases;
+        }
+        return Math.max(0L, outstanding);
+    }
+
+    /**
+     * @return the total capacity of the direct buffers allocated by the pool that have not been discarded,
+     * whether pooled or outstanding
+     */
+    long getDirectMemorySize()
+    {
+        return _directMemorySize.get();
+    }
+
+    /**
+     * @return the capacity of the buffers which may be held by the depots and thread magazines, bounded by the
+     * maximum pool size
+     */
+    long getReservedPoolSize()
+    {
+        return _reservedBytes.get();
+    }
+
+    private Queue<ThreadCache> reclaimTerminatedThreadCaches()
+    {
+        final Iterator<ThreadCache> iterator = _threadCaches.iterator();
+        while (iterator.hasNext())
+        {
+            final ThreadCache cache = iterator.next();
+            if (!cache.isOwnerAlive() && _threadCaches.remove(cache))
+            {
+                cache.retire();
+            }
+        }
+        return _threadCaches;
+    }
+
+    private void discard(final ByteBuffer buffer)
+    {
+        _directMemorySize.addAndGet(-buffer.capacity());
+    }
+
+    private boolean reserve(final long bytes)
+    {
+        long reserved;
+        do
+        {
+            reserved = _reservedBytes.get();
+            if (reserved + bytes > _maxPooledBytes)
+            {
+                return false;
+            }
+        }
+        while (!_reservedBytes.compareAndSet(reserved, reserved + bytes));
+        return true;
+    }
+
+    private void unreserve(final long bytes)
+    {
+        _reservedBytes.addAndGet(-bytes);
+    }
+
+    /**
+     * The buffers of one size.  The magazines in the depot keep the budget their buffers were reserved with.
+     */
+    private final class SizeClass
+    {
+        private final int _bufferSize;
+        private final long _magazineBytes;
+        private final Queue<ByteBuffer[]> _depot = new ConcurrentLinkedQueue<>();
+        private final AtomicLong _misses = new AtomicLong();
+
+        private SizeClass(final int bufferSize)
+        {
+            _bufferSize = bufferSize;
+            _magazineBytes = (long) _magazineSize * bufferSize;
+        }
+
+        int getBufferSize()
+        {
+            return _bufferSize;
+        }
+
+        long getMagazineBytes()
+        {
+            return _magazineBytes;
+        }
+
+        ByteBuffer[] takeMagazine()
+        {
+            return _depot.poll();
+        }
+
+        void offerMagazine(final ByteBuffer[] magazine)
+        {
+            _depot.add(magazine);
+        }
+
+        ByteBuffer allocate()
+        {
+            _misses.incrementAndGet();
+            _directMemorySize.addAndGet(_bufferSize);
+            return ByteBuffer.allocateDirect(_bufferSize);
+        }
+    }
+
+    /**
+     * The magazines of one thread.  Only the owning thread changes the cache until it has terminated, the
+     * counters are volatile so that other threads may read the statistics.
+     * <p>
+     * For each size class the thread holds budget for a whole number of magazines, at least enough for the buffers
+     * it caches.  It keeps at most one magazine of budget it does not use, so that alternating takes and releases
+     * do not contend on the shared budget.
+     */
+    private final class ThreadCache
+    {
+        private final Thread _owner;
+        private final ByteBuffer[][] _buffers = new ByteBuffer[_sizeClasses.length][2 * _magazineSize];
+        private final int[] _counts = new int[_sizeClasses.length];
+        private final int[] _reserved = new int[_sizeClasses.length];
+
+        private volatile long _allocations;
+        private volatile long _hits;
+        private volatile long _releases;
+
+        private ThreadCache(final Thread owner)
+        {
+            _owner = owner;
+        }
+
+        boolean isOwnerAlive()
+        {
+            return _owner.isAlive();
+        }
+
+        ByteBuffer take(final int index)
+        {
+            _allocations++;
+
+            final ByteBuffer[] buffers = _buffers[index];
+            if (_counts[index] == 0 && _magazineSize > 0)
+            {
+                final ByteBuffer[] magazine = _sizeClasses[index].takeMagazine();
+                if (magazine != null)
+                {
+                    System.arraycopy(magazine, 0, buffers, 0, _magazineSize);
+                    _counts[index] = _magazineSize;
+                    _reserved[index] += _magazineSize;
+                }
+            }
+
+            if (_counts[index] > 0)
+            {
+                _hits++;
+                final int count = --_counts[index];
+                final ByteBuffer buffer = buffers[count];
+                buffers[count] = null;
+                if (_reserved[index] - count >= 2 * _magazineSize)
+                {
+                    _reserved[index] -= _magazineSize;
+                    unreserve(_sizeClasses[index].getMagazineBytes());
+                }
+                return buffer;
+            }
+            return _sizeClasses[index].allocate();
+        }
+
+        void release(final int index, final ByteBuffer buffer)
+        {
+            _releases++;
+
+            if (_magazineSize == 0)
+            {
+                discard(buffer);
+                return;
+            }
+
+            final ByteBuffer[] buffers = _buffers[index];
+            if (_counts[index] == buffers.length)
+            {
+                spill(index);
+            }
+            if (_counts[index] == _reserved[index])
+            {
+                if (!reserve(_sizeClasses[index].getMagazineBytes()))
+                {
+                    discard(buffer);
+                    return;
+                }
+                _reserved[index] += _magazineSize;
+            }
+            buffers[_counts[index]++] = buffer;
+        }
+
+        private void spill(final int index)
+        {
+            final ByteBuffer[] buffers = _buffers[index];
+            final ByteBuffer[] magazine = new ByteBuffer[_magazineSize];
+            final int count = _counts[index] - _magazineSize;
+            System.arraycopy(buffers, count, magazine, 0, _magazineSize);
+            for (int i = count; i < _counts[index]; i++)
+            {
+                buffers[i] = null;
+            }
+            _counts[index] = count;
+            _reserved[index] -= _magazineSize;
+            _sizeClasses[index].offerMagazine(magazine);
+        }
+
+        void retire()
+        {
+            for (int index = 0; index < _sizeClasses.length; index++)
+            {
+                while (_counts[index] >= _magazineSize && _counts[index] > 0)
+                {
+                    spill(index);
+                }
+                for (int i = 0; i < _counts[index]; i++)
+                {
+                    discard(_buffers[index][i]);
+                    _buffers[index][i] = null;
+                }
+                _counts[index] = 0;
+                if (_reserved[index] > 0)
+                {
+                    unreserve(_sizeClasses[index].getMagazineBytes() * (_reserved[index] / _magazineSize));
+                    _reserved[index] = 0;
+                }
+            }
+            _retiredAllocations.addAndGet(_allocations);
+            _retiredHits.addAndGet(_hits);
+            _retiredReleases.addAndGet(_releases);
+        }
+    }
 }
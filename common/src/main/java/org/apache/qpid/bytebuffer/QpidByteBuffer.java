@@ -47,6 +47,12 @@ import org.apache.qpid.streams.CompositeInputStream;
 
 public class QpidByteBuffer
 {
+    /**
+     * A direct buffer taken from a size class of the pool holds less than this many times the requested size, so the
+     * direct memory held by pooled buffers is at worst just under this multiple of the bytes requested.
+     */
+    public static final int MAXIMUM_POOLED_CAPACITY_FACTOR = 2;
+
     private static final AtomicIntegerFieldUpdater<QpidByteBuffer>
             DISPOSED_UPDATER = AtomicIntegerFieldUpdater.newUpdater(
             QpidByteBuffer.class,
@@ -556,6 +562,12 @@ public class QpidByteBuffer
         return new QpidByteBuffer(new NonPooledByteBufferRef(ByteBuffer.allocate(size)));
     }
 
+    /**
+     * Allocates a direct buffer of the given size.  A size between the smallest size class of the pool and the pooled
+     * buffer size is sliced from a buffer of the smallest size class which can hold it, which is less than
+     * {@link #MAXIMUM_POOLED_CAPACITY_FACTOR} times the size.  A smaller size is sliced at its exact size from the
+     * thread's cached pooled buffer, and a larger one is allocated outside the pool.
+     */
     public static QpidByteBuffer allocateDirect(int size)
     {
         if (size < 0)
@@ -568,14 +580,17 @@ public class QpidByteBuffer
         final ByteBufferRef ref;
         if (_isPoolInitialized && _pooledBufferSize >= size)
         {
-            if (_pooledBufferSize == size)
+            final BufferPool bufferPool = _bufferPool;
+            if (size >= bufferPool.getMinimumBufferSize())
             {
-                ByteBuffer buf = _bufferPool.getBuffer();
-                if (buf == null)
+                ref = new PooledByteBufferRef(bufferPool.getBuffer(size));
+                ByteBuffer buffer = ref.getBuffer();
+                if (buffer.capacity() != size)
                 {
-                    buf = ByteBuffer.allocateDirect(size);
+                    buffer.limit(size);
+                    buffer = buffer.slice();
                 }
-                ref = new PooledByteBufferRef(buf);
+                return new QpidByteBuffer(ref, buffer, 0);
             }
             else
             {
@@ -760,6 +775,15 @@ public class QpidByteBuffer
         return new QpidByteBuffer(new NonPooledByteBufferRef(wrap));
     }
 
+    /**
+     * Creates a buffer over the buffer of the given reference.  The reference counts this buffer and each buffer
+     * derived from it (by {@link #duplicate()}, {@link #slice()} or {@link #view(int, int)}) until it is disposed.
+     */
+    public static QpidByteBuffer wrap(final ByteBufferRef ref)
+    {
+        return new QpidByteBuffer(ref);
+    }
+
     public static QpidByteBuffer wrap(final byte[] data)
     {
         return wrap(ByteBuffer.wrap(data));
@@ -797,8 +821,12 @@ public class QpidByteBuffer
         {
             throw new IllegalArgumentException("Negative or zero bufferSize illegal : " + bufferSize);
         }
+        if (_isPoolInitialized)
+        {
+            return;
+        }
 
-        _bufferPool = new BufferPool(maxPoolSize);
+        _bufferPool = new BufferPool(bufferSize, maxPoolSize);
         _pooledBufferSize = bufferSize;
         _zeroed = ByteBuffer.allocateDirect(_pooledBufferSize);
         _isPoolInitialized = true;
@@ -809,6 +837,31 @@ public class QpidByteBuffer
         return _pooledBufferSize;
     }
 
+    public static long getPoolAllocationCount()
+    {
+        return _isPoolInitialized ? _bufferPool.getAllocationCount() : 0L;
+    }
+
+    public static long getPoolHitCount()
+    {
+        return _isPoolInitialized ? _bufferPool.getHitCount() : 0L;
+    }
+
+    public static long getPoolMissCount()
+    {
+        return _isPoolInitialized ? _bufferPool.getMissCount() : 0L;
+    }
+
+    public static long getPoolOutstandingBufferCount()
+    {
+        return _isPoolInitialized ? _bufferPool.getOutstandingBufferCount() : 0L;
+    }
+
+    public static long getPoolDirectMemorySize()
+    {
+        return _isPoolInitialized ? _bufferPool.getDirectMemorySize() : 0L;
+    }
+
     private static final class BufferInputStream extends InputStream
     {
         private final QpidByteBuffer _qpidByteBuffer;
@@ -81,6 +81,14 @@ public class ClientProperties
      */
     public static final String SYNC_PUBLISH_PROP_NAME = "sync_publish";
 
+    /**
+     * System property to set a default value for the connection option 'publishConfirmWindow'.
+     * With sync_publish 'all' on a 0-8/0-9/0-9-1 connection, a session may have up to this many publishes
+     * awaiting confirmation from the broker.  Zero (the default) waits for each publish to be confirmed.
+     */
+    public static final String PUBLISH_CONFIRM_WINDOW = "qpid.publish_confirm_window";
+    public static final int DEFAULT_PUBLISH_CONFIRM_WINDOW = 0;
+
     /**
      * Frequency of heartbeat messages (in seconds)
      */
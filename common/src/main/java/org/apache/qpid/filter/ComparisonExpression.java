@@ -134,8 +134,11 @@ public abstract class ComparisonExpression<T> extends BinaryExpression<T> implem
         public Object evaluate(E message)
         {
 
-            Object rv = this.getRight().evaluate(message);
+            return evaluateValue(this.getRight().evaluate(message));
+        }
 
+        Object evaluateValue(Object rv)
+        {
             if (rv == null)
             {
                 return null;
@@ -569,7 +572,7 @@ public abstract class ComparisonExpression<T> extends BinaryExpression<T> implem
         return (object != null) && (object == Boolean.TRUE);
     }
 
-    private static class EqualExpression<E> extends ComparisonExpression<E>
+    static class EqualExpression<E> extends ComparisonExpression<E>
     {
         public EqualExpression(final Expression<E> left, final Expression<E> right)
         {
@@ -0,0 +1,609 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.filter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compiles a parsed selector into a tree of evaluators, one specialised evaluator per operator, which gives the
+ * same results as interpreting the parsed expression.
+ * <p>
+ * While compiling, sub-expressions which do not depend on the message are folded into constants, and property
+ * expressions are resolved to direct accessors of the JMS header or application property.  Properties referenced
+ * more than once by the selector are read from the message at most once per evaluation.
+ */
+public final class ExpressionCompiler<E>
+{
+    private static final Object UNRESOLVED = new Object();
+
+    private final Map<PropertyExpression<E>, Integer> _references = new HashMap<>();
+    private final Map<PropertyExpression<E>, Integer> _cacheSlots = new HashMap<>();
+
+    private ExpressionCompiler()
+    {
+    }
+
+    /**
+     * @param expression a parsed selector
+     * @return the compiled selector, or null if the selector contains expressions which cannot be compiled and
+     * must be interpreted
+     */
+    public static <E> BooleanExpression<E> compile(BooleanExpression<E> expression)
+    {
+        ExpressionCompiler<E> compiler = new ExpressionCompiler<>();
+        try
+        {
+            compiler.countPropertyReferences(expression);
+            Node<E> root = compiler.compileNode(expression);
+            return new CompiledExpression<>(expression, root, compiler._cacheSlots.size());
+        }
+        catch (UnsupportedExpressionException e)
+        {
+            return null;
+        }
+    }
+
+    private void countPropertyReferences(Expression<E> expression)
+    {
+        if (expression instanceof PropertyExpression)
+        {
+            PropertyExpression<E> property = (PropertyExpression<E>) expression;
+            Integer count = _references.get(property);
+            _references.put(property, count == null ? 1 : count + 1);
+        }
+        else if (expression instanceof BinaryExpression)
+        {
+            countPropertyReferences(((BinaryExpression<E>) expression).getLeft());
+            countPropertyReferences(((BinaryExpression<E>) expression).getRight());
+        }
+        else if (expression instanceof UnaryExpression)
+        {
+            countPropertyReferences(((UnaryExpression<E>) expression).getRight());
+        }
+        else if (!(expression instanceof ConstantExpression))
+        {
+            throw new UnsupportedExpressionException();
+        }
+    }
+
+    private Node<E> compileNode(Expression<E> expression)
+    {
+        if (expression instanceof ConstantExpression)
+        {
+            return new Constant<>(((ConstantExpression<E>) expression).getValue());
+        }
+        else if (expression instanceof PropertyExpression)
+        {
+            return compileProperty((PropertyExpression<E>) expression);
+        }
+        else if (expression instanceof LogicExpression.AndExpression)
+        {
+            LogicExpression<E> and = (LogicExpression<E>) expression;
+            return compileAnd(compileNode(and.getLeft()), compileNode(and.getRight()));
+        }
+        else if (expression instanceof LogicExpression.OrExpression)
+        {
+            LogicExpression<E> or = (LogicExpression<E>) expression;
+            return compileOr(compileNode(or.getLeft()), compileNode(or.getRight()));
+        }
+        else if (expression instanceof ComparisonExpression.EqualExpression)
+        {
+            ComparisonExpression<E> equal = (ComparisonExpression<E>) expression;
+            return fold(new Equal<>(equal, compileNode(equal.getLeft()), compileNode(equal.getRight())));
+        }
+        else if (expression instanceof ComparisonExpression)
+        {
+            ComparisonExpression<E> comparison = (ComparisonExpression<E>) expression;
+            return fold(new Comparison<>(comparison,
+                                         compileNode(comparison.getLeft()),
+                                         compileNode(comparison.getRight())));
+        }
+        else if (expression instanceof ArithmeticExpression)
+        {
+            ArithmeticExpression<E> arithmetic = (ArithmeticExpression<E>) expression;
+            return fold(new Arithmetic<>(arithmetic,
+                                         compileNode(arithmetic.getLeft()),
+                                         compileNode(arithmetic.getRight())));
+        }
+        else if (expression instanceof UnaryExpression.NotExpression)
+        {
+            return fold(new Not<>(compileNode(((UnaryExpression<E>) expression).getRight())));
+        }
+        else if (expression instanceof UnaryExpression.BooleanCastExpression)
+        {
+            return fold(new BooleanCast<>(compileNode(((UnaryExpression<E>) expression).getRight())));
+        }
+        else if (expression instanceof UnaryExpression.NegativeExpression)
+        {
+            return fold(new Negate<>(compileNode(((UnaryExpression<E>) expression).getRight())));
+        }
+        else if (expression instanceof ComparisonExpression.LikeExpression)
+        {
+            ComparisonExpression.LikeExpression<E> like = (ComparisonExpression.LikeExpression<E>) expression;
+            return fold(new Like<>(like, compileNode(like.getRight())));
+        }
+        else if (expression instanceof UnaryExpression.InExpression)
+        {
+            UnaryExpression.InExpression<E> in = (UnaryExpression.InExpression<E>) expression;
+            return fold(new In<>(in, compileNode(in.getRight())));
+        }
+        throw new UnsupportedExpressionException();
+    }
+
+    private Node<E> compileProperty(final PropertyExpression<E> property)
+    {
+        Expression<E> accessor;
+        if (property instanceof JMSMessagePropertyExpression)
+        {
+            accessor = (Expression<E>) ((JMSMessagePropertyExpression) property).getAccessor();
+        }
+        else
+        {
+            accessor = property;
+        }
+
+        int slot = -1;
+        if (_references.get(property) > 1)
+        {
+            Integer cacheSlot = _cacheSlots.get(property);
+            if (cacheSlot == null)
+            {
+                cacheSlot = _cacheSlots.size();
+                _cacheSlots.put(property, cacheSlot);
+            }
+            slot = cacheSlot;
+        }
+        return new Property<>(accessor, slot);
+    }
+
+    private Node<E> compileAnd(final Node<E> left, final Node<E> right)
+    {
+        if (left instanceof Constant)
+        {
+            Object value = ((Constant<E>) left).getValue();
+            if (value == null || value == Boolean.FALSE)
+            {
+                return left;
+            }
+            else if (value == Boolean.TRUE)
+            {
+                return right;
+            }
+        }
+        return new And<>(left, right);
+    }
+
+    private Node<E> compileOr(final Node<E> left, final Node<E> right)
+    {
+        if (left instanceof Constant)
+        {
+            Object value = ((Constant<E>) left).getValue();
+            if (value == Boolean.TRUE)
+            {
+                return left;
+            }
+            else if (value == null || value == Boolean.FALSE)
+            {
+                return right;
+            }
+        }
+        return new Or<>(left, right);
+    }
+
+    private Node<E> fold(final Node<E> node)
+    {
+        if (node.isFoldable())
+        {
+            try
+            {
+                return new Constant<>(node.evaluate(null, null));
+            }
+            catch (RuntimeException e)
+            {
+                // leave the failure to be reported when the selector is evaluated, as the interpreter would
+            }
+        }
+        return node;
+    }
+
+    private static final class UnsupportedExpressionException extends RuntimeException
+    {
+        private UnsupportedExpressionException()
+        {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final class CompiledExpression<E> implements BooleanExpression<E>
+    {
+        private final BooleanExpression<E> _expression;
+        private final Node<E> _root;
+        private final int _cachedProperties;
+
+        private CompiledExpression(final BooleanExpression<E> expression, final Node<E> root, final int cachedProperties)
+        {
+            _expression = expression;
+            _root = root;
+            _cachedProperties = cachedProperties;
+        }
+
+        @Override
+        public Object evaluate(final E message)
+        {
+            Object[] propertyCache = null;
+            if (_cachedProperties != 0)
+            {
+                propertyCache = new Object[_cachedProperties];
+                Arrays.fill(propertyCache, UNRESOLVED);
+            }
+            return _root.evaluate(message, propertyCache);
+        }
+
+        @Override
+        public boolean matches(final E message)
+        {
+            return evaluate(message) == Boolean.TRUE;
+        }
+
+        @Override
+        public String toString()
+        {
+            return _expression.toString();
+        }
+    }
+
+    private abstract static class Node<E>
+    {
+        abstract Object evaluate(E message, Object[] propertyCache);
+
+        /**
+         * @return true if the node does not depend on the message, and so can be replaced by its value
+         */
+        abstract boolean isFoldable();
+    }
+
+    private abstract static class UnaryNode<E> extends Node<E>
+    {
+        final Node<E> _operand;
+
+        UnaryNode(final Node<E> operand)
+        {
+            _operand = operand;
+        }
+
+        @Override
+        boolean isFoldable()
+        {
+            return _operand instanceof Constant;
+        }
+    }
+
+    private abstract static class BinaryNode<E> extends Node<E>
+    {
+        final Node<E> _left;
+        final Node<E> _right;
+
+        BinaryNode(final Node<E> left, final Node<E> right)
+        {
+            _left = left;
+            _right = right;
+        }
+
+        @Override
+        boolean isFoldable()
+        {
+            return _left instanceof Constant && _right instanceof Constant;
+        }
+    }
+
+    private static final class Constant<E> extends Node<E>
+    {
+        private final Object _value;
+
+        Constant(final Object value)
+        {
+            _value = value;
+        }
+
+        Object getValue()
+        {
+            return _value;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] propertyCache)
+        {
+            return _value;
+        }
+
+        @Override
+        boolean isFoldable()
+        {
+            return false;
+        }
+    }
+
+    private static final class Property<E> extends Node<E>
+    {
+        private final Expression<E> _accessor;
+        private final int _cacheSlot;
+
+        Property(final Expression<E> accessor, final int cacheSlot)
+        {
+            _accessor = accessor;
+            _cacheSlot = cacheSlot;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] propertyCache)
+        {
+            if (_cacheSlot < 0)
+            {
+                return _accessor.evaluate(message);
+            }
+
+            Object value = propertyCache[_cacheSlot];
+            if (value == UNRESOLVED)
+            {
+                value = _accessor.evaluate(message);
+                propertyCache[_cacheSlot] = value;
+            }
+            return value;
+        }
+
+        @Override
+        boolean isFoldable()
+        {
+            return false;
+        }
+    }
+
+    private static final class And<E> extends BinaryNode<E>
+    {
+        And(final Node<E> left, final Node<E> right)
+        {
+            super(left, right);
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] propertyCache)
+        {
+            Boolean lv = (Boolean) _left.evaluate(message, propertyCache);
+            if (lv == null)
+            {
+                return null;
+            }
+            if (!lv)
+            {
+                return Boolean.FALSE;
+            }
+            return (Boolean) _right.evaluate(message, propertyCache);
+        }
+    }
+
+    private static final class Or<E> extends BinaryNode<E>
+    {
+        Or(final Node<E> left, final Node<E> right)
+        {
+            super(left, right);
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] propertyCache)
+        {
+            Boolean lv = (Boolean) _left.evaluate(message, propertyCache);
+            if (lv != null && lv)
+            {
+                return Boolean.TRUE;
+            }
+            return (Boolean) _right.evaluate(message, propertyCache);
+        }
+    }
+
+    private static final class Equal<E> extends BinaryNode<E>
+    {
+        private final ComparisonExpression<E> _expression;
+
+        Equal(final ComparisonExpression<E> expression, final Node<E> left, final Node<E> right)
+        {
+            super(left, right);
+            _expression = expression;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] propertyCache)
+        {
+            Object lv = _left.evaluate(message, propertyCache);
+            Object rv = _right.evaluate(message, propertyCache);
+
+            if ((lv == null) ^ (rv == null))
+            {
+                return Boolean.FALSE;
+            }
+            if (lv == rv || lv.equals(rv))
+            {
+                return Boolean.TRUE;
+            }
+            if (lv instanceof Comparable && rv instanceof Comparable)
+            {
+                return _expression.compare((Comparable) lv, (Comparable) rv);
+            }
+            return Boolean.FALSE;
+        }
+    }
+
+    private static final class Comparison<E> extends BinaryNode<E>
+    {
+        private final ComparisonExpression<E> _expression;
+
+        Comparison(final ComparisonExpression<E> expression, final Node<E> left, final Node<E> right)
+        {
+            super(left, right);
+            _expression = expression;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] propertyCache)
+        {
+            Comparable lv = (Comparable) _left.evaluate(message, propertyCache);
+            if (lv == null)
+            {
+                return null;
+            }
+            Comparable rv = (Comparable) _right.evaluate(message, propertyCache);
+            if (rv == null)
+            {
+                return null;
+            }
+            return _expression.compare(lv, rv);
+        }
+    }
+
+    private static final class Arithmetic<E> extends BinaryNode<E>
+    {
+        private final ArithmeticExpression<E> _expression;
+
+        Arithmetic(final ArithmeticExpression<E> expression, final Node<E> left, final Node<E> right)
+        {
+            super(left, right);
+            _expression = expression;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] propertyCache)
+        {
+            Object lv = _left.evaluate(message, propertyCache);
+            if (lv == null)
+            {
+                return null;
+            }
+            Object rv = _right.evaluate(message, propertyCache);
+            if (rv == null)
+            {
+                return null;
+            }
+            return _expression.evaluate(lv, rv);
+        }
+    }
+
+    private static final class Not<E> extends UnaryNode<E>
+    {
+        Not(final Node<E> operand)
+        {
+            super(operand);
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] propertyCache)
+        {
+            Boolean value = (Boolean) _operand.evaluate(message, propertyCache);
+            if (value == null)
+            {
+                return null;
+            }
+            return value ? Boolean.FALSE : Boolean.TRUE;
+        }
+    }
+
+    private static final class BooleanCast<E> extends UnaryNode<E>
+    {
+        BooleanCast(final Node<E> operand)
+        {
+            super(operand);
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] propertyCache)
+        {
+            Object value = _operand.evaluate(message, propertyCache);
+            if (value == null)
+            {
+                return null;
+            }
+            if (!value.getClass().equals(Boolean.class))
+            {
+                return Boolean.FALSE;
+            }
+            return ((Boolean) value) ? Boolean.TRUE : Boolean.FALSE;
+        }
+    }
+
+    private static final class Negate<E> extends UnaryNode<E>
+    {
+        Negate(final Node<E> operand)
+        {
+            super(operand);
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] propertyCache)
+        {
+            Object value = _operand.evaluate(message, propertyCache);
+            if (value instanceof Number)
+            {
+                return UnaryExpression.negate((Number) value);
+            }
+            return null;
+        }
+    }
+
+    private static final class Like<E> extends UnaryNode<E>
+    {
+        private final ComparisonExpression.LikeExpression<E> _expression;
+
+        Like(final ComparisonExpression.LikeExpression<E> expression, final Node<E> operand)
+        {
+            super(operand);
+            _expression = expression;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] propertyCache)
+        {
+            return _expression.evaluateValue(_operand.evaluate(message, propertyCache));
+        }
+    }
+
+    private static final class In<E> extends UnaryNode<E>
+    {
+        private final UnaryExpression.InExpression<E> _expression;
+
+        In(final UnaryExpression.InExpression<E> expression, final Node<E> operand)
+        {
+            super(operand);
+            _expression = expression;
+        }
+
+        @Override
+        Object evaluate(final E message, final Object[] propertyCache)
+        {
+            return _expression.evaluateValue(_operand.evaluate(message, propertyCache), message);
+        }
+
+        @Override
+        boolean isFoldable()
+        {
+            return super.isFoldable() && !_expression.hasExpressionElements();
+        }
+    }
+}
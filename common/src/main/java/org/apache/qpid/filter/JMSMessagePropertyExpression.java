@@ -121,6 +121,22 @@ public class JMSMessagePropertyExpression implements PropertyExpression<Filterab
         return name;
     }
 
+    /**
+     * @return an expression reading this property directly, without deciding on each evaluation whether the
+     * property is a JMS header or an application property
+     */
+    Expression<FilterableMessage> getAccessor()
+    {
+        if (jmsPropertyExpression != null)
+        {
+            return jmsPropertyExpression;
+        }
+        else
+        {
+            return new HeaderExpression(name);
+        }
+    }
+
     /**
      * @see Object#toString()
      */
@@ -152,6 +168,21 @@ public class JMSMessagePropertyExpression implements PropertyExpression<Filterab
 
     }
 
+    private static class HeaderExpression implements Expression<FilterableMessage>
+    {
+        private final String _name;
+
+        private HeaderExpression(final String name)
+        {
+            _name = name;
+        }
+
+        public Object evaluate(FilterableMessage message)
+        {
+            return message.getHeader(_name);
+        }
+    }
+
     private static class ReplyToExpression implements Expression<FilterableMessage>
     {
         public Object evaluate(FilterableMessage message)
@@ -93,7 +93,7 @@ public abstract class UnaryExpression<T> implements Expression<T>
         return new BooleanCastExpression<>(left);
     }
 
-    private static Number negate(Number left)
+    static Number negate(Number left)
     {
         Class clazz = left.getClass();
         if (clazz == Integer.class)
@@ -180,7 +180,7 @@ public abstract class UnaryExpression<T> implements Expression<T>
      */
     public abstract String getExpressionSymbol();
 
-    private static class NegativeExpression<E> extends UnaryExpression<E>
+    static class NegativeExpression<E> extends UnaryExpression<E>
     {
         public NegativeExpression(final Expression<E> left)
         {
@@ -209,7 +209,7 @@ public abstract class UnaryExpression<T> implements Expression<T>
         }
     }
 
-    private static class InExpression<E> extends BooleanUnaryExpression<E>
+    static class InExpression<E> extends BooleanUnaryExpression<E>
     {
         private final Collection<?> _inList;
         private final boolean _not;
@@ -228,8 +228,11 @@ public abstract class UnaryExpression<T> implements Expression<T>
 
         public Object evaluate(E expression)
         {
+            return evaluateValue(getRight().evaluate(expression), expression);
+        }
 
-            Object rvalue = getRight().evaluate(expression);
+        Object evaluateValue(Object rvalue, E expression)
+        {
             if (rvalue == null || !(_allowNonJms || rvalue instanceof String))
             {
                 return null;
@@ -246,6 +249,24 @@ public abstract class UnaryExpression<T> implements Expression<T>
 
         }
 
+        /**
+         * @return true if the list contains expressions which must be evaluated against each message
+         */
+        boolean hasExpressionElements()
+        {
+            if (_inList != null)
+            {
+                for (Object entry : _inList)
+                {
+                    if (entry instanceof Expression && !(entry instanceof ConstantExpression))
+                    {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
         private boolean isInList(final Object rvalue, final E expression)
         {
             for(Object entry : _inList)
@@ -329,7 +350,7 @@ public abstract class UnaryExpression<T> implements Expression<T>
         }
     }
 
-    private static class NotExpression<E> extends BooleanUnaryExpression<E>
+    static class NotExpression<E> extends BooleanUnaryExpression<E>
     {
         public NotExpression(final BooleanExpression<E> left)
         {
@@ -353,7 +374,7 @@ public abstract class UnaryExpression<T> implements Expression<T>
         }
     }
 
-    private static class BooleanCastExpression<E> extends BooleanUnaryExpression<E>
+    static class BooleanCastExpression<E> extends BooleanUnaryExpression<E>
     {
         public BooleanCastExpression(final Expression<E> left)
         {
@@ -821,4 +821,40 @@ public enum AMQType
      * @return An instance of the type.
      */
     abstract Object readValueFromBuffer(QpidByteBuffer buffer);
+
+    /**
+     * Calculates the size in bytes of an encoded instance of the type without decoding it.
+     *
+     * @param buffer The byte buffer holding the encoded instance.
+     * @param index  The index in the buffer at which the encoded instance starts.
+     *
+     * @return The size of the encoded instance in bytes.
+     */
+    int getEncodedValueSize(QpidByteBuffer buffer, int index)
+    {
+        switch (this)
+        {
+            case VOID:
+                return 0;
+            case BOOLEAN:
+            case ASCII_CHARACTER:
+            case BYTE:
+                return 1;
+            case SHORT:
+                return 2;
+            case INTEGER:
+            case INT:
+            case FLOAT:
+                return 4;
+            case DECIMAL:
+                return 5;
+            case TIMESTAMP:
+            case LONG:
+            case DOUBLE:
+                return 8;
+            default:
+                // the remaining types are encoded as a four byte length followed by that many bytes
+                return 4 + buffer.getInt(index);
+        }
+    }
 }
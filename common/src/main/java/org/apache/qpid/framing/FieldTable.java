@@ -48,8 +48,17 @@ public class FieldTable
     private Map<AMQShortString, AMQTypedValue> _properties = null;
     private long _encodedSize;
     private static final int INITIAL_HASHMAP_CAPACITY = 16;
+    private static final int LOOKUP_CACHE_SIZE = 4;
     private final boolean _strictAMQP;
 
+    /**
+     * Values (or the absence of a value) found by looking up single properties in the encoded form, used until the
+     * properties are decoded into {@link #_properties}
+     */
+    private AMQShortString[] _lookupKeys;
+    private AMQTypedValue[] _lookupValues;
+    private int _lookupCount;
+
     public FieldTable()
     {
         this(STRICT_AMQP);
@@ -97,6 +106,15 @@ public class FieldTable
     {
         checkPropertyName(string);
 
+        return lookup(string);
+    }
+
+    /**
+     * Finds the value of a single property.  Until the table is mutated (or the whole table is read) the value is
+     * found by scanning the encoded form, decoding only the value of the property.
+     */
+    private AMQTypedValue lookup(AMQShortString key)
+    {
         synchronized (this)
         {
             if (_properties == null)
@@ -107,23 +125,85 @@ public class FieldTable
                 }
                 else
                 {
-                    populateFromBuffer();
+                    return findInEncodedForm(key);
                 }
             }
         }
 
-        if (_properties == null)
+        return _properties.get(key);
+    }
+
+    private AMQTypedValue findInEncodedForm(AMQShortString key)
+    {
+        if (_lookupKeys != null)
         {
-            return null;
+            for (int i = 0; i < Math.min(_lookupCount, LOOKUP_CACHE_SIZE); i++)
+            {
+                if (key.equals(_lookupKeys[i]))
+                {
+                    return _lookupValues[i];
+                }
+            }
         }
-        else
+
+        AMQTypedValue value = null;
+        final int start = _encodedForm.position();
+        final int end = start + (int) _encodedSize;
+        int index = start;
+        while (index < end)
         {
-            return _properties.get(string);
+            final int keyLength = _encodedForm.get(index) & 0xff;
+            final boolean found = keyMatches(key, index + 1, keyLength);
+            index += 1 + keyLength;
+            if (found)
+            {
+                final QpidByteBuffer valueBuffer = _encodedForm.view(index - start, end - index);
+                try
+                {
+                    value = AMQTypedValue.readFromBuffer(valueBuffer);
+                }
+                finally
+                {
+                    valueBuffer.dispose();
+                }
+                break;
+            }
+            final AMQType type = AMQTypeMap.getType(_encodedForm.get(index));
+            index += 1 + type.getEncodedValueSize(_encodedForm, index + 1);
         }
+
+        if (_lookupKeys == null)
+        {
+            _lookupKeys = new AMQShortString[LOOKUP_CACHE_SIZE];
+            _lookupValues = new AMQTypedValue[LOOKUP_CACHE_SIZE];
+        }
+        final int slot = _lookupCount++ % LOOKUP_CACHE_SIZE;
+        _lookupKeys[slot] = key;
+        _lookupValues[slot] = value;
+
+        return value;
+    }
+
+    private boolean keyMatches(AMQShortString key, int index, int keyLength)
+    {
+        if (key.length() != keyLength)
+        {
+            return false;
+        }
+        for (int i = 0; i < keyLength; i++)
+        {
+            if ((byte) key.charAt(i) != _encodedForm.get(index + i))
+            {
+                return false;
+            }
+        }
+        return true;
     }
 
     private void populateFromBuffer()
     {
+        _lookupKeys = null;
+        _lookupValues = null;
         try
         {
             setFromBuffer();
@@ -750,9 +830,8 @@ public class FieldTable
     public boolean itemExists(AMQShortString propertyName)
     {
         checkPropertyName(propertyName);
-        initMapIfNecessary();
 
-        return _properties.containsKey(propertyName);
+        return lookup(propertyName) != null;
     }
 
     public boolean itemExists(String string)
@@ -1001,9 +1080,7 @@ public class FieldTable
 
     public boolean containsKey(AMQShortString key)
     {
-        initMapIfNecessary();
-
-        return _properties.containsKey(key);
+        return key != null && lookup(key) != null;
     }
 
     public boolean containsKey(String key)
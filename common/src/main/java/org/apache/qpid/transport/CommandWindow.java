@@ -0,0 +1,429 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.transport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.apache.qpid.util.Serial;
+
+/**
+ * A map from command id to value for the ids of a session's outstanding commands.
+ * <p>
+ * Values are held in a ring buffer indexed by the offset of the id from the lowest id held.  The ring grows to span
+ * the ids held and the window moves forward as the lowest ids are removed, so lookups, insertions and removals of
+ * whole ranges cost no allocation per id.  Ids are compared as serial numbers, so the window may wrap.
+ * <p>
+ * A long outstanding command would make the ring span every id issued since.  Once the span is much larger than
+ * the number of ids held, the values are moved to a sorted map until the ids held are close together again.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public final class CommandWindow<V>
+{
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    /** spans beyond this size, and this many times the number of ids held, are held in the sorted map */
+    private static final int SPARSE_SPAN = 4096;
+    private static final int SPARSE_FACTOR = 64;
+
+    private Object[] _values = new Object[INITIAL_CAPACITY];
+    private int _mask = INITIAL_CAPACITY - 1;
+    /** the index of the lowest id held */
+    private int _head;
+    /** the lowest id held */
+    private int _first;
+    /** the number of ids from the lowest to the highest id held, inclusive */
+    private int _span;
+    private int _size;
+    /** the values while the ids held are too sparse for the ring, otherwise null */
+    private NavigableMap<Integer, V> _sparse;
+
+    /**
+     * @return the value previously held for the id, or null
+     */
+    public V put(final int id, final V value)
+    {
+        if (value == null)
+        {
+            return remove(id);
+        }
+
+        if (_sparse != null)
+        {
+            return _sparse.put(id, value);
+        }
+
+        if (_size == 0)
+        {
+            _head = 0;
+            _first = id;
+            _span = 1;
+        }
+        else
+        {
+            final int offset = id - _first;
+            final long span = offset < 0 ? (long) _span - offset : Math.max((long) offset + 1, _span);
+            if (span > MAXIMUM_CAPACITY || (span > SPARSE_SPAN && span > (long) SPARSE_FACTOR * (_size + 1)))
+            {
+                moveToSparse();
+                return _sparse.put(id, value);
+            }
+
+            if (offset < 0)
+            {
+                ensureCapacity((long) _span - offset);
+                _head = (_head + offset) & _mask;
+                _first = id;
+                _span -= offset;
+            }
+            else if (offset >= _span)
+            {
+                ensureCapacity((long) offset + 1);
+                _span = offset + 1;
+            }
+        }
+
+        final int index = index(id);
+        final V previous = valueAt(index);
+        _values[index] = value;
+        if (previous == null)
+        {
+            _size++;
+        }
+        return previous;
+    }
+
+    public V get(final int id)
+    {
+        if (_sparse != null)
+        {
+            return _sparse.get(id);
+        }
+        final int offset = id - _first;
+        return _size == 0 || offset < 0 || offset >= _span ? null : this.<V>valueAt(index(id));
+    }
+
+    public V remove(final int id)
+    {
+        if (_sparse != null)
+        {
+            final V previous = _sparse.remove(id);
+            if (previous != null)
+            {
+                moveToRingIfDense();
+            }
+            return previous;
+        }
+
+        final int offset = id - _first;
+        if (_size == 0 || offset < 0 || offset >= _span)
+        {
+            return null;
+        }
+        final int index = index(id);
+        final V previous = valueAt(index);
+        if (previous != null)
+        {
+            _values[index] = null;
+            _size--;
+            trim();
+        }
+        return previous;
+    }
+
+    /**
+     * Removes the values held for the ids from <code>lower</code> to <code>upper</code> inclusive.
+     *
+     * @return the values removed, in id order
+     */
+    public List<V> removeRange(final int lower, final int upper)
+    {
+        if (_sparse != null)
+        {
+            if (upper - lower < 0)
+            {
+                return Collections.emptyList();
+            }
+            final NavigableMap<Integer, V> range = _sparse.subMap(lower, true, upper, true);
+            if (range.isEmpty())
+            {
+                return Collections.emptyList();
+            }
+            final List<V> removed = new ArrayList<>(range.values());
+            range.clear();
+            moveToRingIfDense();
+            return removed;
+        }
+
+        if (_size == 0)
+        {
+            return Collections.emptyList();
+        }
+        final int start = Math.max(lower - _first, 0);
+        final int end = Math.min(upper - _first, _span - 1);
+        if (start > end || upper - lower < 0)
+        {
+            return Collections.emptyList();
+        }
+
+        List<V> removed = null;
+        for (int offset = start; offset <= end && _size > 0; offset++)
+        {
+            final int index = (_head + offset) & _mask;
+            final V value = valueAt(index);
+            if (value != null)
+            {
+                if (removed == null)
+                {
+                    removed = new ArrayList<>(Math.min(end - offset + 1, _size));
+                }
+                removed.add(value);
+                _values[index] = null;
+                _size--;
+            }
+        }
+        if (removed == null)
+        {
+            return Collections.emptyList();
+        }
+        trim();
+        return removed;
+    }
+
+    /**
+     * Passes the ids held from <code>lower</code> to <code>upper</code> inclusive, and their values, to the visitor
+     * in id order.  The visitor must not modify this window.
+     */
+    public void visitRange(final int lower, final int upper, final Visitor<? super V> visitor)
+    {
+        if (upper - lower < 0)
+        {
+            return;
+        }
+
+        if (_sparse != null)
+        {
+            for (Map.Entry<Integer, V> entry : _sparse.subMap(lower, true, upper, true).entrySet())
+            {
+                visitor.visit(entry.getKey(), entry.getValue());
+            }
+            return;
+        }
+
+        if (_size == 0)
+        {
+            return;
+        }
+        final int start = Math.max(lower - _first, 0);
+        final int end = Math.min(upper - _first, _span - 1);
+        for (int offset = start; offset <= end; offset++)
+        {
+            final V value = valueAt((_head + offset) & _mask);
+            if (value != null)
+            {
+                visitor.visit(_first + offset, value);
+            }
+        }
+    }
+
+    /**
+     * @return the lowest id held; only meaningful if the window is not empty
+     */
+    public int getFirstId()
+    {
+        return _sparse != null ? _sparse.firstKey() : _first;
+    }
+
+    /**
+     * @return the highest id held; only meaningful if the window is not empty
+     */
+    public int getLastId()
+    {
+        return _sparse != null ? _sparse.lastKey() : _first + _span - 1;
+    }
+
+    /**
+     * @return the values held, in id order
+     */
+    public List<V> values()
+    {
+        if (_sparse != null)
+        {
+            return new ArrayList<>(_sparse.values());
+        }
+        final List<V> values = new ArrayList<>(_size);
+        for (int offset = 0; offset < _span; offset++)
+        {
+            final V value = valueAt((_head + offset) & _mask);
+            if (value != null)
+            {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    public int size()
+    {
+        return _sparse != null ? _sparse.size() : _size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    public void clear()
+    {
+        _sparse = null;
+        if (_values.length > INITIAL_CAPACITY)
+        {
+            _values = new Object[INITIAL_CAPACITY];
+            _mask = INITIAL_CAPACITY - 1;
+        }
+        else
+        {
+            for (int i = 0; i < _values.length; i++)
+            {
+                _values[i] = null;
+            }
+        }
+        _head = 0;
+        _span = 0;
+        _size = 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CommandWindow[size=" + size() + (isEmpty() ? "" : ", ids=" + getFirstId() + "-" + getLastId()) + "]";
+    }
+
+    public interface Visitor<V>
+    {
+        void visit(int id, V value);
+    }
+
+    private int index(final int id)
+    {
+        return (_head + (id - _first)) & _mask;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T valueAt(final int index)
+    {
+        return (T) _values[index];
+    }
+
+    /**
+     * Moves the ends of the window in past any ids no longer held.
+     */
+    private void trim()
+    {
+        if (_size == 0)
+        {
+            _head = 0;
+            _span = 0;
+            if (_values.length > INITIAL_CAPACITY * 4)
+            {
+                _values = new Object[INITIAL_CAPACITY];
+                _mask = INITIAL_CAPACITY - 1;
+            }
+            return;
+        }
+        while (_values[_head] == null)
+        {
+            _head = (_head + 1) & _mask;
+            _first++;
+            _span--;
+        }
+        while (_values[(_head + _span - 1) & _mask] == null)
+        {
+            _span--;
+        }
+    }
+
+    private void moveToSparse()
+    {
+        _sparse = new TreeMap<>(Serial.COMPARATOR);
+        for (int offset = 0; offset < _span; offset++)
+        {
+            final V value = valueAt((_head + offset) & _mask);
+            if (value != null)
+            {
+                _sparse.put(_first + offset, value);
+            }
+        }
+        _values = new Object[INITIAL_CAPACITY];
+        _mask = INITIAL_CAPACITY - 1;
+        _head = 0;
+        _span = 0;
+        _size = 0;
+    }
+
+    /**
+     * Moves the values back to the ring once the ids held span at most half the span at which they were moved out.
+     */
+    private void moveToRingIfDense()
+    {
+        if (_sparse.isEmpty())
+        {
+            _sparse = null;
+            return;
+        }
+        final int first = _sparse.firstKey();
+        final long span = (long) (_sparse.lastKey() - first) + 1;
+        if (span <= Math.max(SPARSE_SPAN, (long) SPARSE_FACTOR * _sparse.size()) / 2)
+        {
+            ensureCapacity(span);
+            _head = 0;
+            _first = first;
+            _span = (int) span;
+            _size = _sparse.size();
+            for (Map.Entry<Integer, V> entry : _sparse.entrySet())
+            {
+                _values[entry.getKey() - first] = entry.getValue();
+            }
+            _sparse = null;
+        }
+    }
+
+    private void ensureCapacity(final long span)
+    {
+        if (span > _values.length)
+        {
+            final int capacity = Integer.highestOneBit((int) span - 1) << 1;
+            final Object[] values = new Object[capacity];
+            for (int offset = 0; offset < _span; offset++)
+            {
+                values[offset] = _values[(_head + offset) & _mask];
+            }
+            _values = values;
+            _mask = capacity - 1;
+            _head = 0;
+        }
+    }
+}
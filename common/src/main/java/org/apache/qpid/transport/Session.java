@@ -113,7 +113,7 @@ public class Session extends SessionInvoker
     // outgoing command count
     private int commandsOut = 0;
     private final int commandLimit = Integer.getInteger("qpid.session.command_limit", 64 * 1024);
-    private Map<Integer,Method> commands = new HashMap<Integer, Method>();
+    private final CommandWindow<Method> commands = new CommandWindow<Method>();
     private final Object commandsLock = new Object();
     private int commandBytes = 0;
     private int byteLimit = Integer.getInteger("qpid.session.byte_limit", 1024*1024);
@@ -366,11 +366,6 @@ public class Session extends SessionInvoker
         commands.put(commandId, command);
     }
 
-    private Method removeCommand(int id)
-    {
-        return commands.remove(id);
-    }
-
     final void commandPoint(int id)
     {
         synchronized (processedLock)
@@ -553,14 +548,10 @@ public class Session extends SessionInvoker
         synchronized (commandsLock)
         {
             int old = maxComplete;
-            for (int id = max(maxComplete, lower); le(id, upper); id++)
+            for (Method m : commands.removeRange(max(maxComplete, lower), upper))
             {
-                Method m = removeCommand(id);
-                if (m != null)
-                {
-                    commandBytes -= m.getBodySize();
-                    m.complete();
-                }
+                commandBytes -= m.getBodySize();
+                m.complete();
             }
             if (le(lower, maxComplete + 1))
             {
@@ -0,0 +1,201 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.bytebuffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+
+public class BufferPoolTest extends QpidTestCase
+{
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int MAX_POOL_SIZE = 8;
+
+    private BufferPool _pool;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        _pool = new BufferPool(BUFFER_SIZE, MAX_POOL_SIZE);
+    }
+
+    public void testSizeClasses()
+    {
+        assertEquals("Unexpected minimum buffer size", BUFFER_SIZE / 8, _pool.getMinimumBufferSize());
+        assertEquals("Unexpected capacity", BUFFER_SIZE, _pool.getBuffer(BUFFER_SIZE).capacity());
+        assertEquals("Unexpected capacity", BUFFER_SIZE, _pool.getBuffer(BUFFER_SIZE / 2 + 1).capacity());
+        assertEquals("Unexpected capacity", BUFFER_SIZE / 2, _pool.getBuffer(BUFFER_SIZE / 2).capacity());
+        assertEquals("Unexpected capacity", BUFFER_SIZE / 8, _pool.getBuffer(BUFFER_SIZE / 8).capacity());
+
+        assertEquals("Unexpected minimum buffer size", 10, new BufferPool(10, MAX_POOL_SIZE).getMinimumBufferSize());
+    }
+
+    public void testWorstCaseCapacityOverhead()
+    {
+        for (int size = _pool.getMinimumBufferSize(); size <= BUFFER_SIZE; size *= 2)
+        {
+            for (int requested : new int[] { size - 1, size, size + 1 })
+            {
+                if (requested >= _pool.getMinimumBufferSize() && requested <= BUFFER_SIZE)
+                {
+                    final int capacity = _pool.getBuffer(requested).capacity();
+                    assertTrue("Capacity " + capacity + " cannot hold " + requested, capacity >= requested);
+                    assertTrue("Capacity " + capacity + " is not less than "
+                               + QpidByteBuffer.MAXIMUM_POOLED_CAPACITY_FACTOR + " times " + requested,
+                               capacity < QpidByteBuffer.MAXIMUM_POOLED_CAPACITY_FACTOR * requested);
+                }
+            }
+        }
+
+        final BufferPool pool = new BufferPool(BUFFER_SIZE, MAX_POOL_SIZE);
+        final int worstCaseSize = pool.getMinimumBufferSize() + 1;
+        long requestedBytes = 0L;
+        for (int i = 0; i < MAX_POOL_SIZE; i++)
+        {
+            pool.getBuffer(worstCaseSize);
+            requestedBytes += worstCaseSize;
+        }
+        assertTrue("Pooled direct memory " + pool.getDirectMemorySize() + " not bounded by requested " + requestedBytes,
+                   pool.getDirectMemorySize() < QpidByteBuffer.MAXIMUM_POOLED_CAPACITY_FACTOR * requestedBytes);
+    }
+
+    public void testReleasedBufferIsReused()
+    {
+        ByteBuffer buffer = _pool.getBuffer(BUFFER_SIZE);
+        _pool.returnBuffer(buffer);
+
+        assertSame("Buffer not reused", buffer, _pool.getBuffer(BUFFER_SIZE));
+        assertNotSame("Buffer of other size class reused", buffer, _pool.getBuffer(BUFFER_SIZE / 2));
+
+        assertEquals("Unexpected allocations", 3, _pool.getAllocationCount());
+        assertEquals("Unexpected hits", 1, _pool.getHitCount());
+        assertEquals("Unexpected misses", 2, _pool.getMissCount());
+        assertEquals("Unexpected outstanding buffers", 2, _pool.getOutstandingBufferCount());
+        assertEquals("Unexpected direct memory size", BUFFER_SIZE + BUFFER_SIZE / 2, _pool.getDirectMemorySize());
+    }
+
+    public void testBuffersCachedByTerminatedThreadAreReused() throws Exception
+    {
+        final List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < MAX_POOL_SIZE; i++)
+        {
+            buffers.add(_pool.getBuffer(BUFFER_SIZE));
+        }
+
+        Thread releasingThread = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                for (ByteBuffer buffer : buffers)
+                {
+                    _pool.returnBuffer(buffer);
+                }
+            }
+        });
+        releasingThread.start();
+        releasingThread.join();
+
+        assertEquals("Unexpected outstanding buffers", 0, _pool.getOutstandingBufferCount());
+
+        for (int i = 0; i < MAX_POOL_SIZE; i++)
+        {
+            assertTrue("Buffer not reused", buffers.contains(_pool.getBuffer(BUFFER_SIZE)));
+        }
+        assertEquals("Unexpected hits", MAX_POOL_SIZE, _pool.getHitCount());
+        assertEquals("Unexpected misses", MAX_POOL_SIZE, _pool.getMissCount());
+        assertEquals("Unexpected outstanding buffers", MAX_POOL_SIZE, _pool.getOutstandingBufferCount());
+    }
+
+    public void testPoolSizeIsBounded()
+    {
+        final int bufferCount = MAX_POOL_SIZE * 4;
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < bufferCount; i++)
+        {
+            buffers.add(_pool.getBuffer(BUFFER_SIZE));
+        }
+        for (ByteBuffer buffer : buffers)
+        {
+            _pool.returnBuffer(buffer);
+        }
+
+        assertEquals("Unexpected outstanding buffers", 0, _pool.getOutstandingBufferCount());
+        long pooledBuffers = _pool.getDirectMemorySize() / BUFFER_SIZE;
+        assertTrue("Too many buffers retained: " + pooledBuffers, pooledBuffers <= MAX_POOL_SIZE);
+    }
+
+    public void testPoolSizeIsBoundedAcrossSizeClassesAndThreads() throws Exception
+    {
+        final long maxPooledBytes = (long) MAX_POOL_SIZE * BUFFER_SIZE;
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++)
+        {
+            threads.add(new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    List<ByteBuffer> buffers = new ArrayList<>();
+                    for (int i = 0; i < MAX_POOL_SIZE * 2; i++)
+                    {
+                        for (int size = BUFFER_SIZE; size >= _pool.getMinimumBufferSize(); size /= 2)
+                        {
+                            buffers.add(_pool.getBuffer(size));
+                        }
+                    }
+                    for (ByteBuffer buffer : buffers)
+                    {
+                        _pool.returnBuffer(buffer);
+                    }
+                    assertTrue("Budget exceeded: " + _pool.getReservedPoolSize(),
+                               _pool.getReservedPoolSize() <= maxPooledBytes);
+                }
+            }));
+        }
+        for (Thread thread : threads)
+        {
+            thread.start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+
+        assertEquals("Unexpected outstanding buffers", 0, _pool.getOutstandingBufferCount());
+        assertTrue("Too much memory retained: " + _pool.getDirectMemorySize(),
+                   _pool.getDirectMemorySize() <= maxPooledBytes);
+        assertTrue("Budget exceeded: " + _pool.getReservedPoolSize(), _pool.getReservedPoolSize() <= maxPooledBytes);
+    }
+
+    public void testZeroPoolSize()
+    {
+        BufferPool pool = new BufferPool(BUFFER_SIZE, 0);
+        ByteBuffer buffer = pool.getBuffer(BUFFER_SIZE);
+        pool.returnBuffer(buffer);
+
+        assertNotSame("Buffer should not be reused", buffer, pool.getBuffer(BUFFER_SIZE));
+        assertEquals("Unexpected direct memory size", BUFFER_SIZE, pool.getDirectMemorySize());
+    }
+}
@@ -21,6 +21,7 @@
 package org.apache.qpid.framing;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -619,6 +620,52 @@ public class FieldTableTest extends QpidTestCase
         Assert.assertNull(table2.getString("null-string"));
     }
 
+    public void testLookupInEncodedForm() throws Exception
+    {
+        byte[] bytes = { 99, 98, 97, 96, 95 };
+        FieldTable nested = new FieldTable();
+        nested.setString("inner", "value");
+
+        FieldTable table = new FieldTable();
+        table.setBoolean("bool", true);
+        table.setBytes("bytes", bytes);
+        table.setChar("char", 'c');
+        table.setDecimal(new AMQShortString("decimal"), new BigDecimal(12));
+        table.setDouble("double", Double.MAX_VALUE);
+        table.setFieldArray("array", Arrays.asList("a", "b"));
+        table.setFieldTable("nested", nested);
+        table.setInteger("int", Integer.MAX_VALUE);
+        table.setLong("long", Long.MAX_VALUE);
+        table.setShort("short", Short.MAX_VALUE);
+        table.setString("null-string", null);
+        table.setTimestamp(new AMQShortString("timestamp"), 1234L);
+        table.setString("string", "hello");
+
+        FieldTable encoded = new FieldTable(QpidByteBuffer.wrap(table.getDataAsBytes()));
+
+        Assert.assertEquals("hello", encoded.getString("string"));
+        Assert.assertEquals(Long.valueOf(1234L), encoded.getTimestamp(new AMQShortString("timestamp")));
+        Assert.assertEquals(Short.valueOf(Short.MAX_VALUE), encoded.getShort("short"));
+        Assert.assertTrue(encoded.containsKey("null-string"));
+        Assert.assertNull(encoded.getString("null-string"));
+        Assert.assertEquals("value", encoded.getFieldTable("nested").getString("inner"));
+        Assert.assertEquals(Long.valueOf(Long.MAX_VALUE), encoded.getLong("long"));
+        Assert.assertEquals(Double.valueOf(Double.MAX_VALUE), encoded.getDouble("double"));
+        Assert.assertEquals(new BigDecimal(12), encoded.getDecimal(new AMQShortString("decimal")));
+        assertBytesEqual(bytes, encoded.getBytes("bytes"));
+        Assert.assertEquals((Boolean) true, encoded.getBoolean("bool"));
+        Assert.assertFalse(encoded.containsKey("missing"));
+        Assert.assertNull(encoded.getObject("missing"));
+        Assert.assertEquals("hello", encoded.getString("string"));
+        Assert.assertTrue("Encoded form should be retained by lookups", encoded.isClean());
+
+        encoded.setString("string", "world");
+        Assert.assertFalse(encoded.isClean());
+        Assert.assertEquals("world", encoded.getString("string"));
+        Assert.assertEquals(Integer.valueOf(Integer.MAX_VALUE), encoded.getInteger("int"));
+        Assert.assertEquals(table.size(), encoded.size());
+    }
+
     public void testEncodingSize()
     {
         FieldTable result = new FieldTable();
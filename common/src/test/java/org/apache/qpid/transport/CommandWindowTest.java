@@ -0,0 +1,276 @@
+/*
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.apache.qpid.transport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.apache.qpid.test.utils.QpidTestCase;
+import org.apache.qpid.util.Serial;
+
+public class CommandWindowTest extends QpidTestCase
+{
+    public void testPutGetRemove()
+    {
+        CommandWindow<String> window = new CommandWindow<>();
+        assertTrue("Window should be empty", window.isEmpty());
+        assertNull("Unexpected value", window.get(5));
+
+        assertNull("Unexpected previous value", window.put(5, "five"));
+        assertNull("Unexpected previous value", window.put(7, "seven"));
+        assertEquals("Unexpected previous value", "five", window.put(5, "FIVE"));
+        assertEquals("Unexpected size", 2, window.size());
+        assertEquals("Unexpected value", "FIVE", window.get(5));
+        assertNull("Unexpected value", window.get(6));
+        assertEquals("Unexpected first id", 5, window.getFirstId());
+        assertEquals("Unexpected last id", 7, window.getLastId());
+
+        assertEquals("Unexpected removed value", "FIVE", window.remove(5));
+        assertNull("Value should already be removed", window.remove(5));
+        assertEquals("Window should move past removed ids", 7, window.getFirstId());
+        assertEquals("Unexpected removed value", "seven", window.remove(7));
+        assertTrue("Window should be empty", window.isEmpty());
+    }
+
+    public void testPutBelowFirstId()
+    {
+        CommandWindow<Integer> window = new CommandWindow<>();
+        window.put(1000, 1000);
+        for (int id = 999; id >= 800; id--)
+        {
+            window.put(id, id);
+        }
+        assertEquals("Unexpected first id", 800, window.getFirstId());
+        assertEquals("Unexpected last id", 1000, window.getLastId());
+        for (int id = 800; id <= 1000; id++)
+        {
+            assertEquals("Unexpected value", Integer.valueOf(id), window.get(id));
+        }
+    }
+
+    public void testRemoveRange()
+    {
+        CommandWindow<Integer> window = new CommandWindow<>();
+        for (int id = 0; id < 1000; id += 2)
+        {
+            window.put(id, id);
+        }
+
+        assertEquals("Unexpected values removed", Arrays.asList(10, 12, 14), window.removeRange(9, 15));
+        assertEquals("Unexpected values removed", Collections.emptyList(), window.removeRange(10, 14));
+        assertEquals("Unexpected values removed", Arrays.asList(0, 2), window.removeRange(-100, 3));
+        assertEquals("Unexpected first id", 4, window.getFirstId());
+        assertEquals("Unexpected values removed", Collections.singletonList(998), window.removeRange(997, 5000));
+        assertEquals("Unexpected last id", 996, window.getLastId());
+        assertEquals("Unexpected size", 494, window.size());
+
+        assertEquals("Unexpected number of values removed", 494, window.removeRange(0, 1000).size());
+        assertTrue("Window should be empty", window.isEmpty());
+    }
+
+    public void testVisitRange()
+    {
+        CommandWindow<Integer> window = new CommandWindow<>();
+        for (int id = 0; id < 1000; id += 2)
+        {
+            window.put(id, id);
+        }
+
+        assertEquals("Unexpected ids visited", Arrays.asList(10, 12, 14), visitRange(window, 9, 15));
+        assertEquals("Unexpected ids visited", Arrays.asList(0, 2), visitRange(window, -100, 3));
+        assertEquals("Unexpected ids visited", Collections.singletonList(998), visitRange(window, 997, 5000));
+        assertEquals("Unexpected ids visited", Collections.emptyList(), visitRange(window, 15, 9));
+        assertEquals("Visiting should not remove values", 500, window.size());
+
+        window.put(1000000, 1000000);
+        window.removeRange(0, 990);
+        assertEquals("Unexpected ids visited", Arrays.asList(992, 994, 996, 998, 1000000),
+                     visitRange(window, 991, 2000000));
+        assertEquals("Unexpected ids visited", Collections.singletonList(1000000), visitRange(window, 999, 1000000));
+    }
+
+    private static List<Integer> visitRange(final CommandWindow<Integer> window, final int lower, final int upper)
+    {
+        final List<Integer> ids = new ArrayList<>();
+        window.visitRange(lower, upper, new CommandWindow.Visitor<Integer>()
+        {
+            @Override
+            public void visit(final int id, final Integer value)
+            {
+                assertEquals("Unexpected value for id", Integer.valueOf(id), value);
+                ids.add(id);
+            }
+        });
+        return ids;
+    }
+
+    public void testIdsWrap()
+    {
+        CommandWindow<Integer> window = new CommandWindow<>();
+        final int first = Integer.MAX_VALUE - 10;
+        for (int i = 0; i < 20; i++)
+        {
+            window.put(first + i, i);
+        }
+        assertEquals("Unexpected value", Integer.valueOf(15), window.get(first + 15));
+        assertEquals("Unexpected number of values removed", 20, window.removeRange(first, first + 19).size());
+        assertTrue("Window should be empty", window.isEmpty());
+    }
+
+    public void testMatchesSortedMap()
+    {
+        final Random random = new Random(1);
+        final CommandWindow<Integer> window = new CommandWindow<>();
+        final Map<Integer, Integer> expected = new TreeMap<>(Serial.COMPARATOR);
+        int next = Integer.MAX_VALUE - 5000;
+
+        for (int i = 0; i < 20000; i++)
+        {
+            final int operation = random.nextInt(4);
+            if (operation < 2)
+            {
+                window.put(next, next);
+                expected.put(next, next);
+                next += 1 + random.nextInt(3);
+            }
+            else if (operation == 2 && !expected.isEmpty())
+            {
+                final int id = next - random.nextInt(200);
+                assertEquals("Unexpected removed value", expected.remove(id), window.remove(id));
+            }
+            else
+            {
+                final int lower = next - random.nextInt(300);
+                final int upper = lower + random.nextInt(100);
+                int removed = 0;
+                for (int id = lower; Serial.le(id, upper); id++)
+                {
+                    if (expected.remove(id) != null)
+                    {
+                        removed++;
+                    }
+                }
+                assertEquals("Unexpected number of values removed", removed, window.removeRange(lower, upper).size());
+            }
+            assertEquals("Unexpected size", expected.size(), window.size());
+        }
+        assertEquals("Unexpected values", new ArrayList<>(expected.values()), window.values());
+    }
+
+    public void testLongOutstandingId()
+    {
+        CommandWindow<Integer> window = new CommandWindow<>();
+        window.put(0, 0);
+        window.put(1, 1);
+        for (int id = 2; id < 100000; id++)
+        {
+            window.put(id, id);
+            window.remove(id - 1);
+        }
+        assertEquals("Unexpected size", 2, window.size());
+        assertEquals("Unexpected value", Integer.valueOf(0), window.get(0));
+        assertEquals("Unexpected value", Integer.valueOf(99999), window.get(99999));
+        assertEquals("Unexpected first id", 0, window.getFirstId());
+        assertEquals("Unexpected last id", 99999, window.getLastId());
+        assertEquals("Unexpected values", Arrays.asList(0, 99999), window.values());
+
+        assertEquals("Unexpected removed value", Integer.valueOf(0), window.remove(0));
+        window.put(100000, 100000);
+        assertEquals("Unexpected first id", 99999, window.getFirstId());
+        assertEquals("Unexpected values", Arrays.asList(99999, 100000), window.values());
+    }
+
+    public void testSpanBeyondRingCapacity()
+    {
+        CommandWindow<Integer> window = new CommandWindow<>();
+        final int far = (1 << 30) + 5;
+        window.put(0, 0);
+        window.put(far, far);
+        assertEquals("Unexpected value", Integer.valueOf(far), window.get(far));
+        assertEquals("Unexpected last id", far, window.getLastId());
+        assertEquals("Unexpected values removed", Collections.singletonList(0), window.removeRange(-5, 5));
+        assertEquals("Unexpected first id", far, window.getFirstId());
+    }
+
+    public void testSparseWindowMatchesSortedMap()
+    {
+        final Random random = new Random(2);
+        final CommandWindow<Integer> window = new CommandWindow<>();
+        final Map<Integer, Integer> expected = new TreeMap<>(Serial.COMPARATOR);
+        int next = Integer.MAX_VALUE - 50000;
+
+        for (int i = 0; i < 20000; i++)
+        {
+            final int operation = random.nextInt(5);
+            if (operation < 2)
+            {
+                window.put(next, next);
+                expected.put(next, next);
+                next += 1 + (random.nextInt(100) == 0 ? 10000 : random.nextInt(3));
+            }
+            else if (operation == 2 && !expected.isEmpty())
+            {
+                final int id = next - random.nextInt(200);
+                assertEquals("Unexpected removed value", expected.remove(id), window.remove(id));
+            }
+            else if (operation == 3)
+            {
+                final int lower = next - random.nextInt(30000);
+                final int upper = lower + random.nextInt(20000);
+                int removed = 0;
+                for (int id = lower; Serial.le(id, upper); id++)
+                {
+                    if (expected.remove(id) != null)
+                    {
+                        removed++;
+                    }
+                }
+                assertEquals("Unexpected number of values removed", removed, window.removeRange(lower, upper).size());
+            }
+            else if (!expected.isEmpty())
+            {
+                final int id = next - random.nextInt(30000);
+                assertEquals("Unexpected value", expected.get(id), window.get(id));
+            }
+            assertEquals("Unexpected size", expected.size(), window.size());
+        }
+        assertEquals("Unexpected values", new ArrayList<>(expected.values()), window.values());
+    }
+
+    public void testClear()
+    {
+        CommandWindow<Integer> window = new CommandWindow<>();
+        for (int id = 0; id < 10000; id++)
+        {
+            window.put(id, id);
+        }
+        window.clear();
+        assertTrue("Window should be empty", window.isEmpty());
+        assertNull("Unexpected value", window.get(5));
+        window.put(3, 3);
+        assertEquals("Unexpected value", Integer.valueOf(3), window.get(3));
+    }
+}